@@ -17,6 +17,7 @@ import androidx.activity.EdgeToEdge;
 import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
+import androidx.core.util.Pair;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import androidx.fragment.app.Fragment;
@@ -31,19 +32,26 @@ import com.example.yellow.ui.MyEventsFragment;
 import com.example.yellow.ui.NotificationFragment;
 import com.example.yellow.ui.ProfileUserFragment;
 import com.example.yellow.ui.QrScanFragment;
+import com.example.yellow.users.PendingActionQueue;
 import com.example.yellow.users.WaitingListFragment;
+import com.example.yellow.utils.ParticipationIndex;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.android.material.datepicker.MaterialDatePicker;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
 //author: waylon
 
@@ -57,8 +65,14 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
     private ListenerRegistration eventsListener;
     private List<Event> allEvents = new ArrayList<>();
     private LinearLayout eventsContainer;
-    private String selectedDate = null;
+    private EditText searchBar;
+    // Inclusive start / exclusive end of the selected date range, or null when unfiltered
+    private Timestamp rangeStart = null;
+    private Timestamp rangeEnd = null;
     private ListenerRegistration notificationListener;
+    // Current user's status per event ID, from profiles/{uid}/participations
+    private ListenerRegistration participationsListener;
+    private final Map<String, String> myParticipation = new HashMap<>();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -145,6 +159,11 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
         // ---- Notification Dot Listener (Dynamic) ----
         FirebaseAuth.getInstance().addAuthStateListener(firebaseAuth -> {
             String uid = firebaseAuth.getUid();
+            if (uid != null) {
+                startParticipationListener(uid);
+                // Send anything queued while offline or before the last restart
+                PendingActionQueue.getInstance(this).drain();
+            }
             if (uid != null && notificationDot != null) {
                 // Remove existing listener if any to avoid duplicates
                 if (notificationListener != null) {
@@ -175,6 +194,7 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
                     notificationListener.remove();
                     notificationListener = null;
                 }
+                stopParticipationListener();
                 if (notificationDot != null) {
                     notificationDot.setVisibility(View.GONE);
                 }
@@ -216,7 +236,7 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
         });
 
         // search bar
-        EditText searchBar = findViewById(R.id.searchBar);
+        searchBar = findViewById(R.id.searchBar);
         searchBar.addTextChangedListener(new TextWatcher() {
 
             @Override
@@ -233,26 +253,32 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
             }
         });
 
-        // filter by dates
+        // filter by a date range (queried server-side on startDate)
         Button btnPickDate = findViewById(R.id.btnPickDate);
 
         btnPickDate.setOnClickListener(v -> {
 
-            MaterialDatePicker<Long> datePicker = MaterialDatePicker.Builder.datePicker()
-                    .setTitleText("Select Event Date")
+            MaterialDatePicker<Pair<Long, Long>> datePicker = MaterialDatePicker.Builder.dateRangePicker()
+                    .setTitleText("Select Event Dates")
                     .build();
 
             datePicker.show(getSupportFragmentManager(), "DATE_PICKER");
 
             datePicker.addOnPositiveButtonClickListener(selection -> {
-                // Convert timestamp → formatted date string
-                SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+                if (selection == null || selection.first == null || selection.second == null)
+                    return;
+
+                // Picker returns UTC midnight of each day; query local [first day, day after last)
+                rangeStart = new Timestamp(localStartOfDay(selection.first, 0));
+                rangeEnd = new Timestamp(localStartOfDay(selection.second, 1));
+
+                SimpleDateFormat sdf = new SimpleDateFormat("MMM dd", Locale.getDefault());
                 sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
-                selectedDate = sdf.format(new Date(selection));
-                btnPickDate.setText(selectedDate); // shows selected date
+                btnPickDate.setText(sdf.format(new Date(selection.first)) + " – "
+                        + sdf.format(new Date(selection.second))); // shows selected range
 
-                // Re-filter with the new date
-                filterEvents(searchBar.getText().toString());
+                // Re-query with the new range; keyword filtering is reapplied on arrival
+                startLiveEventsListener();
             });
         });
 
@@ -260,11 +286,17 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
         Button btnClearFilters = findViewById(R.id.btnClearFilters);
 
         btnClearFilters.setOnClickListener(v -> {
-            selectedDate = null; // Removes the date filter
+            boolean hadRange = rangeStart != null;
+            rangeStart = null; // Removes the date filter
+            rangeEnd = null;
             searchBar.setText(""); // Clears the search bar text
             btnPickDate.setText("Availability");
 
-            renderEvents(allEvents); // Draws all events again
+            if (hadRange) {
+                startLiveEventsListener(); // Listen to the full catalog again
+            } else {
+                renderEvents(allEvents); // Draws all events again
+            }
         });
 
         boolean deepLinkHandled = handleDeepLink(getIntent());
@@ -323,6 +355,7 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
             eventsListener.remove();
             eventsListener = null;
         }
+        stopParticipationListener();
     }
 
     // ---------- Helpers ----------
@@ -415,8 +448,16 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
             eventsListener = null;
         }
 
-        eventsListener = db.collection("events")
-                // .orderBy("startTime") // uncomment if you store a sortable field
+        Query query = db.collection("events");
+        if (rangeStart != null && rangeEnd != null) {
+            // Range + orderBy on one field is served by the startDate index
+            // declared in code/firestore.indexes.json.
+            query = query.whereGreaterThanOrEqualTo("startDate", rangeStart)
+                    .whereLessThan("startDate", rangeEnd)
+                    .orderBy("startDate", Query.Direction.ASCENDING);
+        }
+
+        eventsListener = query
                 .addSnapshotListener((querySnapshot, error) -> {
                     if (error != null) {
                         Toast.makeText(this, "Listen failed: " + error.getMessage(), Toast.LENGTH_SHORT).show();
@@ -444,11 +485,40 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
                         allEvents.add(event);
                     }
 
-                    // Draw all events normally (no filter yet)
-                    renderEvents(allEvents);
+                    // Reapply any keyword typed before the results arrived
+                    filterEvents(searchBar != null ? searchBar.getText().toString() : "");
+                });
+    }
+
+    /**
+     * Listens to the user's participation index so event cards can show their
+     * waiting-list state without one read per card. Re-renders on change.
+     */
+    private void startParticipationListener(String uid) {
+        stopParticipationListener();
+        participationsListener = ParticipationIndex.collection(FirebaseFirestore.getInstance(), uid)
+                .addSnapshotListener((snapshot, e) -> {
+                    if (snapshot == null)
+                        return;
+
+                    myParticipation.clear();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        myParticipation.put(doc.getId(), doc.getString("status"));
+                    }
+                    if (eventsContainer != null && !allEvents.isEmpty()) {
+                        filterEvents(searchBar != null ? searchBar.getText().toString() : "");
+                    }
                 });
     }
 
+    private void stopParticipationListener() {
+        if (participationsListener != null) {
+            participationsListener.remove();
+            participationsListener = null;
+        }
+        myParticipation.clear();
+    }
+
     private void renderEvents(List<Event> list) {
         eventsContainer.removeAllViews();
 
@@ -462,9 +532,6 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
             return;
         }
 
-        String uid = FirebaseAuth.getInstance().getUid();
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-
         for (Event event : list) {
             View card = getLayoutInflater()
                     .inflate(R.layout.item_event_card, eventsContainer, false);
@@ -487,19 +554,8 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
             }
 
             // Check if user is already in waiting list
-            if (uid != null) {
-                db.collection("events")
-                        .document(event.getId())
-                        .collection("waitingList")
-                        .document(uid)
-                        .get()
-                        .addOnSuccessListener(doc -> {
-                            if (doc.exists()) {
-                                joinButton.setText("View Waiting List");
-                            } else {
-                                joinButton.setText("Join Waiting List");
-                            }
-                        });
+            if (ParticipationIndex.WAITING.equals(myParticipation.get(event.getId()))) {
+                joinButton.setText("View Waiting List");
             } else {
                 joinButton.setText("Join Waiting List");
             }
@@ -526,26 +582,32 @@ public class MainActivity extends AppCompatActivity implements EventDetailsFragm
 
         for (Event e : allEvents) {
 
-            // Safe values for null fields
-            String name = (e.getName() != null) ? e.getName().toLowerCase() : "";
-            String desc = (e.getDescription() != null) ? e.getDescription().toLowerCase() : "";
-
-            boolean matchesKeyword = keyword.isEmpty() ||
-                    name.contains(keyword) ||
-                    desc.contains(keyword);
-
-            String eventDate = e.getFormattedDateAndLocation();
-            if (eventDate == null)
-                eventDate = "";
-
-            boolean matchesDate = (selectedDate == null) ||
-                    eventDate.contains(selectedDate);
-
-            if (matchesKeyword && matchesDate) {
+            // Name or any word of the full description; date range is
+            // already applied by the startDate query
+            if (e.matchesSearch(keyword)) {
                 filtered.add(e);
             }
         }
 
         renderEvents(filtered);
     }
+
+    /**
+     * Converts a MaterialDatePicker selection (UTC midnight of the picked day) into
+     * the start of that calendar day in the device's time zone.
+     *
+     * @param utcMidnightMillis the picker selection
+     * @param plusDays          days to add, e.g. 1 for an exclusive upper bound
+     * @return local start-of-day as a Date
+     */
+    private static Date localStartOfDay(long utcMidnightMillis, int plusDays) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(utcMidnightMillis);
+
+        Calendar local = Calendar.getInstance();
+        local.clear();
+        local.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH));
+        local.add(Calendar.DAY_OF_MONTH, plusDays);
+        return local.getTime();
+    }
 }
@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
@@ -16,6 +17,7 @@ import androidx.core.view.WindowInsetsCompat;
 
 import com.example.yellow.R;
 import com.example.yellow.organizers.ViewEventActivity;
+import com.example.yellow.utils.EventDataMigration;
 import com.google.android.material.button.MaterialButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
@@ -29,6 +31,7 @@ import com.google.firebase.firestore.FirebaseFirestore;
  * - Managing user profiles (view and remove)
  * - Managing uploaded images (view and remove)
  * - Viewing notification logs
+ * - Running one-off data migrations
  * 
  * @author Tabrez
  */
@@ -122,6 +125,7 @@ public class AdminDashboardActivity extends AppCompatActivity {
         MaterialButton btnViewProfiles = findViewById(R.id.btnViewProfiles);
         MaterialButton btnViewImages = findViewById(R.id.btnViewImages);
         MaterialButton btnViewLogs = findViewById(R.id.btnViewLogs);
+        MaterialButton btnMigrateData = findViewById(R.id.btnMigrateData);
 
         // Open Manage Events
         if (btnViewEvents != null) {
@@ -158,5 +162,58 @@ public class AdminDashboardActivity extends AppCompatActivity {
                     .addToBackStack(null)
                     .commit());
         }
+
+        if (btnMigrateData != null) {
+            btnMigrateData.setOnClickListener(v -> runMigrations(btnMigrateData));
+        }
+    }
+
+    /**
+     * Runs the event data migrations and reports the result on the card.
+     *
+     * @param button the migrate button, disabled while the job runs
+     */
+    private void runMigrations(MaterialButton button) {
+        TextView status = findViewById(R.id.tvMigrationStatus);
+        button.setEnabled(false);
+        if (status != null)
+            status.setText("Migrating event data…");
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        final int[] split = new int[1];
+        final int[] moved = new int[1];
+        final int[] indexed = new int[1];
+        final int[] geohashed = new int[1];
+        EventDataMigration.splitEventDetails(db)
+                .onSuccessTask(count -> {
+                    split[0] = count;
+                    return EventDataMigration.backfillSearchTokens(db);
+                })
+                .onSuccessTask(count -> EventDataMigration.moveInlinePostersToStorage(db))
+                .onSuccessTask(count -> {
+                    moved[0] = count;
+                    return EventDataMigration.backfillParticipations(db);
+                })
+                .onSuccessTask(count -> {
+                    indexed[0] = count;
+                    return EventDataMigration.backfillGeohashes(db);
+                })
+                .onSuccessTask(count -> {
+                    geohashed[0] = count;
+                    return EventDataMigration.resetEventCounters(db);
+                })
+                .addOnCompleteListener(task -> {
+                    if (isFinishing())
+                        return;
+                    button.setEnabled(true);
+                    String msg = task.isSuccessful()
+                            ? "Migrated " + split[0] + " event(s), moved " + moved[0] + " poster(s), indexed "
+                                    + indexed[0] + " participation(s), geohashed " + geohashed[0]
+                                    + " location(s), reset " + task.getResult() + " counter(s)."
+                            : "Migration failed: " + task.getException().getMessage();
+                    if (status != null)
+                        status.setText(msg);
+                    Toast.makeText(this, msg, Toast.LENGTH_SHORT).show();
+                });
     }
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ import androidx.fragment.app.Fragment;
 
 import com.bumptech.glide.Glide; // If not using Glide, remove this import and the Glide block below.
 import com.example.yellow.R;
+import com.example.yellow.organizers.Event;
 import com.google.android.material.button.MaterialButton;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentSnapshot;
@@ -236,8 +237,8 @@ public class ManageEventsFragment extends Fragment {
     }
 
     /**
-     * Deletes the event document and then attempts to delete its poster in Firebase
-     * Storage.
+     * Deletes the event document and its details document, then attempts to
+     * delete its poster in Firebase Storage.
      *
      * @param eventId   The Firestore document ID to delete
      * @param posterUrl The download URL of the poster image (may be empty)
@@ -246,6 +247,9 @@ public class ManageEventsFragment extends Fragment {
         db.collection("events").document(eventId)
                 .delete()
                 .addOnSuccessListener(unused -> {
+                    // Heavy fields live in a separate doc; best effort, like the poster
+                    db.collection(Event.DETAILS_COLLECTION).document(eventId).delete();
+
                     if (!TextUtils.isEmpty(posterUrl)) {
                         try {
                             StorageReference ref = FirebaseStorage.getInstance().getReferenceFromUrl(posterUrl);
@@ -22,6 +22,7 @@ import com.bumptech.glide.Glide;
 import com.example.yellow.R;
 import com.google.android.material.button.MaterialButton;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.ListenerRegistration;
 
@@ -221,6 +222,7 @@ public class ManageImagesFragment extends Fragment {
         Map<String, Object> patch = new HashMap<>();
         patch.put("posterImageUrl", null);
         patch.put("posterUrl", null);
+        patch.put("updatedAt", FieldValue.serverTimestamp());
 
         db.collection("events").document(eventId)
                 .update(patch)
@@ -159,6 +159,9 @@ public class ManageProfilesFragment extends Fragment {
                     LayoutInflater inflater = LayoutInflater.from(getContext());
 
                     for (DocumentSnapshot d : snap.getDocuments()) {
+                        // keep the shared profile cache in step with what this screen sees
+                        com.example.yellow.utils.ProfileRepository.getInstance().put(d);
+
                         String uid = d.getId();
                         String name = safe(d.getString("fullName"));
                         String email = safe(d.getString("email"));
@@ -216,8 +219,10 @@ public class ManageProfilesFragment extends Fragment {
     private void removeProfileDocs(@NonNull String uid) {
         // Use cascade deletion to remove profile, events, and subcollections
         com.example.yellow.utils.UserCleanupUtils.deleteUserAndEvents(uid, db)
-                .addOnSuccessListener(unused -> Toast
-                        .makeText(getContext(), "Profile and events removed.", Toast.LENGTH_SHORT).show())
+                .addOnSuccessListener(unused -> {
+                    com.example.yellow.utils.ProfileRepository.getInstance().invalidate(uid);
+                    Toast.makeText(getContext(), "Profile and events removed.", Toast.LENGTH_SHORT).show();
+                })
                 .addOnFailureListener(e -> Toast
                         .makeText(getContext(), "Remove failed: " + e.getMessage(), Toast.LENGTH_LONG).show());
     }
@@ -1,9 +1,7 @@
 package com.example.yellow.organizers;
 
 import android.app.DatePickerDialog;
-import android.content.ContentResolver;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.OpenableColumns;
@@ -24,6 +22,7 @@ import androidx.appcompat.app.AlertDialog;
 
 import com.example.yellow.R;
 import com.example.yellow.utils.FirebaseManager;
+import com.example.yellow.utils.PosterUtils;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
@@ -39,9 +38,6 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import android.view.ViewGroup;
 
-import java.io.ByteArrayOutputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Locale;
@@ -56,12 +52,10 @@ import java.util.Locale;
  * <li>Shows inputs for name, description, location, dates, and poster
  * image.</li>
  * <li>Validates the inputs when the user taps "Create".</li>
- * <li>Reads the selected poster and stores it as a Base64 data URI (kept in
- * Firestore).</li>
- * <li>Creates the Event document in Firestore.</li>
- * <li>Builds a deep link like {@code yellow://event/<docId>} and generates a QR
- * for it.</li>
- * <li>Writes the deep link and QR image back to the same Event document.</li>
+ * <li>Downsamples the selected poster and uploads it to Firebase Storage.</li>
+ * <li>Builds a deep link like {@code yellow://eventdetails/<docId>} and generates a QR
+ * for it (cached locally; only the deep link is stored).</li>
+ * <li>Creates the Event documents in Firestore with the poster URL and deep link.</li>
  * <li>Finishes the Activity (returns to the previous screen).</li>
  * </ol>
  * @author Kien Tran - kht
@@ -473,10 +467,10 @@ public class CreateEventActivity extends AppCompatActivity {
             String organizerId, String organizerName) {
         toast("Creating event...");
         try {
-            // --- 2. Encode Poster Image ---
-            String posterDataUri = null;
+            // --- 2. Downsample Poster Image (uploaded to Storage below) ---
+            byte[] posterJpeg = null;
             if (selectedPosterUri != null) {
-                posterDataUri = encodeImageUriToDataUri(selectedPosterUri);
+                posterJpeg = PosterUtils.compressForUpload(getContentResolver(), selectedPosterUri);
             }
 
             // --- 3. Generate Event ID and Deep Link ---
@@ -485,19 +479,16 @@ public class CreateEventActivity extends AppCompatActivity {
             Log.d(TAG, "Generated Deep Link: " + deepLink);
 
             // --- 4. Generate QR Code Bitmap ---
-            Bitmap qrBitmap = com.example.yellow.utils.QrUtils.makeQr(deepLink, 768);
+            Bitmap qrBitmap = com.example.yellow.utils.QrUtils.makeQrFast(deepLink,
+                    com.example.yellow.utils.QrBitmapCache.DEFAULT_SIZE_PX);
             if (qrBitmap == null) {
                 throw new Exception("Failed to generate QR code bitmap.");
             }
             Log.d(TAG, "Successfully created QR code bitmap.");
 
-            // --- 5. Convert QR Bitmap to Base64 Data URI ---
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            qrBitmap.compress(Bitmap.CompressFormat.PNG, 100, baos);
-            byte[] qrBytes = baos.toByteArray();
-            String qrBase64 = android.util.Base64.encodeToString(qrBytes, android.util.Base64.NO_WRAP);
-            String qrDataUri = "data:image/png;base64," + qrBase64;
-            Log.d(TAG, "Successfully encoded QR to Base64 string.");
+            // --- 5. Cache the QR; it is re-rendered from the deep link, not stored ---
+            com.example.yellow.utils.QrBitmapCache.getInstance(this).put(
+                    deepLink, com.example.yellow.utils.QrBitmapCache.DEFAULT_SIZE_PX, qrBitmap);
 
             // --- 6. Assemble the Complete Event Object ---
             // Registration window
@@ -524,34 +515,33 @@ public class CreateEventActivity extends AppCompatActivity {
                     registrationEndDate,     // registrationEndDate
                     startDate,               // event startDate
                     endDate,                 // event endDate
-                    posterDataUri,           // posterImageUrl (data URI)
+                    null,                    // posterImageUrl (set after upload)
                     maxEntrants,
                     maxParticipants,
                     organizerId,
                     organizerName,
                     requireGeo,
                     deepLink,                // qrDeepLink
-                    qrDataUri                // qrImagePng
+                    null                     // qrImagePng (no longer stored)
             );
             completeEvent.setCreatedAt(Timestamp.now()); // Set creation time
 
-            // --- 7. Save the Complete Object to Firestore in ONE operation ---
-            FirebaseManager.getInstance().setEvent(eventId, completeEvent, new FirebaseManager.SimpleCallback() {
-                @Override
-                public void onSuccess() {
-                    Log.i(TAG, "Event created and saved successfully with ID: " + eventId);
-                    toast("Event created successfully!");
-                    // Show the QR dialog and then finish the activity
-                    showQrDialog(qrBitmap);
-                }
-
-                @Override
-                public void onFailure(Exception e) {
-                    Log.e(TAG, "Firestore final setEvent failed", e);
-                    createEventButton.setEnabled(true);
-                    toast("Firestore error: " + (e != null ? e.getMessage() : "unknown"));
-                }
-            });
+            // --- 7. Upload the poster, then save the Complete Object in ONE operation ---
+            if (posterJpeg == null) {
+                saveEvent(eventId, completeEvent, qrBitmap);
+                return;
+            }
+            FirebaseManager.getInstance()
+                    .uploadPosterBytes(posterJpeg, eventId + ".jpg", null)
+                    .addOnSuccessListener(downloadUri -> {
+                        completeEvent.setPosterImageUrl(downloadUri.toString());
+                        saveEvent(eventId, completeEvent, qrBitmap);
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Poster upload failed", e);
+                        createEventButton.setEnabled(true);
+                        toast("Poster upload failed: " + e.getMessage());
+                    });
 
         } catch (Exception e) {
             Log.e(TAG, "An error occurred during event creation", e);
@@ -561,103 +551,39 @@ public class CreateEventActivity extends AppCompatActivity {
     }
 
     /**
-     * Reads text from a {@link TextInputEditText} and trims whitespace.
+     * Writes the assembled event to Firestore and shows its QR code on success.
      *
-     * @param et the input field (may be {@code null})
-     * @return the trimmed text, or {@code ""} if empty/null
+     * @param eventId  the pre-generated event ID
+     * @param event    the complete event
+     * @param qrBitmap the QR code to show once saved
      */
-    private static String textOf(TextInputEditText et) {
-        return et.getText() == null ? "" : et.getText().toString().trim();
-    }
-
-    /**
-     * Reads an image by {@link Uri} and returns it as a Base64 data URI string.
-     * The image is downsampled and compressed to keep the Firestore document small.
-     *
-     * @param uri the content {@link Uri} of the image
-     * @return a string like {@code data:image/jpeg;base64,AAAA...}
-     * @throws Exception if the image cannot be opened, decoded, or processed
-     */
-    public String encodeImageUriToDataUri(Uri uri) throws Exception {
-        final int MAX_DOC_BYTES = 900 * 1024;
-        final int MAX_DIMENSION = 1280;
-        final int MIN_JPEG_QUALITY = 40;
-
-        ContentResolver cr = getContentResolver();
-
-        // Bounds pass
-        BitmapFactory.Options bounds = new BitmapFactory.Options();
-        bounds.inJustDecodeBounds = true;
-        try (InputStream is = cr.openInputStream(uri)) {
-            if (is == null)
-                throw new FileNotFoundException("Null input stream");
-            BitmapFactory.decodeStream(is, null, bounds);
-        }
-
-        int w = bounds.outWidth;
-        int h = bounds.outHeight;
-        if (w <= 0 || h <= 0)
-            throw new IllegalArgumentException("Invalid image");
-
-        int inSample = 1;
-        while (w / inSample > MAX_DIMENSION || h / inSample > MAX_DIMENSION) {
-            inSample *= 2;
-        }
-
-        // Decode with sampling + memory-friendly config
-        BitmapFactory.Options opts = new BitmapFactory.Options();
-        opts.inSampleSize = Math.max(1, inSample);
-        opts.inPreferredConfig = Bitmap.Config.RGB_565;
-
-        Bitmap bitmap;
-        try (InputStream is2 = cr.openInputStream(uri)) {
-            if (is2 == null)
-                throw new FileNotFoundException("Null input stream");
-            bitmap = BitmapFactory.decodeStream(is2, null, opts);
-        }
-        if (bitmap == null)
-            throw new IllegalArgumentException("Unable to decode image");
-
-        // Extra scale if still too large
-        int bw = bitmap.getWidth();
-        int bh = bitmap.getHeight();
-        if (bw > MAX_DIMENSION || bh > MAX_DIMENSION) {
-            float scale = Math.min(MAX_DIMENSION / (float) bw, MAX_DIMENSION / (float) bh);
-            int nw = Math.max(1, Math.round(bw * scale));
-            int nh = Math.max(1, Math.round(bh * scale));
-            bitmap = Bitmap.createScaledBitmap(bitmap, nw, nh, true);
-        }
-
-        // Compress loop
-        int quality = 85;
-        byte[] jpg;
-        while (true) {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            bitmap.compress(Bitmap.CompressFormat.JPEG, quality, bos);
-            jpg = bos.toByteArray();
-            if (jpg.length <= MAX_DOC_BYTES || quality <= MIN_JPEG_QUALITY)
-                break;
-            quality -= 5;
-        }
+    private void saveEvent(String eventId, Event event, Bitmap qrBitmap) {
+        FirebaseManager.getInstance().setEvent(eventId, event, new FirebaseManager.SimpleCallback() {
+            @Override
+            public void onSuccess() {
+                Log.i(TAG, "Event created and saved successfully with ID: " + eventId);
+                toast("Event created successfully!");
+                // Show the QR dialog and then finish the activity
+                showQrDialog(qrBitmap);
+            }
 
-        String b64 = android.util.Base64.encodeToString(jpg, android.util.Base64.NO_WRAP);
-        String mime = guessMime(cr, uri);
-        return "data:" + mime + ";base64," + b64;
+            @Override
+            public void onFailure(Exception e) {
+                Log.e(TAG, "Firestore final setEvent failed", e);
+                createEventButton.setEnabled(true);
+                toast("Firestore error: " + (e != null ? e.getMessage() : "unknown"));
+            }
+        });
     }
 
     /**
-     * Tries to detect the MIME type of the given {@link Uri}.
+     * Reads text from a {@link TextInputEditText} and trims whitespace.
      *
-     * @param cr  the {@link ContentResolver} to query
-     * @param uri the content {@link Uri}
-     * @return a MIME type like {@code image/jpeg}; defaults to {@code image/jpeg}
-     *         if unknown
+     * @param et the input field (may be {@code null})
+     * @return the trimmed text, or {@code ""} if empty/null
      */
-    private String guessMime(ContentResolver cr, Uri uri) {
-        String t = cr.getType(uri);
-        if (t == null || t.trim().isEmpty())
-            t = "image/jpeg";
-        return t;
+    private static String textOf(TextInputEditText et) {
+        return et.getText() == null ? "" : et.getText().toString().trim();
     }
 
     /**
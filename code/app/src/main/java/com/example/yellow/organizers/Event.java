@@ -2,25 +2,43 @@ package com.example.yellow.organizers;
 
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentId;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.FieldValue;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This class represents an Event object that is stored in Firestore.
+ * <p>
+ * An event is stored as two documents: a compact summary in {@code events/{id}}
+ * that list screens listen to, and a details document in
+ * {@code event_details/{id}} holding the heavy fields (full description and
+ * QR PNG) that only the details screens read.
  * @author Kien Tran - kht
  */
 public class Event {
 
+    /** Collection holding the heavy per-event fields. */
+    public static final String DETAILS_COLLECTION = "event_details";
+
+    /** Number of description characters kept on the summary for event cards. */
+    public static final int DESCRIPTION_PREVIEW_LENGTH = 140;
+
     @DocumentId
     private String id;
 
     private String name;
     private String description;
+    private String descriptionPreview;
+    // distinct lowercase words of the full description, for list search
+    private String searchTokens;
     private String location;
 
     private String posterImageUrl; // This is the single source of truth for the poster.
@@ -37,6 +55,8 @@ public class Event {
     private Boolean requireGeolocation;
 
     private Timestamp createdAt;
+    // Set by the server on every summary write; drives delta refresh of local caches
+    private Timestamp updatedAt;
 
     private String qrDeepLink;
     private String qrImagePng;
@@ -107,6 +127,60 @@ public class Event {
         this.description = description;
     }
 
+    /**
+     * Returns the short description stored on the summary document. Falls back
+     * to a truncated full description for events that were loaded with their
+     * details or written before the split.
+     */
+    public String getDescriptionPreview() {
+        if (descriptionPreview != null)
+            return descriptionPreview;
+        return previewOf(description);
+    }
+
+    public void setDescriptionPreview(String descriptionPreview) {
+        this.descriptionPreview = descriptionPreview;
+    }
+
+    /**
+     * Returns the description's search words stored on the summary document.
+     * Falls back to the words of the full (or preview) description for events
+     * loaded with their details or written before the field existed.
+     */
+    public String getSearchTokens() {
+        if (searchTokens != null)
+            return searchTokens;
+        return searchTokensOf(description != null ? description : descriptionPreview);
+    }
+
+    public void setSearchTokens(String searchTokens) {
+        this.searchTokens = searchTokens;
+    }
+
+    /**
+     * Returns whether the name contains {@code keyword}, or every word of
+     * {@code keyword} appears within a word of the full description.
+     *
+     * @param keyword lowercase, trimmed search text
+     */
+    @Exclude
+    public boolean matchesSearch(String keyword) {
+        if (keyword == null || keyword.isEmpty())
+            return true;
+        if (name != null && name.toLowerCase(Locale.ROOT).contains(keyword))
+            return true;
+        String tokens = getSearchTokens();
+        String wanted = searchTokensOf(keyword);
+        if (tokens == null || wanted.isEmpty())
+            return false;
+        for (String word : wanted.split(" ")) {
+            // tokens are space-separated, so a word without spaces matches inside one token
+            if (!tokens.contains(word))
+                return false;
+        }
+        return true;
+    }
+
     public String getLocation() {
         return location;
     }
@@ -201,6 +275,14 @@ public class Event {
         this.createdAt = createdAt;
     }
 
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Timestamp updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     public String getQrDeepLink() {
         return qrDeepLink;
     }
@@ -217,6 +299,19 @@ public class Event {
         this.qrImagePng = qrImagePng;
     }
 
+    /**
+     * Returns the text encoded in this event's QR code: the stored deep link, or
+     * one derived from the ID for events that predate it.
+     *
+     * @return the deep link, or {@code null} if neither is known
+     */
+    @Exclude
+    public String getQrContent() {
+        if (qrDeepLink != null && !qrDeepLink.isEmpty())
+            return qrDeepLink;
+        return id == null ? null : "yellow://eventdetails/" + id;
+    }
+
     /**
      * Builds a small readable string like "Nov 05, 2025 @ Edmonton"
      * If the date or location is missing, it only shows the available part
@@ -277,4 +372,96 @@ public class Event {
 
         return m;
     }
-}
+
+    /**
+     * Builds the compact summary written to {@code events/{id}}: everything list
+     * screens need, with the description cut down to a preview and the QR PNG
+     * left out. {@code updatedAt} is stamped by the server.
+     *
+     * @return map of summary field names and their values
+     */
+    @Exclude
+    public Map<String, Object> toSummaryMap() {
+        Map<String, Object> m = toMap();
+        m.remove("description");
+        m.remove("qrImagePng");
+        m.put("descriptionPreview", getDescriptionPreview());
+        m.put("searchTokens", getSearchTokens());
+        m.put("updatedAt", FieldValue.serverTimestamp());
+        return m;
+    }
+
+    /**
+     * Builds the details document written to {@code event_details/{id}}.
+     *
+     * @return map of the heavy fields only
+     */
+    @Exclude
+    public Map<String, Object> toDetailsMap() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("description", description);
+        if (qrImagePng != null)
+            m.put("qrImagePng", qrImagePng);
+        return m;
+    }
+
+    /**
+     * Copies the heavy fields from a details document onto this event. Missing
+     * details (events not yet migrated) leave the summary values untouched.
+     *
+     * @param details snapshot of {@code event_details/{id}}, may be null
+     */
+    @Exclude
+    public void applyDetails(DocumentSnapshot details) {
+        if (details == null || !details.exists())
+            return;
+        String d = details.getString("description");
+        if (d != null)
+            description = d;
+        String qr = details.getString("qrImagePng");
+        if (qr != null)
+            qrImagePng = qr;
+    }
+
+    /**
+     * Returns whether a field belongs on the details document rather than the
+     * summary.
+     *
+     * @param field Firestore field name
+     * @return true for description and qrImagePng
+     */
+    public static boolean isDetailsField(String field) {
+        return "description".equals(field) || "qrImagePng".equals(field);
+    }
+
+    /**
+     * Truncates a description for the summary document.
+     *
+     * @param text full description, may be null
+     * @return at most {@link #DESCRIPTION_PREVIEW_LENGTH} characters, or null
+     */
+    public static String previewOf(String text) {
+        if (text == null)
+            return null;
+        String t = text.trim();
+        return t.length() <= DESCRIPTION_PREVIEW_LENGTH ? t : t.substring(0, DESCRIPTION_PREVIEW_LENGTH);
+    }
+
+    /**
+     * Reduces a description to its distinct lowercase words, in first-seen
+     * order, so the summary can be searched without the full text.
+     *
+     * @param text full description, may be null
+     * @return space-separated words, or null
+     */
+    public static String searchTokensOf(String text) {
+        if (text == null)
+            return null;
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty())
+                words.add(word);
+        }
+        return String.join(" ", words);
+    }
+}
\ No newline at end of file
@@ -3,7 +3,9 @@ package com.example.yellow.organizers;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 
 /**
  * ViewModel for the EventActivity.
@@ -16,8 +18,15 @@ public class EventViewModel extends ViewModel {
         return _event;
     }
 
+    private ListenerRegistration summaryReg;
+    private ListenerRegistration detailsReg;
+    private DocumentSnapshot lastSummary;
+    private DocumentSnapshot lastDetails;
+
     /**
      * Loads the event from Firestore so that it can be displayed.
+     * Listens to both the summary document and its details document and
+     * publishes the merged event whenever either changes.
      * @param eventId
      */
     public void loadEvent(String eventId) {
@@ -26,23 +35,61 @@ public class EventViewModel extends ViewModel {
             return;
         }
 
-        FirebaseFirestore.getInstance().collection("events").document(eventId)
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        removeListeners();
+
+        summaryReg = db.collection("events").document(eventId)
                 .addSnapshotListener((documentSnapshot, error) -> {
                     if (error != null) {
                         // Handle error
                         _event.postValue(null);
                         return;
                     }
+                    lastSummary = documentSnapshot;
+                    publish();
+                });
 
-                    if (documentSnapshot != null && documentSnapshot.exists()) {
-                        Event event = documentSnapshot.toObject(Event.class);
-                        if(event != null) {
-                            event.setId(documentSnapshot.getId()); // IMPORTANT: Set the document ID
-                        }
-                        _event.postValue(event);
-                    } else {
-                        _event.postValue(null);
+        detailsReg = db.collection(Event.DETAILS_COLLECTION).document(eventId)
+                .addSnapshotListener((documentSnapshot, error) -> {
+                    if (error != null) {
+                        return; // Summary alone is still usable
+                    }
+                    lastDetails = documentSnapshot;
+                    if (lastSummary != null) {
+                        publish();
                     }
                 });
     }
+
+    private void publish() {
+        if (lastSummary != null && lastSummary.exists()) {
+            Event event = lastSummary.toObject(Event.class);
+            if(event != null) {
+                event.setId(lastSummary.getId()); // IMPORTANT: Set the document ID
+                event.applyDetails(lastDetails);
+            }
+            _event.postValue(event);
+        } else {
+            _event.postValue(null);
+        }
+    }
+
+    private void removeListeners() {
+        if (summaryReg != null) {
+            summaryReg.remove();
+            summaryReg = null;
+        }
+        if (detailsReg != null) {
+            detailsReg.remove();
+            detailsReg = null;
+        }
+        lastSummary = null;
+        lastDetails = null;
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        removeListeners();
+    }
 }
@@ -6,7 +6,6 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
-import android.util.Base64;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -24,12 +23,14 @@ import androidx.fragment.app.DialogFragment; // CHANGED FROM FRAGMENT
 import androidx.lifecycle.ViewModelProvider;
 
 import com.example.yellow.R;
+import com.bumptech.glide.Glide;
+import com.example.yellow.organizers.Event;
 import com.example.yellow.organizers.EventViewModel;
+import com.example.yellow.utils.FirebaseManager;
+import com.example.yellow.utils.PosterUtils;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 
-import java.io.ByteArrayOutputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
 
 /**
  * Fragment for updating the poster image of an event.
@@ -143,17 +144,29 @@ public class EventPosterUpdateFragment extends DialogFragment {
         btnChangePoster.setEnabled(false);
 
         try {
-            // Use the new, safe method to encode the image
-            String newDataUri = encodeImageUriToDataUri(newImageUri);
+            // Downsample, then upload to Storage so the event only stores a URL
+            byte[] jpeg = PosterUtils.compressForUpload(requireContext().getContentResolver(), newImageUri);
+
+            // The replaced poster is deleted once the new URL is saved; a new
+            // name (rather than overwriting) keeps cached copies from showing
+            Event current = eventViewModel.getEvent().getValue();
+            String oldUrl = current != null ? current.getPosterImageUrl() : null;
 
             Toast.makeText(getContext(), "Updating poster...", Toast.LENGTH_SHORT).show();
-            FirebaseFirestore.getInstance().collection("events").document(eventId)
-                    .update("posterImageUrl", newDataUri)
+            FirebaseManager manager = FirebaseManager.getInstance();
+            manager.uploadPosterBytes(jpeg, null, null)
+                    .onSuccessTask(downloadUri -> FirebaseFirestore.getInstance()
+                            .collection("events").document(eventId)
+                            .update("posterImageUrl", downloadUri.toString(),
+                                    "updatedAt", FieldValue.serverTimestamp()))
+                    .onSuccessTask(aVoid -> manager.deleteReplacedPoster(oldUrl))
                     .addOnSuccessListener(aVoid -> {
+                        if (!isAdded()) return;
                         Toast.makeText(getContext(), "Poster updated successfully!", Toast.LENGTH_LONG).show();
                         dismiss(); // The ViewModel's listener will handle the UI update
                     })
                     .addOnFailureListener(e -> {
+                        if (!isAdded()) return;
                         Toast.makeText(getContext(), "Failed to update poster: " + e.getMessage(), Toast.LENGTH_LONG).show();
                         btnChangePoster.setEnabled(true);
                     });
@@ -167,89 +180,17 @@ public class EventPosterUpdateFragment extends DialogFragment {
     }
 
     /**
-     * Safely reads an image by Uri, downsamples it to prevent memory errors,
-     * compresses it, and returns it as a Base64 data URI string.
-     *
-     * @param uri the content Uri of the image
-     * @return a string like "data:image/jpeg;base64,..."
-     * @throws Exception if the image cannot be opened, decoded, or processed
-     */
-    private String encodeImageUriToDataUri(Uri uri) throws Exception {
-        final int MAX_DIMENSION = 1280; // Max width/height for the poster, e.g., 1280px
-        final int MAX_DOC_BYTES = 900 * 1024; // Firestore document size limit is ~1MB, so we aim for under 900KB
-        final int MIN_JPEG_QUALITY = 40;
-
-        InputStream inputStream = null;
-        try {
-            // --- Step 1: Decode bounds to check image size without loading it into memory ---
-            inputStream = requireContext().getContentResolver().openInputStream(uri);
-            if (inputStream == null) throw new FileNotFoundException("Cannot open input stream from URI.");
-
-            BitmapFactory.Options boundsOptions = new BitmapFactory.Options();
-            boundsOptions.inJustDecodeBounds = true;
-            BitmapFactory.decodeStream(inputStream, null, boundsOptions);
-            inputStream.close(); // Close the stream
-
-            int originalWidth = boundsOptions.outWidth;
-            int originalHeight = boundsOptions.outHeight;
-            if (originalWidth <= 0 || originalHeight <= 0) {
-                throw new IllegalArgumentException("Invalid image dimensions.");
-            }
-
-            // --- Step 2: Calculate sampling size to load a scaled-down version ---
-            int sampleSize = 1;
-            while (originalWidth / sampleSize > MAX_DIMENSION || originalHeight / sampleSize > MAX_DIMENSION) {
-                sampleSize *= 2;
-            }
-
-            // --- Step 3: Decode the image with the calculated sample size ---
-            BitmapFactory.Options bitmapOptions = new BitmapFactory.Options();
-            bitmapOptions.inSampleSize = sampleSize;
-            // Use a memory-friendly config
-            bitmapOptions.inPreferredConfig = Bitmap.Config.RGB_565;
-
-            inputStream = requireContext().getContentResolver().openInputStream(uri);
-            if (inputStream == null) throw new FileNotFoundException("Cannot open input stream from URI a second time.");
-            Bitmap bitmap = BitmapFactory.decodeStream(inputStream, null, bitmapOptions);
-            if (bitmap == null) throw new IllegalArgumentException("Failed to decode bitmap. Image may be corrupt.");
-
-            // --- Step 4: Compress the downsampled bitmap until it's under our size limit ---
-            int quality = 90; // Start with high quality
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] jpgBytes;
-
-            do {
-                baos.reset(); // Clear the stream for the next compression attempt
-                bitmap.compress(Bitmap.CompressFormat.JPEG, quality, baos);
-                jpgBytes = baos.toByteArray();
-                quality -= 5; // Reduce quality for the next loop if needed
-            } while (jpgBytes.length > MAX_DOC_BYTES && quality >= MIN_JPEG_QUALITY);
-
-            if (jpgBytes.length > MAX_DOC_BYTES) {
-                throw new RuntimeException("Image is too large to save even after compression.");
-            }
-
-            // --- Step 5: Convert to Base64 and return the Data URI ---
-            String base64 = Base64.encodeToString(jpgBytes, Base64.NO_WRAP);
-            return "data:image/jpeg;base64," + base64;
-
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (Exception ignored) {}
-            }
-        }
-    }
-
-    /**
-     * Sets the image from a data URI.
+     * Sets the image from a download URL, or from a data URI for events that
+     * have not been migrated to Storage yet.
      * @param view
      * @param dataUri
      */
     private void setImageFromDataUri(@Nullable ImageView view, @Nullable String dataUri) {
-        // This method is fine as is
         if (view == null || dataUri == null || dataUri.isEmpty()) return;
+        if (!PosterUtils.isDataUri(dataUri)) {
+            Glide.with(this).load(dataUri).into(view);
+            return;
+        }
         try {
             String base64 = dataUri.startsWith("data:") ? dataUri.substring(dataUri.indexOf(',') + 1) : dataUri;
             byte[] bytes = android.util.Base64.decode(base64, android.util.Base64.DEFAULT);
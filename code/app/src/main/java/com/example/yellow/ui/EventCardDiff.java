@@ -0,0 +1,48 @@
+package com.example.yellow.ui;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.yellow.organizers.Event;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link DiffUtil} callback for lists of event cards, so a refreshed list only
+ * rebinds the cards whose displayed fields changed.
+ */
+class EventCardDiff extends DiffUtil.Callback {
+
+    private final List<Event> oldList;
+    private final List<Event> newList;
+
+    EventCardDiff(List<Event> oldList, List<Event> newList) {
+        this.oldList = oldList;
+        this.newList = newList;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return oldList.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return newList.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldPos, int newPos) {
+        return Objects.equals(oldList.get(oldPos).getId(), newList.get(newPos).getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldPos, int newPos) {
+        Event a = oldList.get(oldPos);
+        Event b = newList.get(newPos);
+        return Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getFormattedDateAndLocation(), b.getFormattedDateAndLocation())
+                && Objects.equals(a.getPosterImageUrl(), b.getPosterImageUrl())
+                && Objects.equals(a.getRegistrationStartDate(), b.getRegistrationStartDate());
+    }
+}
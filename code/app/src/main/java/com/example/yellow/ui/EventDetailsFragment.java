@@ -21,8 +21,10 @@ import androidx.fragment.app.Fragment;
 import com.bumptech.glide.Glide;
 import com.example.yellow.R;
 import com.example.yellow.organizers.Event;
+import com.example.yellow.utils.ShardedCounter;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.firestore.ListenerRegistration;
 
 import java.text.SimpleDateFormat;
@@ -38,6 +40,7 @@ public class EventDetailsFragment extends Fragment {
 
     private FirebaseFirestore db;
     private ListenerRegistration waitingListListener;
+    private boolean detailsShown;
     private OnJoinWaitlistClickListener listener;
 
     /**
@@ -157,6 +160,19 @@ public class EventDetailsFragment extends Fragment {
 //            String eventId = com.example.yellow.utils.QrUtils.getEventIdFromUri(qrData);
 
             if (eventId != null) {
+                // Full description lives on the details doc; fetch it alongside the summary
+                detailsShown = false;
+                db.collection(Event.DETAILS_COLLECTION).document(eventId).get()
+                        .addOnSuccessListener(details -> {
+                            if (!isAdded() || details == null || !details.exists())
+                                return;
+                            String description = details.getString("description");
+                            if (description != null) {
+                                detailsShown = true;
+                                eventDescription.setText(description);
+                            }
+                        });
+
                 DocumentReference eventRef = db.collection("events").document(eventId);
                 eventRef.get().addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot.exists()) {
@@ -168,7 +184,11 @@ public class EventDetailsFragment extends Fragment {
                         eventTitle.setText(event.getName());
                         eventOrganizer.setText(event.getOrganizerName()); // Set the organizer name (NOT WORKING)
                         eventLocation.setText(event.getLocation());
-                        eventDescription.setText(event.getDescription());
+                        if (!detailsShown) {
+                            // Legacy docs still carry the full text; otherwise show the preview
+                            eventDescription.setText(event.getDescription() != null
+                                    ? event.getDescription() : event.getDescriptionPreview());
+                        }
 
                         // Geolocation
                         if (event.isRequireGeolocation()) {
@@ -185,20 +205,22 @@ public class EventDetailsFragment extends Fragment {
                             eventMaxEntrants.setText("Unlimited entrants");
                         }
 
-                        // Live count taken from WaitingListFragment
-                        waitingListListener = db.collection("events")
-                                .document(eventId)
-                                .collection("waitingList")
-                                .addSnapshotListener((snapshot, e) -> {
-                                    if (e != null) {
-                                        Log.w("EventDetailsFragment", "Listen failed.", e);
-                                        return;
-                                    }
-                                    if (snapshot != null) {
-                                        String numEntrants = "Currently " + snapshot.size() + " entrant(s)";
-                                        eventEntrants.setText(numEntrants);
-                                    }
-                                });
+                        // Live count from the waitlisted counter rather than the whole list;
+                        // the view may already be gone if the read was slow
+                        if (getView() != null && waitingListListener == null) {
+                            waitingListListener = ShardedCounter.waitlisted(eventRef)
+                                    .addValueListener(new ShardedCounter.ValueListener() {
+                                        @Override
+                                        public void onValue(long count) {
+                                            eventEntrants.setText("Currently " + count + " entrant(s)");
+                                        }
+
+                                        @Override
+                                        public void onError(@NonNull FirebaseFirestoreException e) {
+                                            Log.w("EventDetailsFragment", "Listen failed.", e);
+                                        }
+                                    });
+                        }
 
                         // Format and display date range
                         if (event.getRegistrationStartDate() != null) {
@@ -278,6 +300,7 @@ public class EventDetailsFragment extends Fragment {
         // Detach the listener when the view is destroyed to prevent memory leaks and crashes
         if (waitingListListener != null) {
             waitingListListener.remove();
+            waitingListListener = null;
         }
     }
 
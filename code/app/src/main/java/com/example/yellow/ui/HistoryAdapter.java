@@ -10,6 +10,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
@@ -43,14 +44,17 @@ public class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.ViewHold
     }
 
     /**
-     * Updates the list of events displayed in the adapter.
+     * Updates the list of events displayed in the adapter. Only the rows that
+     * changed are rebound, so refreshing over a cached list doesn't flicker.
      *
      * @param newEvents The new list of Event objects to display
      */
     public void setEvents(List<Event> newEvents) {
+        List<Event> next = new ArrayList<>(newEvents);
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new EventCardDiff(events, next));
         events.clear();
-        events.addAll(newEvents);
-        notifyDataSetChanged();
+        events.addAll(next);
+        diff.dispatchUpdatesTo(this);
     }
 
     /**
@@ -19,32 +19,50 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.yellow.R;
 import com.example.yellow.organizers.Event;
+import com.example.yellow.utils.FirestoreQueryUtils;
+import com.example.yellow.utils.LocalEventCache;
+import com.example.yellow.utils.ParticipationIndex;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Fragment that displays the user's event history (events they have joined the
  * waiting list for).
  * 
- * This fragment queries all events and checks if the current user is present
- * in any of the event's subcollections (waitingList, selected, enrolled,
+ * The last loaded history is kept in {@link LocalEventCache} and shown
+ * immediately on open while a refresh runs in the background.
+ * 
+ * This fragment reads the current user's participation index
+ * ({@code profiles/{uid}/participations}), then loads just those events. If
+ * the index is empty it falls back to collection-group queries over every
+ * event's participant subcollections (waitingList, selected, enrolled,
  * cancelled).
  * 
  * @author Tabrez
  */
 public class HistoryFragment extends Fragment {
 
+    /** Event subcollections a user can appear in. */
+    private static final String[] PARTICIPANT_LISTS = { "waitingList", "selected", "enrolled", "cancelled" };
+
     private RecyclerView recyclerView;
     private HistoryAdapter adapter;
     private FirebaseFirestore db;
     private FirebaseAuth auth;
+    private LocalEventCache cache;
 
     /**
      * Creates and returns the layout for the history screen.
@@ -117,8 +135,9 @@ public class HistoryFragment extends Fragment {
     }
 
     /**
-     * Loads events where the current user is a participant.
-     * Queries all events and checks participation in subcollections.
+     * Shows the cached history straight away, then refreshes it from the
+     * user's participation index. When the cache was fully reloaded recently,
+     * only events updated since the newest cached row are fetched.
      */
     private void loadHistory() {
         FirebaseUser user = auth.getCurrentUser();
@@ -128,49 +147,144 @@ public class HistoryFragment extends Fragment {
         }
 
         String userId = user.getUid();
+        cache = LocalEventCache.getInstance(requireContext());
 
-        // Since we cannot create Collection Group Indexes, we must query all events
-        // and check if the user is in any of the lists.
-        // This is not ideal for scalability but works without custom indexes.
-
-        db.collection("events").get().addOnSuccessListener(eventSnapshots -> {
-            if (eventSnapshots.isEmpty()) {
-                adapter.setEvents(new ArrayList<>());
-                showEmptyState(true);
+        cache.load(LocalEventCache.LIST_HISTORY, userId).addOnCompleteListener(task -> {
+            if (!isAdded())
                 return;
+            LocalEventCache.Snapshot cached = task.isSuccessful() ? task.getResult() : null;
+            if (cached != null && !cached.events.isEmpty()) {
+                showEmptyState(false);
+                adapter.setEvents(cached.events);
             }
+            refreshHistory(userId, cached);
+        });
+    }
 
-            List<Event> userEvents = new ArrayList<>();
-            java.util.concurrent.atomic.AtomicInteger pendingChecks = new java.util.concurrent.atomic.AtomicInteger(
-                    eventSnapshots.size());
-
-            for (DocumentSnapshot eventDoc : eventSnapshots) {
-                String eventId = eventDoc.getId();
-                Event event = eventDoc.toObject(Event.class);
-                if (event != null)
-                    event.setId(eventId);
+    /**
+     * Fetches the current history and writes it back to the cache.
+     *
+     * @param userId the current user
+     * @param cached what is on screen from the cache, or null if it couldn't be read
+     */
+    private void refreshHistory(String userId, @Nullable LocalEventCache.Snapshot cached) {
+        boolean delta = cached != null && cached.canRefreshDelta(System.currentTimeMillis());
+        Map<String, Event> known = new HashMap<>();
+        if (cached != null) {
+            for (Event e : cached.events) {
+                known.put(e.getId(), e);
+            }
+        }
+        List<String> currentIds = new ArrayList<>();
 
-                // Check all 4 lists for this event
-                checkUserInEvent(eventId, userId, isIn -> {
-                    if (isIn && event != null) {
-                        synchronized (userEvents) {
-                            userEvents.add(event);
+        ParticipationIndex.collection(db, userId)
+                .get()
+                .onSuccessTask(indexSnap -> {
+                    if (!indexSnap.isEmpty()) {
+                        List<String> eventIds = new ArrayList<>();
+                        for (DocumentSnapshot doc : indexSnap.getDocuments()) {
+                            eventIds.add(doc.getId());
                         }
+                        return Tasks.forResult(eventIds);
+                    }
+                    // Nothing indexed yet, e.g. the user only joined events before
+                    // the index existed: fall back to scanning the participant lists
+                    return findEventIdsByScan(userId);
+                })
+                .onSuccessTask(eventIds -> {
+                    currentIds.addAll(eventIds);
+                    if (!delta) {
+                        return FirestoreQueryUtils.getDocumentsByIds(db.collection("events"), eventIds);
                     }
 
-                    if (pendingChecks.decrementAndGet() == 0) {
-                        if (userEvents.isEmpty()) {
-                            showEmptyState(true);
-                        } else {
-                            showEmptyState(false);
+                    // New memberships are fetched whole; cached ones only if edited since
+                    List<String> added = new ArrayList<>();
+                    List<String> kept = new ArrayList<>();
+                    for (String id : eventIds) {
+                        (known.containsKey(id) ? kept : added).add(id);
+                    }
+                    return Tasks.whenAllSuccess(
+                            FirestoreQueryUtils.getDocumentsByIds(db.collection("events"), added),
+                            FirestoreQueryUtils.getDocumentsByIds(db.collection("events"), kept,
+                                    cached.newestUpdate()))
+                            .onSuccessTask(parts -> {
+                                List<DocumentSnapshot> docs = new ArrayList<>();
+                                for (Object part : parts) {
+                                    for (Object doc : (List<?>) part) {
+                                        docs.add((DocumentSnapshot) doc);
+                                    }
+                                }
+                                return Tasks.forResult(docs);
+                            });
+                })
+                .addOnSuccessListener(eventDocs -> {
+                    // Keep unchanged cached rows on a delta refresh, dropping any the
+                    // user is no longer part of
+                    Map<String, Event> byId = new HashMap<>();
+                    if (delta) {
+                        for (String id : currentIds) {
+                            Event e = known.get(id);
+                            if (e != null)
+                                byId.put(id, e);
                         }
-                        adapter.setEvents(userEvents);
                     }
+                    for (DocumentSnapshot eventDoc : eventDocs) {
+                        Event event = eventDoc.toObject(Event.class);
+                        if (event != null) {
+                            event.setId(eventDoc.getId());
+                            byId.put(eventDoc.getId(), event);
+                        }
+                    }
+
+                    List<Event> userEvents = new ArrayList<>(byId.values());
+                    LocalEventCache.sortByStartDate(userEvents);
+                    cache.replace(LocalEventCache.LIST_HISTORY, userId, userEvents, !delta);
+
+                    if (!isAdded())
+                        return;
+                    showEmptyState(userEvents.isEmpty());
+                    adapter.setEvents(userEvents);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e("HistoryFragment", "Error loading history", e);
+                    if (!isAdded())
+                        return;
+                    if (!known.isEmpty()) {
+                        // Cached rows are already on screen
+                        Toast.makeText(getContext(), "Offline: showing saved history", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    Toast.makeText(getContext(), "Error loading events: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 });
+    }
+
+    /**
+     * Finds the user's events by running one collection-group query per
+     * participant list in parallel (needs the collection-group userId indexes
+     * in firestore.indexes.json).
+     *
+     * @param userId the current user
+     * @return task resolving to the parent event IDs, without duplicates
+     */
+    private Task<List<String>> findEventIdsByScan(String userId) {
+        List<Task<QuerySnapshot>> membershipQueries = new ArrayList<>();
+        for (String list : PARTICIPANT_LISTS) {
+            membershipQueries.add(db.collectionGroup(list).whereEqualTo("userId", userId).get());
+        }
+
+        return Tasks.whenAllSuccess(membershipQueries).onSuccessTask(results -> {
+            // Merge by parent event; a user can appear in more than one list
+            Set<String> eventIds = new LinkedHashSet<>();
+            for (Object result : results) {
+                for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                    // Only lists under events/{id}; other collections may share the name
+                    DocumentReference eventRef = doc.getReference().getParent().getParent();
+                    if (eventRef != null && "events".equals(eventRef.getParent().getId())) {
+                        eventIds.add(eventRef.getId());
+                    }
+                }
             }
-        }).addOnFailureListener(e -> {
-            Log.e("HistoryFragment", "Error loading events", e);
-            Toast.makeText(getContext(), "Error loading events: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return Tasks.forResult(new ArrayList<>(eventIds));
         });
     }
 
@@ -191,67 +305,4 @@ public class HistoryFragment extends Fragment {
         }
     }
 
-    /**
-     * Checks if a user exists in any of the 4 participant subcollections for an
-     * event.
-     *
-     * @param eventId  The event ID to check
-     * @param userId   The user ID to look for
-     * @param listener Callback to receive the result (true if found in any list)
-     */
-    private void checkUserInEvent(String eventId, String userId, OnCheckResult listener) {
-        // We need to check if the user exists in ANY of the 4 subcollections.
-        // We can do this by trying to get the specific document for the user in each
-        // collection.
-        // This is much faster than querying the whole collection.
-
-        DocumentReference waitRef = db.collection("events").document(eventId).collection("waitingList")
-                .document(userId);
-        DocumentReference selRef = db.collection("events").document(eventId).collection("selected").document(userId);
-        DocumentReference enrRef = db.collection("events").document(eventId).collection("enrolled").document(userId);
-        DocumentReference canRef = db.collection("events").document(eventId).collection("cancelled").document(userId);
-
-        // Check Waiting List
-        waitRef.get().addOnCompleteListener(t1 -> {
-            if (t1.isSuccessful() && t1.getResult().exists()) {
-                listener.onResult(true);
-                return;
-            }
-            // Check Selected
-            selRef.get().addOnCompleteListener(t2 -> {
-                if (t2.isSuccessful() && t2.getResult().exists()) {
-                    listener.onResult(true);
-                    return;
-                }
-                // Check Enrolled
-                enrRef.get().addOnCompleteListener(t3 -> {
-                    if (t3.isSuccessful() && t3.getResult().exists()) {
-                        listener.onResult(true);
-                        return;
-                    }
-                    // Check Cancelled
-                    canRef.get().addOnCompleteListener(t4 -> {
-                        if (t4.isSuccessful() && t4.getResult().exists()) {
-                            listener.onResult(true);
-                        } else {
-                            listener.onResult(false);
-                        }
-                    });
-                });
-            });
-        });
-    }
-
-    /**
-     * Callback interface for checking user participation.
-     */
-    interface OnCheckResult {
-        /**
-         * Called when the check is complete.
-         *
-         * @param isIn True if the user is in any of the lists, false otherwise
-         */
-        void onResult(boolean isIn);
-    }
-
 }
\ No newline at end of file
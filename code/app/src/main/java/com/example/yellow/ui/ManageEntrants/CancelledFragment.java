@@ -7,7 +7,6 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.app.AlertDialog;
@@ -15,15 +14,14 @@ import android.app.AlertDialog;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.yellow.R;
-import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 
 /**
  * Fragment for displaying a list of cancelled entrants.
@@ -33,10 +31,11 @@ import java.util.Locale;
 public class CancelledFragment extends Fragment {
 
     private FirebaseFirestore db;
-    private LinearLayout container;
+    private RecyclerView container;
+    private TextView emptyView;
     private String eventId;
-    private final SimpleDateFormat dateFormat =
-            new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+    private EntrantAdapter adapter;
+    private EntrantsViewModel viewModel;
 
     @Nullable
     @Override
@@ -51,7 +50,13 @@ public class CancelledFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         db = FirebaseFirestore.getInstance();
+        viewModel = new ViewModelProvider(requireActivity()).get(EntrantsViewModel.class);
         container = view.findViewById(R.id.cancelledContainer);
+        emptyView = view.findViewById(R.id.tvEmptyEntrants);
+
+        adapter = new EntrantAdapter("Cancelled", R.color.danger_red, "Updated: ", null);
+        container.setLayoutManager(new LinearLayoutManager(requireContext()));
+        container.setAdapter(adapter);
         eventId = getArguments() != null ? getArguments().getString("eventId") : null;
 
         if (eventId == null) {
@@ -67,62 +72,29 @@ public class CancelledFragment extends Fragment {
     }
 
     /**
-     * Loads the list of cancelled entrants from Firestore.
+     * Shows the list of cancelled entrants from the shared view model.
      * If there are no cancelled entrants, a message is displayed.
      */
     private void loadCancelledEntrants() {
         if (isRunningInTest()) {
-            container.removeAllViews();
-            TextView tv = new TextView(requireContext());
-            tv.setText("No selected entrants yet");
-            container.addView(tv);
+            emptyView.setText("No selected entrants yet");
+            emptyView.setVisibility(View.VISIBLE);
             return;
         }
         if (!isSafe()) return;
 
-        container.removeAllViews();
-
-        db.collection("events").document(eventId)
-                .collection("cancelled")
-                .addSnapshotListener((snapshot, e) -> {
-
-                    if (!isSafe()) return;
+        viewModel.start(eventId);
+        viewModel.loadMoreNearEndOf(EntrantsViewModel.CANCELLED, container);
 
-                    container.removeAllViews();
-
-                    if (e != null || snapshot == null || snapshot.isEmpty()) {
-
-                        if (!isSafe()) return;
-
-                        TextView empty = new TextView(requireContext());
-                        empty.setText("No cancelled entrants");
-                        empty.setTextColor(requireContext().getColor(R.color.hinty));
-                        empty.setPadding(16, 24, 16, 24);
-
-                        container.addView(empty);
-                        return;
-                    }
-
-                    for (DocumentSnapshot doc : snapshot) {
-
-                        if (!isSafe()) return;
-
-                        String userId = doc.getString("userId");
-
-                        db.collection("profiles").document(userId)
-                                .get()
-                                .addOnSuccessListener(profile -> {
-
-                                    if (!isSafe()) return;
-
-                                    String name = profile.getString("fullName");
-                                    String email = profile.getString("email");
-                                    String date = extractTimestamp(doc);
+        viewModel.getEntrants(EntrantsViewModel.CANCELLED).observe(getViewLifecycleOwner(), changes -> {
+            adapter.submit(changes);
+            emptyView.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+        });
 
-                                    addEntrantCard(name, email, date, "Cancelled");
-                                });
-                    }
-                });
+        viewModel.getLoadFailed(EntrantsViewModel.CANCELLED).observe(getViewLifecycleOwner(), failed -> {
+            if (failed && adapter.getItemCount() == 0)
+                emptyView.setVisibility(View.VISIBLE);
+        });
     }
 
     /**
@@ -171,7 +143,7 @@ public class CancelledFragment extends Fragment {
                     }
 
                     // Fetch event name for the log
-                    db.collection("events").document(eventId).get().addOnSuccessListener(eventDoc -> {
+                    viewModel.fetchEvent().addOnSuccessListener(eventDoc -> {
                         String eventName = eventDoc.getString("name");
                         if (eventName == null)
                             eventName = "Unknown Event";
@@ -199,47 +171,6 @@ public class CancelledFragment extends Fragment {
                 });
     }
 
-    /**
-     * Extracts the timestamp from a Firestore document.
-     * @param doc
-     * @return
-     */
-    private String extractTimestamp(DocumentSnapshot doc) {
-        Object ts = doc.get("timestamp");
-
-        if (ts instanceof Timestamp) {
-            return dateFormat.format(((Timestamp) ts).toDate());
-        } else if (ts instanceof Long) {
-            return dateFormat.format(new Date((Long) ts));
-        }
-        return "Unknown";
-    }
-
-    /**
-     * Adds a card for an entrant.
-     * @param name
-     * @param email
-     * @param date
-     * @param status
-     */
-    private void addEntrantCard(String name, String email, String date, String status) {
-        if (!isSafe()) return;
-
-        LayoutInflater inflater = LayoutInflater.from(requireContext());
-        View card = inflater.inflate(R.layout.item_entrant_card, container, false);
-
-        ((TextView) card.findViewById(R.id.tvEntrantName)).setText(name);
-        ((TextView) card.findViewById(R.id.tvEntrantEmail)).setText(email);
-        ((TextView) card.findViewById(R.id.tvJoinDate)).setText("Updated: " + date);
-        ((TextView) card.findViewById(R.id.tvStatus)).setText(status);
-
-        card.findViewById(R.id.tvStatus)
-                .getBackground()
-                .setTint(requireContext().getColor(R.color.danger_red));
-
-        container.addView(card);
-    }
-
     /**
      * Checks if the app is running in a test environment.
      * @return true if running in a test environment, false otherwise
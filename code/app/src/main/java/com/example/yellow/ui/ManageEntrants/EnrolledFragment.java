@@ -1,38 +1,32 @@
 package com.example.yellow.ui.ManageEntrants;
 
 import android.app.AlertDialog;
-import android.content.ContentValues;
 import android.content.Intent;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Environment;
-import android.provider.MediaStore;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.yellow.R;
-import com.google.firebase.Timestamp;
+import com.example.yellow.utils.EntrantExporter;
+import com.example.yellow.utils.ExportSink;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 
-import java.io.OutputStream;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
 /**
  * Fragment for displaying a list of enrolled entrants.
  * @author Waylon Wang - waylon1
@@ -40,9 +34,11 @@ import java.util.Map;
 public class EnrolledFragment extends Fragment {
 
     private FirebaseFirestore db;
-    private LinearLayout container;
+    private RecyclerView container;
+    private TextView emptyView;
     private String eventId;
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+    private EntrantAdapter adapter;
+    private EntrantsViewModel viewModel;
 
     @Nullable
     @Override
@@ -57,7 +53,13 @@ public class EnrolledFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         db = FirebaseFirestore.getInstance();
+        viewModel = new ViewModelProvider(requireActivity()).get(EntrantsViewModel.class);
         container = view.findViewById(R.id.enrolledContainer);
+        emptyView = view.findViewById(R.id.tvEmptyEntrants);
+
+        adapter = new EntrantAdapter("Enrolled", R.color.green_400, "Updated: ", null);
+        container.setLayoutManager(new LinearLayoutManager(requireContext()));
+        container.setAdapter(adapter);
         eventId = getArguments() != null ? getArguments().getString("eventId") : null;
 
         View btn = view.findViewById(R.id.btnSendNotification);
@@ -80,152 +82,69 @@ public class EnrolledFragment extends Fragment {
     }
 
     /**
-     * Exports the list of enrolled entrants to a CSV file.
-     * If there are no enrolled entrants, a message is displayed.
+     * Asks whether to compress the export, then exports.
      */
     private void exportEnrolledCSV() {
-        db.collection("events").document(eventId)
-                .collection("enrolled")
-                .get()
-                .addOnSuccessListener(enrolledSnapshot -> {
-
-                    if (!isSafe())
-                        return;
-
-                    if (enrolledSnapshot.isEmpty()) {
-                        if (isSafe())
-                            Toast.makeText(getContext(), "No enrolled entrants", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
-
-                    java.util.List<Map<String, String>> entrants = new java.util.ArrayList<>();
-                    java.util.concurrent.atomic.AtomicInteger counter = new java.util.concurrent.atomic.AtomicInteger(
-                            0);
-
-                    for (DocumentSnapshot doc : enrolledSnapshot) {
-                        String userId = doc.getString("userId");
-                        String ts = extractTimestamp(doc);
-
-                        if (userId == null) {
-                            if (counter.incrementAndGet() == enrolledSnapshot.size() && isSafe()) {
-                                writeToDownloadsAndShare(entrants);
-                            }
-                            continue;
-                        }
-
-                        db.collection("profiles").document(userId)
-                                .get()
-                                .addOnSuccessListener(profile -> {
-                                    if (!isSafe())
-                                        return;
-
-                                    String name = profile.getString("fullName");
-                                    String email = profile.getString("email");
-
-                                    Map<String, String> row = new HashMap<>();
-                                    row.put("name", name == null ? "" : name);
-                                    row.put("email", email == null ? "" : email);
-                                    row.put("userId", userId);
-                                    row.put("timestamp", ts);
-                                    entrants.add(row);
-
-                                    if (counter.incrementAndGet() == enrolledSnapshot.size() && isSafe()) {
-                                        writeToDownloadsAndShare(entrants);
-                                    }
-                                })
-                                .addOnFailureListener(e -> {
-                                    if (counter.incrementAndGet() == enrolledSnapshot.size() && isSafe()) {
-                                        writeToDownloadsAndShare(entrants);
-                                    }
-                                });
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    if (isSafe())
-                        Toast.makeText(getContext(), "Failed to load entrants", Toast.LENGTH_SHORT).show();
-                });
-    }
-
-    /**
-     * Writes the list of enrolled entrants to a CSV file and shares it.
-     * @param rows
-     */
-    private void writeToDownloadsAndShare(java.util.List<Map<String, String>> rows) {
         if (!isSafe())
             return;
 
-        if (rows.isEmpty()) {
-            Toast.makeText(getContext(), "Nothing to export", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        StringBuilder csv = new StringBuilder();
-        csv.append("Name,Email,UserId,EnrolledAt\n");
-
-        for (Map<String, String> r : rows) {
-            csv.append(r.get("name").replace(",", " "))
-                    .append(",")
-                    .append(r.get("email"))
-                    .append(",")
-                    .append(r.get("userId"))
-                    .append(",")
-                    .append(r.get("timestamp"))
-                    .append("\n");
-        }
-
-        saveToDownloadsAndShare(csv.toString());
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Export enrolled entrants")
+                .setItems(new String[] { "CSV", "Compressed CSV (.csv.gz)" },
+                        (dialog, which) -> exportEnrolledCSV(which == 1))
+                .show();
     }
 
     /**
-     * Saves the CSV content to Downloads and shares it.
-     * @param csvContent
+     * Exports the list of enrolled entrants to a CSV file in Downloads.
+     * Entrants are read and written a page at a time, straight to the file.
+     * If there are no enrolled entrants, a message is displayed.
+     *
+     * @param gzip whether to compress the file
      */
-    private void saveToDownloadsAndShare(String csvContent) {
-        if (!isSafe())
-            return;
-
+    private void exportEnrolledCSV(boolean gzip) {
+        ExportSink sink;
         try {
-            String fileName = "enrolled_export_" + eventId + ".csv";
-
-            ContentValues values = new ContentValues();
-            values.put(MediaStore.MediaColumns.DISPLAY_NAME, fileName);
-            values.put(MediaStore.MediaColumns.MIME_TYPE, "text/csv");
-            values.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
-
-            Uri collection = MediaStore.Downloads.EXTERNAL_CONTENT_URI;
-            Uri uri = requireContext().getContentResolver().insert(collection, values);
-
-            if (uri == null) {
-                if (isSafe())
-                    Toast.makeText(getContext(), "Failed to create file", Toast.LENGTH_SHORT).show();
-                return;
-            }
+            sink = ExportSink.openDownload(requireContext(),
+                    "enrolled_export_" + eventId + ".csv", "text/csv", gzip);
+        } catch (Exception e) {
+            Toast.makeText(getContext(), "Error saving file: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
 
-            try (OutputStream outputStream = requireContext().getContentResolver().openOutputStream(uri)) {
-                outputStream.write(csvContent.getBytes());
-            }
+        Toast.makeText(getContext(), "Exporting…", Toast.LENGTH_SHORT).show();
 
-            if (isSafe())
-                Toast.makeText(getContext(), "CSV saved to Downloads!", Toast.LENGTH_LONG).show();
-            if (isSafe())
-                shareCSVUri(uri);
+        EntrantExporter.writeCsv(
+                        db.collection("events").document(eventId).collection("enrolled"),
+                        "EnrolledAt", sink)
+                .addOnSuccessListener(rows -> {
+                    if (!isSafe())
+                        return;
 
-        } catch (Exception e) {
-            if (isSafe())
-                Toast.makeText(getContext(), "Error saving file: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-        }
+                    if (rows == 0) {
+                        Toast.makeText(getContext(), "No enrolled entrants", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    Toast.makeText(getContext(), "CSV saved to Downloads!", Toast.LENGTH_LONG).show();
+                    shareCSVUri(sink.getUri(), sink.getMimeType());
+                })
+                .addOnFailureListener(e -> {
+                    if (isSafe())
+                        Toast.makeText(getContext(), "Failed to export entrants", Toast.LENGTH_SHORT).show();
+                });
     }
 
     /**
      * Shares the CSV URI.
      * @param uri
+     * @param mimeType
      */
-    private void shareCSVUri(Uri uri) {
+    private void shareCSVUri(Uri uri, String mimeType) {
         if (!isSafe())
             return;
 
         Intent intent = new Intent(Intent.ACTION_SEND);
-        intent.setType("text/csv");
+        intent.setType(mimeType);
         intent.putExtra(Intent.EXTRA_STREAM, uri);
         intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
 
@@ -233,59 +152,25 @@ public class EnrolledFragment extends Fragment {
     }
 
     /**
-     * Loads the list of enrolled entrants from Firestore.
+     * Shows the list of enrolled entrants from the shared view model.
      * If there are no enrolled entrants, a message is displayed.
      */
     private void loadEnrolledEntrants() {
         if (!isSafe())
             return;
 
-        container.removeAllViews();
-
-        db.collection("events").document(eventId)
-                .collection("enrolled")
-                .addSnapshotListener((snapshot, e) -> {
-
-                    if (!isSafe())
-                        return;
-
-                    container.removeAllViews();
-
-                    if (e != null || snapshot == null || snapshot.isEmpty()) {
-
-                        if (!isSafe())
-                            return;
-
-                        TextView empty = new TextView(requireContext());
-                        empty.setText("No Enrolled entrants");
-                        empty.setTextColor(requireContext().getColor(R.color.hinty));
-                        empty.setPadding(16, 24, 16, 24);
-
-                        container.addView(empty);
-                        return;
-                    }
-
-                    for (DocumentSnapshot doc : snapshot) {
-
-                        if (!isSafe())
-                            return;
-
-                        String userId = doc.getString("userId");
-
-                        db.collection("profiles").document(userId)
-                                .get()
-                                .addOnSuccessListener(profile -> {
-                                    if (!isSafe())
-                                        return;
+        viewModel.start(eventId);
+        viewModel.loadMoreNearEndOf(EntrantsViewModel.ENROLLED, container);
 
-                                    String name = profile.getString("fullName");
-                                    String email = profile.getString("email");
-                                    String date = extractTimestamp(doc);
+        viewModel.getEntrants(EntrantsViewModel.ENROLLED).observe(getViewLifecycleOwner(), changes -> {
+            adapter.submit(changes);
+            emptyView.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+        });
 
-                                    addEntrantCard(name, email, date, "Enrolled");
-                                });
-                    }
-                });
+        viewModel.getLoadFailed(EntrantsViewModel.ENROLLED).observe(getViewLifecycleOwner(), failed -> {
+            if (failed && adapter.getItemCount() == 0)
+                emptyView.setVisibility(View.VISIBLE);
+        });
     }
 
     /**
@@ -296,8 +181,7 @@ public class EnrolledFragment extends Fragment {
             return;
 
         // First, fetch the event name from Firestore
-        db.collection("events").document(eventId)
-                .get()
+        viewModel.fetchEvent()
                 .addOnSuccessListener(eventDoc -> {
                     if (!isSafe())
                         return;
@@ -390,8 +274,7 @@ public class EnrolledFragment extends Fragment {
                             return;
                         }
 
-                        db.collection("events").document(eventId)
-                                .get()
+                        viewModel.fetchEvent()
                                 .addOnSuccessListener(eventDoc -> {
 
                                     if (!isSafe())
@@ -434,49 +317,6 @@ public class EnrolledFragment extends Fragment {
                 });
     }
 
-    /**
-     * Extracts the timestamp from a Firestore document.
-     * @param doc
-     * @return
-     */
-    private String extractTimestamp(DocumentSnapshot doc) {
-        Object ts = doc.get("timestamp");
-
-        if (ts instanceof Timestamp) {
-            return dateFormat.format(((Timestamp) ts).toDate());
-        } else if (ts instanceof Long) {
-            return dateFormat.format(new Date((Long) ts));
-        }
-
-        return "Unknown";
-    }
-
-    /**
-     * Adds a card for an entrant.
-     * @param name
-     * @param email
-     * @param date
-     * @param status
-     */
-    private void addEntrantCard(String name, String email, String date, String status) {
-        if (!isSafe())
-            return;
-
-        LayoutInflater inflater = LayoutInflater.from(requireContext());
-        View card = inflater.inflate(R.layout.item_entrant_card, container, false);
-
-        ((TextView) card.findViewById(R.id.tvEntrantName)).setText(name);
-        ((TextView) card.findViewById(R.id.tvEntrantEmail)).setText(email);
-        ((TextView) card.findViewById(R.id.tvJoinDate)).setText("Updated: " + date);
-        ((TextView) card.findViewById(R.id.tvStatus)).setText(status);
-
-        card.findViewById(R.id.tvStatus)
-                .getBackground()
-                .setTint(requireContext().getColor(R.color.green_400));
-
-        container.addView(card);
-    }
-
     private boolean isRunningInTest() {
         try {
             ApplicationInfo appInfo = requireContext().getPackageManager()
@@ -0,0 +1,183 @@
+package com.example.yellow.ui.ManageEntrants;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.TextView;
+
+import androidx.annotation.ColorRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.SortedList;
+import androidx.recyclerview.widget.SortedListAdapterCallback;
+
+import com.example.yellow.R;
+
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RecyclerView adapter for the ManageEntrants lists, using {@code item_entrant_card}.
+ *
+ * Rows are kept sorted by join time and updated in place from the
+ * {@link EntrantsViewModel} changes, so a new or removed entrant only binds or
+ * animates that one card. Item IDs are stable per user.
+ */
+class EntrantAdapter extends RecyclerView.Adapter<EntrantAdapter.ViewHolder> {
+
+    private final String status;
+    @ColorRes
+    private final int statusColor;
+    private final String datePrefix;
+    @Nullable
+    private final Set<String> checked;
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+    private final Map<String, Long> itemIds = new HashMap<>();
+    private final SortedList<EntrantRow> rows;
+    // the row shown for each user, to find it again in rows
+    private final Map<String, EntrantRow> shown = new HashMap<>();
+    // last EntrantsViewModel.Changes version applied, 0 before the first
+    private int version;
+
+    /**
+     * @param status      badge text, e.g. "Waiting"
+     * @param statusColor badge color
+     * @param datePrefix  label before the date, e.g. "Joined: "
+     * @param checked     if non-null, cards show a checkbox and the checked
+     *                    user IDs are kept in this set
+     */
+    EntrantAdapter(@NonNull String status, @ColorRes int statusColor, @NonNull String datePrefix,
+                   @Nullable Set<String> checked) {
+        this.status = status;
+        this.statusColor = statusColor;
+        this.datePrefix = datePrefix;
+        this.checked = checked;
+
+        rows = new SortedList<>(EntrantRow.class, new SortedListAdapterCallback<EntrantRow>(this) {
+            @Override
+            public int compare(EntrantRow a, EntrantRow b) {
+                return EntrantRow.compare(a, b);
+            }
+
+            @Override
+            public boolean areContentsTheSame(EntrantRow oldItem, EntrantRow newItem) {
+                return oldItem.sameContent(newItem);
+            }
+
+            @Override
+            public boolean areItemsTheSame(EntrantRow a, EntrantRow b) {
+                return a.userId.equals(b.userId);
+            }
+        });
+        setHasStableIds(true);
+    }
+
+    /**
+     * Applies {@code changes}, binding only the rows that were added, moved or
+     * changed. If an earlier change was missed, every loaded row is submitted
+     * again instead. Checked entrants that are gone are unchecked.
+     */
+    void submit(@NonNull EntrantsViewModel.Changes changes) {
+        if (changes.version != version + 1) {
+            replaceAll(changes.rows());
+        } else {
+            rows.beginBatchedUpdates();
+            for (EntrantRow row : changes.upserts) {
+                EntrantRow old = shown.put(row.userId, row);
+                if (old == null)
+                    rows.add(row);
+                else
+                    rows.updateItemAt(rows.indexOf(old), row);
+            }
+            for (String userId : changes.removed) {
+                EntrantRow old = shown.remove(userId);
+                if (old != null)
+                    rows.remove(old);
+                if (checked != null)
+                    checked.remove(userId);
+            }
+            rows.endBatchedUpdates();
+        }
+        version = changes.version;
+    }
+
+    private void replaceAll(@NonNull Collection<EntrantRow> entrants) {
+        shown.clear();
+        for (EntrantRow row : entrants)
+            shown.put(row.userId, row);
+        if (checked != null)
+            checked.retainAll(shown.keySet());
+        rows.replaceAll(entrants);
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String userId = rows.get(position).userId;
+        Long id = itemIds.get(userId);
+        if (id == null) {
+            id = (long) itemIds.size();
+            itemIds.put(userId, id);
+        }
+        return id;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_entrant_card, parent, false);
+        ViewHolder holder = new ViewHolder(view);
+        holder.tvStatus.setText(status);
+        holder.tvStatus.getBackground().mutate().setTint(parent.getContext().getColor(statusColor));
+        holder.checkbox.setVisibility(checked != null ? View.VISIBLE : View.GONE);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        EntrantRow row = rows.get(position);
+
+        holder.tvName.setText(row.name != null ? row.name : "Unnamed Entrant");
+        holder.tvEmail.setText(row.email != null ? row.email : "No email");
+        holder.tvJoinDate.setText(datePrefix
+                + (row.timestamp != null ? dateFormat.format(row.timestamp.toDate()) : "Unknown"));
+
+        if (checked != null) {
+            holder.checkbox.setOnCheckedChangeListener(null);
+            holder.checkbox.setChecked(checked.contains(row.userId));
+            holder.checkbox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+                if (isChecked) checked.add(row.userId);
+                else checked.remove(row.userId);
+            });
+        }
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvName;
+        final TextView tvEmail;
+        final TextView tvJoinDate;
+        final TextView tvStatus;
+        final CheckBox checkbox;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvName = itemView.findViewById(R.id.tvEntrantName);
+            tvEmail = itemView.findViewById(R.id.tvEntrantEmail);
+            tvJoinDate = itemView.findViewById(R.id.tvJoinDate);
+            tvStatus = itemView.findViewById(R.id.tvStatus);
+            checkbox = itemView.findViewById(R.id.checkboxSelected);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.yellow.ui.ManageEntrants;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.yellow.utils.EntrantContact;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads one of an event's entrant lists a page at a time, in join order.
+ *
+ * Each page is a live query ({@code orderBy("timestamp")}, {@code startAfter}
+ * the previous page, {@code limit} {@link #PAGE_SIZE}), so only the pages the
+ * organizer has scrolled to are read, and later changes arrive as
+ * {@link DocumentChange}s rather than a full reload. Changes are reported to
+ * the {@link Listener} in the order they happened.
+ *
+ * Must be used from the main thread.
+ */
+class EntrantPager {
+
+    /** Entries per page. */
+    static final int PAGE_SIZE = 50;
+
+    /** Receives loaded and changed rows. */
+    interface Listener {
+        /**
+         * @param upserts  rows that were loaded or changed
+         * @param removed  user IDs that are no longer in the list
+         * @param pageLoad true for the first results of a page, false for
+         *                 later changes to the list itself
+         */
+        void onRowsChanged(@NonNull List<EntrantRow> upserts, @NonNull List<String> removed, boolean pageLoad);
+
+        /** A page failed to load or its listener stopped. */
+        void onError(@NonNull FirebaseFirestoreException e);
+    }
+
+    private final Query ordered;
+    private final Listener listener;
+
+    private final List<ListenerRegistration> pages = new ArrayList<>();
+    // user IDs in each page; a row stays until no page contains it, since a
+    // live page can pull in entries that the next page also holds
+    private final List<Set<String>> pageIds = new ArrayList<>();
+    private final Map<String, Integer> pageRefs = new HashMap<>();
+    private final Map<String, EntrantRow> rows = new HashMap<>();
+    private final Set<Integer> loadedPages = new HashSet<>();
+
+    @Nullable
+    private DocumentSnapshot cursor;
+    private boolean hasMore;
+    private boolean loading;
+    private boolean started;
+    // bumped by stop(), so callbacks from an earlier start() are ignored
+    private int generation;
+    private Task<Void> applied = Tasks.forResult(null);
+
+    EntrantPager(@NonNull CollectionReference list, @NonNull Listener listener) {
+        this.ordered = list.orderBy("timestamp");
+        this.listener = listener;
+    }
+
+    /** Loads the first page. Does nothing if already started. */
+    void start() {
+        if (started)
+            return;
+        started = true;
+        loadPage();
+    }
+
+    /**
+     * Loads the next page, if there may be one and none is loading.
+     *
+     * @return whether a page was requested
+     */
+    boolean loadMore() {
+        if (!started || loading || !hasMore)
+            return false;
+        loadPage();
+        return true;
+    }
+
+    /** Detaches every page listener. */
+    void stop() {
+        for (ListenerRegistration reg : pages) {
+            if (reg != null)
+                reg.remove();
+        }
+        pages.clear();
+        pageIds.clear();
+        pageRefs.clear();
+        rows.clear();
+        loadedPages.clear();
+        generation++;
+        cursor = null;
+        hasMore = false;
+        loading = false;
+        started = false;
+    }
+
+    /**
+     * @return the loaded row for {@code userId}, or null if not loaded
+     */
+    @Nullable
+    EntrantRow get(@NonNull String userId) {
+        return rows.get(userId);
+    }
+
+    /**
+     * @return a copy of the entrants loaded so far, in no particular order
+     */
+    @NonNull
+    List<EntrantRow> rows() {
+        return new ArrayList<>(rows.values());
+    }
+
+    /**
+     * Calls {@link #loadMore()} when {@code list} is scrolled to within half a
+     * page of the end.
+     */
+    void loadMoreNearEndOf(@NonNull RecyclerView list) {
+        list.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                RecyclerView.LayoutManager lm = rv.getLayoutManager();
+                if (dy <= 0 || !(lm instanceof LinearLayoutManager))
+                    return;
+                int last = ((LinearLayoutManager) lm).findLastVisibleItemPosition();
+                if (last >= lm.getItemCount() - PAGE_SIZE / 2)
+                    loadMore();
+            }
+        });
+    }
+
+    private void loadPage() {
+        loading = true;
+        int index = pages.size();
+        int gen = generation;
+        Query q = cursor == null ? ordered : ordered.startAfter(cursor);
+
+        pageIds.add(new HashSet<>());
+        pages.add(q.limit(PAGE_SIZE).addSnapshotListener((snapshot, e) -> {
+            if (gen != generation)
+                return;
+            if (e != null || snapshot == null) {
+                loading = false;
+                if (e != null)
+                    listener.onError(e);
+                return;
+            }
+            onPageSnapshot(index, gen, snapshot);
+        }));
+    }
+
+    private void onPageSnapshot(int index, int gen, @NonNull QuerySnapshot snapshot) {
+        boolean pageLoad = loadedPages.add(index);
+
+        // the newest page decides where the next one starts and whether there is one
+        if (index == pages.size() - 1) {
+            loading = false;
+            List<DocumentSnapshot> docs = snapshot.getDocuments();
+            if (!docs.isEmpty())
+                cursor = docs.get(docs.size() - 1);
+            hasMore = docs.size() >= PAGE_SIZE;
+        }
+
+        Set<String> ids = pageIds.get(index);
+        List<DocumentSnapshot> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            DocumentSnapshot doc = change.getDocument();
+            String userId = doc.getString("userId");
+            if (userId == null)
+                userId = doc.getId();
+
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                if (ids.remove(userId) && release(userId))
+                    removed.add(userId);
+            } else {
+                if (ids.add(userId))
+                    pageRefs.merge(userId, 1, Integer::sum);
+                changed.add(doc);
+            }
+        }
+
+        // apply in arrival order, even when older entries need a profile lookup
+        applied = applied
+                .continueWithTask(t -> EntrantContact.resolve(changed))
+                .continueWith(t -> {
+                    if (gen != generation)
+                        return null;
+                    Map<String, EntrantContact> contacts = t.isSuccessful()
+                            ? t.getResult()
+                            : Collections.emptyMap();
+                    List<EntrantRow> upserts = new ArrayList<>();
+                    for (DocumentSnapshot doc : changed) {
+                        EntrantRow row = EntrantRow.from(doc, contacts.get(doc.getString("userId")));
+                        if (pageRefs.containsKey(row.userId)) {
+                            rows.put(row.userId, row);
+                            upserts.add(row);
+                        }
+                    }
+                    for (String userId : removed) {
+                        if (!pageRefs.containsKey(userId))
+                            rows.remove(userId);
+                    }
+                    listener.onRowsChanged(upserts, removed, pageLoad);
+                    return null;
+                });
+    }
+
+    /** @return whether no page holds {@code userId} any more */
+    private boolean release(String userId) {
+        Integer refs = pageRefs.get(userId);
+        if (refs == null || refs <= 1) {
+            pageRefs.remove(userId);
+            return true;
+        }
+        pageRefs.put(userId, refs - 1);
+        return false;
+    }
+}
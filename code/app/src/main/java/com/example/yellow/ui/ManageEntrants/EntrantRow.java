@@ -0,0 +1,92 @@
+package com.example.yellow.ui.ManageEntrants;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.yellow.utils.EntrantContact;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * One entrant as shown in the ManageEntrants lists: the membership entry
+ * from {@code events/{id}/<list>/{userId}} plus the entrant's name and email.
+ */
+final class EntrantRow {
+
+    @NonNull
+    final String userId;
+    @Nullable
+    final String name;
+    @Nullable
+    final String email;
+    /** When the entrant joined this list; estimated locally for pending writes. */
+    @Nullable
+    final Timestamp timestamp;
+
+    EntrantRow(@NonNull String userId, @Nullable String name, @Nullable String email,
+               @Nullable Timestamp timestamp) {
+        this.userId = userId;
+        this.name = name;
+        this.email = email;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @param doc     a membership document with a {@code userId}
+     * @param contact the entrant's contact, or null if unknown
+     */
+    @NonNull
+    static EntrantRow from(@NonNull DocumentSnapshot doc, @Nullable EntrantContact contact) {
+        String userId = doc.getString("userId");
+        if (userId == null)
+            userId = doc.getId();
+
+        // older entries stored the time as epoch millis
+        Object ts = doc.get("timestamp", DocumentSnapshot.ServerTimestampBehavior.ESTIMATE);
+        Timestamp timestamp = null;
+        if (ts instanceof Timestamp)
+            timestamp = (Timestamp) ts;
+        else if (ts instanceof Long)
+            timestamp = new Timestamp(new Date((Long) ts));
+
+        return new EntrantRow(userId,
+                contact != null ? contact.name : null,
+                contact != null ? contact.email : null,
+                timestamp);
+    }
+
+    /**
+     * @return the entrant's contact, for copying onto their next list entry
+     */
+    @NonNull
+    EntrantContact contact() {
+        return new EntrantContact(name, email);
+    }
+
+    /**
+     * Orders rows the way the lists are queried: by join time, then user ID.
+     */
+    static int compare(@NonNull EntrantRow a, @NonNull EntrantRow b) {
+        if (a.timestamp == null || b.timestamp == null) {
+            if (a.timestamp != b.timestamp)
+                return a.timestamp == null ? 1 : -1;
+        } else {
+            int byTime = a.timestamp.compareTo(b.timestamp);
+            if (byTime != 0)
+                return byTime;
+        }
+        return a.userId.compareTo(b.userId);
+    }
+
+    /**
+     * @return whether {@code other} would display the same as this row
+     */
+    boolean sameContent(@NonNull EntrantRow other) {
+        return Objects.equals(name, other.name)
+                && Objects.equals(email, other.email)
+                && Objects.equals(timestamp, other.timestamp);
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.yellow.ui.ManageEntrants;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ViewModel shared by the ManageEntrants tabs.
+ *
+ * Scoped to {@link ManageEntrantsActivity}, it keeps one live {@link EntrantPager}
+ * per status subcollection and a listener on the event document, all started
+ * together when the activity opens. Every tab observes the same data, so
+ * switching tabs or recreating a tab's view does not read anything again.
+ */
+public class EntrantsViewModel extends ViewModel {
+
+    public static final String WAITING = "waitingList";
+    public static final String SELECTED = "selected";
+    public static final String CANCELLED = "cancelled";
+    public static final String ENROLLED = "enrolled";
+
+    private static final String[] LISTS = { WAITING, SELECTED, CANCELLED, ENROLLED };
+
+    /**
+     * One change to an entrant list. An observer that has applied every
+     * earlier change applies just this one; any other observer, such as a
+     * recreated tab, starts over from {@link #rows()}.
+     */
+    static final class Changes {
+        /** Counts up from 1 with each change to the list. */
+        final int version;
+        final List<EntrantRow> upserts;
+        final List<String> removed;
+        private final EntrantPager pager;
+
+        Changes(int version, @NonNull List<EntrantRow> upserts, @NonNull List<String> removed,
+                @NonNull EntrantPager pager) {
+            this.version = version;
+            this.upserts = upserts;
+            this.removed = removed;
+            this.pager = pager;
+        }
+
+        /** @return every entrant loaded so far, in no particular order */
+        @NonNull
+        List<EntrantRow> rows() {
+            return pager.rows();
+        }
+    }
+
+    /** Live state of one status subcollection. */
+    private static final class EntrantList {
+        final EntrantPager pager;
+        final MutableLiveData<Changes> changes = new MutableLiveData<>();
+        final MutableLiveData<Boolean> failed = new MutableLiveData<>(false);
+        int version;
+
+        EntrantList(EntrantPager pager) {
+            this.pager = pager;
+        }
+
+        void publish(@NonNull List<EntrantRow> upserts, @NonNull List<String> removed) {
+            // a row the pager still holds was only moved between pages
+            List<String> gone = new ArrayList<>();
+            for (String userId : removed) {
+                if (pager.get(userId) == null)
+                    gone.add(userId);
+            }
+            changes.setValue(new Changes(++version, upserts, gone, pager));
+        }
+    }
+
+    private final Map<String, EntrantList> lists = new LinkedHashMap<>();
+    private final MutableLiveData<DocumentSnapshot> event = new MutableLiveData<>();
+    private final MutableLiveData<Long> waitingCount = new MutableLiveData<>();
+
+    private FirebaseFirestore db;
+    private String eventId;
+    private ListenerRegistration eventReg;
+
+    /**
+     * Starts listening to every entrant list and the event document.
+     * Does nothing if already started for this event.
+     *
+     * @param eventId the event whose entrants are managed
+     */
+    public void start(@Nullable String eventId) {
+        if (eventId == null || eventId.equals(this.eventId))
+            return;
+        stop();
+
+        this.eventId = eventId;
+        db = FirebaseFirestore.getInstance();
+        DocumentReference eventRef = db.collection("events").document(eventId);
+
+        eventReg = eventRef.addSnapshotListener((snapshot, e) -> {
+            if (e == null && snapshot != null)
+                event.setValue(snapshot);
+        });
+
+        for (String name : LISTS) {
+            EntrantPager pager = new EntrantPager(eventRef.collection(name), new EntrantPager.Listener() {
+                @Override
+                public void onRowsChanged(@NonNull List<EntrantRow> upserts,
+                                          @NonNull List<String> removed,
+                                          boolean pageLoad) {
+                    lists.get(name).publish(upserts, removed);
+                    // loading another page doesn't change the total
+                    if (WAITING.equals(name) && (!pageLoad || !removed.isEmpty()))
+                        refreshWaitingCount();
+                }
+
+                @Override
+                public void onError(@NonNull FirebaseFirestoreException e) {
+                    lists.get(name).failed.setValue(true);
+                }
+            });
+            lists.put(name, new EntrantList(pager));
+        }
+
+        // every tab loads at once, not when it is first shown
+        for (EntrantList list : lists.values())
+            list.pager.start();
+        refreshWaitingCount();
+    }
+
+    /**
+     * @param list one of {@link #WAITING}, {@link #SELECTED}, {@link #CANCELLED}, {@link #ENROLLED}
+     * @return the latest change to that list; no value until the first page
+     *         has loaded
+     */
+    @NonNull
+    LiveData<Changes> getEntrants(@NonNull String list) {
+        return requireList(list).changes;
+    }
+
+    /**
+     * @return true once loading {@code list} has failed
+     */
+    @NonNull
+    LiveData<Boolean> getLoadFailed(@NonNull String list) {
+        return requireList(list).failed;
+    }
+
+    /**
+     * @return the loaded row for {@code userId} in {@code list}, or null
+     */
+    @Nullable
+    EntrantRow getEntrant(@NonNull String list, @NonNull String userId) {
+        return requireList(list).pager.get(userId);
+    }
+
+    /**
+     * Loads further pages of {@code list} as {@code view} scrolls to its end.
+     */
+    void loadMoreNearEndOf(@NonNull String list, @NonNull RecyclerView view) {
+        requireList(list).pager.loadMoreNearEndOf(view);
+    }
+
+    /**
+     * @return the total number of waiting entrants, counted on the server
+     */
+    @NonNull
+    public LiveData<Long> getWaitingCount() {
+        return waitingCount;
+    }
+
+    /**
+     * @return the live event document; no value until it has loaded
+     */
+    @NonNull
+    public LiveData<DocumentSnapshot> getEvent() {
+        return event;
+    }
+
+    /**
+     * @return the event document, from the listener if it has loaded and
+     *         otherwise read once
+     */
+    @NonNull
+    public Task<DocumentSnapshot> fetchEvent() {
+        DocumentSnapshot current = event.getValue();
+        if (current != null)
+            return Tasks.forResult(current);
+        if (eventId == null)
+            return Tasks.forException(new IllegalStateException("Entrants not started"));
+        return db.collection("events").document(eventId).get();
+    }
+
+    private void refreshWaitingCount() {
+        String id = eventId;
+        db.collection("events").document(id)
+                .collection(WAITING)
+                .count()
+                .get(AggregateSource.SERVER)
+                .addOnSuccessListener(result -> {
+                    if (id.equals(eventId))
+                        waitingCount.setValue(result.getCount());
+                });
+    }
+
+    @NonNull
+    private EntrantList requireList(@NonNull String list) {
+        EntrantList l = lists.get(list);
+        if (l == null)
+            throw new IllegalStateException("Entrants not started for list " + list);
+        return l;
+    }
+
+    private void stop() {
+        if (eventReg != null) {
+            eventReg.remove();
+            eventReg = null;
+        }
+        for (EntrantList list : lists.values())
+            list.pager.stop();
+        lists.clear();
+        eventId = null;
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        stop();
+    }
+}
@@ -1,10 +1,13 @@
 package com.example.yellow.ui.ManageEntrants;
 
+import android.app.AlertDialog;
+import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
@@ -12,11 +15,15 @@ import androidx.core.content.ContextCompat;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.viewpager2.widget.ViewPager2;
 
 import com.example.yellow.R;
+import com.example.yellow.utils.EntrantExporter;
+import com.example.yellow.utils.ExportSink;
 import com.google.android.material.tabs.TabLayout;
 import com.google.android.material.tabs.TabLayoutMediator;
+import com.google.firebase.firestore.FirebaseFirestore;
 //Authors: Will
 public class ManageEntrantsActivity extends AppCompatActivity {
 
@@ -57,12 +64,21 @@ public class ManageEntrantsActivity extends AppCompatActivity {
         if (eventName != null)
             title.setText(eventName);
 
+        ImageView exportBtn = findViewById(R.id.btnExportReport);
+        exportBtn.setOnClickListener(v -> showExportDialog(eventId));
+
+        // Load all four lists and the event together; the tabs share them
+        EntrantsViewModel entrants = new ViewModelProvider(this).get(EntrantsViewModel.class);
+        entrants.start(eventId);
+
         // Tabs setup
         tabLayout = findViewById(R.id.tabLayout);
         viewPager = findViewById(R.id.viewPager);
 
         ManageEntrantsPageAdapter adapter = new ManageEntrantsPageAdapter(this, eventId);
         viewPager.setAdapter(adapter);
+        // keep every tab built so switching never waits on a fresh view
+        viewPager.setOffscreenPageLimit(adapter.getItemCount() - 1);
 
         new TabLayoutMediator(tabLayout, viewPager, (tab, position) -> {
             switch (position) {
@@ -81,4 +97,75 @@ public class ManageEntrantsActivity extends AppCompatActivity {
             }
         }).attach();
     }
+
+    /**
+     * Asks for a report format, then exports every entrant of the event.
+     */
+    private void showExportDialog(String eventId) {
+        if (eventId == null) {
+            Toast.makeText(this, "Missing event ID", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        String[] options = { "CSV", "JSON Lines", "CSV (gzip)", "JSON Lines (gzip)" };
+        new AlertDialog.Builder(this)
+                .setTitle("Export all entrants")
+                .setItems(options, (dialog, which) -> exportReport(eventId,
+                        which % 2 == 0 ? EntrantExporter.ReportFormat.CSV
+                                : EntrantExporter.ReportFormat.JSON_LINES,
+                        which >= 2))
+                .show();
+    }
+
+    /**
+     * Streams the waiting, selected, enrolled and cancelled lists into one
+     * file in Downloads, showing progress while it runs.
+     */
+    private void exportReport(String eventId, EntrantExporter.ReportFormat format, boolean gzip) {
+        ExportSink sink;
+        try {
+            sink = ExportSink.openDownload(this,
+                    "entrants_report_" + eventId + "." + format.extension, format.mimeType, gzip);
+        } catch (Exception e) {
+            Toast.makeText(this, "Error saving file: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        AlertDialog progressDialog = new AlertDialog.Builder(this)
+                .setTitle("Exporting entrants")
+                .setMessage("Starting…")
+                .setCancelable(false)
+                .show();
+
+        EntrantExporter.writeReport(
+                        FirebaseFirestore.getInstance().collection("events").document(eventId),
+                        format, sink,
+                        (written, total) -> {
+                            if (isFinishing() || isDestroyed())
+                                return;
+                            progressDialog.setMessage(total >= 0
+                                    ? "Exported " + written + " of " + total + " entrants"
+                                    : "Exported " + written + " entrants");
+                        })
+                .addOnCompleteListener(task -> {
+                    // the dialog's window went with the activity
+                    if (isFinishing() || isDestroyed())
+                        return;
+                    progressDialog.dismiss();
+
+                    if (!task.isSuccessful()) {
+                        Toast.makeText(this, "Failed to export entrants", Toast.LENGTH_SHORT).show();
+                    } else if (task.getResult() == 0) {
+                        Toast.makeText(this, "No entrants to export", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(this, "Report saved to Downloads!", Toast.LENGTH_LONG).show();
+
+                        Intent intent = new Intent(Intent.ACTION_SEND);
+                        intent.setType(sink.getMimeType());
+                        intent.putExtra(Intent.EXTRA_STREAM, sink.getUri());
+                        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                        startActivity(Intent.createChooser(intent, "Share report"));
+                    }
+                });
+    }
 }
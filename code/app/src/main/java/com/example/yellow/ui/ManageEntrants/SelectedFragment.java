@@ -6,9 +6,7 @@ import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.text.InputType;
 import android.widget.Button;
-import android.widget.CheckBox;
 import android.widget.EditText;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.view.LayoutInflater;
@@ -18,19 +16,19 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.yellow.R;
-import com.google.firebase.Timestamp;
+import com.example.yellow.utils.ParticipationIndex;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.WriteBatch;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 import java.util.HashSet;
 import java.util.Set;
@@ -44,11 +42,12 @@ import java.util.Set;
 public class SelectedFragment extends Fragment {
 
     private FirebaseFirestore db;
-    private LinearLayout container;
+    private RecyclerView container;
+    private TextView emptyView;
     private String eventId;
-    private final SimpleDateFormat dateFormat =
-            new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
     private final Set<String> selectedUserIds = new HashSet<>();
+    private EntrantAdapter adapter;
+    private EntrantsViewModel viewModel;
 
     /**
      * inflates the layout for showing selected entrants
@@ -77,7 +76,14 @@ public class SelectedFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         db = FirebaseFirestore.getInstance();
+        viewModel = new ViewModelProvider(requireActivity()).get(EntrantsViewModel.class);
         container = view.findViewById(R.id.selectedContainer);
+        emptyView = view.findViewById(R.id.tvEmptyEntrants);
+
+        // checked cards are the ones the cancel button acts on
+        adapter = new EntrantAdapter("Selected", R.color.gold, "Joined: ", selectedUserIds);
+        container.setLayoutManager(new LinearLayoutManager(requireContext()));
+        container.setAdapter(adapter);
         eventId = getArguments() != null ? getArguments().getString("eventId") : null;
 
         Button btnNotify = view.findViewById(R.id.btnSendNotification);
@@ -103,67 +109,25 @@ public class SelectedFragment extends Fragment {
     }
 
     /**
-     * loads selected entrants from firestore and updates ui in realtime
-     * attaches a snapshot listener so changes appear instantly
+     * shows selected entrants from the shared view model and updates ui in realtime
+     * only cards that changed are rebound
      */
     private void loadSelectedEntrants() {
         if (!isSafe()) return;
-        container.removeAllViews();
-
-        db.collection("events").document(eventId)
-                .collection("selected")
-                .addSnapshotListener((snapshot, e) -> {
-
-                    if (!isSafe()) return;
-
-                    container.removeAllViews();
-                    selectedUserIds.clear();
-
-                    if (snapshot == null || snapshot.isEmpty()) {
-                        // show empty message when no selected entrants
-                        TextView empty = new TextView(requireContext());
-                        empty.setText("No selected entrants yet");
-                        empty.setTextColor(requireContext().getColor(R.color.hinty));
-                        empty.setPadding(16, 24, 16, 24);
-                        container.addView(empty);
-                        return;
-                    }
-
-                    // for each selected entrant load profile info and build a card
-                    for (DocumentSnapshot doc : snapshot) {
-
-                        if (!isSafe()) return;
-
-                        String userId = doc.getString("userId");
-                        if (userId == null || userId.isEmpty()) continue;
 
-                        db.collection("profiles").document(userId)
-                                .get()
-                                .addOnSuccessListener(profile -> {
-                                    if (!isSafe()) return;
+        viewModel.start(eventId);
+        viewModel.loadMoreNearEndOf(EntrantsViewModel.SELECTED, container);
 
-                                    String name = profile.getString("fullName");
-                                    String email = profile.getString("email");
-                                    if (name == null) name = "Unnamed Entrant";
-                                    if (email == null) email = "No email";
-
-                                    String date = extractTimestamp(doc);
-
-                                    addEntrantCard(userId, name, email, date, "Selected");
-                                })
-                                .addOnFailureListener(err -> {
-                                    if (!isSafe()) return;
+        viewModel.getEntrants(EntrantsViewModel.SELECTED).observe(getViewLifecycleOwner(), changes -> {
+            adapter.submit(changes);
+            // show empty message when no selected entrants
+            emptyView.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+        });
 
-                                    addEntrantCard(
-                                            userId,
-                                            "Unknown",
-                                            "Error loading profile",
-                                            "N/A",
-                                            "Selected"
-                                    );
-                                });
-                    }
-                });
+        viewModel.getLoadFailed(EntrantsViewModel.SELECTED).observe(getViewLifecycleOwner(), failed -> {
+            if (failed && isSafe())
+                Toast.makeText(getContext(), "Failed to load entrants", Toast.LENGTH_SHORT).show();
+        });
     }
 
     /**
@@ -247,8 +211,7 @@ public class SelectedFragment extends Fragment {
                             return;
                         }
 
-                        db.collection("events").document(eventId)
-                                .get()
+                        viewModel.fetchEvent()
                                 .addOnSuccessListener(eventDoc -> {
 
                                     if (!isSafe()) return;
@@ -291,89 +254,6 @@ public class SelectedFragment extends Fragment {
                 });
     }
 
-    /**
-     * extracts timestamp from firestore document and formats it
-     *
-     * @param doc firestore document snapshot containing timestamp
-     * @return formatted date string or "Unknown"
-     */
-    private String extractTimestamp(DocumentSnapshot doc) {
-        Object ts = doc.get("timestamp");
-
-        if (ts instanceof Timestamp)
-            return dateFormat.format(((Timestamp) ts).toDate());
-        else if (ts instanceof Long)
-            return dateFormat.format(new Date((Long) ts));
-
-        return "Unknown";
-    }
-
-    /**
-     * adds a visual card representing one selected entrant
-     *
-     * @param userId id of entrant
-     * @param name entrant full name
-     * @param email entrant email
-     * @param joinDate selection date
-     * @param status selection status label
-     */
-    private void addEntrantCard(String userId,
-                                String name,
-                                String email,
-                                String joinDate,
-                                String status) {
-
-        if (!isSafe()) return;
-
-        View card = LayoutInflater.from(requireContext())
-                .inflate(R.layout.item_entrant_card, container, false);
-
-        TextView tvName = card.findViewById(R.id.tvEntrantName);
-        TextView tvEmail = card.findViewById(R.id.tvEntrantEmail);
-        TextView tvJoinDate = card.findViewById(R.id.tvJoinDate);
-        TextView tvStatus = card.findViewById(R.id.tvStatus);
-        CheckBox cb = card.findViewById(R.id.checkboxSelected);
-
-        tvName.setText(name);
-        tvEmail.setText(email);
-        tvJoinDate.setText("Joined: " + joinDate);
-        tvStatus.setText(status);
-
-        // update status color
-        int colorRes;
-        switch (status.toLowerCase()) {
-            case "waiting":
-                colorRes = R.color.hinty;
-                break;
-            case "selected":
-                colorRes = R.color.gold;
-                break;
-            case "enrolled":
-                colorRes = R.color.green_400;
-                break;
-            case "cancelled":
-                colorRes = R.color.danger_red;
-                break;
-            default:
-                colorRes = R.color.gold;
-                break;
-        }
-
-        tvStatus.getBackground().setTint(requireContext().getColor(colorRes));
-
-        // enable checkbox interaction
-        cb.setVisibility(View.VISIBLE);
-        cb.setOnCheckedChangeListener(null);
-        cb.setChecked(selectedUserIds.contains(userId));
-
-        cb.setOnCheckedChangeListener((buttonView, isChecked) -> {
-            if (isChecked) selectedUserIds.add(userId);
-            else selectedUserIds.remove(userId);
-        });
-
-        container.addView(card);
-    }
-
     /**
      * opens confirmation dialog asking organizer if selected entrants
      * should be moved from selected → cancelled
@@ -419,9 +299,12 @@ public class SelectedFragment extends Fragment {
             Map<String, Object> data = new HashMap<>();
             data.put("userId", userId);
             data.put("timestamp", FieldValue.serverTimestamp());
+            EntrantRow row = viewModel.getEntrant(EntrantsViewModel.SELECTED, userId);
+            if (row != null) row.contact().putInto(data);
 
             batch.set(cancelledRef, data);
             batch.delete(selectedRef);
+            ParticipationIndex.set(batch, db, userId, eventId, ParticipationIndex.CANCELLED);
         }
 
         batch.commit()
@@ -445,8 +328,7 @@ public class SelectedFragment extends Fragment {
         if (!isSafe() || userIds == null || userIds.isEmpty()) return;
 
         // First load event name
-        db.collection("events").document(eventId)
-                .get()
+        viewModel.fetchEvent()
                 .addOnSuccessListener(eventDoc -> {
                     if (!isSafe()) return;
 
@@ -5,7 +5,6 @@ import android.os.Bundle;
 import android.text.InputFilter;
 import android.text.InputType;
 import android.widget.EditText;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.view.LayoutInflater;
@@ -16,28 +15,34 @@ import android.widget.Button;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.yellow.R;
+import com.example.yellow.utils.EntrantContact;
+import com.example.yellow.utils.ParticipationIndex;
+import com.example.yellow.utils.ShardedCounter;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 //authors: Waylon
 //Will
 public class WaitingFragment extends Fragment {
 
     private FirebaseFirestore db;
-    private LinearLayout container;
+    private RecyclerView container;
+    private TextView emptyView;
     private String eventId;
-    private final List<String> currentWaitingEntrants = new ArrayList<>();
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+    private EntrantAdapter adapter;
+    private EntrantsViewModel viewModel;
+    // total on the waiting list, including entrants not loaded yet
+    private long waitingTotal;
     private TextView waitingCount;
 
 
@@ -54,9 +59,15 @@ public class WaitingFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         db = FirebaseFirestore.getInstance();
+        viewModel = new ViewModelProvider(requireActivity()).get(EntrantsViewModel.class);
         container = view.findViewById(R.id.waitingContainer);
+        emptyView = view.findViewById(R.id.tvEmptyEntrants);
         waitingCount = view.findViewById(R.id.waitingCount);
 
+        adapter = new EntrantAdapter("Waiting", R.color.gold, "Joined: ", null);
+        container.setLayoutManager(new LinearLayoutManager(requireContext()));
+        container.setAdapter(adapter);
+
         eventId = getArguments() != null ? getArguments().getString("eventId") : null;
 
         if (eventId == null) {
@@ -75,85 +86,39 @@ public class WaitingFragment extends Fragment {
         notifyButton.setOnClickListener(v -> showNotificationDialog());
     }
 
-    /** Loads all waiting entrants and displays their profile info */
+    /**
+     * Shows the waiting list from the shared {@link EntrantsViewModel}. Cards
+     * are added and removed as entrants join, leave or are drawn, without
+     * reloading the list.
+     */
     private void loadWaitingEntrants() {
         if (!isSafe()) return;
 
-        container.removeAllViews();
-        waitingCount.setText("0 people waiting");
-        currentWaitingEntrants.clear();
-
-        db.collection("events").document(eventId)
-                .collection("waitingList")
-                .get()
-                .addOnSuccessListener(snapshot -> {
-
-                    if (!isSafe()) return;
-
-                    if (snapshot.isEmpty()) {
-                        currentWaitingEntrants.clear();
-                        waitingCount.setText("0 people waiting");
-
-                        TextView empty = new TextView(requireContext());
-                        empty.setText("No waiting entrants.");
-                        empty.setTextColor(getResources().getColor(R.color.hinty));
-                        container.addView(empty);
-                        return;
-                    }
-
-                    // 1️⃣ FIRST pass → collect userIds for count
-                    for (QueryDocumentSnapshot doc : snapshot) {
-                        String userId = doc.getString("userId");
-                        if (userId != null)
-                            currentWaitingEntrants.add(userId);
-                    }
-
-                    // 2️⃣ update count IMMEDIATELY (before async profile loading)
-                    waitingCount.setText(currentWaitingEntrants.size() + " people waiting");
-
-                    // 3️⃣ SECOND pass → fetch profile details + populate cards
-                    for (QueryDocumentSnapshot doc : snapshot) {
-                        String userId = doc.getString("userId");
-                        if (userId == null) continue;
-
-                        db.collection("profiles").document(userId)
-                                .get()
-                                .addOnSuccessListener(profileDoc -> {
-                                    if (!isSafe()) return;
+        viewModel.start(eventId);
+        viewModel.loadMoreNearEndOf(EntrantsViewModel.WAITING, container);
 
-                                    String name = profileDoc.getString("fullName");
-                                    String email = profileDoc.getString("email");
-                                    String joinDate = "Unknown date";
+        viewModel.getEntrants(EntrantsViewModel.WAITING).observe(getViewLifecycleOwner(), changes -> {
+            adapter.submit(changes);
+            emptyView.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+        });
 
-                                    if (doc.getTimestamp("timestamp") != null) {
-                                        joinDate = dateFormat.format(doc.getTimestamp("timestamp").toDate());
-                                    }
-
-                                    if (name == null) name = "Unnamed User";
-                                    if (email == null) email = "No email";
-
-                                    addEntrantCard(name, email, joinDate, "Waiting");
-                                })
-                                .addOnFailureListener(e -> {
-                                    if (!isSafe()) return;
-                                    addEntrantCard("Unknown User", "Error loading email", "N/A", "Waiting");
-                                });
-                    }
+        viewModel.getLoadFailed(EntrantsViewModel.WAITING).observe(getViewLifecycleOwner(), failed -> {
+            if (failed && isSafe()) {
+                Toast.makeText(getContext(), "Failed to load entrants", Toast.LENGTH_SHORT).show();
+            }
+        });
 
-                })
-                .addOnFailureListener(e -> {
-                    if (isSafe()) {
-                        Toast.makeText(getContext(), "Failed to load entrants", Toast.LENGTH_SHORT).show();
-                    }
-                });
+        viewModel.getWaitingCount().observe(getViewLifecycleOwner(), total -> {
+            waitingTotal = total;
+            waitingCount.setText(waitingTotal + " people waiting");
+        });
     }
 
-
     /** Opens dialog to ask how many users to draw*/
     private void showDrawDialog() {
         if (!isSafe()) return;
 
-        if (currentWaitingEntrants.isEmpty()) {
+        if (waitingTotal == 0) {
             Toast.makeText(getContext(), "No entrants to draw from.", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -165,7 +130,7 @@ public class WaitingFragment extends Fragment {
 
         new AlertDialog.Builder(requireContext())
                 .setTitle("Run Draw")
-                .setMessage("Enter how many entrants to select (max: " + currentWaitingEntrants.size() + ")")
+                .setMessage("Enter how many entrants to select (max: " + waitingTotal + ")")
                 .setView(input)
                 .setPositiveButton("Draw", (dialog, which) -> {
                     if (!isSafe()) return;
@@ -182,9 +147,9 @@ public class WaitingFragment extends Fragment {
                         return;
                     }
 
-                    if (drawCount > currentWaitingEntrants.size()) {
+                    if (drawCount > waitingTotal) {
                         Toast.makeText(requireContext(),
-                                "Cannot draw more than " + currentWaitingEntrants.size(),
+                                "Cannot draw more than " + waitingTotal,
                                 Toast.LENGTH_SHORT).show();
                         return;
                     }
@@ -197,8 +162,7 @@ public class WaitingFragment extends Fragment {
 
     /** With crash protection */
     private void showNotificationDialog() {
-        db.collection("events").document(eventId)
-                .get()
+        viewModel.fetchEvent()
                 .addOnSuccessListener(eventDoc -> {
                     if (!isSafe()) return;
 
@@ -219,7 +183,7 @@ public class WaitingFragment extends Fragment {
     private void runDraw(int count) {
         if (!isSafe()) return;
 
-        if (currentWaitingEntrants.isEmpty()) {
+        if (waitingTotal == 0) {
             Toast.makeText(requireContext(),
                     "No entrants in waiting list.",
                     Toast.LENGTH_SHORT).show();
@@ -227,7 +191,7 @@ public class WaitingFragment extends Fragment {
         }
 
         // Check event capacity BEFORE drawing
-        db.collection("events").document(eventId).get()
+        viewModel.fetchEvent()
                 .addOnSuccessListener(eventDoc -> {
 
                     Long maxParticipants = eventDoc.getLong("maxParticipants");
@@ -280,9 +244,28 @@ public class WaitingFragment extends Fragment {
                             });
                 });
     }
+    /**
+     * Draws from the whole waiting list, not just the loaded pages, so it
+     * reads every entry once.
+     */
     private void actuallyRunDraw(int count) {
+        db.collection("events").document(eventId)
+                .collection("waitingList")
+                .get()
+                .addOnSuccessListener(snapshot -> EntrantContact.resolve(snapshot)
+                        .addOnSuccessListener(contacts -> {
+                            if (isSafe()) drawFrom(new ArrayList<>(contacts.keySet()), contacts, count);
+                        }))
+                .addOnFailureListener(e -> {
+                    if (isSafe()) {
+                        Toast.makeText(getContext(), "Failed to load entrants", Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
+    private void drawFrom(List<String> waitingIds, Map<String, EntrantContact> contacts, int count) {
         // 1. Shuffle a copy of current waiting entrants
-        List<String> entrantsCopy = new ArrayList<>(currentWaitingEntrants);
+        List<String> entrantsCopy = new ArrayList<>(waitingIds);
         Collections.shuffle(entrantsCopy);
 
         // 2. Pick selected
@@ -312,6 +295,10 @@ public class WaitingFragment extends Fragment {
                     com.google.firebase.firestore.FieldValue.serverTimestamp());
             data.put("selected", true);
 
+            // carry name/email over so the selected list needs no profile lookup
+            EntrantContact contact = contacts.get(userId);
+            if (contact != null) contact.putInto(data);
+
             var selectedRef = db.collection("events")
                     .document(eventId)
                     .collection("selected")
@@ -324,15 +311,18 @@ public class WaitingFragment extends Fragment {
 
             batch.set(selectedRef, data);
             batch.delete(waitingRef);
+            ParticipationIndex.set(batch, db, userId, eventId, ParticipationIndex.SELECTED);
         }
+        // keep the waitlisted counter (used for the join capacity check) in step
+        ShardedCounter.waitlisted(db.collection("events").document(eventId))
+                .increment(batch, -selected.size());
 
         batch.commit()
                 .addOnSuccessListener(unused -> {
                     if (!isSafe()) return;
 
-                    // Update local cache + UI
-                    currentWaitingEntrants.removeAll(selected);
-                    loadWaitingEntrants();
+                    // the list listener removes the drawn cards; only the total needs a refresh
+                    refreshWaitingCount();
 
                     Toast.makeText(requireContext(),
                             "Selected " + selected.size() + " entrants.",
@@ -396,8 +386,7 @@ public class WaitingFragment extends Fragment {
                             return;
                         }
 
-                        db.collection("events").document(eventId)
-                                .get()
+                        viewModel.fetchEvent()
                                 .addOnSuccessListener(eventDoc -> {
                                     if (!isSafe()) return;
 
@@ -451,8 +440,7 @@ public class WaitingFragment extends Fragment {
         if (nonSelectedUserIds == null || nonSelectedUserIds.isEmpty()) return;
 
         // First get the event name for a nicer message
-        db.collection("events").document(eventId)
-                .get()
+        viewModel.fetchEvent()
                 .addOnSuccessListener(eventDoc -> {
                     if (!isSafe()) return;
 
@@ -534,40 +522,6 @@ public class WaitingFragment extends Fragment {
                 });
     }
 
-    /** Adds an entrant card to the layout */
-    private void addEntrantCard(String name,
-                                String email,
-                                String joinDate,
-                                String status) {
-
-        if (!isSafe()) return;
-
-        View card = LayoutInflater.from(requireContext())
-                .inflate(R.layout.item_entrant_card, container, false);
-
-        ((TextView) card.findViewById(R.id.tvEntrantName)).setText(name);
-        ((TextView) card.findViewById(R.id.tvEntrantEmail)).setText(email);
-        ((TextView) card.findViewById(R.id.tvJoinDate)).setText("Joined: " + joinDate);
-        ((TextView) card.findViewById(R.id.tvStatus)).setText(status);
-
-        int colorRes;
-        switch (status.toLowerCase()) {
-            case "selected": colorRes = R.color.brand_primary; break;
-            case "enrolled": colorRes = R.color.green_400; break;
-            case "cancelled": colorRes = R.color.danger_red; break;
-            case "waiting":
-            default: colorRes = R.color.gold; break;
-        }
-
-        card.findViewById(R.id.tvStatus)
-                .getBackground()
-                .setTint(requireContext().getColor(colorRes));
-
-        if (isSafe()) {
-            container.addView(card);
-        }
-    }
-
     /** Reusable safety check */
     private boolean isSafe() {
         return isAdded() && getContext() != null && container != null;
@@ -0,0 +1,126 @@
+package com.example.yellow.ui;
+
+import android.content.Context;
+import android.content.Intent;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.example.yellow.R;
+import com.example.yellow.organizers.Event;
+import com.example.yellow.organizers.ViewEventActivity;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * RecyclerView adapter for the organizer's own events. Each card opens
+ * {@link ViewEventActivity} for that event.
+ */
+public class MyEventsAdapter extends RecyclerView.Adapter<MyEventsAdapter.ViewHolder> {
+
+    private final List<Event> events = new ArrayList<>();
+    private final Context context;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+
+    /**
+     * @param context context used for loading images and starting activities
+     */
+    public MyEventsAdapter(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Replaces the displayed events, rebinding only the rows that changed.
+     *
+     * @param newEvents the events to show
+     */
+    public void setEvents(List<Event> newEvents) {
+        List<Event> next = new ArrayList<>(newEvents);
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new EventCardDiff(events, next));
+        events.clear();
+        events.addAll(next);
+        diff.dispatchUpdatesTo(this);
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_event_card, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        Event event = events.get(position);
+
+        holder.title.setText(event.getName());
+        holder.details.setText(formatEventDetails(event));
+
+        if (event.getPosterImageUrl() != null && !event.getPosterImageUrl().isEmpty()) {
+            holder.image.setScaleType(ImageView.ScaleType.CENTER_CROP);
+            Glide.with(context)
+                    .load(event.getPosterImageUrl())
+                    .centerCrop()
+                    .placeholder(R.drawable.my_image)
+                    .into(holder.image);
+        } else {
+            Glide.with(context).clear(holder.image);
+            holder.image.setScaleType(ImageView.ScaleType.FIT_CENTER);
+            holder.image.setImageResource(R.drawable.ic_image_icon);
+        }
+
+        holder.button.setText("View Event");
+        holder.button.setOnClickListener(view -> {
+            Intent intent = new Intent(context, ViewEventActivity.class);
+            intent.putExtra("eventId", event.getId());
+            intent.putExtra("eventName", event.getName());
+            intent.putExtra("eventDate", formatEventDetails(event));
+            context.startActivity(intent);
+        });
+    }
+
+    @Override
+    public int getItemCount() {
+        return events.size();
+    }
+
+    /**
+     * formats the event date and location for display
+     *
+     * @param event the event object
+     * @return formatted string like "Nov 10, 2025 · Edmonton"
+     */
+    private String formatEventDetails(Event event) {
+        if (event.getRegistrationStartDate() == null || event.getLocation() == null)
+            return "";
+
+        return dateFormat.format(event.getRegistrationStartDate().toDate()) + " · " + event.getLocation();
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        ImageView image;
+        TextView title;
+        TextView details;
+        Button button;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            image = itemView.findViewById(R.id.eventImage);
+            title = itemView.findViewById(R.id.eventTitle);
+            details = itemView.findViewById(R.id.eventDetails);
+            button = itemView.findViewById(R.id.eventButton);
+        }
+    }
+}
@@ -1,52 +1,58 @@
 package com.example.yellow.ui;
 
-import android.content.Intent;
-import android.graphics.Color;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.Button;
-import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.cardview.widget.CardView;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
 import com.example.yellow.R;
 import com.example.yellow.organizers.Event;
-import com.example.yellow.organizers.ViewEventActivity;
-import com.example.yellow.utils.FirebaseManager;
+import com.example.yellow.utils.LocalEventCache;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
 
 /**
  * shows all events created by the logged-in organizer
- * updates live when events are added or removed
+ * renders the cached list immediately, then refreshes it in the background
+ * each time the screen is shown
  */
 //authors: waylon, will
 public class MyEventsFragment extends Fragment {
 
-    private ListenerRegistration registration;
-    private LinearLayout myEventsContainer;
+    private static final String TAG = "MyEventsFragment";
+
+    private FirebaseFirestore db;
+    private LocalEventCache cache;
+    private MyEventsAdapter adapter;
     private TextView tvEventCount;
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+    // set once the profile check passes; refreshes on every onStart after that
+    private String ownerId;
 
     /** inflates the layout for the my events screen */
     @Nullable
@@ -57,7 +63,7 @@ public class MyEventsFragment extends Fragment {
         return inflater.inflate(R.layout.fragment_my_events, container, false);
     }
 
-    /** sets up the view, loads events, and listens for live updates */
+    /** sets up the view and loads the organizer's events */
     @Override
     public void onViewCreated(@NonNull View v, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(v, savedInstanceState);
@@ -73,12 +79,15 @@ public class MyEventsFragment extends Fragment {
             return insets;
         });
 
-        myEventsContainer = v.findViewById(R.id.myEventsContainer);
         tvEventCount = v.findViewById(R.id.tvEventCount);
+        RecyclerView rv = v.findViewById(R.id.rvMyEvents);
+        rv.setLayoutManager(new LinearLayoutManager(getContext()));
+        adapter = new MyEventsAdapter(requireContext());
+        rv.setAdapter(adapter);
 
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        FirebaseAuth auth = FirebaseAuth.getInstance();
-        FirebaseUser currentUser = auth.getCurrentUser();
+        db = FirebaseFirestore.getInstance();
+        cache = LocalEventCache.getInstance(requireContext());
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
 
         if (currentUser == null) {
             Toast.makeText(getContext(), "Please log in to see your events", Toast.LENGTH_SHORT).show();
@@ -88,7 +97,13 @@ public class MyEventsFragment extends Fragment {
         // [NEW] Check Profile before loading events
         com.example.yellow.utils.ProfileUtils.checkProfile(getContext(), isComplete -> {
             if (isComplete) {
-                setupEventsListener(db, currentUser);
+                // onStart does the loading; only load here if this check
+                // finished after onStart had nothing to load yet
+                boolean first = ownerId == null;
+                ownerId = currentUser.getUid();
+                if (first && getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+                    loadMyEvents();
+                }
             }
         }, () -> {
             // Navigate to ProfileUserFragment
@@ -99,182 +114,114 @@ public class MyEventsFragment extends Fragment {
         });
     }
 
-    private void setupEventsListener(FirebaseFirestore db, FirebaseUser currentUser) {
-        // remove any previous listener to avoid duplicate updates
-        if (registration != null) {
-            registration.remove();
-        }
-
-        // listen for real-time updates to this user’s events
-        registration = db.collection("events")
-                .whereEqualTo("organizerId", currentUser.getUid())
-                .addSnapshotListener((querySnapshot, e) -> {
-                    if (e != null) {
-                        Toast.makeText(getContext(), "Failed to load events: " + e.getMessage(), Toast.LENGTH_SHORT)
-                                .show();
-                        return;
-                    }
-
-                    if (querySnapshot == null || querySnapshot.isEmpty()) {
-                        myEventsContainer.removeAllViews();
-                        tvEventCount.setText("0 events");
-                        Toast.makeText(getContext(), "You haven't created any events yet", Toast.LENGTH_SHORT).show();
-                        return;
-                    }
-
-                    myEventsContainer.removeAllViews();
-                    int count = querySnapshot.size();
-                    tvEventCount.setText(count + " events");
-
-                    LayoutInflater inflater = LayoutInflater.from(getContext());
-
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        Event event = doc.toObject(Event.class);
-                        if (event == null)
-                            continue;
-
-                        View card = inflater.inflate(R.layout.item_event_card, myEventsContainer, false);
-
-                        TextView title = card.findViewById(R.id.eventTitle);
-                        TextView details = card.findViewById(R.id.eventDetails);
-                        ImageView image = card.findViewById(R.id.eventImage);
-                        Button button = card.findViewById(R.id.eventButton);
-
-                        title.setText(event.getName());
-                        details.setText(formatEventDetails(event));
-
-                        if (event.getPosterImageUrl() != null && !event.getPosterImageUrl().isEmpty()) {
-                            Glide.with(this)
-                                    .load(event.getPosterImageUrl())
-                                    .centerCrop()
-                                    .placeholder(R.drawable.my_image)
-                                    .into(image);
-                        } else {
-                            image.setScaleType(ImageView.ScaleType.FIT_CENTER);
-                            image.setImageResource(R.drawable.ic_image_icon);
-                        }
-
-                        button.setText("View Event");
-                        button.setOnClickListener(view -> {
-                            Intent intent = new Intent(getContext(), ViewEventActivity.class);
-                            intent.putExtra("eventId", event.getId());
-                            intent.putExtra("eventName", event.getName());
-                            intent.putExtra("eventDate", formatEventDetails(event));
-                            startActivity(intent);
-                        });
-
-                        myEventsContainer.addView(card);
-                    }
-                });
-    }
-
-    /** stops the Firestore listener when the fragment is not visible */
+    /** refreshes when coming back, e.g. after editing an event */
     @Override
-    public void onStop() {
-        super.onStop();
-        if (registration != null) {
-            registration.remove();
-            registration = null;
+    public void onStart() {
+        super.onStart();
+        if (ownerId != null) {
+            loadMyEvents();
         }
     }
 
-    /** loads all events created by the current user */
+    /** shows the cached events, then refreshes them from Firestore */
     private void loadMyEvents() {
-        String userId = FirebaseAuth.getInstance().getCurrentUser() != null
-                ? FirebaseAuth.getInstance().getCurrentUser().getUid()
-                : null;
-
-        if (userId == null) {
-            Toast.makeText(getContext(), "User not logged in", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        FirebaseManager.getInstance().getEventsByOrganizer(userId, new FirebaseManager.GetEventsCallback() {
-            @Override
-            public void onSuccess(List<DocumentSnapshot> documents) {
-                myEventsContainer.removeAllViews();
-
-                if (documents.isEmpty()) {
-                    tvEventCount.setText("No events found");
-                    return;
-                }
-
-                tvEventCount.setText(documents.size() + " events");
-
-                for (DocumentSnapshot doc : documents) {
-                    Event event = doc.toObject(Event.class);
-                    if (event != null)
-                        addEventCard(event);
-                }
-            }
-
-            @Override
-            public void onFailure(Exception e) {
-                Toast.makeText(getContext(), "Error loading events: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        String uid = ownerId;
+        cache.load(LocalEventCache.LIST_MY_EVENTS, uid).addOnCompleteListener(task -> {
+            if (!isAdded())
+                return;
+            LocalEventCache.Snapshot cached = task.isSuccessful() ? task.getResult() : null;
+            if (cached != null && !cached.events.isEmpty()) {
+                showEvents(cached.events);
             }
+            refresh(uid, cached);
         });
     }
 
     /**
-     * adds one event card to the list
-     *
-     * @param event the event object to display
+     * Brings the cached list up to date. With a recent full load, only events
+     * updated since the newest cached row are read, and a server count()
+     * confirms nothing was deleted; otherwise, or if the count disagrees, the
+     * whole list is reloaded.
      */
-    private void addEventCard(Event event) {
-        if (getContext() == null)
-            return;
+    private void refresh(String uid, @Nullable LocalEventCache.Snapshot cached) {
+        Query mine = db.collection("events").whereEqualTo("organizerId", uid);
 
-        CardView card = new CardView(getContext());
-        LinearLayout.LayoutParams cardParams = new LinearLayout.LayoutParams(
-                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-        cardParams.setMargins(0, 0, 0, 20);
-        card.setLayoutParams(cardParams);
-        card.setRadius(20);
-        card.setCardElevation(6);
-        card.setCardBackgroundColor(getResources().getColor(R.color.surface_dark));
+        if (cached == null || !cached.canRefreshDelta(System.currentTimeMillis())) {
+            fullReload(uid, mine, cached != null && !cached.events.isEmpty());
+            return;
+        }
 
-        LinearLayout inner = new LinearLayout(getContext());
-        inner.setOrientation(LinearLayout.VERTICAL);
-        inner.setPadding(24, 24, 24, 24);
+        // organizerId + updatedAt range is served by the composite index in
+        // code/firestore.indexes.json
+        Task<QuerySnapshot> changed = mine.whereGreaterThan("updatedAt", cached.newestUpdate()).get();
+        Task<AggregateQuerySnapshot> count = mine.count().get(AggregateSource.SERVER);
 
-        TextView nameView = new TextView(getContext());
-        nameView.setText(event.getName());
-        nameView.setTextColor(Color.WHITE);
-        nameView.setTextSize(18);
-        nameView.setTypeface(null, android.graphics.Typeface.BOLD);
-        inner.addView(nameView);
+        Tasks.whenAllSuccess(changed, count)
+                .addOnSuccessListener(results -> {
+                    Map<String, Event> byId = new LinkedHashMap<>();
+                    for (Event e : cached.events) {
+                        byId.put(e.getId(), e);
+                    }
+                    for (Event e : toEvents(((QuerySnapshot) results.get(0)).getDocuments())) {
+                        byId.put(e.getId(), e);
+                    }
 
-        String dateText = "";
-        if (event.getRegistrationStartDate() != null) {
-            Date date = event.getRegistrationStartDate().toDate();
-            dateText = dateFormat.format(date);
-        }
-        if (event.getLocation() != null && !event.getLocation().isEmpty()) {
-            dateText += " · " + event.getLocation();
-        }
+                    long serverCount = ((AggregateQuerySnapshot) results.get(1)).getCount();
+                    if (serverCount != byId.size()) {
+                        // Something was deleted (or predates updatedAt); start over
+                        fullReload(uid, mine, true);
+                        return;
+                    }
 
-        TextView infoView = new TextView(getContext());
-        infoView.setText(dateText);
-        infoView.setTextColor(getResources().getColor(R.color.hinty));
-        infoView.setTextSize(14);
-        inner.addView(infoView);
+                    List<Event> events = new ArrayList<>(byId.values());
+                    LocalEventCache.sortByStartDate(events);
+                    cache.replace(LocalEventCache.LIST_MY_EVENTS, uid, events, false);
+                    if (isAdded())
+                        showEvents(events);
+                })
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Delta refresh failed", e);
+                    if (isAdded())
+                        Toast.makeText(getContext(), "Offline: showing saved events", Toast.LENGTH_SHORT).show();
+                });
+    }
 
-        card.addView(inner);
-        myEventsContainer.addView(card);
+    private void fullReload(String uid, Query mine, boolean showingCache) {
+        mine.get()
+                .addOnSuccessListener(snapshot -> {
+                    List<Event> events = toEvents(snapshot.getDocuments());
+                    LocalEventCache.sortByStartDate(events);
+                    cache.replace(LocalEventCache.LIST_MY_EVENTS, uid, events, true);
+                    if (!isAdded())
+                        return;
+                    showEvents(events);
+                    if (events.isEmpty()) {
+                        Toast.makeText(getContext(), "You haven't created any events yet", Toast.LENGTH_SHORT).show();
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    if (!isAdded())
+                        return;
+                    Toast.makeText(getContext(),
+                            showingCache ? "Offline: showing saved events" : "Failed to load events: " + e.getMessage(),
+                            Toast.LENGTH_SHORT).show();
+                });
     }
 
-    /**
-     * formats the event date and location for display
-     *
-     * @param event the event object
-     * @return formatted string like "Nov 10, 2025 · Edmonton"
-     */
-    private String formatEventDetails(Event event) {
-        if (event.getRegistrationStartDate() == null || event.getLocation() == null)
-            return "";
+    private static List<Event> toEvents(List<DocumentSnapshot> docs) {
+        List<Event> events = new ArrayList<>();
+        for (DocumentSnapshot doc : docs) {
+            Event event = doc.toObject(Event.class);
+            if (event == null)
+                continue;
+            event.setId(doc.getId());
+            events.add(event);
+        }
+        return events;
+    }
 
-        Date date = event.getRegistrationStartDate().toDate();
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-        return sdf.format(date) + " · " + event.getLocation();
+    private void showEvents(List<Event> events) {
+        tvEventCount.setText(events.size() + " events");
+        adapter.setEvents(events);
     }
 }
@@ -20,19 +20,17 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import com.example.yellow.R;
 import com.example.yellow.models.NotificationItem;
 import com.example.yellow.ui.notifications.NotificationAdapter;
+import com.example.yellow.users.PendingActionQueue;
+import com.example.yellow.utils.LatencyTrace;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 
 /**
  * Fragment that displays app notifications for the user.
@@ -153,210 +151,73 @@ public class NotificationFragment extends Fragment {
         }
     }
 
+    /**
+     * Accepts an invitation in one transaction. The card's buttons are hidden
+     * straight away and only come back if the accept doesn't go through; on
+     * success the notification listener removes the card. Offline, the
+     * accept waits in {@link PendingActionQueue} and the card stays pending.
+     */
     private void acceptSelection(String eventId, String notificationId) {
 
         String uid = FirebaseAuth.getInstance().getUid();
         if (uid == null) return;
 
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        DocumentReference eventRef = db.collection("events").document(eventId);
-        DocumentReference cancelledRef = eventRef.collection("cancelled").document(uid);
-
-        // First check: user is not cancelled already
-        cancelledRef.get().addOnSuccessListener(cancelDoc -> {
-
-            if (cancelDoc.exists()) {
-                Toast.makeText(getContext(),
-                        "You cannot enroll because you previously cancelled.",
-                        Toast.LENGTH_SHORT).show();
-                return;
-            }
-
-            // Now check capacity before running the transaction
-            eventRef.get().addOnSuccessListener(eventDoc -> {
-                Long enrolled = eventDoc.getLong("enrolled");
-                Long max = eventDoc.getLong("maxEntrants");
-
-                if (enrolled == null) enrolled = 0L;
-                if (max == null || max <= 0) max = Long.MAX_VALUE;  // Unlimited capacity
-
-                if (enrolled >= max) {
-                    Toast.makeText(getContext(), "Event is full!", Toast.LENGTH_SHORT).show();
-                    return;
-                }
-
-                db.runTransaction(transaction -> {
-
-                            DocumentSnapshot freshDoc = transaction.get(eventRef);
-                            Long tEnrolled = freshDoc.getLong("enrolled");
-                            Long tMax = freshDoc.getLong("maxEntrants");
-
-                            if (tEnrolled == null) tEnrolled = 0L;
-                            if (tMax == null || tMax <= 0) tMax = Long.MAX_VALUE;
-
-                            if (tEnrolled >= tMax) {
-                                throw new FirebaseFirestoreException(
-                                        "Event is full",
-                                        FirebaseFirestoreException.Code.ABORTED
-                                );
-                            }
-
-                            // Remove from selected
-                            transaction.delete(eventRef.collection("selected").document(uid));
-
-                            // Add to enrolled
-                            transaction.set(
-                                    eventRef.collection("enrolled").document(uid),
-                                    new HashMap<String, Object>() {{
-                                        put("userId", uid);
-                                        put("timestamp", FieldValue.serverTimestamp());
-                                    }}
-                            );
-
-                            // Increment counter
-                            transaction.update(eventRef, "enrolled", tEnrolled + 1);
-
-                            // Remove notification
-                            DocumentReference notifRef = db.collection("profiles")
-                                    .document(uid)
-                                    .collection("notifications")
-                                    .document(notificationId);
-                            transaction.delete(notifRef);
-
-                            return null;
-
-                        }).addOnSuccessListener(v ->
-                                Toast.makeText(getContext(), "You’ve successfully enrolled!", Toast.LENGTH_SHORT).show())
-                        .addOnFailureListener(e ->
-                                Toast.makeText(getContext(), "Event is full!", Toast.LENGTH_SHORT).show());
-
-            });
-
-        });
+        adapter.setPending(notificationId, true);
+        LatencyTrace trace = LatencyTrace.start("accept_selection");
+
+        PendingActionQueue.getInstance(requireContext()).accept(eventId, notificationId)
+                .addOnSuccessListener(result -> {
+                    trace.stop(result.name().toLowerCase(Locale.ROOT));
+                    switch (result) {
+                        case ENROLLED:
+                        case ALREADY_ENROLLED:
+                            toast("You’ve successfully enrolled!");
+                            break;
+                        case CANCELLED:
+                            adapter.setPending(notificationId, false);
+                            toast("You cannot enroll because you previously cancelled.");
+                            break;
+                        case FULL:
+                            adapter.setPending(notificationId, false);
+                            toast("Event is full!");
+                            break;
+                        case NOT_SELECTED:
+                            // the invitation was removed with the result
+                            toast("This invitation is no longer valid.");
+                            break;
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    trace.stop("error");
+                    adapter.setPending(notificationId, false);
+                    toast("Failed to enroll: " + e.getMessage());
+                });
     }
 
-    private void declineSelection(String eventId, String notificationId) {
-
-        String uid = FirebaseAuth.getInstance().getUid();
-        if (uid == null) return;
-
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-        DocumentReference eventRef = db.collection("events").document(eventId);
-
-        getNextWaitlistedUser(eventId, (nextUserId, nextDoc) -> {
-
-            db.runTransaction(transaction -> {
-
-                DocumentReference selectedRef =
-                        eventRef.collection("selected").document(uid);
-
-                DocumentReference enrolledRef =
-                        eventRef.collection("enrolled").document(uid);
-
-                DocumentReference cancelledRef =
-                        eventRef.collection("cancelled").document(uid);
-
-                // ALWAYS delete user from selected
-                transaction.delete(selectedRef);
-
-                // delete from enrolled if they were there
-                transaction.delete(enrolledRef);
-
-                // Add to cancelled
-                Map<String, Object> cancelData = new HashMap<>();
-                cancelData.put("userId", uid);
-                cancelData.put("timestamp", FieldValue.serverTimestamp());
-                transaction.set(cancelledRef, cancelData);
-
-                // Promote next user if any
-                if (nextUserId != null && nextDoc != null) {
-
-                    // Remove them from waiting list
-                    transaction.delete(nextDoc.getReference());
-
-                    // Add to selected
-                    DocumentReference promotedRef =
-                            eventRef.collection("selected").document(nextUserId);
-
-                    Map<String, Object> promoteData = new HashMap<>();
-                    promoteData.put("userId", nextUserId);
-                    promoteData.put("timestamp", FieldValue.serverTimestamp());
-                    transaction.set(promotedRef, promoteData);
-                }
-
-                return null;
-
-            }).addOnSuccessListener(v -> {
-
-                if (nextUserId != null) {
-                    sendRejoinNotification(eventId, nextUserId);
-                }
-
-                removeNotification(notificationId);
-
-                Toast.makeText(getContext(),
-                        "You have declined the selection.",
-                        Toast.LENGTH_SHORT).show();
-
-            }).addOnFailureListener(e -> {
-
-                Toast.makeText(getContext(),
-                        "Failed to process decline: " + e.getMessage(),
-                        Toast.LENGTH_LONG).show();
-
-            });
-        });
+    private void toast(String message) {
+        if (getContext() != null) {
+            Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
+        }
     }
 
-    private void sendRejoinNotification(String eventId, String nextUserId) {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-
-        Map<String, Object> data = new HashMap<>();
-        data.put("eventId", eventId);
-        data.put("message", "A spot opened up! Tap to rejoin.");
-        data.put("timestamp", FieldValue.serverTimestamp());
-        data.put("read", false);
-
-        db.collection("profiles")
-                .document(nextUserId)
-                .collection("notifications")
-                .add(data);
-    }
+    private void declineSelection(String eventId, String notificationId) {
 
-    private void removeNotification(String notificationId) {
         String uid = FirebaseAuth.getInstance().getUid();
         if (uid == null) return;
 
-        FirebaseFirestore.getInstance()
-                .collection("profiles")
-                .document(uid)
-                .collection("notifications")
-                .document(notificationId)
-                .delete();
-    }
-
-    private void getNextWaitlistedUser(String eventId, NextUserCallback callback) {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-
-        db.collection("events").document(eventId)
-                .collection("waitingList")
-                .orderBy("timestamp")
-                .limit(1)
-                .get()
-                .addOnSuccessListener(snapshot -> {
-                    if (snapshot.isEmpty()) {
-                        callback.onResult(null, null);
-                    } else {
-                        DocumentSnapshot doc = snapshot.getDocuments().get(0);
-                        String userId = doc.getString("userId");
-                        callback.onResult(userId, doc);
+        adapter.setPending(notificationId, true);
+
+        PendingActionQueue.getInstance(requireContext()).decline(eventId, notificationId)
+                .addOnSuccessListener(promoted ->
+                        toast("You have declined the selection."))
+                .addOnFailureListener(e -> {
+                    adapter.setPending(notificationId, false);
+                    if (getContext() != null) {
+                        Toast.makeText(getContext(),
+                                "Failed to process decline: " + e.getMessage(),
+                                Toast.LENGTH_LONG).show();
                     }
-                })
-                .addOnFailureListener(e -> callback.onResult(null, null));
-    }
-
-    public interface NextUserCallback {
-        void onResult(String nextUserId, DocumentSnapshot docSnapshot);
+                });
     }
 
     // 🔹 Clear all notifications for the current user
@@ -289,9 +289,10 @@ public class ProfileUserFragment extends Fragment {
                 .document(uid)
                 .set(data, SetOptions.merge()) // merge so we don’t wipe other fields
                 .addOnSuccessListener(unused -> {
+                    com.example.yellow.utils.ProfileRepository.getInstance().invalidate(uid);
                     showSnackbar("Profile saved successfully ✓");
                     // Propagate the updated name to other Firestore docs that cache the user name
-                    com.example.yellow.utils.ProfileSyncUtils.updateUserDisplayNameEverywhere(db, uid, name);
+                    com.example.yellow.utils.ProfileSyncUtils.updateUserDisplayNameEverywhere(db, uid, name, email);
                 })
                 .addOnFailureListener(e -> showSnackbar("Save failed: " + e.getMessage()));
     }
@@ -308,6 +309,9 @@ public class ProfileUserFragment extends Fragment {
         // Use cascade deletion to remove profile, events, and subcollections
         com.example.yellow.utils.UserCleanupUtils.deleteUserAndEvents(uid, db)
                 .addOnSuccessListener(unused -> {
+                    com.example.yellow.utils.ProfileRepository.getInstance().invalidate(uid);
+                    if (getContext() != null)
+                        com.example.yellow.utils.LocalEventCache.getInstance(getContext()).clear(uid);
                     showSnackbar("Profile deleted successfully");
                     // Clear the input fields
                     inputFullName.setText("");
@@ -1,9 +1,6 @@
 package com.example.yellow.ui;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
-import android.util.Base64;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -19,6 +16,7 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.example.yellow.R;
 import com.example.yellow.organizers.EventViewModel;
+import com.example.yellow.utils.QrBitmapCache;
 
 /**
  * Fragment for displaying the QR code after creating an event.
@@ -49,7 +47,7 @@ public class QrFragmentAfterCreateEvent extends Fragment {
         eventViewModel.getEvent().observe(getViewLifecycleOwner(), event -> {
             if (event != null) {
                 // Once we have the event, display the QR code and deep link
-                displayQrCode(event.getQrImagePng());
+                displayQrCode(event.getQrContent());
                 if (event.getQrDeepLink() != null) {
                     tvDeepLink.setText(event.getQrDeepLink());
                 } else {
@@ -67,50 +65,34 @@ public class QrFragmentAfterCreateEvent extends Fragment {
     }
 
     /**
-     * Displays the QR code from the provided URI.
-     * If the URI is null or empty, a placeholder image is shown.
-     * @param qrDataUri: URI of the QR code image
+     * Displays the QR code for the given deep link, rendering it on demand
+     * (or serving it from the QR cache).
+     * If there is no deep link, the image is hidden.
+     * @param content: text encoded in the QR code
      */
-    private void displayQrCode(@Nullable String qrDataUri) {
-        if (qrDataUri == null || qrDataUri.trim().isEmpty()) {
+    private void displayQrCode(@Nullable String content) {
+        if (content == null || content.trim().isEmpty()) {
             // Handle the case where the QR code data is missing
             Toast.makeText(getContext(), "This event does not have a QR code.", Toast.LENGTH_SHORT).show();
 
             // Explicitly hide the ImageView so the white square doesn't appear
             qrImageView.setVisibility(View.GONE);
-
-            // If you have a placeholder in your layout, you could show it here instead.
-            // e.g., noQrCodeTextView.setVisibility(View.VISIBLE);
             return;
         }
 
         // If we have data, make sure the ImageView is visible
         qrImageView.setVisibility(View.VISIBLE);
 
-        try {
-            // Strip the "data:image/png;base64," header
-            String base64String = qrDataUri.substring(qrDataUri.indexOf(',') + 1);
-
-            // Decode the Base64 string into a byte array
-            byte[] decodedBytes = Base64.decode(base64String, Base64.DEFAULT);
-
-            // Convert the byte array into a Bitmap
-            Bitmap decodedBitmap = BitmapFactory.decodeByteArray(decodedBytes, 0, decodedBytes.length);
-
-            if (decodedBitmap != null) {
-                // Set the Bitmap to the ImageView
-                qrImageView.setImageBitmap(decodedBitmap);
+        QrBitmapCache.getInstance(requireContext()).load(content, QrBitmapCache.DEFAULT_SIZE_PX, bmp -> {
+            if (!isAdded() || qrImageView == null)
+                return;
+            if (bmp != null) {
+                qrImageView.setImageBitmap(bmp);
             } else {
-                // The data was present but could not be decoded into a valid image
-                throw new IllegalArgumentException("Decoded bitmap is null.");
+                Toast.makeText(getContext(), "Failed to generate QR code.", Toast.LENGTH_LONG).show();
+                qrImageView.setImageResource(R.drawable.my_image);
+                Log.e("QrFragment", "Error rendering QR code for " + content);
             }
-
-        } catch (Exception e) {
-            Toast.makeText(getContext(), "Failed to decode QR code.", Toast.LENGTH_LONG).show();
-            // Set an error icon and make sure the view is still visible to show the error
-            qrImageView.setVisibility(View.VISIBLE);
-            qrImageView.setImageResource(R.drawable.my_image); // 'my_image' is from your file
-            // Correct
-            Log.e("QrFragment", "Error decoding Base64 QR code", e);}
+        });
     }
 }
@@ -15,6 +15,7 @@ import androidx.fragment.app.Fragment;
 
 import com.example.yellow.R;
 import com.example.yellow.ui.ManageEntrants.ManageEntrantsActivity;
+import com.example.yellow.utils.EntrantContact;
 import com.google.android.material.button.MaterialButton;
 import com.google.firebase.Timestamp;
 import com.google.firebase.firestore.DocumentSnapshot;
@@ -94,7 +95,7 @@ public class EntrantsFragment extends Fragment {
 
     /**
      * loads entrants from a specific subcollection
-     * pulls each user's profile and shows them on screen
+     * and shows each entrant's name and email on screen
      *
      * @param subcollection name of the Firestore subcollection (waitingList, selected, etc)
      * @param status label to display on each entrant card
@@ -106,16 +107,16 @@ public class EntrantsFragment extends Fragment {
                 .addOnSuccessListener(snapshot -> {
                     if (snapshot.isEmpty()) return;
 
-                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                        String userId = doc.getString("userId");
-                        if (userId == null || userId.isEmpty()) continue;
+                    // names/emails come from the entries themselves (older ones via profiles)
+                    EntrantContact.resolve(snapshot.getDocuments())
+                            .addOnSuccessListener(contacts -> {
+                                for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                                    String userId = doc.getString("userId");
+                                    if (userId == null || userId.isEmpty()) continue;
 
-                        // fetch from /profiles/{userId}
-                        db.collection("profiles").document(userId)
-                                .get()
-                                .addOnSuccessListener(profile -> {
-                                    String name = profile.getString("fullName");
-                                    String email = profile.getString("email");
+                                    EntrantContact contact = contacts.get(userId);
+                                    String name = contact != null ? contact.name : null;
+                                    String email = contact != null ? contact.email : null;
                                     if (name == null) name = "Unnamed Entrant";
                                     if (email == null) email = "No email";
 
@@ -128,11 +129,8 @@ public class EntrantsFragment extends Fragment {
                                     }
 
                                     addEntrantCard(name, email, joined, status);
-                                })
-                                .addOnFailureListener(e ->
-                                        addEntrantCard("Unknown", "Error loading profile", "N/A", status)
-                                );
-                    }
+                                }
+                            });
                 })
                 .addOnFailureListener(e ->
                         Toast.makeText(getContext(), "Error loading " + status + " entrants", Toast.LENGTH_SHORT).show()
@@ -1,5 +1,6 @@
 package com.example.yellow.ui.ViewEvent.Map;
 
+import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -13,16 +14,23 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.example.yellow.R;
+import com.example.yellow.organizers.Event;
 import com.example.yellow.organizers.EventViewModel;
 import com.example.yellow.ui.ViewEvent.Map.MapViewModel;
 import com.example.yellow.users.WaitingUser; // Import the correct class
+import com.example.yellow.utils.ClusterEngine;
+import com.example.yellow.utils.EntrantExporter;
+import com.example.yellow.utils.ExportSink;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.util.List;
 
@@ -51,6 +59,8 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
         mapViewModel = new ViewModelProvider(this).get(com.example.yellow.ui.ViewEvent.Map.MapViewModel.class);
         eventViewModel = new ViewModelProvider(requireActivity()).get(EventViewModel.class);
 
+        view.findViewById(R.id.btnExportGeoJson).setOnClickListener(v -> exportGeoJson());
+
         // Setup the map
         SupportMapFragment mapFragment = (SupportMapFragment) getChildFragmentManager().findFragmentById(R.id.map_container);
         if (mapFragment != null) {
@@ -79,8 +89,21 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
             }
         });
 
-        // Now, observe our MapViewModel for the list of entrants
-        mapViewModel.getEntrantsWithLocation().observe(getViewLifecycleOwner(), this::updateMapMarkers);
+        // Fit the camera once the entrants' bounds are known; the ViewModel
+        // clusters off the main thread and reads the bounds separately
+        mapViewModel.getEntrantBounds().observe(getViewLifecycleOwner(), this::fitCamera);
+        mapViewModel.getClusters().observe(getViewLifecycleOwner(), this::updateMapMarkers);
+        mapViewModel.getPartial().observe(getViewLifecycleOwner(), partial -> {
+            if (Boolean.TRUE.equals(partial)) {
+                Toast.makeText(getContext(), "Zoom in to see every entrant in this area.", Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        // Read and re-cluster whatever is on screen after each camera move
+        googleMap.setOnCameraIdleListener(() -> mapViewModel.setViewport(
+                googleMap.getCameraPosition().zoom,
+                googleMap.getProjection().getVisibleRegion().latLngBounds));
+        googleMap.setOnMarkerClickListener(this::onMarkerClick);
 
         // Observe for any error messages
         mapViewModel.getErrorMessage().observe(getViewLifecycleOwner(), error -> {
@@ -89,38 +112,110 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     }
 
     /**
-     * Updates the map with the list of entrants.
-     * @param entrants: the list of entrants to display
+     * Moves the camera to show every entrant.
+     * @param bounds: the entrants' bounds, or null if none shared a location
      */
-    private void updateMapMarkers(List<WaitingUser> entrants) {
+    private void fitCamera(@Nullable LatLngBounds bounds) {
         if (googleMap == null) return; // Don't do anything if the map isn't ready
-        googleMap.clear(); // Clear any old markers
 
-        if (entrants == null || entrants.isEmpty()) {
+        if (bounds == null) {
+            googleMap.clear();
             Toast.makeText(getContext(), "No entrants have shared their location.", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        LatLngBounds.Builder boundsBuilder = new LatLngBounds.Builder();
-        int markersAdded = 0;
-
-        // Loop through the WaitingUser objects
-        for (WaitingUser entrant : entrants) {
-            LatLng location = new LatLng(entrant.getLatitude(), entrant.getLongitude());
-            googleMap.addMarker(new MarkerOptions()
-                    .position(location)
-                    .title(entrant.getName())); // Use the name from the WaitingUser object
-            boundsBuilder.include(location);
-            markersAdded++;
+        int padding = 150; // Padding in pixels
+        // The camera idle listener then asks for this viewport's clusters
+        googleMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, padding));
+    }
+
+    /**
+     * Replaces the markers with the clusters inside the viewport: a single
+     * entrant gets a marker with their name, a group gets one marker with
+     * its size.
+     * @param clusters: the clusters to display
+     */
+    private void updateMapMarkers(List<ClusterEngine.Cluster<WaitingUser>> clusters) {
+        if (googleMap == null) return; // Don't do anything if the map isn't ready
+        googleMap.clear(); // Clear any old markers
+
+        for (ClusterEngine.Cluster<WaitingUser> cluster : clusters) {
+            LatLng position = new LatLng(cluster.getLatitude(), cluster.getLongitude());
+            MarkerOptions options = new MarkerOptions().position(position);
+            if (cluster.isSingle()) {
+                options.title(cluster.getItem().getName()); // Use the name from the WaitingUser object
+            } else {
+                options.title(cluster.getCount() + " entrants")
+                        .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_AZURE));
+            }
+            Marker marker = googleMap.addMarker(options);
+            if (marker != null) {
+                marker.setTag(cluster);
+            }
         }
 
-        Log.d(TAG, "Added " + markersAdded + " markers to the map.");
+        Log.d(TAG, "Showing " + clusters.size() + " markers.");
+    }
 
-        // Animate the camera to fit all the markers
-        if (markersAdded > 0) {
-            LatLngBounds bounds = boundsBuilder.build();
-            int padding = 150; // Padding in pixels
-            googleMap.animateCamera(CameraUpdateFactory.newLatLngBounds(bounds, padding));
+    /**
+     * Zooms in on a group instead of showing its info window.
+     */
+    private boolean onMarkerClick(@NonNull Marker marker) {
+        if (!(marker.getTag() instanceof ClusterEngine.Cluster)
+                || ((ClusterEngine.Cluster<?>) marker.getTag()).isSingle()) {
+            return false;
         }
+        float zoom = googleMap.getCameraPosition().zoom + 2;
+        googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(marker.getPosition(), zoom));
+        return true;
+    }
+
+    /**
+     * Streams the waiting list's join locations to a GeoJSON file in
+     * Downloads, reading the list a page at a time instead of using the
+     * loaded markers.
+     */
+    private void exportGeoJson() {
+        Event event = eventViewModel.getEvent().getValue();
+        if (event == null || event.getId() == null) {
+            Toast.makeText(getContext(), "Event not loaded yet", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        ExportSink sink;
+        try {
+            sink = ExportSink.openDownload(requireContext(),
+                    "entrant_locations_" + event.getId() + ".geojson", "application/geo+json", false);
+        } catch (Exception e) {
+            Toast.makeText(getContext(), "Error saving file: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        Toast.makeText(getContext(), "Exporting locations…", Toast.LENGTH_SHORT).show();
+
+        EntrantExporter.writeGeoJson(
+                        FirebaseFirestore.getInstance().collection("events")
+                                .document(event.getId()).collection("waitingList"),
+                        sink)
+                .addOnCompleteListener(task -> {
+                    if (!isAdded())
+                        return;
+
+                    if (!task.isSuccessful()) {
+                        Log.e(TAG, "GeoJSON export failed", task.getException());
+                        Toast.makeText(getContext(), "Failed to export locations", Toast.LENGTH_SHORT).show();
+                    } else if (task.getResult() == 0) {
+                        Toast.makeText(getContext(), "No entrants have shared their location.", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(getContext(),
+                                task.getResult() + " locations saved to Downloads!", Toast.LENGTH_LONG).show();
+
+                        Intent intent = new Intent(Intent.ACTION_SEND);
+                        intent.setType(sink.getMimeType());
+                        intent.putExtra(Intent.EXTRA_STREAM, sink.getUri());
+                        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                        startActivity(Intent.createChooser(intent, "Share locations"));
+                    }
+                });
     }
 }
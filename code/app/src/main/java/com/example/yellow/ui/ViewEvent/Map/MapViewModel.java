@@ -6,33 +6,152 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
 import com.example.yellow.users.WaitingUser; // Correctly imports your WaitingUser class
+import com.example.yellow.utils.ClusterEngine;
+import com.example.yellow.utils.Geohash;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * ViewModel for the MapFragment.
+ *
+ * Entrants are read by viewport: the visible area is covered by a few
+ * geohash prefixes ({@link Geohash#coveringPrefixes}) and each prefix is one
+ * range query on the entries' {@code geohash}, capped at
+ * {@link #MAX_PER_PREFIX}. Answered prefixes are kept, so panning back or
+ * zooming into an area already read costs nothing; a capped prefix is read
+ * again at the finer precision once the user zooms in.
  * @author Kien Tran - kht
  */
 public class MapViewModel extends ViewModel {
     private static final String TAG = "MapViewModel";
 
+    /** Most entries read for one geohash prefix. */
+    static final int MAX_PER_PREFIX = 500;
+
+    /**
+     * Entries read from each end of the latitude and longitude ranges to find
+     * the bounds, in case the first few there have no usable location.
+     */
+    static final int BOUNDS_SAMPLE = 5;
+
     private final FirebaseFirestore db = FirebaseFirestore.getInstance();
 
     // This LiveData will hold the list of entrants with their locations.
     private final MutableLiveData<List<WaitingUser>> entrantsWithLocation = new MutableLiveData<>();
     private final MutableLiveData<String> errorMessage = new MutableLiveData<>();
 
+    // Bounds of every located entrant, null when there are none
+    private final MutableLiveData<LatLngBounds> entrantBounds = new MutableLiveData<>();
+    // Clusters/markers inside the current viewport
+    private final MutableLiveData<List<ClusterEngine.Cluster<WaitingUser>>> clusters = new MutableLiveData<>();
+    // Whether some of the area in view hit MAX_PER_PREFIX
+    private final MutableLiveData<Boolean> partial = new MutableLiveData<>(false);
+
+    // Clustering runs here, never on the main thread
+    private final ExecutorService clusterExecutor = Executors.newSingleThreadExecutor();
+    private volatile ClusterEngine<WaitingUser> engine;
+    private volatile Viewport viewport;
+    // bumped on every new entrant list or viewport, so stale results are dropped
+    private volatile int generation;
+
+    // Main thread only: what has been read for eventId
+    private String eventId;
+    private final Map<String, WaitingUser> loaded = new LinkedHashMap<>();
+    // answered prefixes -> whether the answer was capped
+    private final Map<String, Boolean> readPrefixes = new HashMap<>();
+    private final Set<String> pendingPrefixes = new HashSet<>();
+
+    /** The camera's zoom and visible area. */
+    private static final class Viewport {
+        final float zoom;
+        final LatLngBounds bounds;
+
+        Viewport(float zoom, LatLngBounds bounds) {
+            this.zoom = zoom;
+            this.bounds = bounds;
+        }
+    }
+
     /**
-     * Returns the LiveData for the list of entrants with their locations.
+     * Returns the LiveData for the entrants read so far.
      * @return The LiveData for the list of entrants with their locations.
      */
     public LiveData<List<WaitingUser>> getEntrantsWithLocation() {
         return entrantsWithLocation;
     }
 
+    /**
+     * Returns the bounds of every entrant who shared a location, or null when
+     * nobody has. Found from the entries at each end of the latitude and
+     * longitude ranges, so it covers the whole list, not just what was read.
+     */
+    public LiveData<LatLngBounds> getEntrantBounds() {
+        return entrantBounds;
+    }
+
+    /**
+     * Returns the clusters and single entrants inside the viewport last passed
+     * to {@link #setViewport}.
+     */
+    public LiveData<List<ClusterEngine.Cluster<WaitingUser>>> getClusters() {
+        return clusters;
+    }
+
+    /**
+     * Returns whether the area in view has more entrants than were read;
+     * zooming in reads the rest.
+     */
+    public LiveData<Boolean> getPartial() {
+        return partial;
+    }
+
+    /**
+     * Reads any part of a new camera position that hasn't been read yet, and
+     * re-clusters for it in the background.
+     * @param zoom   The camera zoom.
+     * @param bounds The visible area.
+     */
+    public void setViewport(float zoom, LatLngBounds bounds) {
+        viewport = new Viewport(zoom, bounds);
+        recluster();
+        if (eventId == null)
+            return;
+
+        List<String> prefixes = Geohash.coveringPrefixes(
+                bounds.southwest.latitude, bounds.southwest.longitude,
+                bounds.northeast.latitude, bounds.northeast.longitude);
+        List<String> missing = new ArrayList<>();
+        boolean capped = false;
+        for (String prefix : prefixes) {
+            Boolean answer = answeredBy(prefix);
+            if (answer == null) {
+                missing.add(prefix);
+            } else {
+                capped |= answer;
+            }
+        }
+        setPartial(capped);
+        if (!missing.isEmpty())
+            read(missing, false);
+    }
+
     /**
      * Returns the LiveData for error messages.
      * @return The LiveData for error messages.
@@ -42,7 +161,9 @@ public class MapViewModel extends ViewModel {
     }
 
     /**
-     * Starts the one-step process to load locations for all event entrants.
+     * Starts reading entrant locations for an event: the bounds to place the
+     * camera, a first capped read of the whole list, then whatever each
+     * viewport needs.
      * @param eventId The ID of the event to load entrants for.
      */
     public void loadEntrantLocations(String eventId) {
@@ -50,41 +171,207 @@ public class MapViewModel extends ViewModel {
             errorMessage.setValue("Event ID is missing.");
             return;
         }
+        if (eventId.equals(this.eventId))
+            return;
+
+        this.eventId = eventId;
+        loaded.clear();
+        readPrefixes.clear();
+        pendingPrefixes.clear();
+
+        Log.d(TAG, "Fetching waiting-list locations for event: " + eventId);
+        readBounds();
+        // The empty prefix matches every entry with a geohash
+        List<String> all = new ArrayList<>();
+        all.add("");
+        read(all, true);
+    }
+
+    /**
+     * Whether an answered prefix covers {@code prefix}: null if not, else
+     * whether that answer was capped. A capped answer only covers itself;
+     * a read still running counts as answered.
+     */
+    private Boolean answeredBy(String prefix) {
+        if (pendingPrefixes.contains(prefix))
+            return false;
+        Boolean exact = readPrefixes.get(prefix);
+        if (exact != null)
+            return exact;
+        for (int len = prefix.length() - 1; len >= 0; len--) {
+            String ancestor = prefix.substring(0, len);
+            Boolean capped = readPrefixes.get(ancestor);
+            if ((capped != null && !capped) || pendingPrefixes.contains(ancestor))
+                return false;
+        }
+        return null;
+    }
+
+    private void read(List<String> prefixes, boolean first) {
+        String forEvent = eventId;
+        CollectionReference waitingList = db.collection("events")
+                .document(forEvent)
+                .collection("waitingList");
+
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (String prefix : prefixes) {
+            pendingPrefixes.add(prefix);
+            queries.add(waitingList
+                    .whereGreaterThanOrEqualTo(Geohash.FIELD, prefix)
+                    .whereLessThan(Geohash.FIELD, Geohash.rangeEnd(prefix))
+                    .orderBy(Geohash.FIELD)
+                    .limit(MAX_PER_PREFIX)
+                    .get());
+        }
+
+        Tasks.whenAllComplete(queries).addOnCompleteListener(done -> {
+            if (!forEvent.equals(eventId))
+                return; // another event was opened meanwhile
 
-        Log.d(TAG, "Fetching waiting-list users for event: " + eventId);
-
-        db.collection("events")
-                .document(eventId)
-                .collection("waitingList")
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    if (queryDocumentSnapshots.isEmpty()) {
-                        Log.d(TAG, "No waiting users found for this event.");
-                        entrantsWithLocation.setValue(new ArrayList<>());
-                        return;
+            boolean failed = false;
+            boolean capped = false;
+            int added = 0;
+            for (int i = 0; i < prefixes.size(); i++) {
+                String prefix = prefixes.get(i);
+                pendingPrefixes.remove(prefix);
+                Task<QuerySnapshot> query = queries.get(i);
+                if (!query.isSuccessful()) {
+                    Log.e(TAG, "Error fetching locations for " + prefix, query.getException());
+                    failed = true;
+                    continue;
+                }
+
+                QuerySnapshot snapshot = query.getResult();
+                boolean full = snapshot.size() >= MAX_PER_PREFIX;
+                readPrefixes.put(prefix, full);
+                capped |= full;
+                for (QueryDocumentSnapshot document : snapshot) {
+                    WaitingUser user = document.toObject(WaitingUser.class);
+
+                    // Only include users with valid location
+                    if (hasLocation(user) && loaded.put(document.getId(), user) == null) {
+                        added++;
                     }
+                }
+            }
+
+            if (failed)
+                errorMessage.setValue("Failed to load waiting user locations.");
+            if (capped)
+                setPartial(true);
+            Log.d(TAG, "Read " + added + " new entrant location(s), " + loaded.size() + " in total.");
+
+            if (added > 0 || first) {
+                List<WaitingUser> users = new ArrayList<>(loaded.values());
+                entrantsWithLocation.setValue(users);
+                cluster(users);
+            }
+        });
+    }
+
+    /**
+     * Publishes the bounds of the located entrants from the lowest and
+     * highest latitudes and longitudes; four small queries, however long the
+     * list is.
+     */
+    private void readBounds() {
+        String forEvent = eventId;
+        CollectionReference waitingList = db.collection("events")
+                .document(forEvent)
+                .collection("waitingList");
 
-                    List<WaitingUser> usersWithLocation = new ArrayList<>();
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        WaitingUser user = document.toObject(WaitingUser.class);
-
-                        // Only include users with valid location
-                        if (user != null &&
-                                user.getLatitude() != null &&
-                                user.getLongitude() != null &&
-                                user.getLatitude() != 0 &&
-                                user.getLongitude() != 0) {
-                            usersWithLocation.add(user);
-                        }
+        // the range filters keep out entries whose location is null
+        List<Task<QuerySnapshot>> ends = new ArrayList<>();
+        for (String field : new String[] { "latitude", "longitude" }) {
+            double max = "latitude".equals(field) ? 90 : 180;
+            ends.add(waitingList.whereGreaterThanOrEqualTo(field, -max)
+                    .orderBy(field)
+                    .limit(BOUNDS_SAMPLE)
+                    .get());
+            ends.add(waitingList.whereLessThanOrEqualTo(field, max)
+                    .orderBy(field, Query.Direction.DESCENDING)
+                    .limit(BOUNDS_SAMPLE)
+                    .get());
+        }
+
+        Tasks.whenAllComplete(ends).addOnCompleteListener(done -> {
+            if (!forEvent.equals(eventId))
+                return; // another event was opened meanwhile
+
+            LatLngBounds.Builder builder = new LatLngBounds.Builder();
+            boolean located = false;
+            int failed = 0;
+            for (Task<QuerySnapshot> end : ends) {
+                if (!end.isSuccessful()) {
+                    Log.e(TAG, "Error reading location bounds", end.getException());
+                    failed++;
+                    continue;
+                }
+                // the first usable location from this end is the extreme
+                for (QueryDocumentSnapshot document : end.getResult()) {
+                    WaitingUser user = document.toObject(WaitingUser.class);
+                    if (hasLocation(user)) {
+                        builder.include(new LatLng(user.getLatitude(), user.getLongitude()));
+                        located = true;
+                        break;
                     }
+                }
+            }
+            // leave the camera alone rather than claim nobody has a location
+            if (failed == ends.size())
+                return;
+            entrantBounds.setValue(located ? builder.build() : null);
+        });
+    }
 
-                    Log.d(TAG, "Found " + usersWithLocation.size() + " waiting users with location data.");
-                    entrantsWithLocation.setValue(usersWithLocation);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error fetching waiting users", e);
-                    errorMessage.setValue("Failed to load waiting user locations.");
-                });
+    private static boolean hasLocation(WaitingUser user) {
+        return user.getLatitude() != null
+                && user.getLongitude() != null
+                && user.getLatitude() != 0
+                && user.getLongitude() != 0;
     }
 
-}
\ No newline at end of file
+    private void setPartial(boolean value) {
+        if (!Boolean.valueOf(value).equals(partial.getValue()))
+            partial.setValue(value);
+    }
+
+    /**
+     * Rebuilds the cluster engine for the entrants read so far.
+     */
+    private void cluster(List<WaitingUser> users) {
+        int gen = ++generation;
+        clusterExecutor.execute(() -> {
+            engine = new ClusterEngine<>(users,
+                    WaitingUser::getLatitude, WaitingUser::getLongitude);
+            recluster(gen);
+        });
+    }
+
+    private void recluster() {
+        int gen = ++generation;
+        clusterExecutor.execute(() -> recluster(gen));
+    }
+
+    /** Runs on {@link #clusterExecutor}. */
+    private void recluster(int gen) {
+        ClusterEngine<WaitingUser> current = engine;
+        Viewport view = viewport;
+        if (current == null || view == null)
+            return;
+
+        LatLngBounds b = view.bounds;
+        List<ClusterEngine.Cluster<WaitingUser>> visible = current.getClusters(view.zoom,
+                b.southwest.latitude, b.southwest.longitude,
+                b.northeast.latitude, b.northeast.longitude);
+        // A newer list or camera move is queued behind us; let it publish
+        if (gen == generation)
+            clusters.postValue(visible);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        clusterExecutor.shutdownNow();
+    }
+}
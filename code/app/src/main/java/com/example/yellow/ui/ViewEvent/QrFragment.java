@@ -1,7 +1,5 @@
 package com.example.yellow.ui.ViewEvent;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -14,6 +12,7 @@ import androidx.fragment.app.Fragment;
 
 import com.example.yellow.R;
 import com.example.yellow.organizers.ViewEventActivity;
+import com.example.yellow.utils.QrBitmapCache;
 
 /**
  * Fragment for displaying a QR code.
@@ -57,7 +56,8 @@ public class QrFragment extends Fragment {
 
     /**
      * Refreshes the QR code image.
-     * This is called when the event is loaded from Firestore.
+     * This is called when the event is loaded from Firestore. The code is
+     * rendered from the event's deep link (or served from the QR cache).
      */
     private void refreshQr() {
         ViewEventActivity parent = (ViewEventActivity) getActivity();
@@ -65,24 +65,19 @@ public class QrFragment extends Fragment {
 
         if (parent.getEvent() == null) return;
 
-        String qrDataUri = parent.getEvent().getQrImagePng();
-        if (qrDataUri != null && !qrDataUri.isEmpty()) {
-            displayQr(qrDataUri);
-        }
+        String content = parent.getEvent().getQrContent();
+        if (content == null) return;
+
+        QrBitmapCache.getInstance(requireContext()).load(content, QrBitmapCache.DEFAULT_SIZE_PX, bmp -> {
+            if (qrImage != null && bmp != null) {
+                qrImage.setImageBitmap(bmp);
+            }
+        });
     }
 
-    /**
-     * Displays the QR code image.
-     * @param dataUri The data URI of the QR code image.
-     */
-    private void displayQr(String dataUri) {
-        try {
-            String base64 = dataUri.substring(dataUri.indexOf(",") + 1);
-            byte[] bytes = android.util.Base64.decode(base64, android.util.Base64.DEFAULT);
-            Bitmap bmp = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
-            qrImage.setImageBitmap(bmp);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        qrImage = null;
     }
 }
@@ -17,8 +17,10 @@ import com.google.firebase.Timestamp;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * Adapter for displaying notifications.
@@ -28,6 +30,9 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
 
     private List<NotificationItem> list = new ArrayList<>();
 
+    // notifications whose accept/decline is in flight; their buttons stay hidden
+    private final Set<String> pending = new HashSet<>();
+
     /**
      * Listener for accept/decline buttons and click events.
      */
@@ -61,6 +66,27 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
         notifyDataSetChanged();
     }
 
+    /**
+     * Hides or restores the accept/decline buttons of a notification while its
+     * response is being saved, so the user sees it take effect at once and
+     * can't send it twice.
+     * @param notificationId: the notification
+     * @param isPending: true to hide the buttons, false to show them again
+     */
+    public void setPending(String notificationId, boolean isPending) {
+        if (notificationId == null)
+            return;
+        boolean changed = isPending ? pending.add(notificationId) : pending.remove(notificationId);
+        if (!changed)
+            return;
+        for (int i = 0; i < list.size(); i++) {
+            if (notificationId.equals(list.get(i).getNotificationId())) {
+                notifyItemChanged(i);
+                return;
+            }
+        }
+    }
+
     /**
      * Gets the view type for the given position.
      * @param position position to query
@@ -196,7 +222,8 @@ public class NotificationAdapter extends RecyclerView.Adapter<NotificationAdapte
             boolean isActionable = hasEventId
                     && !isLotteryNotSelected
                     && !isCancelledEntrant
-                    && !isEnrolled; // Hide buttons for enrolled notifications
+                    && !isEnrolled // Hide buttons for enrolled notifications
+                    && !pending.contains(item.getNotificationId());
 
             if (isActionable && listener != null) {
                 holder.actionButtons.setVisibility(View.VISIBLE);
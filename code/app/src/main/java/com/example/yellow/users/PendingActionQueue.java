@@ -0,0 +1,447 @@
+package com.example.yellow.users;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.yellow.utils.Geohash;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+
+/**
+ * On-device queue of the entrant's waiting-list and invitation responses
+ * (join, leave, accept, decline), so a tap made without signal isn't lost.
+ *
+ * Each action is stored in SQLite with the time it was made, then sent
+ * through the same transactions the screens use ({@link WaitingListTransactions},
+ * {@link SelectionTransactions}), strictly in the order it was made. If
+ * Firestore is unreachable the queue stops and picks up again when the
+ * network returns, including after the app restarts. Outcomes the server
+ * decides (a full list, already on the list, already cancelled, ...) come
+ * back as the action's result like any online call; a leave queued behind
+ * a join that was never sent cancels both. Actions older than
+ * {@link #MAX_AGE_MS} are dropped rather than replayed.
+ *
+ * Must be used from the main thread.
+ */
+public final class PendingActionQueue {
+
+    private static final String TAG = "PendingActionQueue";
+
+    public static final String JOIN = "join";
+    public static final String LEAVE = "leave";
+    public static final String ACCEPT = "accept";
+    public static final String DECLINE = "decline";
+
+    /** Queued actions older than this are dropped instead of replayed. */
+    static final long MAX_AGE_MS = 24L * 60 * 60 * 1000;
+
+    /** Retry interval while Firestore can't be reached but the network looks up. */
+    static final long RETRY_DELAY_MS = 30_000;
+
+    private static final String DB_NAME = "pending_actions.db";
+    private static final int DB_VERSION = 1;
+    private static final String T_ACTIONS = "actions";
+
+    private static PendingActionQueue instance;
+
+    private final Helper helper;
+    private final Sender sender;
+    private final LongSupplier clock;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final ConnectivityManager connectivity;
+    private final Runnable retry = this::drain;
+
+    // callers waiting on actions made in this process, by row id
+    private final Map<Long, TaskCompletionSource<Object>> waiting = new HashMap<>();
+    private boolean draining;
+    private long inFlightId = -1;
+
+    /** Sends one action to Firestore. */
+    interface Sender {
+        @NonNull
+        Task<Object> send(@NonNull Action action);
+    }
+
+    /** One stored action. */
+    static final class Action {
+        final long id;
+        final String uid;
+        final String type;
+        final String eventId;
+        final JSONObject payload;
+        final long createdAt;
+
+        Action(long id, String uid, String type, String eventId, JSONObject payload, long createdAt) {
+            this.id = id;
+            this.uid = uid;
+            this.type = type;
+            this.eventId = eventId;
+            this.payload = payload;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private PendingActionQueue(@NonNull Context context) {
+        this(context, PendingActionQueue::send, System::currentTimeMillis);
+    }
+
+    /**
+     * @param sender sends each action; tests pass a fake
+     * @param clock  wall-clock time in milliseconds
+     */
+    PendingActionQueue(@NonNull Context context, @NonNull Sender sender, @NonNull LongSupplier clock) {
+        Context app = context.getApplicationContext();
+        this.sender = sender;
+        this.clock = clock;
+        helper = new Helper(app);
+        connectivity = (ConnectivityManager) app.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity != null) {
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    main.post(PendingActionQueue.this::drain);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the shared queue.
+     *
+     * @param context any context; the application context is retained
+     * @return the {@link PendingActionQueue} instance
+     */
+    public static synchronized PendingActionQueue getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new PendingActionQueue(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Queues joining an event's waiting list.
+     *
+     * @param entry the waitingList entry to write
+     * @return task resolving to the server's outcome once the join was sent
+     */
+    @NonNull
+    public Task<WaitingListTransactions.JoinResult> join(@NonNull String eventId, @NonNull WaitingUser entry) {
+        JSONObject payload = new JSONObject();
+        try {
+            payload.put("name", entry.getName());
+            payload.put("email", entry.getEmail());
+            if (entry.getLatitude() != null && entry.getLongitude() != null) {
+                payload.put("lat", entry.getLatitude());
+                payload.put("lng", entry.getLongitude());
+            }
+        } catch (JSONException e) {
+            return Tasks.forException(e);
+        }
+        return enqueue(JOIN, eventId, payload)
+                .continueWith(t -> (WaitingListTransactions.JoinResult) t.getResult());
+    }
+
+    /**
+     * Queues leaving an event's waiting list.
+     *
+     * @return task resolving to true if the user was on the list
+     */
+    @NonNull
+    public Task<Boolean> leave(@NonNull String eventId) {
+        return enqueue(LEAVE, eventId, new JSONObject())
+                .continueWith(t -> (Boolean) t.getResult());
+    }
+
+    /**
+     * Queues accepting an invitation.
+     *
+     * @param notificationId the invitation to remove, or null
+     * @return task resolving to the server's outcome
+     */
+    @NonNull
+    public Task<SelectionTransactions.AcceptResult> accept(@NonNull String eventId,
+                                                           @Nullable String notificationId) {
+        return enqueue(ACCEPT, eventId, notificationPayload(notificationId))
+                .continueWith(t -> (SelectionTransactions.AcceptResult) t.getResult());
+    }
+
+    /**
+     * Queues declining an invitation.
+     *
+     * @param notificationId the invitation to remove, or null
+     * @return task resolving to the promoted user's ID, or null
+     */
+    @NonNull
+    public Task<String> decline(@NonNull String eventId, @Nullable String notificationId) {
+        return enqueue(DECLINE, eventId, notificationPayload(notificationId))
+                .continueWith(t -> (String) t.getResult());
+    }
+
+    /**
+     * @return whether the device currently has a validated network; when it
+     *         doesn't, queued actions wait for one
+     */
+    public boolean isOnline() {
+        if (connectivity == null)
+            return true;
+        NetworkCapabilities caps = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+        return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+    }
+
+    /**
+     * Sends the signed-in user's queued actions, oldest first, until the
+     * queue is empty or Firestore can't be reached. Called automatically when
+     * an action is queued and when the network returns.
+     */
+    public void drain() {
+        String uid = FirebaseAuth.getInstance().getUid();
+        if (draining || uid == null)
+            return;
+        draining = true;
+        main.removeCallbacks(retry);
+        next(uid);
+    }
+
+    private Task<Object> enqueue(String type, String eventId, JSONObject payload) {
+        String uid = FirebaseAuth.getInstance().getUid();
+        if (uid == null)
+            return Tasks.forException(new IllegalStateException("Not signed in"));
+
+        TaskCompletionSource<Object> source = new TaskCompletionSource<>();
+        long now = clock.getAsLong();
+        long inFlight = inFlightId;
+        Tasks.call(executor, () -> insert(uid, type, eventId, payload, now, inFlight))
+                .addOnCompleteListener(main::post, t -> {
+                    if (!t.isSuccessful()) {
+                        source.setException(t.getException());
+                        return;
+                    }
+                    Long[] ids = t.getResult();
+                    if (ids[1] != null) {
+                        // a leave cancelled a join that was never sent
+                        TaskCompletionSource<Object> join = waiting.remove(ids[1]);
+                        if (join != null)
+                            join.trySetException(new CancellationException("Left before joining"));
+                        source.setResult(false);
+                        return;
+                    }
+                    waiting.put(ids[0], source);
+                    drain();
+                });
+        return source.getTask();
+    }
+
+    /**
+     * Stores an action. A leave with an unsent join for the same event
+     * removes that join and isn't stored.
+     *
+     * @return {new row id, null} or {null, id of the cancelled join}
+     */
+    private Long[] insert(String uid, String type, String eventId, JSONObject payload,
+                          long createdAt, long inFlight) {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        if (LEAVE.equals(type)) {
+            try (Cursor c = db.query(T_ACTIONS, new String[] { "id" },
+                    "uid = ? AND event_id = ? AND type = ? AND id != ?",
+                    new String[] { uid, eventId, JOIN, String.valueOf(inFlight) },
+                    null, null, "id DESC", "1")) {
+                if (c.moveToFirst()) {
+                    long joinId = c.getLong(0);
+                    db.delete(T_ACTIONS, "id = ?", new String[] { String.valueOf(joinId) });
+                    return new Long[] { null, joinId };
+                }
+            }
+        }
+
+        ContentValues row = new ContentValues();
+        row.put("uid", uid);
+        row.put("type", type);
+        row.put("event_id", eventId);
+        row.put("payload", payload.toString());
+        row.put("created_ms", createdAt);
+        return new Long[] { db.insertOrThrow(T_ACTIONS, null, row), null };
+    }
+
+    private void next(String uid) {
+        Tasks.call(executor, () -> oldest(uid)).addOnCompleteListener(main::post, t -> {
+            Action action = t.isSuccessful() ? t.getResult() : null;
+            if (action == null) {
+                draining = false;
+                return;
+            }
+
+            if (clock.getAsLong() - action.createdAt > MAX_AGE_MS) {
+                finish(action, null, new IllegalStateException("Action expired before it could be sent"));
+                next(uid);
+                return;
+            }
+
+            inFlightId = action.id;
+            sender.send(action).addOnCompleteListener(main::post, result -> {
+                inFlightId = -1;
+                if (result.isSuccessful()) {
+                    finish(action, result.getResult(), null);
+                    next(uid);
+                } else if (isRetryable(result.getException())) {
+                    // Keep it; try again when the network is back or after a while
+                    Log.d(TAG, action.type + " for " + action.eventId + " waiting for network");
+                    draining = false;
+                    main.postDelayed(retry, RETRY_DELAY_MS);
+                } else {
+                    finish(action, null, result.getException());
+                    next(uid);
+                }
+            });
+        });
+    }
+
+    @NonNull
+    @SuppressWarnings("unchecked")
+    private static Task<Object> send(@NonNull Action action) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        String notificationId = action.payload.optString("notificationId", null);
+        Task<?> task;
+        switch (action.type) {
+            case JOIN:
+                task = WaitingListTransactions.join(db, action.eventId, action.uid, entryOf(action));
+                break;
+            case LEAVE:
+                task = WaitingListTransactions.leave(db, action.eventId, action.uid);
+                break;
+            case ACCEPT:
+                task = SelectionTransactions.accept(db, action.uid, action.eventId, notificationId);
+                break;
+            case DECLINE:
+                task = SelectionTransactions.decline(db, action.uid, action.eventId, notificationId);
+                break;
+            default:
+                task = Tasks.forException(new IllegalArgumentException("Unknown action " + action.type));
+        }
+        return (Task<Object>) task;
+    }
+
+    private void finish(Action action, @Nullable Object result, @Nullable Exception error) {
+        executor.execute(() -> helper.getWritableDatabase()
+                .delete(T_ACTIONS, "id = ?", new String[] { String.valueOf(action.id) }));
+
+        TaskCompletionSource<Object> source = waiting.remove(action.id);
+        if (error != null) {
+            Log.w(TAG, action.type + " for " + action.eventId + " dropped", error);
+            if (source != null)
+                source.trySetException(error);
+        } else if (source != null) {
+            source.trySetResult(result);
+        }
+    }
+
+    @Nullable
+    private Action oldest(String uid) throws JSONException {
+        SQLiteDatabase db = helper.getReadableDatabase();
+        try (Cursor c = db.query(T_ACTIONS, null, "uid = ?", new String[] { uid },
+                null, null, "id", "1")) {
+            if (!c.moveToFirst())
+                return null;
+            return new Action(
+                    c.getLong(c.getColumnIndexOrThrow("id")),
+                    c.getString(c.getColumnIndexOrThrow("uid")),
+                    c.getString(c.getColumnIndexOrThrow("type")),
+                    c.getString(c.getColumnIndexOrThrow("event_id")),
+                    new JSONObject(c.getString(c.getColumnIndexOrThrow("payload"))),
+                    c.getLong(c.getColumnIndexOrThrow("created_ms")));
+        }
+    }
+
+    /**
+     * @return the waitingList entry a queued join writes
+     */
+    @NonNull
+    static WaitingUser entryOf(@NonNull Action action) {
+        WaitingUser entry = new WaitingUser(action.uid, action.eventId);
+        entry.setName(action.payload.optString("name", null));
+        entry.setEmail(action.payload.optString("email", null));
+        if (action.payload.has("lat") && action.payload.has("lng")) {
+            double lat = action.payload.optDouble("lat");
+            double lng = action.payload.optDouble("lng");
+            entry.setLatitude(lat);
+            entry.setLongitude(lng);
+            entry.setGeohash(Geohash.encode(lat, lng, Geohash.STORED_PRECISION));
+        }
+        return entry;
+    }
+
+    /**
+     * @return whether a failed action should stay queued and be tried again
+     */
+    static boolean isRetryable(@Nullable Exception e) {
+        if (!(e instanceof FirebaseFirestoreException))
+            return false;
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case UNAVAILABLE:
+            case DEADLINE_EXCEEDED:
+            case ABORTED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static JSONObject notificationPayload(@Nullable String notificationId) {
+        JSONObject payload = new JSONObject();
+        try {
+            payload.putOpt("notificationId", notificationId);
+        } catch (JSONException ignored) {
+            // only thrown for non-finite numbers
+        }
+        return payload;
+    }
+
+    private static class Helper extends SQLiteOpenHelper {
+
+        Helper(Context context) {
+            super(context, DB_NAME, null, DB_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + T_ACTIONS + " ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "uid TEXT NOT NULL, "
+                    + "type TEXT NOT NULL, "
+                    + "event_id TEXT NOT NULL, "
+                    + "payload TEXT NOT NULL, "
+                    + "created_ms INTEGER NOT NULL)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // No upgrades yet
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.yellow.users;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
+
+/**
+ * Estimates a user's place in an event's waiting list: one plus the number of
+ * entries that joined before them, from a {@code count()} aggregation over
+ * {@code timestamp}, so it costs one aggregation read however long the list is.
+ *
+ * The result is kept until the list changes (see {@link #onListChanged}) and,
+ * after a change, for at least {@link #TTL_MS}, so a rush of joins doesn't
+ * turn into a rush of queries. Must be used from the main thread.
+ */
+final class QueuePositionTracker {
+
+    /** Minimum time between two position queries. */
+    static final long TTL_MS = 10_000;
+
+    private final CollectionReference waitingList;
+    private final String userId;
+
+    @Nullable
+    private Timestamp joinedAt;
+    private long position = -1;
+    private long queriedAt = Long.MIN_VALUE / 2;
+    private boolean stale = true;
+    @Nullable
+    private Task<Long> inFlight;
+
+    QueuePositionTracker(@NonNull CollectionReference waitingList, @NonNull String userId) {
+        this.waitingList = waitingList;
+        this.userId = userId;
+    }
+
+    /** Marks the cached position out of date; the next {@link #get} may query again. */
+    void onListChanged() {
+        stale = true;
+    }
+
+    /**
+     * @return milliseconds until a stale position may be queried again, or 0
+     *         if {@link #get} would query now (or has nothing to refresh)
+     */
+    long delayUntilRefresh() {
+        if (!stale)
+            return 0;
+        return Math.max(0, queriedAt + TTL_MS - SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * @return task resolving to the user's 1-based position, or -1 if they are
+     *         not on the waiting list; from the cache unless the list changed
+     *         and the cached value is older than {@link #TTL_MS}
+     */
+    @NonNull
+    Task<Long> get() {
+        if (inFlight != null)
+            return inFlight;
+        if (position >= 0 && (!stale || delayUntilRefresh() > 0))
+            return Tasks.forResult(position);
+
+        stale = false;
+        queriedAt = SystemClock.elapsedRealtime();
+        Task<Long> task = joinedAt().continueWithTask(t -> {
+            Timestamp mine = t.getResult();
+            if (mine == null)
+                return Tasks.forResult(-1L);
+            return waitingList.whereLessThan("timestamp", mine)
+                    .count()
+                    .get(AggregateSource.SERVER)
+                    .continueWith(count -> count.getResult().getCount() + 1);
+        }).addOnCompleteListener(t -> {
+            inFlight = null;
+            if (t.isSuccessful()) {
+                position = t.getResult();
+            } else {
+                stale = true;
+            }
+        });
+        inFlight = task;
+        return task;
+    }
+
+    /** Forgets the cached join time and position, e.g. after leaving. */
+    void reset() {
+        joinedAt = null;
+        position = -1;
+        stale = true;
+    }
+
+    private Task<Timestamp> joinedAt() {
+        if (joinedAt != null)
+            return Tasks.forResult(joinedAt);
+        return waitingList.document(userId).get().continueWith(t -> {
+            // null until the join's server timestamp has been written
+            Timestamp ts = t.getResult().exists() ? t.getResult().getTimestamp("timestamp") : null;
+            joinedAt = ts;
+            return ts;
+        });
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.yellow.users;
+
+import androidx.annotation.NonNull;
+
+import com.example.yellow.utils.EntrantContact;
+import com.example.yellow.utils.ParticipationIndex;
+import com.example.yellow.utils.ShardedCounter;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Entrant responses to being drawn, each run as a single transaction.
+ */
+public final class SelectionTransactions {
+
+    /** Outcome of {@link #accept}. */
+    public enum AcceptResult {
+        /** The user moved from selected to enrolled. */
+        ENROLLED,
+        /** The user was already enrolled; only the notification was removed. */
+        ALREADY_ENROLLED,
+        /** The user cancelled or declined earlier and can't enroll. */
+        CANCELLED,
+        /** The user isn't selected, so there is no place to accept; the notification was removed. */
+        NOT_SELECTED,
+        /** The event has reached {@code maxEntrants} enrolled users. */
+        FULL
+    }
+
+    private SelectionTransactions() {
+    }
+
+    /**
+     * Moves the user from {@code selected} to {@code enrolled}, increments the
+     * {@code enrolled} counter, updates the participation index and removes
+     * the invitation notification. The cancelled, selected and capacity checks
+     * are read in the same transaction, so accepting costs one round trip and
+     * two users can never take the last place.
+     *
+     * @param notificationId the invitation to remove, or null
+     * @return task resolving to the outcome; fails only if the transaction
+     *         could not run or the event does not exist
+     */
+    @NonNull
+    public static Task<AcceptResult> accept(@NonNull FirebaseFirestore db, @NonNull String uid,
+                                            @NonNull String eventId, String notificationId) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference selectedRef = eventRef.collection("selected").document(uid);
+        DocumentReference enrolledRef = eventRef.collection("enrolled").document(uid);
+        DocumentReference cancelledRef = eventRef.collection("cancelled").document(uid);
+        DocumentReference notifRef = notificationId == null ? null
+                : db.collection("profiles").document(uid)
+                        .collection("notifications").document(notificationId);
+        ShardedCounter enrolledCounter = ShardedCounter.enrolled(eventRef);
+
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot event = transaction.get(eventRef);
+            if (!event.exists()) {
+                throw new FirebaseFirestoreException("Event not found",
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+
+            if (transaction.get(cancelledRef).exists())
+                return AcceptResult.CANCELLED;
+
+            if (transaction.get(enrolledRef).exists()) {
+                if (notifRef != null)
+                    transaction.delete(notifRef);
+                return AcceptResult.ALREADY_ENROLLED;
+            }
+
+            DocumentSnapshot selected = transaction.get(selectedRef);
+            if (!selected.exists()) {
+                if (notifRef != null)
+                    transaction.delete(notifRef);
+                return AcceptResult.NOT_SELECTED;
+            }
+
+            // A capped event checks one shard's slice of the cap, so only
+            // accepts that land on the same shard contend
+            Long max = event.getLong("maxEntrants");
+            int shard = -1;
+            if (max != null && max > 0) {
+                shard = enrolledCounter.shardWithRoom(transaction, event, max);
+                if (shard < 0)
+                    return AcceptResult.FULL;
+            }
+
+            // Carry name/email from the selected entry (or the profile, for older entries)
+            EntrantContact contact = EntrantContact.carryOver(transaction, selected, profileRef(db, uid));
+
+            transaction.delete(selectedRef);
+
+            Map<String, Object> enrollData = new HashMap<>();
+            enrollData.put("userId", uid);
+            enrollData.put("timestamp", FieldValue.serverTimestamp());
+            contact.putInto(enrollData);
+            transaction.set(enrolledRef, enrollData);
+
+            if (shard >= 0)
+                enrolledCounter.increment(transaction, shard, 1);
+            else
+                enrolledCounter.increment(transaction, 1);
+            ParticipationIndex.set(transaction, db, uid, eventId, ParticipationIndex.ENROLLED);
+
+            if (notifRef != null)
+                transaction.delete(notifRef);
+            return AcceptResult.ENROLLED;
+        });
+    }
+
+    /**
+     * Moves the user from {@code selected} (or {@code enrolled}) to
+     * {@code cancelled} and promotes the longest-waiting entrant in their
+     * place, then tells the promoted user and removes the invitation.
+     *
+     * Declining twice is harmless: a user who is already cancelled, or holds
+     * neither a selected nor an enrolled place, is left as is and nobody else
+     * is promoted; only the invitation is removed. The next entrant is re-read inside the
+     * transaction, so one who left in the meantime isn't promoted.
+     *
+     * @param notificationId the invitation to remove, or null
+     * @return task resolving to the promoted user's ID, or null if nobody
+     *         was promoted
+     */
+    @NonNull
+    public static Task<String> decline(@NonNull FirebaseFirestore db, @NonNull String uid,
+                                       @NonNull String eventId, String notificationId) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference selectedRef = eventRef.collection("selected").document(uid);
+        DocumentReference enrolledRef = eventRef.collection("enrolled").document(uid);
+        DocumentReference cancelledRef = eventRef.collection("cancelled").document(uid);
+        DocumentReference notifRef = notificationId == null ? null
+                : db.collection("profiles").document(uid)
+                        .collection("notifications").document(notificationId);
+
+        // Queries can't run inside a transaction; the pick is re-checked there
+        Task<QuerySnapshot> next = eventRef.collection("waitingList")
+                .orderBy("timestamp")
+                .limit(1)
+                .get();
+
+        return next.continueWithTask(nextTask -> {
+            DocumentReference nextRef = nextTask.isSuccessful() && !nextTask.getResult().isEmpty()
+                    ? nextTask.getResult().getDocuments().get(0).getReference()
+                    : null;
+
+            return db.runTransaction(transaction -> {
+                // Reads first: name/email to carry onto the new entries
+                boolean alreadyCancelled = transaction.get(cancelledRef).exists();
+                DocumentSnapshot selected = alreadyCancelled ? null : transaction.get(selectedRef);
+                DocumentSnapshot enrolled = alreadyCancelled ? null : transaction.get(enrolledRef);
+                boolean wasSelected = selected != null && selected.exists();
+                boolean wasEnrolled = enrolled != null && enrolled.exists();
+                // only giving up a place frees one for the next entrant
+                boolean heldPlace = wasSelected || wasEnrolled;
+
+                EntrantContact contact = !heldPlace ? null
+                        : EntrantContact.carryOver(transaction, wasSelected ? selected : enrolled,
+                                profileRef(db, uid));
+                DocumentSnapshot nextDoc = !heldPlace || nextRef == null
+                        ? null : transaction.get(nextRef);
+                String nextUserId = nextDoc != null && nextDoc.exists() ? nextDoc.getId() : null;
+                EntrantContact nextContact = null;
+                if (nextUserId != null)
+                    nextContact = EntrantContact.carryOver(transaction, nextDoc, profileRef(db, nextUserId));
+
+                if (notifRef != null)
+                    transaction.delete(notifRef);
+                if (!heldPlace)
+                    return null;
+
+                // ALWAYS delete user from selected, and from enrolled if they were there
+                transaction.delete(selectedRef);
+                transaction.delete(enrolledRef);
+                if (wasEnrolled)
+                    ShardedCounter.enrolled(eventRef).increment(transaction, -1);
+
+                // Add to cancelled
+                Map<String, Object> cancelData = new HashMap<>();
+                cancelData.put("userId", uid);
+                cancelData.put("timestamp", FieldValue.serverTimestamp());
+                contact.putInto(cancelData);
+                transaction.set(cancelledRef, cancelData);
+                ParticipationIndex.set(transaction, db, uid, eventId, ParticipationIndex.CANCELLED);
+
+                // Promote next user if any
+                if (nextUserId != null) {
+                    transaction.delete(nextRef);
+                    ShardedCounter.waitlisted(eventRef).increment(transaction, -1);
+
+                    Map<String, Object> promoteData = new HashMap<>();
+                    promoteData.put("userId", nextUserId);
+                    promoteData.put("timestamp", FieldValue.serverTimestamp());
+                    nextContact.putInto(promoteData);
+                    transaction.set(eventRef.collection("selected").document(nextUserId), promoteData);
+                    ParticipationIndex.set(transaction, db, nextUserId, eventId, ParticipationIndex.SELECTED);
+                }
+                return nextUserId;
+            });
+        }).addOnSuccessListener(promoted -> {
+            if (promoted != null)
+                sendRejoinNotification(db, eventId, promoted);
+        });
+    }
+
+    private static void sendRejoinNotification(FirebaseFirestore db, String eventId, String nextUserId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("eventId", eventId);
+        data.put("message", "A spot opened up! Tap to rejoin.");
+        data.put("timestamp", FieldValue.serverTimestamp());
+        data.put("read", false);
+
+        db.collection("profiles")
+                .document(nextUserId)
+                .collection("notifications")
+                .add(data);
+    }
+
+    private static DocumentReference profileRef(FirebaseFirestore db, String uid) {
+        return db.collection("profiles").document(uid);
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.yellow.users;
 
+import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -23,15 +27,22 @@ import com.example.yellow.MainActivity;
 import com.example.yellow.R;
 import com.example.yellow.organizers.Event;
 import com.example.yellow.users.WaitingUser;
+import com.example.yellow.utils.EntrantContact;
+import com.example.yellow.utils.Geohash;
 import com.example.yellow.utils.LocationHelper;
+import com.example.yellow.utils.ParticipationIndex;
+import com.example.yellow.utils.ProfileRepository;
 import com.example.yellow.utils.ProfileUtils;
+import com.example.yellow.utils.ShardedCounter;
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
 
 import java.util.Date;
+import java.util.concurrent.CancellationException;
 
 /**
  * Fragment for the waiting room.
@@ -50,6 +61,28 @@ public class WaitingListFragment extends Fragment {
     private Event currentEvent; // To hold the loaded event details
     private LocationHelper locationHelper;
 
+    /** Minimum time between waiting-room count redraws during a rush of joins. */
+    private static final long COUNT_UPDATE_INTERVAL_MS = 1000;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ListenerRegistration countRegistration;
+    private long countShownAt;
+    private boolean countUpdateScheduled;
+    private final Runnable countRefresh = () -> {
+        countUpdateScheduled = false;
+        renderCount(true);
+    };
+
+    // Join/leave show up here at once; Firestore confirms or rolls them back
+    private final WaitingRoomState roomState = new WaitingRoomState(new WaitingRoomLogic());
+    private TextView userCountText;
+    private Button leaveButton;
+
+    private QueuePositionTracker queueTracker;
+    private View queuePositionCard;
+    private TextView queuePositionText;
+    private final Runnable queuePositionRefresh = this::refreshQueuePosition;
+
     public WaitingListFragment() {
     }
 
@@ -62,19 +95,7 @@ public class WaitingListFragment extends Fragment {
         // and requireContext() for Toasts and FusedLocationProviderClient.
         locationHelper = new LocationHelper(
                 this, // ActivityResultCaller -> the Fragment
-                requireContext(), // Context
-                location -> {
-                    if (location != null) {
-                        // Successfully got a location → save waiting user with coordinates
-                        saveWaitingUser(location.getLatitude(), location.getLongitude());
-                    } else {
-                        // Could not get location (permission denied, GPS error, etc.)
-                        Toast.makeText(
-                                getContext(),
-                                "Failed to get location. Cannot join this event.",
-                                Toast.LENGTH_LONG).show();
-                    }
-                });
+                requireContext()); // Context
     }
 
     @Nullable
@@ -115,9 +136,10 @@ public class WaitingListFragment extends Fragment {
         eventId = getArguments().getString("eventId");
 
         // UI
-        Button leaveButton = view.findViewById(R.id.leaveButton);
+        leaveButton = view.findViewById(R.id.leaveButton);
         ImageView backArrow = view.findViewById(R.id.backArrow);
-        TextView userCount = view.findViewById(R.id.userCount);
+        userCountText = view.findViewById(R.id.userCount);
+        userCountText.setText("");
 
         // Header UI
         titleText = view.findViewById(R.id.eventTitle);
@@ -127,13 +149,29 @@ public class WaitingListFragment extends Fragment {
 
         loadEventDetails();
 
-        // Real-time waiting list count
-        db.collection("events")
-                .document(eventId)
-                .collection("waitingList")
-                .addSnapshotListener((snapshot, e) -> {
-                    if (snapshot != null) {
-                        userCount.setText(String.valueOf(snapshot.size()));
+        // Queue position, from a count of who joined before this user
+        queuePositionCard = view.findViewById(R.id.queuePositionCard);
+        queuePositionText = view.findViewById(R.id.queuePosition);
+        queueTracker = new QueuePositionTracker(
+                db.collection("events").document(eventId).collection("waitingList"), userId);
+
+        // Live waiting list count from the event's counter rather than the
+        // list itself, so watching a large room costs the same as a small one
+        countRegistration = ShardedCounter.waitlisted(db.collection("events").document(eventId))
+                .addValueListener(new ShardedCounter.ValueListener() {
+                    @Override
+                    public void onValue(long count) {
+                        roomState.onServerCount(count);
+                        renderCount(false);
+                        // the list changed, so the position may have too
+                        queueTracker.onListChanged();
+                        refreshQueuePosition();
+                    }
+
+                    @Override
+                    public void onError(@NonNull FirebaseFirestoreException e) {
+                        if (getContext() != null)
+                            Toast.makeText(getContext(), "Failed to load waiting list count", Toast.LENGTH_SHORT).show();
                     }
                 });
 
@@ -157,11 +195,100 @@ public class WaitingListFragment extends Fragment {
                 new OnBackPressedCallback(true) {
                     @Override
                     public void handleOnBackPressed() {
+                        // A leave already on its way finishes without this screen;
+                        // don't hold the user here until it does
+                        if (roomState.getMembership() == WaitingRoomState.Membership.LEAVING) {
+                            returnHome();
+                            return;
+                        }
                         leaveWaitingRoom();
                     }
                 });
     }
 
+    @Override
+    public void onDestroyView() {
+        if (countRegistration != null) {
+            countRegistration.remove();
+            countRegistration = null;
+        }
+        mainHandler.removeCallbacksAndMessages(null);
+        countUpdateScheduled = false;
+        locationHelper.cancel();
+        queuePositionCard = null;
+        userCountText = null;
+        leaveButton = null;
+        super.onDestroyView();
+    }
+
+    /**
+     * Shows the waiting list count from {@link #roomState}. Server updates
+     * are drawn at most once per {@link #COUNT_UPDATE_INTERVAL_MS}; the user's
+     * own join/leave is drawn at once.
+     */
+    private void renderCount(boolean immediate) {
+        if (userCountText == null)
+            return;
+        long now = SystemClock.elapsedRealtime();
+        long wait = immediate ? 0 : countShownAt + COUNT_UPDATE_INTERVAL_MS - now;
+        if (wait > 0) {
+            if (!countUpdateScheduled) {
+                countUpdateScheduled = true;
+                mainHandler.postDelayed(countRefresh, wait);
+            }
+            return;
+        }
+
+        countShownAt = now;
+        long count = roomState.getDisplayedCount();
+        if (count >= 0) {
+            userCountText.setText(String.valueOf(count));
+        }
+    }
+
+    /**
+     * Shows the count and the leave button for the current {@link #roomState}.
+     */
+    private void renderRoomState() {
+        renderCount(true);
+        if (leaveButton == null)
+            return;
+        switch (roomState.getMembership()) {
+            case JOINING:
+                leaveButton.setEnabled(false);
+                leaveButton.setText("Joining…");
+                break;
+            case LEAVING:
+                leaveButton.setEnabled(false);
+                leaveButton.setText("Leaving…");
+                break;
+            default:
+                leaveButton.setEnabled(true);
+                leaveButton.setText("Leave Waiting List");
+        }
+    }
+
+    /**
+     * Shows the user's place in line, querying only if the list changed and
+     * the last query is old enough; otherwise retries once it is.
+     */
+    private void refreshQueuePosition() {
+        if (queueTracker == null)
+            return;
+        mainHandler.removeCallbacks(queuePositionRefresh);
+        long wait = queueTracker.delayUntilRefresh();
+        if (wait > 0) {
+            mainHandler.postDelayed(queuePositionRefresh, wait);
+            return;
+        }
+        queueTracker.get().addOnSuccessListener(position -> {
+            if (queuePositionCard == null || !isAdded())
+                return;
+            queuePositionCard.setVisibility(position > 0 ? View.VISIBLE : View.GONE);
+            queuePositionText.setText("#" + position);
+        });
+    }
+
     /**
      * Loads the event details from Firestore.
      * This is called when the event is loaded from Firestore.
@@ -287,168 +414,250 @@ public class WaitingListFragment extends Fragment {
             // Toast already shown in isWithinRegistrationWindow()
             return;
         }
-        // Check 1 — Is user already enrolled?
-        db.collection("events").document(eventId)
-                .collection("enrolled").document(userId)
+        // Start on the location now so it overlaps the checks below; only
+        // done when permission was already given, so no dialog pops up for a
+        // user who turns out to be on the list already
+        if (currentEvent.isRequireGeolocation()) {
+            locationHelper.prefetch();
+        }
+
+        // Check 1 — Where is the user already? One read of their participation
+        // index replaces separate enrolled/selected/cancelled/waitingList lookups.
+        // The join transaction checks again; this just avoids asking for a
+        // location the user won't need.
+        ParticipationIndex.ref(db, userId, eventId)
                 .get()
-                .addOnSuccessListener(enrolledSnap -> {
-                    if (enrolledSnap.exists()) {
+                .addOnSuccessListener(snap -> {
+                    String status = snap.exists() ? snap.getString("status") : null;
+                    if (ParticipationIndex.ENROLLED.equals(status)) {
                         Toast.makeText(getContext(),
                                 "You are already enrolled in this event.",
                                 Toast.LENGTH_LONG).show();
                         return;
                     }
+                    if (ParticipationIndex.SELECTED.equals(status)) {
+                        Toast.makeText(getContext(),
+                                "You have already been selected for this event.",
+                                Toast.LENGTH_LONG).show();
+                        return;
+                    }
+                    if (ParticipationIndex.CANCELLED.equals(status)) {
+                        Toast.makeText(getContext(),
+                                "You cannot rejoin the waiting list.",
+                                Toast.LENGTH_LONG).show();
+                        return;
+                    }
+                    roomState.onServerMembership(ParticipationIndex.WAITING.equals(status));
+                    renderRoomState();
+                    if (ParticipationIndex.WAITING.equals(status)) {
+                        Toast.makeText(getContext(),
+                                "You're already on the waiting list for this event",
+                                Toast.LENGTH_SHORT).show();
+                        return;
+                    }
 
-                    // 🔥 CHECK 2 — Is user selected (won the lottery)?
-                    db.collection("events").document(eventId)
-                            .collection("selected").document(userId)
-                            .get()
-                            .addOnSuccessListener(selectedSnap -> {
-                                if (selectedSnap.exists()) {
-                                    Toast.makeText(getContext(),
-                                            "You have already been selected for this event.",
-                                            Toast.LENGTH_LONG).show();
-                                    return;
-                                }
-
-                                // 🔥 CHECK 3 — Is user cancelled? (Optional)
-                                db.collection("events").document(eventId)
-                                        .collection("cancelled").document(userId)
-                                        .get()
-                                        .addOnSuccessListener(cancelSnap -> {
-                                            if (cancelSnap.exists()) {
-                                                Toast.makeText(getContext(),
-                                                        "You cannot rejoin the waiting list.",
-                                                        Toast.LENGTH_LONG).show();
-                                                return;
-                                            }
-
-                                            // 🔥 PASS — Now continue to your existing logic
-                                            continueJoinWaitingRoom();
-                                        });
-                            });
-                });
+                    // PASS — Now continue to the capacity check
+                    continueJoinWaitingRoom();
+                })
+                // Offline with nothing cached: let the join transaction decide
+                .addOnFailureListener(e -> continueJoinWaitingRoom());
     }
 
     /**
-     * Attempts to join the waiting room (continue from above).
+     * Attempts to join the waiting room (continue from above). Capacity is
+     * checked inside the join transaction, so there is nothing to read here.
      */
     private void continueJoinWaitingRoom() {
-        DocumentReference ref = db.collection("events").document(eventId)
-                .collection("waitingList").document(userId);
-
-        ref.get().addOnSuccessListener(doc -> {
-            if (doc.exists()) {
+        // Show the join straight away; the transaction's result settles it
+        if (!roomState.beginJoin())
+            return;
+        renderRoomState();
+        // the join is queued even if the user leaves this screen while the
+        // location and profile load, so don't depend on the fragment then
+        Context app = requireContext().getApplicationContext();
+
+        if (currentEvent.isRequireGeolocation()) {
+            Task<Location> location = locationHelper.getCurrentLocation();
+            if (!location.isComplete()) {
                 Toast.makeText(getContext(),
-                        "You're already on the waiting list for this event",
+                        "Location is required, getting your position...",
                         Toast.LENGTH_SHORT).show();
-                return;
             }
-
-            // (your existing code for checking max waiting list size)
-            db.collection("events").document(eventId)
-                    .collection("waitingList")
-                    .get()
-                    .addOnSuccessListener(snapshot -> {
-
-                        int currentSize = snapshot.size();
-                        int maxSize = currentEvent.getMaxEntrants();
-
-                        //blank = unlimited
-                        if (maxSize <= 0) {
-                            // skip capacity check entirely
-                            if (currentEvent.isRequireGeolocation()) {
-                                Toast.makeText(getContext(),
-                                        "Location is required, getting your position...",
-                                        Toast.LENGTH_SHORT).show();
-                                locationHelper.getCurrentLocation();
-                            } else {
-                                saveWaitingUser(null, null);
-                            }
-                            return;
-                        }
-
-                        if (currentSize >= maxSize) {
-                            Toast.makeText(getContext(),
-                                    "The waiting list is full (max " + maxSize + ")",
-                                    Toast.LENGTH_LONG).show();
-                            return;
-                        }
-
-                        if (currentEvent.isRequireGeolocation()) {
-                            Toast.makeText(getContext(),
-                                    "Location is required, getting your position...",
-                                    Toast.LENGTH_SHORT).show();
-                            locationHelper.getCurrentLocation();
-                        } else {
-                            saveWaitingUser(null, null);
-                        }
-                    });
-        });
+            location.addOnCompleteListener(t -> {
+                Location fix = t.getResult();
+                if (fix != null) {
+                    // Successfully got a location → save waiting user with coordinates
+                    saveWaitingUser(app, fix.getLatitude(), fix.getLongitude());
+                } else {
+                    // Could not get location (permission denied, GPS error, etc.)
+                    roomState.rollback();
+                    renderRoomState();
+                    if (getContext() == null)
+                        return;
+                    Toast.makeText(
+                            getContext(),
+                            "Failed to get location. Cannot join this event.",
+                            Toast.LENGTH_LONG).show();
+                }
+            });
+        } else {
+            saveWaitingUser(app, null, null);
+        }
     }
     /**
      * Helper method to create and save the WaitingUser object to Firestore.
+     * The entry carries the user's name and email so entrant lists don't have
+     * to look up the profile.
      * 
+     * @param app       The application context, for the action queue.
      * @param latitude  The user's latitude, or null if not provided.
      * @param longitude The user's longitude, or null if not provided.
      */
-    private void saveWaitingUser(@Nullable Double latitude, @Nullable Double longitude) {
-        DocumentReference ref = db.collection("events").document(eventId).collection("waitingList").document(userId);
+    private void saveWaitingUser(@NonNull Context app, @Nullable Double latitude, @Nullable Double longitude) {
+        ProfileRepository.getInstance().get(userId)
+                .addOnCompleteListener(task -> saveWaitingUser(app,
+                        EntrantContact.fromProfile(task.isSuccessful() ? task.getResult() : null),
+                        latitude, longitude));
+    }
 
+    private void saveWaitingUser(@NonNull Context app, EntrantContact contact,
+            @Nullable Double latitude, @Nullable Double longitude) {
         WaitingUser entry = new WaitingUser(userId, eventId);
 
-        // Set name from Firebase profile
-        if (user != null && user.getDisplayName() != null && !user.getDisplayName().isEmpty()) {
+        // Set name from the profile, then the Firebase account
+        if (contact.name != null && !contact.name.isEmpty()) {
+            entry.setName(contact.name);
+        } else if (user != null && user.getDisplayName() != null && !user.getDisplayName().isEmpty()) {
             entry.setName(user.getDisplayName());
         } else {
             entry.setName("Anonymous User");
         }
+        entry.setEmail(contact.email != null ? contact.email : (user != null ? user.getEmail() : null));
 
         // Set location data if it was provided
         if (latitude != null && longitude != null) {
             entry.setLatitude(latitude);
             entry.setLongitude(longitude);
+            entry.setGeohash(Geohash.encode(latitude, longitude, Geohash.STORED_PRECISION));
         }
 
-        ref.set(entry).addOnSuccessListener(unused -> {
-            db.collection("events").document(eventId).update("waitlisted", FieldValue.increment(1));
-            if (getContext() != null) {
-                Toast.makeText(getContext(), "Successfully joined waiting list!", Toast.LENGTH_SHORT).show();
-            }
+        // the user left while the location or profile loaded
+        if (roomState.getMembership() != WaitingRoomState.Membership.JOINING)
+            return;
 
-        }).addOnFailureListener(e -> {
-            if (getContext() != null) {
-                Toast.makeText(getContext(), "Error: Could not join waiting room.", Toast.LENGTH_SHORT).show();
-            }
-        });
+        // Entry, counter and participation index change together, and the
+        // capacity check runs against the same counter read. Sent through the
+        // queue so a join made offline goes out when the network is back.
+        PendingActionQueue queue = PendingActionQueue.getInstance(app);
+        if (!queue.isOnline() && getContext() != null) {
+            Toast.makeText(getContext(),
+                    "You're offline. You'll join the waiting list when you're back online.",
+                    Toast.LENGTH_LONG).show();
+        }
+        queue.join(eventId, entry)
+                .addOnSuccessListener(result -> {
+                    roomState.confirm(result == WaitingListTransactions.JoinResult.JOINED
+                            || result == WaitingListTransactions.JoinResult.ALREADY_WAITING);
+                    renderRoomState();
+                    if (getContext() != null) {
+                        Toast.makeText(getContext(), joinMessage(result), Toast.LENGTH_SHORT).show();
+                    }
+                    if (result == WaitingListTransactions.JoinResult.JOINED) {
+                        queueTracker.reset();
+                        refreshQueuePosition();
+                    }
+                })
+                .addOnFailureListener(e -> {
+                    roomState.rollback();
+                    renderRoomState();
+                    // cancelled by leaving before it was sent; nothing went wrong
+                    if (e instanceof CancellationException)
+                        return;
+                    if (getContext() != null) {
+                        Toast.makeText(getContext(), "Error: Could not join waiting room.", Toast.LENGTH_SHORT).show();
+                    }
+                });
+    }
+
+    @NonNull
+    private String joinMessage(@NonNull WaitingListTransactions.JoinResult result) {
+        switch (result) {
+            case JOINED:
+                return "Successfully joined waiting list!";
+            case ALREADY_WAITING:
+                return "You're already on the waiting list for this event";
+            case ALREADY_SELECTED:
+                return "You have already been selected for this event.";
+            case ALREADY_ENROLLED:
+                return "You are already enrolled in this event.";
+            case CANCELLED:
+                return "You cannot rejoin the waiting list.";
+            case FULL:
+            default:
+                return "The waiting list is full (max " + currentEvent.getMaxEntrants() + ")";
+        }
     }
 
     /**
      * Attempts to leave the waiting room.
      */
     private void leaveWaitingRoom() {
-        db.collection("events")
-                .document(eventId)
-                .collection("waitingList")
-                .document(userId)
-                .delete()
-                .addOnSuccessListener(unused -> {
-
-                    db.collection("events")
-                            .document(eventId)
-                            .update("waitlisted", FieldValue.increment(-1));
-
-                    Toast.makeText(getContext(),
-                            "You left the waiting room", Toast.LENGTH_SHORT).show();
-
-                    if (requireActivity() instanceof MainActivity) {
-                        ((MainActivity) requireActivity()).showHomeUI(true);
+        // A join that hasn't gone through yet, e.g. queued while offline, is
+        // dropped instead; if it is already being sent, the leave follows it
+        if (roomState.cancelJoin()) {
+            renderRoomState();
+            PendingActionQueue.getInstance(requireContext()).leave(eventId);
+            returnHome();
+            return;
+        }
+        // Only a waiting entrant has a waitingList entry to remove; leaving
+        // must not touch a selected/enrolled/cancelled record. The count
+        // drops at once if we know the user is on the list.
+        if (roomState.isPending())
+            return;
+        roomState.beginLeave();
+        renderRoomState();
+
+        PendingActionQueue queue = PendingActionQueue.getInstance(requireContext());
+        if (!queue.isOnline()) {
+            // Kept until the network is back; nothing more to wait for here
+            queue.leave(eventId);
+            Toast.makeText(getContext(),
+                    "You're offline. You'll leave the waiting list when you're back online.",
+                    Toast.LENGTH_LONG).show();
+            returnHome();
+            return;
+        }
+        queue.leave(eventId)
+                .addOnSuccessListener(left -> {
+                    roomState.confirm(false);
+                    renderRoomState();
+                    if (left && getContext() != null) {
+                        Toast.makeText(getContext(),
+                                "You left the waiting room", Toast.LENGTH_SHORT).show();
+                    }
+                    returnHome();
+                })
+                .addOnFailureListener(e -> {
+                    roomState.rollback();
+                    renderRoomState();
+                    if (getContext() != null) {
+                        Toast.makeText(getContext(),
+                                "Error: Could not leave waiting room.", Toast.LENGTH_SHORT).show();
                     }
-
-                    requireActivity().getSupportFragmentManager().popBackStack();
                 });
     }
 
+    private void returnHome() {
+        if (!isAdded())
+            return;
+        if (requireActivity() instanceof MainActivity) {
+            ((MainActivity) requireActivity()).showHomeUI(true);
+        }
+
+        requireActivity().getSupportFragmentManager().popBackStack();
+    }
+
     /**
      * Shows a dialog with lottery criteria and guidelines
      */
@@ -0,0 +1,170 @@
+package com.example.yellow.users;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.yellow.utils.ParticipationIndex;
+import com.example.yellow.utils.ShardedCounter;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+/**
+ * Joins and leaves an event's waiting list in a single transaction.
+ *
+ * The event's {@code waitlisted} {@link ShardedCounter}, the user's
+ * waitingList entry and their participation index are read and written
+ * together, so the capacity check ({@code maxEntrants}) holds even when many
+ * users join at once, and a join costs a few document reads however long the
+ * list is. The check reads a single counter shard while there is room
+ * ({@link ShardedCounter#shardWithRoom}).
+ */
+public final class WaitingListTransactions {
+
+    /** Outcome of {@link #join}. */
+    public enum JoinResult {
+        /** The user was added to the waiting list. */
+        JOINED,
+        /** The user was already on the waiting list; nothing changed. */
+        ALREADY_WAITING,
+        /** The user has already been drawn. */
+        ALREADY_SELECTED,
+        /** The user has already accepted. */
+        ALREADY_ENROLLED,
+        /** The user cancelled or declined and may not rejoin. */
+        CANCELLED,
+        /** The waiting list has reached {@code maxEntrants}. */
+        FULL
+    }
+
+    private WaitingListTransactions() {
+    }
+
+    /**
+     * Adds {@code entry} to the event's waiting list if the user isn't in any
+     * of its lists yet (per their participation index and the selected,
+     * enrolled and cancelled entries) and there is room, incrementing {@code waitlisted} and
+     * setting the participation index in the same transaction.
+     *
+     * @return task resolving to the outcome; fails only if the transaction
+     *         could not run or the event does not exist
+     */
+    @NonNull
+    public static Task<JoinResult> join(@NonNull FirebaseFirestore db, @NonNull String eventId,
+                                        @NonNull String userId, @NonNull WaitingUser entry) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference entryRef = eventRef.collection("waitingList").document(userId);
+        DocumentReference indexRef = ParticipationIndex.ref(db, userId, eventId);
+        ShardedCounter waitlisted = ShardedCounter.waitlisted(eventRef);
+
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot event = transaction.get(eventRef);
+            DocumentSnapshot index = transaction.get(indexRef);
+            DocumentSnapshot existing = transaction.get(entryRef);
+            // The lists themselves are checked too: users who joined before
+            // the participation index existed have no index document
+            boolean cancelled = transaction.get(eventRef.collection("cancelled").document(userId)).exists();
+            boolean enrolled = transaction.get(eventRef.collection("enrolled").document(userId)).exists();
+            boolean selected = transaction.get(eventRef.collection("selected").document(userId)).exists();
+
+            if (!event.exists()) {
+                throw new FirebaseFirestoreException("Event not found",
+                        FirebaseFirestoreException.Code.NOT_FOUND);
+            }
+
+            if (cancelled)
+                return JoinResult.CANCELLED;
+            if (enrolled)
+                return JoinResult.ALREADY_ENROLLED;
+            if (selected)
+                return JoinResult.ALREADY_SELECTED;
+            JoinResult blocked = blockedBy(index.exists() ? index.getString("status") : null);
+            if (blocked != null)
+                return blocked;
+            if (existing.exists())
+                return JoinResult.ALREADY_WAITING;
+
+            // A capped list checks one shard's slice of the cap rather than
+            // the whole count, so concurrent joins rarely contend either way
+            long max = longOrZero(event.getLong("maxEntrants"));
+            int shard = -1;
+            if (max > 0) {
+                shard = waitlisted.shardWithRoom(transaction, event, max);
+                if (shard < 0)
+                    return JoinResult.FULL;
+            }
+
+            transaction.set(entryRef, entry);
+            if (shard >= 0)
+                waitlisted.increment(transaction, shard, 1);
+            else
+                waitlisted.increment(transaction, 1);
+            ParticipationIndex.set(transaction, db, userId, eventId, ParticipationIndex.WAITING);
+            return JoinResult.JOINED;
+        });
+    }
+
+    /**
+     * Removes the user from the event's waiting list, decrementing
+     * {@code waitlisted} and removing the participation index in the same
+     * transaction. Users who have already been selected, enrolled or cancelled
+     * are left untouched.
+     *
+     * @return task resolving to true if the user was on the waiting list
+     */
+    @NonNull
+    public static Task<Boolean> leave(@NonNull FirebaseFirestore db, @NonNull String eventId,
+                                      @NonNull String userId) {
+        DocumentReference eventRef = db.collection("events").document(eventId);
+        DocumentReference entryRef = eventRef.collection("waitingList").document(userId);
+        DocumentReference indexRef = ParticipationIndex.ref(db, userId, eventId);
+
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot index = transaction.get(indexRef);
+            DocumentSnapshot existing = transaction.get(entryRef);
+
+            String status = index.exists() ? index.getString("status") : null;
+            if (status != null && !ParticipationIndex.WAITING.equals(status))
+                return false;
+            if (!existing.exists()) {
+                // stale index with no entry behind it
+                if (status != null)
+                    ParticipationIndex.remove(transaction, db, userId, eventId);
+                return false;
+            }
+
+            transaction.delete(entryRef);
+            ShardedCounter.waitlisted(eventRef).increment(transaction, -1);
+            ParticipationIndex.remove(transaction, db, userId, eventId);
+            return true;
+        });
+    }
+
+    /**
+     * @return the result that stops a user with this participation status
+     *         from joining, or null if they may join
+     */
+    @Nullable
+    static JoinResult blockedBy(@Nullable String status) {
+        if (status == null)
+            return null;
+        switch (status) {
+            case ParticipationIndex.WAITING:
+                return JoinResult.ALREADY_WAITING;
+            case ParticipationIndex.SELECTED:
+                return JoinResult.ALREADY_SELECTED;
+            case ParticipationIndex.ENROLLED:
+                return JoinResult.ALREADY_ENROLLED;
+            case ParticipationIndex.CANCELLED:
+                return JoinResult.CANCELLED;
+            default:
+                return null;
+        }
+    }
+
+    private static long longOrZero(@Nullable Long value) {
+        return value != null ? value : 0L;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.yellow.users;
+
+/**
+ * Local, optimistic state of the waiting room: whether the user is on the
+ * list and how many people are on it.
+ *
+ * A join or leave takes effect here as soon as it starts, so the count and
+ * the leave button update without waiting for Firestore. The write's outcome
+ * then either confirms it or rolls it back. Until the server's count catches
+ * up, the shown count never drops below (for a join) or rises above (for a
+ * leave) the count at the start adjusted by one, so a confirmation that
+ * arrives before or after the counter update neither flickers nor counts the
+ * user twice.
+ *
+ * Not thread-safe; use from the main thread.
+ * @see WaitingRoomLogic
+ */
+public class WaitingRoomState {
+
+    /** Where the user stands, as far as this screen knows. */
+    public enum Membership {
+        /** Not on the waiting list. */
+        OUT,
+        /** Join sent, not yet confirmed. */
+        JOINING,
+        /** On the waiting list. */
+        IN,
+        /** Leave sent, not yet confirmed. */
+        LEAVING
+    }
+
+    private final WaitingRoomLogic logic;
+
+    private Membership membership = Membership.OUT;
+    private Membership beforePending = Membership.OUT;
+
+    // last count from the server, or -1 before the first one
+    private long serverCount = -1;
+
+    // the optimistic count of the latest join/leave, kept until the server
+    // reports a count after that operation settled
+    private long optimisticCount = -1;
+    private boolean leaving;
+    private boolean settled;
+
+    public WaitingRoomState(WaitingRoomLogic logic) {
+        this.logic = logic;
+    }
+
+    /**
+     * Starts a join.
+     * @return false if the user is already on the list or a change is pending
+     */
+    public boolean beginJoin() {
+        if (isPending() || !logic.shouldJoin(membership == Membership.IN))
+            return false;
+        begin(Membership.JOINING, false);
+        return true;
+    }
+
+    /**
+     * Starts a leave.
+     * @return false if the user isn't known to be on the list or a change is pending
+     */
+    public boolean beginLeave() {
+        if (membership != Membership.IN)
+            return false;
+        begin(Membership.LEAVING, true);
+        return true;
+    }
+
+    /**
+     * The pending join/leave finished on the server.
+     * @param onList: whether the user is on the list now; a join the server
+     *              refused (e.g. the list is full) is confirmed with false
+     */
+    public void confirm(boolean onList) {
+        if (!isPending())
+            return;
+        membership = onList ? Membership.IN : Membership.OUT;
+        boolean applied = leaving ? !onList : onList;
+        if (applied) {
+            settled = true;
+        } else {
+            optimisticCount = -1;
+        }
+    }
+
+    /** The pending join/leave failed; undo it. */
+    public void rollback() {
+        if (!isPending())
+            return;
+        membership = beforePending;
+        optimisticCount = -1;
+    }
+
+    /**
+     * Drops a join that hasn't been confirmed, e.g. one still queued offline
+     * when the user leaves. A result that still arrives for it is ignored.
+     * @return false if no join is pending
+     */
+    public boolean cancelJoin() {
+        if (membership != Membership.JOINING)
+            return false;
+        membership = beforePending;
+        optimisticCount = -1;
+        return true;
+    }
+
+    /**
+     * The server reports whether the user is on the list, e.g. from their
+     * participation index. Ignored while a change is pending.
+     */
+    public void onServerMembership(boolean onList) {
+        if (!isPending())
+            membership = onList ? Membership.IN : Membership.OUT;
+    }
+
+    /**
+     * The server reports the list's size.
+     */
+    public void onServerCount(long count) {
+        serverCount = count;
+        if (settled) {
+            // the first count after the write settled already includes it
+            optimisticCount = -1;
+            settled = false;
+        }
+    }
+
+    /**
+     * @return the count to show, or -1 before the server has reported one
+     */
+    public long getDisplayedCount() {
+        if (serverCount < 0)
+            return -1;
+        if (optimisticCount < 0)
+            return serverCount;
+        return leaving
+                ? Math.max(0, Math.min(serverCount, optimisticCount))
+                : Math.max(serverCount, optimisticCount);
+    }
+
+    /**
+     * @return the user's membership, including a pending change
+     */
+    public Membership getMembership() {
+        return membership;
+    }
+
+    /**
+     * @return true while a join or leave is waiting for the server
+     */
+    public boolean isPending() {
+        return membership == Membership.JOINING || membership == Membership.LEAVING;
+    }
+
+    private void begin(Membership pending, boolean isLeave) {
+        beforePending = membership;
+        membership = pending;
+        leaving = isLeave;
+        settled = false;
+        optimisticCount = serverCount < 0 ? -1
+                : logic.adjustWaitlistCount((int) serverCount, isLeave);
+    }
+}
@@ -12,9 +12,11 @@ public class WaitingUser {
     public String eventId;
     public Object timestamp = FieldValue.serverTimestamp();
     private String name;
+    private String email;
     private Double latitude;
     private Double longitude;
-
+    // Geohash of latitude/longitude, for the map's viewport queries
+    private String geohash;
 
     public WaitingUser() {}
 
@@ -32,6 +34,14 @@ public class WaitingUser {
         this.name = name;
     }
 
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
     public Double getLatitude() {
         return latitude;
     }
@@ -47,4 +57,12 @@ public class WaitingUser {
     public void setLongitude(Double longitude) {
         this.longitude = longitude;
     }
+
+    public String getGeohash() {
+        return geohash;
+    }
+
+    public void setGeohash(String geohash) {
+        this.geohash = geohash;
+    }
 }
@@ -0,0 +1,258 @@
+package com.example.yellow.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Grid clustering of map points, in plain Java so it can run on a background
+ * thread and be benchmarked on the JVM.
+ *
+ * Points are projected to Web Mercator once. At each zoom level the world is
+ * cut into square cells of {@link #CELL_PX} screen pixels and every non-empty
+ * cell becomes one {@link Cluster} at the average position of its points.
+ * Each zoom level is built on first use and kept, sorted by x, so a viewport
+ * query only walks the clusters in its longitude range.
+ *
+ * Thread-safe; the engine is immutable apart from the per-zoom cache.
+ *
+ * @param <T> the item behind each point, e.g. a waiting-list entry
+ */
+public final class ClusterEngine<T> {
+
+    /** Highest zoom level clustered; Google Maps stops at 21. */
+    public static final int MAX_ZOOM = 21;
+
+    /** Side of a grid cell in screen pixels. */
+    public static final int CELL_PX = 80;
+
+    private static final double TILE_PX = 256;
+    private static final double MAX_SIN_LAT = 0.9999;
+
+    /** One marker's worth of points. */
+    public static final class Cluster<T> {
+        final double x;
+        final double y;
+        private final int count;
+        private final T item;
+
+        Cluster(double x, double y, int count, T item) {
+            this.x = x;
+            this.y = y;
+            this.count = count;
+            this.item = item;
+        }
+
+        public double getLatitude() {
+            return latitudeOf(y);
+        }
+
+        public double getLongitude() {
+            return longitudeOf(x);
+        }
+
+        /**
+         * @return number of points in this cluster
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the point's item if this cluster holds exactly one, else null
+         */
+        public T getItem() {
+            return item;
+        }
+
+        public boolean isSingle() {
+            return count == 1;
+        }
+    }
+
+    private final List<T> items;
+    private final double[] xs;
+    private final double[] ys;
+
+    @SuppressWarnings("unchecked")
+    private final List<Cluster<T>>[] levels = new List[MAX_ZOOM + 1];
+
+    /**
+     * @param items     the points' items; the list is copied
+     * @param latitude  reads an item's latitude in degrees
+     * @param longitude reads an item's longitude in degrees
+     */
+    public ClusterEngine(List<? extends T> items,
+                         ToDoubleFunction<? super T> latitude,
+                         ToDoubleFunction<? super T> longitude) {
+        this.items = new ArrayList<>(items);
+        int n = this.items.size();
+        xs = new double[n];
+        ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            T item = this.items.get(i);
+            xs[i] = projectX(longitude.applyAsDouble(item));
+            ys[i] = projectY(latitude.applyAsDouble(item));
+        }
+    }
+
+    /**
+     * @return number of points clustered
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Returns the clusters at a zoom level whose position falls inside the
+     * given viewport, widened by one cell so markers don't pop in at the edges.
+     * A viewport that crosses the antimeridian has {@code west > east}.
+     *
+     * @param zoom camera zoom; fractional zooms use the level below
+     */
+    public List<Cluster<T>> getClusters(double zoom, double south, double west,
+                                        double north, double east) {
+        int level = levelOf(zoom);
+        List<Cluster<T>> all = level(level);
+        if (all.isEmpty())
+            return Collections.emptyList();
+
+        double margin = cellSize(level);
+        double minY = projectY(north) - margin;
+        double maxY = projectY(south) + margin;
+        double minX = projectX(west) - margin;
+        double maxX = projectX(east) + margin;
+
+        List<Cluster<T>> out = new ArrayList<>();
+        if (maxX - minX >= 1) {
+            // The whole world is in view
+            collect(all, 0, 1, minY, maxY, out);
+        } else if (west > east) {
+            // Crosses the antimeridian: two ranges
+            collect(all, minX, 1, minY, maxY, out);
+            collect(all, 0, maxX, minY, maxY, out);
+        } else {
+            collect(all, minX, maxX, minY, maxY, out);
+            // The widened range may reach over either edge of the map
+            if (minX < 0)
+                collect(all, minX + 1, 1, minY, maxY, out);
+            if (maxX > 1)
+                collect(all, 0, maxX - 1, minY, maxY, out);
+        }
+        return out;
+    }
+
+    /**
+     * Returns every cluster at a zoom level.
+     */
+    public List<Cluster<T>> getClusters(double zoom) {
+        return Collections.unmodifiableList(level(levelOf(zoom)));
+    }
+
+    private static int levelOf(double zoom) {
+        return (int) Math.max(0, Math.min(MAX_ZOOM, Math.floor(zoom)));
+    }
+
+    private synchronized List<Cluster<T>> level(int level) {
+        if (levels[level] == null)
+            levels[level] = build(level);
+        return levels[level];
+    }
+
+    private List<Cluster<T>> build(int level) {
+        int n = xs.length;
+        double cells = 1 / cellSize(level);
+
+        // Open-addressing table from cell key to cell index; avoids boxing a
+        // key per point, which dominates with 100k points
+        int capacity = Integer.highestOneBit(Math.max(1, n) * 2 - 1) << 1;
+        int mask = capacity - 1;
+        long[] keys = new long[capacity];
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, -1);
+
+        int cellCount = 0;
+        int[] counts = new int[n];
+        int[] firsts = new int[n];
+        double[] sumX = new double[n];
+        double[] sumY = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            long key = ((long) (xs[i] * cells) << 32) | (long) (ys[i] * cells);
+            int h = (int) (key ^ (key >>> 29)) * 0x9E3779B9 & mask;
+            while (slots[h] >= 0 && keys[h] != key)
+                h = (h + 1) & mask;
+            int cell = slots[h];
+            if (cell < 0) {
+                cell = cellCount++;
+                keys[h] = key;
+                slots[h] = cell;
+                firsts[cell] = i;
+            }
+            counts[cell]++;
+            sumX[cell] += xs[i];
+            sumY[cell] += ys[i];
+        }
+
+        List<Cluster<T>> clusters = new ArrayList<>(cellCount);
+        for (int c = 0; c < cellCount; c++) {
+            int count = counts[c];
+            clusters.add(new Cluster<>(sumX[c] / count, sumY[c] / count, count,
+                    count == 1 ? items.get(firsts[c]) : null));
+        }
+        clusters.sort((a, b) -> Double.compare(a.x, b.x));
+        return clusters;
+    }
+
+    private static <T> void collect(List<Cluster<T>> sorted, double minX, double maxX,
+                                    double minY, double maxY, List<Cluster<T>> out) {
+        for (int i = lowerBound(sorted, minX); i < sorted.size(); i++) {
+            Cluster<T> c = sorted.get(i);
+            if (c.x > maxX)
+                break;
+            if (c.y >= minY && c.y <= maxY)
+                out.add(c);
+        }
+    }
+
+    private static <T> int lowerBound(List<Cluster<T>> sorted, double x) {
+        int lo = 0;
+        int hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted.get(mid).x < x)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /** Cell side as a fraction of the world's width. */
+    static double cellSize(int level) {
+        return CELL_PX / (TILE_PX * (1L << level));
+    }
+
+    /** Longitude to Web Mercator x in [0, 1], 0 at 180° W. */
+    static double projectX(double longitude) {
+        double x = (longitude + 180) / 360;
+        return x < 0 || x > 1 ? x - Math.floor(x) : x;
+    }
+
+    /** Latitude to Web Mercator y in [0, 1], 0 at the top. */
+    static double projectY(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        sin = Math.max(-MAX_SIN_LAT, Math.min(MAX_SIN_LAT, sin));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    static double longitudeOf(double x) {
+        return x * 360 - 180;
+    }
+
+    static double latitudeOf(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.yellow.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes CSV as described in RFC 4180: fields containing a comma, double
+ * quote, CR or LF are quoted, quotes inside them are doubled, and records end
+ * with CRLF. Null fields are written as empty.
+ *
+ * Rows are written straight to the underlying stream, so exports don't hold
+ * the whole file in memory. Not thread-safe.
+ */
+public final class CsvWriter implements Closeable, Flushable {
+
+    private static final String RECORD_END = "\r\n";
+
+    private final Writer out;
+
+    /**
+     * @param out where to write; buffered and encoded as UTF-8
+     */
+    public CsvWriter(@NonNull OutputStream out) {
+        this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param out where to write; should already be buffered
+     */
+    public CsvWriter(@NonNull Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes one record.
+     */
+    public void writeRow(@NonNull String... fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0)
+                out.write(',');
+            out.write(escape(fields[i]));
+        }
+        out.write(RECORD_END);
+    }
+
+    /**
+     * Writes one record.
+     */
+    public void writeRow(@NonNull List<String> fields) throws IOException {
+        writeRow(fields.toArray(new String[0]));
+    }
+
+    /**
+     * @return {@code field} as it appears in a CSV record, quoted if needed
+     */
+    @NonNull
+    public static String escape(@Nullable String field) {
+        if (field == null || field.isEmpty())
+            return "";
+
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote)
+            return field;
+
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
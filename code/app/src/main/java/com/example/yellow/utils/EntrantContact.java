@@ -0,0 +1,134 @@
+package com.example.yellow.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Transaction;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Display name and email of an entrant, as copied onto their membership
+ * documents in {@code events/{id}/waitingList|selected|enrolled|cancelled}.
+ *
+ * Every write that creates or moves a membership document carries these
+ * fields along, so entrant lists and exports render from the list itself
+ * instead of joining against {@code profiles}. Documents written before the
+ * fields existed fall back to the profile via {@link ProfileRepository}.
+ */
+public final class EntrantContact {
+
+    /** Display name field on membership documents. */
+    public static final String NAME = "name";
+    /** Email field on membership documents. */
+    public static final String EMAIL = "email";
+
+    @Nullable
+    public final String name;
+    @Nullable
+    public final String email;
+
+    public EntrantContact(@Nullable String name, @Nullable String email) {
+        this.name = name;
+        this.email = email;
+    }
+
+    /**
+     * @return the contact stored on a membership document
+     */
+    @NonNull
+    public static EntrantContact fromMembership(@NonNull DocumentSnapshot membership) {
+        return new EntrantContact(membership.getString(NAME), membership.getString(EMAIL));
+    }
+
+    /**
+     * @return the contact from a {@code profiles/{uid}} document; empty if it is null
+     */
+    @NonNull
+    public static EntrantContact fromProfile(@Nullable DocumentSnapshot profile) {
+        if (profile == null)
+            return new EntrantContact(null, null);
+        return new EntrantContact(profile.getString("fullName"), profile.getString("email"));
+    }
+
+    /**
+     * Whether a membership document already carries the contact fields. The
+     * email key is written (possibly null) with every copy, so older documents
+     * that only have the waiting list's {@code name} still count as missing.
+     */
+    public static boolean isOnMembership(@NonNull DocumentSnapshot membership) {
+        return membership.contains(EMAIL);
+    }
+
+    /**
+     * The contact to carry onto a user's next membership document inside a
+     * transaction: the one already on {@code membership}, or else the one
+     * from their profile, which is only read when needed.
+     *
+     * @param membership the user's current membership document, already read
+     *                   in {@code transaction}; may be null or missing
+     * @param profileRef the user's {@code profiles/{uid}} document
+     */
+    @NonNull
+    public static EntrantContact carryOver(@NonNull Transaction transaction,
+                                           @Nullable DocumentSnapshot membership,
+                                           @NonNull DocumentReference profileRef)
+            throws FirebaseFirestoreException {
+        if (membership != null && membership.exists() && isOnMembership(membership))
+            return fromMembership(membership);
+        return fromProfile(transaction.get(profileRef));
+    }
+
+    /**
+     * Adds the contact fields to data being written to a membership document.
+     */
+    public void putInto(@NonNull Map<String, Object> data) {
+        data.put(NAME, name);
+        data.put(EMAIL, email);
+    }
+
+    /**
+     * Resolves the contact of every entrant in a membership query, reading
+     * profiles only for documents that predate the copied fields.
+     *
+     * @param memberships documents of one membership subcollection
+     * @return task resolving to contacts keyed by user ID. If the profile
+     *         fallback fails, older entrants map to whatever their document has.
+     */
+    @NonNull
+    public static Task<Map<String, EntrantContact>> resolve(
+            @NonNull Iterable<? extends DocumentSnapshot> memberships) {
+        Map<String, EntrantContact> contacts = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (DocumentSnapshot doc : memberships) {
+            String userId = doc.getString("userId");
+            if (userId == null || userId.isEmpty())
+                continue;
+            contacts.put(userId, fromMembership(doc));
+            if (!isOnMembership(doc))
+                missing.add(userId);
+        }
+
+        if (missing.isEmpty())
+            return Tasks.forResult(contacts);
+
+        return ProfileRepository.getInstance().getAll(missing).continueWith(task -> {
+            if (task.isSuccessful()) {
+                for (String userId : missing) {
+                    DocumentSnapshot profile = task.getResult().get(userId);
+                    if (profile != null)
+                        contacts.put(userId, fromProfile(profile));
+                }
+            }
+            return contacts;
+        });
+    }
+}
@@ -0,0 +1,414 @@
+package com.example.yellow.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams an event's entrant lists to an {@link ExportSink}: one list as
+ * CSV, all of them as a combined report, or waiting list locations as GeoJSON.
+ *
+ * Membership documents are read {@link #PAGE_SIZE} at a time, their names
+ * and emails are resolved per page (profiles only for older entries, in
+ * {@code whereIn} chunks), and the rows are written on a background thread
+ * before the next page is read. Memory use doesn't grow with the list.
+ */
+public final class EntrantExporter {
+
+    /** Membership documents read per query. */
+    public static final int PAGE_SIZE = 500;
+
+    /** Status subcollections in an event report, with the status written for each. */
+    private static final String[][] REPORT_LISTS = {
+            { "waitingList", "waiting" },
+            { "selected", "selected" },
+            { "enrolled", "enrolled" },
+            { "cancelled", "cancelled" },
+    };
+
+    /** File formats of {@link #writeReport}. */
+    public enum ReportFormat {
+        /** One CSV with a header row. */
+        CSV("csv", "text/csv"),
+        /** One JSON object per line. */
+        JSON_LINES("jsonl", "application/x-ndjson");
+
+        public final String extension;
+        public final String mimeType;
+
+        ReportFormat(String extension, String mimeType) {
+            this.extension = extension;
+            this.mimeType = mimeType;
+        }
+    }
+
+    /** Receives report progress on the main thread. */
+    public interface ProgressListener {
+        /**
+         * @param written rows written so far
+         * @param total   rows expected, or -1 if not known
+         */
+        void onProgress(int written, long total);
+    }
+
+    // all file writes happen here, in order
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor();
+    // only used on the IO thread
+    private static final SimpleDateFormat ISO_UTC = isoFormat();
+
+    private EntrantExporter() {
+    }
+
+    /**
+     * Writes one membership list as CSV with the columns
+     * {@code Name,Email,UserId,<timeColumn>}.
+     *
+     * The sink is committed if at least one row was written and aborted
+     * otherwise.
+     *
+     * @param list       e.g. {@code events/{id}/enrolled}
+     * @param timeColumn header of the column holding each entry's timestamp
+     * @param sink       where to write; finished by this call
+     * @return task resolving to the number of entrants written
+     */
+    @NonNull
+    public static Task<Integer> writeCsv(@NonNull CollectionReference list, @NonNull String timeColumn,
+                                         @NonNull ExportSink sink) {
+        CsvWriter csv = new CsvWriter(sink.stream());
+        // only used on the IO thread
+        SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+
+        Task<Integer> written = Tasks.call(IO, () -> {
+            csv.writeRow("Name", "Email", "UserId", timeColumn);
+            return null;
+        }).continueWithTask(header -> {
+            if (!header.isSuccessful())
+                throw header.getException();
+
+            // document IDs are user IDs; unlike timestamp, every entry has one
+            return FirestoreQueryUtils.forEachPage(list.orderBy(FieldPath.documentId()), PAGE_SIZE,
+                    page -> EntrantContact.resolve(page).continueWith(IO, contacts -> {
+                        writeCsvRows(csv, page, contacts.getResult(), dateFormat);
+                        return null;
+                    }));
+        });
+
+        return finish(written, csv, sink);
+    }
+
+    /**
+     * Writes every entrant of an event, across all four status lists, as one
+     * file with the columns status, userId, name, email and timestamp
+     * (ISO 8601, UTC).
+     *
+     * The lists are read in parallel, each a page at a time, so at most one
+     * page per list is in memory. Rows from different lists interleave in the
+     * file. The sink is committed if at least one row was written and aborted
+     * otherwise.
+     *
+     * @param event    the {@code events/{id}} document
+     * @param format   file format
+     * @param sink     where to write; finished by this call
+     * @param progress notified after each page; may be null
+     * @return task resolving to the number of entrants written
+     */
+    @NonNull
+    public static Task<Integer> writeReport(@NonNull DocumentReference event, @NonNull ReportFormat format,
+                                            @NonNull ExportSink sink, @Nullable ProgressListener progress) {
+        ReportWriter out = format == ReportFormat.CSV
+                ? new CsvReportWriter(new CsvWriter(sink.stream()))
+                : new JsonLinesReportWriter(sink.stream());
+
+        // totals are only for progress, so a failed count doesn't stop the export
+        List<Task<Long>> counts = new ArrayList<>();
+        for (String[] list : REPORT_LISTS) {
+            counts.add(event.collection(list[0]).count().get(AggregateSource.SERVER)
+                    .continueWith(t -> t.isSuccessful() ? t.getResult().getCount() : -1L));
+        }
+        long[] total = { -1 };
+        Tasks.whenAllComplete(counts).addOnSuccessListener(done -> {
+            long sum = 0;
+            for (Task<Long> c : counts) {
+                if (c.getResult() < 0)
+                    return;
+                sum += c.getResult();
+            }
+            total[0] = sum;
+        });
+
+        AtomicInteger written = new AtomicInteger();
+        Task<Void> header = Tasks.call(IO, () -> {
+            out.writeHeader();
+            return null;
+        });
+
+        Task<Integer> all = header.continueWithTask(h -> {
+            if (!h.isSuccessful())
+                throw h.getException();
+
+            List<Task<Integer>> readers = new ArrayList<>();
+            for (String[] list : REPORT_LISTS) {
+                String status = list[1];
+                readers.add(FirestoreQueryUtils.forEachPage(
+                        event.collection(list[0]).orderBy(FieldPath.documentId()), PAGE_SIZE,
+                        page -> EntrantContact.resolve(page)
+                                .continueWith(IO, contacts -> {
+                                    written.addAndGet(writeReportRows(out, status, page, contacts.getResult()));
+                                    return (Void) null;
+                                })
+                                .addOnSuccessListener(v -> {
+                                    if (progress != null)
+                                        progress.onProgress(written.get(), total[0]);
+                                })));
+            }
+            return Tasks.whenAllSuccess(readers).continueWith(t -> {
+                if (!t.isSuccessful())
+                    throw t.getException();
+                return written.get();
+            });
+        });
+
+        return finish(all, out, sink);
+    }
+
+    private static int writeReportRows(ReportWriter out, String status, List<DocumentSnapshot> page,
+                                       Map<String, EntrantContact> contacts) throws IOException {
+        int rows = 0;
+        for (DocumentSnapshot doc : page) {
+            String userId = doc.getString("userId");
+            if (userId == null)
+                continue;
+
+            Date time = timestampOf(doc);
+            out.writeRow(status, userId, contacts.get(userId), time != null ? ISO_UTC.format(time) : null);
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * Writes the join location of every entrant in {@code waitingList} as a
+     * GeoJSON FeatureCollection of points with the properties userId, name
+     * and joinedAt (ISO 8601, UTC). Entries without a location are skipped.
+     *
+     * Names come from the entries themselves, so no profiles are read. The
+     * sink is committed if at least one feature was written and aborted
+     * otherwise.
+     *
+     * @param waitingList the {@code events/{id}/waitingList} collection
+     * @param sink        where to write; finished by this call
+     * @return task resolving to the number of features written
+     */
+    @NonNull
+    public static Task<Integer> writeGeoJson(@NonNull CollectionReference waitingList,
+                                             @NonNull ExportSink sink) {
+        GeoJsonWriter geo = new GeoJsonWriter(sink.stream());
+
+        Task<Void> header = Tasks.call(IO, () -> {
+            geo.begin();
+            return null;
+        });
+
+        Task<Integer> written = header.continueWithTask(h -> {
+            if (!h.isSuccessful())
+                throw h.getException();
+
+            return FirestoreQueryUtils.forEachPage(waitingList.orderBy(FieldPath.documentId()), PAGE_SIZE,
+                    page -> Tasks.call(IO, () -> {
+                        writeFeatures(geo, page);
+                        return null;
+                    }));
+        }).continueWith(IO, t -> {
+            if (!t.isSuccessful())
+                throw t.getException();
+            geo.end();
+            return geo.getFeatureCount();
+        });
+
+        return finish(written, geo, sink);
+    }
+
+    private static void writeFeatures(GeoJsonWriter geo, List<DocumentSnapshot> page) throws IOException {
+        for (DocumentSnapshot doc : page) {
+            Double lat = doc.getDouble("latitude");
+            Double lng = doc.getDouble("longitude");
+            // same filter as the map: a zero coordinate means no real fix
+            if (lat == null || lng == null || lat == 0 || lng == 0)
+                continue;
+
+            String userId = doc.getString("userId");
+            Date time = timestampOf(doc);
+
+            Map<String, String> properties = new LinkedHashMap<>();
+            properties.put("userId", userId != null ? userId : doc.getId());
+            properties.put("name", doc.getString(EntrantContact.NAME));
+            properties.put("joinedAt", time != null ? ISO_UTC.format(time) : null);
+            geo.writePoint(lat, lng, properties);
+        }
+    }
+
+    private static void writeCsvRows(CsvWriter csv, List<DocumentSnapshot> page,
+                                     Map<String, EntrantContact> contacts,
+                                     SimpleDateFormat dateFormat) throws IOException {
+        for (DocumentSnapshot doc : page) {
+            String userId = doc.getString("userId");
+            if (userId == null)
+                continue;
+
+            EntrantContact contact = contacts.get(userId);
+            csv.writeRow(
+                    contact != null ? contact.name : null,
+                    contact != null ? contact.email : null,
+                    userId,
+                    formatTimestamp(doc, dateFormat));
+        }
+    }
+
+    /**
+     * Flushes and commits the sink once {@code written} succeeds with rows,
+     * and aborts it otherwise.
+     */
+    private static Task<Integer> finish(Task<Integer> written, Flushable out, ExportSink sink) {
+        return written.continueWith(IO, task -> {
+            if (!task.isSuccessful() || task.getResult() == 0) {
+                sink.abort();
+                if (!task.isSuccessful())
+                    throw task.getException();
+                return 0;
+            }
+            out.flush();
+            sink.commit();
+            return task.getResult();
+        });
+    }
+
+    /**
+     * @return the entry's {@code timestamp} in {@code dateFormat}, or
+     *         "Unknown" if it has none
+     */
+    @NonNull
+    static String formatTimestamp(@NonNull DocumentSnapshot doc, @NonNull SimpleDateFormat dateFormat) {
+        Date time = timestampOf(doc);
+        return time != null ? dateFormat.format(time) : "Unknown";
+    }
+
+    /**
+     * @return the entry's {@code timestamp}, stored as a Timestamp or as epoch
+     *         millis on older entries; null if it has none
+     */
+    @Nullable
+    private static Date timestampOf(@NonNull DocumentSnapshot doc) {
+        Object ts = doc.get("timestamp");
+        if (ts instanceof Timestamp)
+            return ((Timestamp) ts).toDate();
+        if (ts instanceof Long)
+            return new Date((Long) ts);
+        return null;
+    }
+
+    private static SimpleDateFormat isoFormat() {
+        SimpleDateFormat f = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        f.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return f;
+    }
+
+    /** One report file format. Used only on the IO thread. */
+    private interface ReportWriter extends Flushable {
+        void writeHeader() throws IOException;
+
+        void writeRow(@NonNull String status, @NonNull String userId, @Nullable EntrantContact contact,
+                      @Nullable String timestamp) throws IOException;
+    }
+
+    private static final class CsvReportWriter implements ReportWriter {
+        private final CsvWriter csv;
+
+        CsvReportWriter(CsvWriter csv) {
+            this.csv = csv;
+        }
+
+        @Override
+        public void writeHeader() throws IOException {
+            csv.writeRow("Status", "UserId", "Name", "Email", "Timestamp");
+        }
+
+        @Override
+        public void writeRow(@NonNull String status, @NonNull String userId, @Nullable EntrantContact contact,
+                             @Nullable String timestamp) throws IOException {
+            csv.writeRow(status, userId,
+                    contact != null ? contact.name : null,
+                    contact != null ? contact.email : null,
+                    timestamp);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            csv.flush();
+        }
+    }
+
+    private static final class JsonLinesReportWriter implements ReportWriter {
+        private final Writer out;
+
+        JsonLinesReportWriter(OutputStream stream) {
+            this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void writeHeader() {
+            // JSON Lines has no header
+        }
+
+        @Override
+        public void writeRow(@NonNull String status, @NonNull String userId, @Nullable EntrantContact contact,
+                             @Nullable String timestamp) throws IOException {
+            try {
+                JSONObject row = new JSONObject();
+                row.put("status", status);
+                row.put("userId", userId);
+                row.put("name", contact != null && contact.name != null ? contact.name : JSONObject.NULL);
+                row.put("email", contact != null && contact.email != null ? contact.email : JSONObject.NULL);
+                row.put("timestamp", timestamp != null ? timestamp : JSONObject.NULL);
+                out.write(row.toString());
+                out.write('\n');
+            } catch (JSONException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
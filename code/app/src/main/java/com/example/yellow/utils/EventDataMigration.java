@@ -0,0 +1,505 @@
+package com.example.yellow.utils;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.yellow.organizers.Event;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * One-off maintenance jobs that bring existing event and profile documents up
+ * to the current storage layout. Safe to run repeatedly: documents that are already
+ * migrated are skipped.
+ */
+public class EventDataMigration {
+
+    private static final String TAG = "EventDataMigration";
+
+    /** Each migrated event costs two writes; stay well under the 500-op batch limit. */
+    static final int EVENTS_PER_BATCH = 200;
+
+    /** One write per event; stay under the 500-op batch limit. */
+    static final int SEARCH_TOKENS_PER_BATCH = 450;
+
+    /** Inline posters are up to ~900KB each, so page through them in small groups. */
+    static final int POSTER_PAGE_SIZE = 20;
+
+    /** Uploads running at once while migrating posters. */
+    static final int MAX_PARALLEL_UPLOADS = 4;
+
+    /** Entries read per page; one write each, under the 500-op batch limit. */
+    static final int PARTICIPATIONS_PER_BATCH = 450;
+
+    /** Located entries read per page; one write each, under the 500-op batch limit. */
+    static final int GEOHASHES_PER_BATCH = 450;
+
+    /** Participant lists in ascending {@link ParticipationIndex} rank. */
+    private static final String[] PARTICIPANT_LISTS = { "waitingList", "selected", "enrolled", "cancelled" };
+
+    /** A counter reset is one event write plus one per shard; stay under the 500-op batch limit. */
+    static final int COUNTER_RESETS_PER_BATCH = 450 / (ShardedCounter.DEFAULT_SHARDS + 1);
+
+    /** Base64 decoding of large posters stays off the main thread. */
+    private static final Executor DECODE_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * Moves {@code description} out of every {@code events/{id}} document into
+     * {@code event_details/{id}}, leaving a {@code descriptionPreview} on the
+     * summary for list search, and deletes the stored {@code qrImagePng}.
+     *
+     * @param db Firestore instance
+     * @return Task resolving to the number of events migrated
+     */
+    public static Task<Integer> splitEventDetails(@NonNull FirebaseFirestore db) {
+        return db.collection("events").get().continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+
+            List<DocumentSnapshot> pending = new ArrayList<>();
+            for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+                if (doc.contains("description") || doc.contains("qrImagePng")) {
+                    pending.add(doc);
+                }
+            }
+
+            List<Task<Void>> commits = new ArrayList<>();
+            for (int start = 0; start < pending.size(); start += EVENTS_PER_BATCH) {
+                WriteBatch batch = db.batch();
+                int end = Math.min(start + EVENTS_PER_BATCH, pending.size());
+                for (DocumentSnapshot doc : pending.subList(start, end)) {
+                    String description = doc.getString("description");
+
+                    // qrImagePng is dropped rather than copied: codes are rendered
+                    // on demand from qrDeepLink
+                    Map<String, Object> details = new HashMap<>();
+                    if (doc.contains("description"))
+                        details.put("description", description);
+                    batch.set(db.collection(Event.DETAILS_COLLECTION).document(doc.getId()),
+                            details, SetOptions.merge());
+
+                    Map<String, Object> summary = new HashMap<>();
+                    summary.put("description", FieldValue.delete());
+                    summary.put("qrImagePng", FieldValue.delete());
+                    summary.put("descriptionPreview", Event.previewOf(description));
+                    summary.put("searchTokens", Event.searchTokensOf(description));
+                    summary.put("updatedAt", FieldValue.serverTimestamp());
+                    batch.update(doc.getReference(), summary);
+                }
+                commits.add(batch.commit());
+            }
+
+            final int migrated = pending.size();
+            return Tasks.whenAll(commits).continueWith(t -> {
+                if (!t.isSuccessful()) {
+                    throw t.getException();
+                }
+                Log.d(TAG, "Split details out of " + migrated + " event(s)");
+                return migrated;
+            });
+        });
+    }
+
+    /**
+     * Writes {@code searchTokens} onto every event summary that lacks it, from
+     * the full description in {@code event_details/{id}}, so list search keeps
+     * matching words past the preview for events split before the field
+     * existed.
+     *
+     * @param db Firestore instance
+     * @return Task resolving to the number of events updated
+     */
+    public static Task<Integer> backfillSearchTokens(@NonNull FirebaseFirestore db) {
+        return Tasks.whenAllSuccess(db.collection("events").get(),
+                        db.collection(Event.DETAILS_COLLECTION).get())
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        throw task.getException();
+                    }
+
+                    Map<String, String> descriptions = new HashMap<>();
+                    for (DocumentSnapshot doc : ((QuerySnapshot) task.getResult().get(1)).getDocuments()) {
+                        String description = doc.getString("description");
+                        if (description != null)
+                            descriptions.put(doc.getId(), description);
+                    }
+
+                    List<DocumentSnapshot> pending = new ArrayList<>();
+                    for (DocumentSnapshot doc : ((QuerySnapshot) task.getResult().get(0)).getDocuments()) {
+                        if (!doc.contains("searchTokens") && descriptions.containsKey(doc.getId())) {
+                            pending.add(doc);
+                        }
+                    }
+
+                    List<Task<Void>> commits = new ArrayList<>();
+                    for (int start = 0; start < pending.size(); start += SEARCH_TOKENS_PER_BATCH) {
+                        WriteBatch batch = db.batch();
+                        int end = Math.min(start + SEARCH_TOKENS_PER_BATCH, pending.size());
+                        for (DocumentSnapshot doc : pending.subList(start, end)) {
+                            batch.update(doc.getReference(), "searchTokens",
+                                    Event.searchTokensOf(descriptions.get(doc.getId())));
+                        }
+                        commits.add(batch.commit());
+                    }
+
+                    final int written = pending.size();
+                    return Tasks.whenAll(commits).continueWith(t -> {
+                        if (!t.isSuccessful()) {
+                            throw t.getException();
+                        }
+                        Log.d(TAG, "Backfilled search tokens on " + written + " event(s)");
+                        return written;
+                    });
+                });
+    }
+
+    /**
+     * Finds events whose {@code posterImageUrl} is still an inline
+     * {@code data:} URI, uploads each image to {@code event_posters} in Storage
+     * ({@value #MAX_PARALLEL_UPLOADS} at a time) and rewrites the field with the
+     * download URL. Documents are read {@value #POSTER_PAGE_SIZE} at a time so
+     * memory stays bounded regardless of how many events need migrating.
+     *
+     * @param db Firestore instance
+     * @return Task resolving to the number of posters moved
+     */
+    public static Task<Integer> moveInlinePostersToStorage(@NonNull FirebaseFirestore db) {
+        return migratePosterPage(db, null, 0);
+    }
+
+    private static Task<Integer> migratePosterPage(@NonNull FirebaseFirestore db,
+                                                   DocumentSnapshot after, int movedSoFar) {
+        // "data:" <= value < "data;" matches every string starting with "data:"
+        Query q = db.collection("events")
+                .whereGreaterThanOrEqualTo("posterImageUrl", "data:")
+                .whereLessThan("posterImageUrl", "data;")
+                .orderBy("posterImageUrl")
+                .limit(POSTER_PAGE_SIZE);
+        if (after != null) {
+            q = q.startAfter(after);
+        }
+
+        return q.get().continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            QuerySnapshot page = task.getResult();
+            List<DocumentSnapshot> docs = page.getDocuments();
+            if (docs.isEmpty()) {
+                Log.d(TAG, "Moved " + movedSoFar + " inline poster(s) to Storage");
+                return Tasks.forResult(movedSoFar);
+            }
+
+            Map<String, String> urls = new HashMap<>();
+            DocumentSnapshot last = docs.get(docs.size() - 1);
+
+            return uploadGroups(docs, 0, urls)
+                    .continueWithTask(t -> {
+                        if (urls.isEmpty()) {
+                            return Tasks.forResult(null);
+                        }
+                        WriteBatch batch = db.batch();
+                        for (DocumentSnapshot doc : docs) {
+                            String url = urls.get(doc.getId());
+                            if (url != null) {
+                                batch.update(doc.getReference(), "posterImageUrl", url,
+                                        "updatedAt", FieldValue.serverTimestamp());
+                            }
+                        }
+                        return batch.commit();
+                    })
+                    .continueWithTask(t -> {
+                        if (!t.isSuccessful()) {
+                            throw t.getException();
+                        }
+                        int moved = movedSoFar + urls.size();
+                        if (docs.size() < POSTER_PAGE_SIZE) {
+                            Log.d(TAG, "Moved " + moved + " inline poster(s) to Storage");
+                            return Tasks.forResult(moved);
+                        }
+                        return migratePosterPage(db, last, moved);
+                    });
+        });
+    }
+
+    /**
+     * Uploads posters in consecutive groups of {@link #MAX_PARALLEL_UPLOADS},
+     * collecting download URLs by event ID. A poster that fails to decode or
+     * upload is logged and left inline so the run can finish.
+     */
+    private static Task<Void> uploadGroups(List<DocumentSnapshot> docs, int start, Map<String, String> urls) {
+        if (start >= docs.size()) {
+            return Tasks.forResult(null);
+        }
+        int end = Math.min(start + MAX_PARALLEL_UPLOADS, docs.size());
+
+        List<Task<?>> uploads = new ArrayList<>();
+        for (DocumentSnapshot doc : docs.subList(start, end)) {
+            String eventId = doc.getId();
+            String dataUri = doc.getString("posterImageUrl");
+            // Keep the declared type (older posters include PNGs), not just JPEG
+            String mime = PosterUtils.mimeOfDataUri(dataUri);
+            Task<Void> upload = Tasks.call(DECODE_EXECUTOR, () -> PosterUtils.decodeDataUri(dataUri))
+                    .onSuccessTask(bytes -> {
+                        if (bytes == null) {
+                            throw new IllegalArgumentException("Not a Base64 data URI");
+                        }
+                        return FirebaseManager.getInstance().uploadPosterBytes(bytes,
+                                eventId + "." + PosterUtils.extensionOfMime(mime), mime, null);
+                    })
+                    .continueWith(t -> {
+                        if (t.isSuccessful()) {
+                            synchronized (urls) {
+                                urls.put(eventId, t.getResult().toString());
+                            }
+                        } else {
+                            Log.w(TAG, "Poster for " + eventId + " left inline", t.getException());
+                        }
+                        return null;
+                    });
+            uploads.add(upload);
+        }
+
+        return Tasks.whenAll(uploads).continueWithTask(t -> uploadGroups(docs, end, urls));
+    }
+
+    /**
+     * Builds {@code profiles/{uid}/participations} from the existing
+     * waitingList/selected/enrolled/cancelled entries of every event, for users
+     * who joined before the index was maintained. Where a user is in several
+     * lists of one event the most advanced status wins.
+     *
+     * Each list is read {@value #PARTICIPATIONS_PER_BATCH} entries at a time and
+     * every page is written before the next is read, so memory stays bounded.
+     * Because pages from different lists are written separately, an entry is
+     * only written over an index document whose status ranks lower.
+     *
+     * @param db Firestore instance
+     * @return Task resolving to the number of index documents written
+     */
+    public static Task<Integer> backfillParticipations(@NonNull FirebaseFirestore db) {
+        return backfillParticipationList(db, 0, 0);
+    }
+
+    private static Task<Integer> backfillParticipationList(@NonNull FirebaseFirestore db,
+                                                           int list, int writtenSoFar) {
+        if (list >= PARTICIPANT_LISTS.length) {
+            Log.d(TAG, "Backfilled " + writtenSoFar + " participation(s)");
+            return Tasks.forResult(writtenSoFar);
+        }
+
+        String status = ParticipationIndex.statusForList(PARTICIPANT_LISTS[list]);
+        int[] written = { writtenSoFar };
+        Query ordered = db.collectionGroup(PARTICIPANT_LISTS[list]).orderBy(FieldPath.documentId());
+        return FirestoreQueryUtils.forEachPage(ordered, PARTICIPATIONS_PER_BATCH,
+                        page -> backfillParticipationPage(db, page, status, written))
+                .onSuccessTask(read -> backfillParticipationList(db, list + 1, written[0]));
+    }
+
+    private static Task<Void> backfillParticipationPage(@NonNull FirebaseFirestore db,
+                                                        List<DocumentSnapshot> page, String status,
+                                                        int[] written) {
+        // index document -> entry to write; doc IDs in one list are unique per event
+        Map<DocumentReference, Map<String, Object>> entries = new LinkedHashMap<>();
+        for (DocumentSnapshot doc : page) {
+            DocumentReference eventRef = doc.getReference().getParent().getParent();
+            // Other collections share these names (e.g. profiles/{uid}/...); only
+            // take entries that sit directly under an event
+            if (eventRef == null || !"events".equals(eventRef.getParent().getId())) {
+                continue;
+            }
+            String uid = doc.getString("userId");
+            if (uid == null)
+                uid = doc.getId();
+
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("eventId", eventRef.getId());
+            entry.put("status", status);
+            Object ts = doc.get("timestamp");
+            entry.put("updatedAt", ts instanceof Timestamp ? ts : FieldValue.serverTimestamp());
+            entries.put(ParticipationIndex.ref(db, uid, eventRef.getId()), entry);
+        }
+
+        List<Task<DocumentSnapshot>> reads = new ArrayList<>();
+        for (DocumentReference ref : entries.keySet()) {
+            reads.add(ref.get());
+        }
+
+        return Tasks.whenAllSuccess(reads).onSuccessTask(existing -> {
+            WriteBatch batch = db.batch();
+            int count = 0;
+            for (Object o : existing) {
+                DocumentSnapshot index = (DocumentSnapshot) o;
+                // Keep a status written by an earlier list, or by the app itself,
+                // unless this one is further along
+                if (ParticipationIndex.rank(index.getString("status"))
+                        >= ParticipationIndex.rank(status)) {
+                    continue;
+                }
+                batch.set(index.getReference(), entries.get(index.getReference()), SetOptions.merge());
+                count++;
+            }
+            if (count == 0) {
+                return Tasks.forResult(null);
+            }
+            written[0] += count;
+            return batch.commit();
+        });
+    }
+
+    /**
+     * Adds {@link Geohash#FIELD} to every waitingList entry that has a
+     * latitude/longitude but was saved before geohashes were stored, so the
+     * entrant map's viewport queries find it.
+     *
+     * Only entries with a latitude are read, {@value #GEOHASHES_PER_BATCH} at a
+     * time, and each page is committed before the next is read.
+     *
+     * @param db Firestore instance
+     * @return Task resolving to the number of entries updated
+     */
+    public static Task<Integer> backfillGeohashes(@NonNull FirebaseFirestore db) {
+        Query located = db.collectionGroup("waitingList")
+                .whereGreaterThanOrEqualTo("latitude", -90)
+                .orderBy("latitude")
+                .orderBy(FieldPath.documentId());
+
+        int[] written = { 0 };
+        return FirestoreQueryUtils.forEachPage(located, GEOHASHES_PER_BATCH, page -> {
+            WriteBatch batch = db.batch();
+            int count = 0;
+            for (DocumentSnapshot doc : page) {
+                DocumentReference eventRef = doc.getReference().getParent().getParent();
+                if (eventRef == null || !"events".equals(eventRef.getParent().getId())) {
+                    continue;
+                }
+                if (!doc.contains(Geohash.FIELD)
+                        && doc.getDouble("latitude") != null && doc.getDouble("longitude") != null) {
+                    batch.update(doc.getReference(), Geohash.FIELD, Geohash.encode(
+                            doc.getDouble("latitude"), doc.getDouble("longitude"), Geohash.STORED_PRECISION));
+                    count++;
+                }
+            }
+            if (count == 0) {
+                return Tasks.forResult(null);
+            }
+            written[0] += count;
+            return batch.commit();
+        }).continueWith(t -> {
+            if (!t.isSuccessful()) {
+                throw t.getException();
+            }
+            Log.d(TAG, "Backfilled " + written[0] + " geohash(es)");
+            return written[0];
+        });
+    }
+
+    /**
+     * Recounts every event's {@code waitlisted} and {@code enrolled}
+     * {@link ShardedCounter} from its waitingList and enrolled subcollections,
+     * and resets the counters that are off. Older events need this because the
+     * draw and decline used to leave {@code waitlisted} untouched. A join or
+     * leave committed while this runs can be lost, so run it when
+     * registration is quiet.
+     *
+     * @param db Firestore instance
+     * @return Task resolving to the number of counters reset
+     */
+    public static Task<Integer> resetEventCounters(@NonNull FirebaseFirestore db) {
+        String[] counters = { "waitlisted", "enrolled" };
+        String[] lists = { "waitingList", "enrolled" };
+
+        return Tasks.whenAllSuccess(db.collection("events").get(), db.collectionGroup("shards").get())
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        throw task.getException();
+                    }
+
+                    // "eventId/counter" -> sum of its shards
+                    Map<String, Long> sharded = new HashMap<>();
+                    for (DocumentSnapshot doc : ((QuerySnapshot) task.getResult().get(1)).getDocuments()) {
+                        DocumentReference counterRef = doc.getReference().getParent().getParent();
+                        DocumentReference eventRef = counterRef != null
+                                ? counterRef.getParent().getParent()
+                                : null;
+                        if (eventRef == null || !"events".equals(eventRef.getParent().getId())) {
+                            continue;
+                        }
+                        Long count = doc.getLong(ShardedCounter.FIELD);
+                        sharded.merge(eventRef.getId() + "/" + counterRef.getId(),
+                                count != null ? count : 0L, Long::sum);
+                    }
+
+                    List<DocumentSnapshot> events = ((QuerySnapshot) task.getResult().get(0)).getDocuments();
+                    List<Task<AggregateQuerySnapshot>> counts = new ArrayList<>();
+                    for (DocumentSnapshot event : events) {
+                        for (String list : lists) {
+                            counts.add(event.getReference().collection(list).count()
+                                    .get(AggregateSource.SERVER));
+                        }
+                    }
+
+                    return Tasks.whenAllSuccess(counts).continueWithTask(t -> {
+                        if (!t.isSuccessful()) {
+                            throw t.getException();
+                        }
+
+                        List<WriteBatch> batches = new ArrayList<>();
+                        int reset = 0;
+                        int i = 0;
+                        for (DocumentSnapshot event : events) {
+                            for (String name : counters) {
+                                long actual = ((AggregateQuerySnapshot) t.getResult().get(i++)).getCount();
+                                Long legacy = event.getLong(name);
+                                Long shards = sharded.get(event.getId() + "/" + name);
+                                long stored = (legacy != null ? legacy : 0L) + (shards != null ? shards : 0L);
+                                if (stored == actual) {
+                                    continue;
+                                }
+                                if (reset++ % COUNTER_RESETS_PER_BATCH == 0) {
+                                    batches.add(db.batch());
+                                }
+                                new ShardedCounter(event.getReference(), name)
+                                        .reset(batches.get(batches.size() - 1), actual);
+                            }
+                        }
+
+                        List<Task<Void>> commits = new ArrayList<>();
+                        for (WriteBatch batch : batches) {
+                            commits.add(batch.commit());
+                        }
+
+                        final int written = reset;
+                        return Tasks.whenAll(commits).continueWith(c -> {
+                            if (!c.isSuccessful()) {
+                                throw c.getException();
+                            }
+                            Log.d(TAG, "Reset " + written + " event counter(s)");
+                            return written;
+                        });
+                    });
+                });
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.yellow.utils;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Environment;
+import android.provider.MediaStore;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A new file in the device's Downloads folder that an export streams into.
+ *
+ * The file stays pending (hidden from other apps) until {@link #commit()};
+ * {@link #abort()} or closing without committing deletes it, so a failed
+ * export never leaves a half-written file behind. Writes are buffered and can
+ * be gzip-compressed.
+ */
+public final class ExportSink implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ContentResolver resolver;
+    private final Uri uri;
+    private final String mimeType;
+    private final OutputStream stream;
+    private boolean finished;
+
+    private ExportSink(ContentResolver resolver, Uri uri, String mimeType, OutputStream stream) {
+        this.resolver = resolver;
+        this.uri = uri;
+        this.mimeType = mimeType;
+        this.stream = stream;
+    }
+
+    /**
+     * Creates the file and opens it for writing.
+     *
+     * @param fileName file name, e.g. {@code "enrolled_export_abc.csv"}
+     * @param mimeType type of the uncompressed content, e.g. {@code "text/csv"}
+     * @param gzip     compress the file; {@code .gz} is added to the name
+     * @throws IOException if the file could not be created
+     */
+    @NonNull
+    public static ExportSink openDownload(@NonNull Context context, @NonNull String fileName,
+                                          @NonNull String mimeType, boolean gzip) throws IOException {
+        ContentResolver resolver = context.getApplicationContext().getContentResolver();
+        String type = gzip ? "application/gzip" : mimeType;
+
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.DISPLAY_NAME, gzip ? fileName + ".gz" : fileName);
+        values.put(MediaStore.MediaColumns.MIME_TYPE, type);
+        values.put(MediaStore.MediaColumns.RELATIVE_PATH, Environment.DIRECTORY_DOWNLOADS);
+        values.put(MediaStore.MediaColumns.IS_PENDING, 1);
+
+        Uri uri = resolver.insert(MediaStore.Downloads.EXTERNAL_CONTENT_URI, values);
+        if (uri == null)
+            throw new IOException("Failed to create file");
+
+        try {
+            OutputStream raw = resolver.openOutputStream(uri);
+            if (raw == null)
+                throw new IOException("Failed to open file");
+
+            OutputStream out = new BufferedOutputStream(raw, BUFFER_SIZE);
+            if (gzip)
+                out = new GZIPOutputStream(out, BUFFER_SIZE);
+            return new ExportSink(resolver, uri, type, out);
+        } catch (IOException | RuntimeException e) {
+            resolver.delete(uri, null, null);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the stream to write the file's content to
+     */
+    @NonNull
+    public OutputStream stream() {
+        return stream;
+    }
+
+    /**
+     * @return the file's content URI, for sharing once committed
+     */
+    @NonNull
+    public Uri getUri() {
+        return uri;
+    }
+
+    /**
+     * @return the file's MIME type
+     */
+    @NonNull
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * Finishes writing and makes the file visible.
+     */
+    public void commit() throws IOException {
+        if (finished)
+            return;
+        stream.close();
+
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.IS_PENDING, 0);
+        resolver.update(uri, values, null, null);
+        finished = true;
+    }
+
+    /**
+     * Stops writing and deletes the file.
+     */
+    public void abort() {
+        if (finished)
+            return;
+        finished = true;
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // the file is deleted anyway
+        }
+        resolver.delete(uri, null, null);
+    }
+
+    /** Deletes the file unless it was committed. */
+    @Override
+    public void close() {
+        abort();
+    }
+}
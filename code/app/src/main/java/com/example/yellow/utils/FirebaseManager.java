@@ -6,16 +6,23 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import com.example.yellow.organizers.Event;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageMetadata;
 import com.google.firebase.storage.StorageReference;
 import com.google.firebase.storage.UploadTask;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -29,11 +36,16 @@ import java.util.UUID;
  *     <li>Patch/update event fields</li>
  * </ul>
  *
+ * <p>Events are written as a summary in {@code events} plus a details document in
+ * {@code event_details} (see {@link Event}); the write helpers here keep both in
+ * step so callers never have to.</p>
+ *
  * <p>Use {@link #getInstance()} to access the singleton.</p>
  */
 public class FirebaseManager {
     private static final String TAG = "FirebaseManager";
     private static final String EVENTS_COLLECTION = "events";
+    private static final String DETAILS_COLLECTION = Event.DETAILS_COLLECTION;
     private static final String STORAGE_EVENTS_PATH = "event_posters";
 
     private final FirebaseFirestore db;
@@ -82,11 +94,11 @@ public class FirebaseManager {
                 ? currentUser.getDisplayName() : "Unknown");
         event.setCreatedAt(Timestamp.now());
 
-        db.collection(EVENTS_COLLECTION)
-                .add(event)
-                .addOnSuccessListener(documentReference -> {
-                    Log.d(TAG, "Event created with ID: " + documentReference.getId());
-                    event.setId(documentReference.getId());
+        String eventId = getNewEventId();
+        writeSummaryAndDetails(eventId, event)
+                .addOnSuccessListener(unused -> {
+                    Log.d(TAG, "Event created with ID: " + eventId);
+                    event.setId(eventId);
                     callback.onSuccess(event);
                 })
                 .addOnFailureListener(e -> {
@@ -133,6 +145,82 @@ public class FirebaseManager {
         ).addOnFailureListener(callback::onFailure);
     }
 
+    /**
+     * Uploads already-compressed poster bytes to {@code event_posters} in Storage.
+     *
+     * @param jpeg             the JPEG bytes (see {@link PosterUtils#compressForUpload})
+     * @param filename         object name under {@code event_posters}; a random name is
+     *                         used when {@code null}
+     * @param progressCallback upload progress callback (may be {@code null})
+     * @return task resolving to the poster's download URL
+     */
+    public Task<Uri> uploadPosterBytes(@NonNull byte[] jpeg, String filename,
+                                       UploadProgressCallback progressCallback) {
+        return uploadPosterBytes(jpeg, filename, "image/jpeg", progressCallback);
+    }
+
+    /**
+     * Uploads poster bytes of any image type to {@code event_posters} in Storage.
+     *
+     * @param bytes            the encoded image
+     * @param filename         object name under {@code event_posters}; a random name
+     *                         with the type's extension is used when {@code null}
+     * @param contentType      the image's MIME type, e.g. {@code image/png}
+     * @param progressCallback upload progress callback (may be {@code null})
+     * @return task resolving to the poster's download URL
+     */
+    public Task<Uri> uploadPosterBytes(@NonNull byte[] bytes, String filename, @NonNull String contentType,
+                                       UploadProgressCallback progressCallback) {
+        StorageReference imageRef = storage.getReference()
+                .child(STORAGE_EVENTS_PATH)
+                .child(filename != null ? filename
+                        : UUID.randomUUID().toString() + "." + PosterUtils.extensionOfMime(contentType));
+
+        StorageMetadata metadata = new StorageMetadata.Builder()
+                .setContentType(contentType)
+                .build();
+
+        UploadTask uploadTask = imageRef.putBytes(bytes, metadata);
+        if (progressCallback != null) {
+            uploadTask.addOnProgressListener(taskSnapshot -> {
+                double progress = (100.0 * taskSnapshot.getBytesTransferred())
+                        / Math.max(1, taskSnapshot.getTotalByteCount());
+                progressCallback.onProgress((int) progress);
+            });
+        }
+
+        return uploadTask.continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            return imageRef.getDownloadUrl();
+        });
+    }
+
+    /**
+     * Deletes a poster that a newer upload replaced. Values that aren't
+     * Firebase Storage URLs (inline data URIs, external links) are left alone,
+     * and a failed delete is only logged: the new poster is already saved.
+     *
+     * @param url the replaced {@code posterImageUrl}, may be {@code null}
+     * @return task that always succeeds
+     */
+    public Task<Void> deleteReplacedPoster(String url) {
+        if (url == null || !(url.startsWith("gs://") || url.startsWith("https://firebasestorage.googleapis.com/")))
+            return Tasks.forResult(null);
+        StorageReference ref;
+        try {
+            ref = storage.getReferenceFromUrl(url);
+        } catch (IllegalArgumentException e) {
+            return Tasks.forResult(null);
+        }
+        return ref.delete().continueWith(task -> {
+            if (!task.isSuccessful())
+                Log.w(TAG, "Could not delete replaced poster " + ref.getPath(), task.getException());
+            return null;
+        });
+    }
+
     /**
      * Loads all events ordered by start date.
      *
@@ -163,7 +251,9 @@ public class FirebaseManager {
     }
 
     /**
-     * Partially updates fields on an existing event document.
+     * Partially updates fields on an existing event. Fields that live on the
+     * details document (see {@link Event#isDetailsField(String)}) are routed there,
+     * and a changed description also refreshes the summary's preview.
      *
      * @param docId   the document ID to update
      * @param patch   map of fields to update
@@ -174,10 +264,31 @@ public class FirebaseManager {
                             @NonNull SimpleCallback cb) {
         Log.d("FirebaseUpdate", "Updating /events/" + docId + " with: " + patch);
 
-        FirebaseFirestore.getInstance()
-                .collection(EVENTS_COLLECTION)
-                .document(docId)
-                .update(patch)
+        Map<String, Object> summaryPatch = new HashMap<>();
+        Map<String, Object> detailsPatch = new HashMap<>();
+        for (Map.Entry<String, Object> e : patch.entrySet()) {
+            if (Event.isDetailsField(e.getKey())) {
+                detailsPatch.put(e.getKey(), e.getValue());
+            } else {
+                summaryPatch.put(e.getKey(), e.getValue());
+            }
+        }
+        if (patch.containsKey("description")) {
+            Object d = patch.get("description");
+            summaryPatch.put("descriptionPreview", d instanceof String ? Event.previewOf((String) d) : null);
+            summaryPatch.put("searchTokens", d instanceof String ? Event.searchTokensOf((String) d) : null);
+        }
+
+        // Every edit bumps the summary so cached lists pick it up on their next delta refresh
+        summaryPatch.put("updatedAt", FieldValue.serverTimestamp());
+
+        WriteBatch batch = db.batch();
+        batch.update(db.collection(EVENTS_COLLECTION).document(docId), summaryPatch);
+        if (!detailsPatch.isEmpty()) {
+            batch.set(db.collection(DETAILS_COLLECTION).document(docId), detailsPatch, SetOptions.merge());
+        }
+
+        batch.commit()
                 .addOnSuccessListener(unused -> {
                     Log.d("FirebaseUpdate", "Update success for /events/" + docId);
                     cb.onSuccess();
@@ -227,7 +338,8 @@ public class FirebaseManager {
                 // 3. Once we have the new URL, update the Firestore document
                 Uri downloadUri = task.getResult();
                 db.collection(EVENTS_COLLECTION).document(eventId)
-                        .update("posterImageUrl", downloadUri.toString())
+                        .update("posterImageUrl", downloadUri.toString(),
+                                "updatedAt", FieldValue.serverTimestamp())
                         .addOnSuccessListener(aVoid -> {
                             Log.d(TAG, "Event poster updated successfully for event: " + eventId);
                             callback.onSuccess();
@@ -319,10 +431,26 @@ public class FirebaseManager {
         return db.collection("events").document().getId();
     }
 
+    /**
+     * Writes an event under a known ID, as a summary plus details document.
+     *
+     * @param eventId  the document ID to write
+     * @param event    the event to store
+     * @param callback callback for success or failure
+     */
     public void setEvent(String eventId, Event event, SimpleCallback callback) {
-        db.collection("events").document(eventId)
-                .set(event)
+        writeSummaryAndDetails(eventId, event)
                 .addOnSuccessListener(aVoid -> callback.onSuccess())
                 .addOnFailureListener(e -> callback.onFailure(e));
     }
+
+    /**
+     * Atomically writes {@code events/{id}} and {@code event_details/{id}}.
+     */
+    private Task<Void> writeSummaryAndDetails(String eventId, Event event) {
+        WriteBatch batch = db.batch();
+        batch.set(db.collection(EVENTS_COLLECTION).document(eventId), event.toSummaryMap());
+        batch.set(db.collection(DETAILS_COLLECTION).document(eventId), event.toDetailsMap());
+        return batch.commit();
+    }
 }
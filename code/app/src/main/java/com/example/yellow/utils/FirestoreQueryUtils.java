@@ -0,0 +1,161 @@
+package com.example.yellow.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helpers for Firestore queries that have to be split to stay within query
+ * limits.
+ */
+public final class FirestoreQueryUtils {
+
+    /** Firestore allows at most 30 values in an {@code in} / {@code whereIn} filter. */
+    public static final int MAX_IN_VALUES = 30;
+
+    private FirestoreQueryUtils() {
+    }
+
+    /**
+     * Receives one page of {@link #forEachPage} results.
+     */
+    public interface PageHandler {
+        /**
+         * @param page the page's documents, never empty
+         * @return task that completes once the page has been handled; the
+         *         next page is only read after it succeeds
+         */
+        @NonNull
+        Task<Void> onPage(@NonNull List<DocumentSnapshot> page);
+    }
+
+    /**
+     * Reads every result of {@code ordered} one page at a time, using the last
+     * document of each page as the {@code startAfter} cursor of the next, so
+     * only one page is held in memory at once.
+     *
+     * @param ordered  query with an {@code orderBy} that gives a stable order
+     * @param pageSize documents per page (must be positive)
+     * @param handler  called for each page, in order
+     * @return task resolving to the number of documents read; fails with the
+     *         first read or handler failure
+     */
+    @NonNull
+    public static Task<Integer> forEachPage(@NonNull Query ordered, int pageSize,
+                                            @NonNull PageHandler handler) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        return readPage(ordered, null, pageSize, handler, 0);
+    }
+
+    private static Task<Integer> readPage(Query ordered, @Nullable DocumentSnapshot after, int pageSize,
+                                          PageHandler handler, int readSoFar) {
+        Query q = after == null ? ordered : ordered.startAfter(after);
+        return q.limit(pageSize).get().continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            List<DocumentSnapshot> docs = task.getResult().getDocuments();
+            if (docs.isEmpty()) {
+                return Tasks.forResult(readSoFar);
+            }
+
+            int read = readSoFar + docs.size();
+            DocumentSnapshot last = docs.get(docs.size() - 1);
+            boolean more = docs.size() >= pageSize;
+            return handler.onPage(docs).continueWithTask(handled -> {
+                if (!handled.isSuccessful()) {
+                    throw handled.getException();
+                }
+                return more
+                        ? readPage(ordered, last, pageSize, handler, read)
+                        : Tasks.forResult(read);
+            });
+        });
+    }
+
+    /**
+     * Splits a list into consecutive sublists of at most {@code size} items.
+     *
+     * @param items the items to split
+     * @param size  maximum chunk size (must be positive)
+     * @return the chunks, in order; empty if {@code items} is empty
+     */
+    @NonNull
+    public static <T> List<List<T>> chunk(@NonNull List<T> items, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            chunks.add(new ArrayList<>(items.subList(i, Math.min(i + size, items.size()))));
+        }
+        return chunks;
+    }
+
+    /**
+     * Fetches documents by ID with {@code whereIn(documentId())} queries of at
+     * most {@link #MAX_IN_VALUES} IDs each, run in parallel.
+     *
+     * @param collection the collection to read from
+     * @param ids        document IDs; IDs with no document are simply absent from the result
+     * @return task resolving to the documents found
+     */
+    @NonNull
+    public static Task<List<DocumentSnapshot>> getDocumentsByIds(@NonNull CollectionReference collection,
+                                                                 @NonNull List<String> ids) {
+        return getDocumentsByIds(collection, ids, null);
+    }
+
+    /**
+     * Like {@link #getDocumentsByIds(CollectionReference, List)}, but only
+     * returns documents whose {@code updatedAt} is after {@code updatedAfter},
+     * for delta refreshes of a cached list.
+     *
+     * @param collection   the collection to read from
+     * @param ids          document IDs
+     * @param updatedAfter exclusive lower bound on {@code updatedAt}; null for no bound
+     * @return task resolving to the documents found
+     */
+    @NonNull
+    public static Task<List<DocumentSnapshot>> getDocumentsByIds(@NonNull CollectionReference collection,
+                                                                 @NonNull List<String> ids,
+                                                                 @Nullable Timestamp updatedAfter) {
+        if (ids.isEmpty()) {
+            return Tasks.forResult(Collections.emptyList());
+        }
+
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (List<String> part : chunk(ids, MAX_IN_VALUES)) {
+            Query q = collection.whereIn(FieldPath.documentId(), part);
+            if (updatedAfter != null) {
+                q = q.whereGreaterThan("updatedAt", updatedAfter);
+            }
+            queries.add(q.get());
+        }
+
+        return Tasks.whenAllSuccess(queries).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            List<DocumentSnapshot> docs = new ArrayList<>();
+            for (Object result : task.getResult()) {
+                docs.addAll(((QuerySnapshot) result).getDocuments());
+            }
+            return docs;
+        });
+    }
+}
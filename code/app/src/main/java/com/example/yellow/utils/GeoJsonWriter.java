@@ -0,0 +1,136 @@
+package com.example.yellow.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Streams a GeoJSON (RFC 7946) FeatureCollection of points, one feature at a
+ * time, so large collections never have to be built in memory.
+ *
+ * Call {@link #begin()}, then {@link #writePoint} for each feature, then
+ * {@link #end()}. Not thread-safe.
+ */
+public final class GeoJsonWriter implements Closeable, Flushable {
+
+    private final Writer out;
+    private int features;
+
+    /**
+     * @param out where to write; buffered and encoded as UTF-8
+     */
+    public GeoJsonWriter(@NonNull OutputStream out) {
+        this(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param out where to write; should already be buffered
+     */
+    public GeoJsonWriter(@NonNull Writer out) {
+        this.out = out;
+    }
+
+    /** Opens the FeatureCollection. */
+    public void begin() throws IOException {
+        out.write("{\"type\":\"FeatureCollection\",\"features\":[");
+    }
+
+    /**
+     * Writes one Point feature.
+     *
+     * @param latitude   WGS 84 latitude
+     * @param longitude  WGS 84 longitude
+     * @param properties string properties; null values are written as JSON null
+     */
+    public void writePoint(double latitude, double longitude,
+                           @NonNull Map<String, String> properties) throws IOException {
+        if (features++ > 0)
+            out.write(',');
+
+        // GeoJSON positions are [longitude, latitude]
+        out.write("\n{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[");
+        out.write(Double.toString(longitude));
+        out.write(',');
+        out.write(Double.toString(latitude));
+        out.write("]},\"properties\":{");
+
+        boolean first = true;
+        for (Map.Entry<String, String> p : properties.entrySet()) {
+            if (!first)
+                out.write(',');
+            first = false;
+            out.write(quote(p.getKey()));
+            out.write(':');
+            out.write(p.getValue() != null ? quote(p.getValue()) : "null");
+        }
+        out.write("}}");
+    }
+
+    /** Closes the FeatureCollection. */
+    public void end() throws IOException {
+        out.write("\n]}\n");
+    }
+
+    /**
+     * @return the number of features written so far
+     */
+    public int getFeatureCount() {
+        return features;
+    }
+
+    /**
+     * @return {@code s} as a JSON string literal
+     */
+    @NonNull
+    static String quote(@Nullable String s) {
+        if (s == null)
+            return "null";
+
+        StringBuilder b = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    b.append("\\\"");
+                    break;
+                case '\\':
+                    b.append("\\\\");
+                    break;
+                case '\n':
+                    b.append("\\n");
+                    break;
+                case '\r':
+                    b.append("\\r");
+                    break;
+                case '\t':
+                    b.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                        b.append(String.format("\\u%04x", (int) c));
+                    else
+                        b.append(c);
+            }
+        }
+        return b.append('"').toString();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
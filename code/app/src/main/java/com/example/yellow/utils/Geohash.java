@@ -0,0 +1,153 @@
+package com.example.yellow.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Geohash encoding, and the prefixes that cover a map viewport.
+ *
+ * A geohash interleaves longitude and latitude bits into base-32 characters,
+ * so points in the same cell share a prefix and sort next to each other.
+ * Storing one with each located waiting-list entry lets the map read just the
+ * entries in view with a few range queries on that field
+ * ({@link #rangeEnd(String)}).
+ */
+public final class Geohash {
+
+    /** Field written on located waitingList entries. */
+    public static final String FIELD = "geohash";
+
+    /** Characters stored per entry; about 1 m cells. */
+    public static final int STORED_PRECISION = 10;
+
+    /** Most prefixes {@link #coveringPrefixes} returns for a viewport. */
+    public static final int MAX_PREFIXES = 9;
+
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+
+    private Geohash() {
+    }
+
+    /**
+     * @param precision number of characters, 1 to 12
+     * @return the geohash of the point
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean lngBit = true;
+        int bits = 0;
+        int ch = 0;
+        while (hash.length() < precision) {
+            if (lngBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch <<= 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch <<= 1;
+                    maxLat = mid;
+                }
+            }
+            lngBit = !lngBit;
+            if (++bits == 5) {
+                hash.append(BASE32.charAt(ch));
+                bits = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /** Cell height in degrees at a precision. */
+    static double cellHeight(int precision) {
+        return 180 / Math.pow(2, (5 * precision) / 2);
+    }
+
+    /** Cell width in degrees at a precision. */
+    static double cellWidth(int precision) {
+        return 360 / Math.pow(2, (5 * precision + 1) / 2);
+    }
+
+    /**
+     * Picks the finest precision whose cells are at least half the viewport
+     * on each side, so at most 3 x 3 cells cover it.
+     */
+    public static int precisionFor(double latSpan, double lngSpan) {
+        int precision = 1;
+        while (precision < STORED_PRECISION
+                && cellHeight(precision + 1) * 2 >= latSpan
+                && cellWidth(precision + 1) * 2 >= lngSpan) {
+            precision++;
+        }
+        return precision;
+    }
+
+    /**
+     * Returns the geohash prefixes whose cells together cover a viewport, at
+     * the precision from {@link #precisionFor}; at most {@link #MAX_PREFIXES}.
+     * When even single-character cells would take more, the result is the
+     * empty prefix alone, which matches every geohash.
+     * A viewport that crosses the antimeridian has {@code west > east}.
+     */
+    public static List<String> coveringPrefixes(double south, double west, double north, double east) {
+        double lngSpan = west <= east ? east - west : 360 - west + east;
+        int precision = precisionFor(north - south, lngSpan);
+
+        Set<String> prefixes = new LinkedHashSet<>();
+        while (true) {
+            prefixes.clear();
+            if (west <= east) {
+                addCells(prefixes, precision, south, west, north, east);
+            } else {
+                addCells(prefixes, precision, south, west, north, 180);
+                addCells(prefixes, precision, south, -180, north, east);
+            }
+            // The wrap can double the cells; coarsen until it fits
+            if (prefixes.size() <= MAX_PREFIXES)
+                return new ArrayList<>(prefixes);
+            if (precision == 1) {
+                // Near-whole-world views: one range that matches every geohash
+                List<String> all = new ArrayList<>();
+                all.add("");
+                return all;
+            }
+            precision--;
+        }
+    }
+
+    private static void addCells(Set<String> out, int precision,
+                                 double south, double west, double north, double east) {
+        double h = cellHeight(precision);
+        double w = cellWidth(precision);
+        south = Math.max(-90, south);
+        north = Math.min(90, north);
+        // Step through cell centres from the cell holding the south-west corner
+        for (double lat = Math.floor((south + 90) / h) * h - 90 + h / 2; lat - h / 2 <= north; lat += h) {
+            for (double lng = Math.floor((west + 180) / w) * w - 180 + w / 2; lng - w / 2 <= east; lng += w) {
+                out.add(encode(Math.min(lat, 90 - h / 2), Math.min(lng, 180 - w / 2), precision));
+            }
+        }
+    }
+
+    /**
+     * @return the exclusive upper bound of a range query matching every
+     *         geohash that starts with {@code prefix}
+     */
+    public static String rangeEnd(String prefix) {
+        // '~' sorts after every base-32 character
+        return prefix + "~";
+    }
+}
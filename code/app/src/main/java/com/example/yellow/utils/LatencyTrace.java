@@ -0,0 +1,66 @@
+package com.example.yellow.utils;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times one asynchronous operation, e.g. a Firestore transaction, from the
+ * moment the user triggers it to the moment its result arrives.
+ *
+ * The duration is logged under {@link #TAG}, and on Android 10+ it also shows
+ * up as an async section in system traces (Perfetto / Android Studio
+ * profiler), so slow runs can be lined up with what the app was doing.
+ */
+public final class LatencyTrace {
+
+    public static final String TAG = "Latency";
+
+    private static final AtomicInteger COOKIES = new AtomicInteger();
+
+    private final String name;
+    private final int cookie;
+    private final long startedAt;
+    private boolean stopped;
+
+    private LatencyTrace(String name) {
+        this.name = name;
+        this.cookie = COOKIES.incrementAndGet();
+        this.startedAt = SystemClock.elapsedRealtime();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(name, cookie);
+        }
+    }
+
+    /**
+     * @param name short operation name, e.g. {@code "accept_selection"}
+     */
+    @NonNull
+    public static LatencyTrace start(@NonNull String name) {
+        return new LatencyTrace(name);
+    }
+
+    /**
+     * Ends the trace. Only the first call has any effect.
+     *
+     * @param outcome how the operation ended, e.g. {@code "ok"} or {@code "full"}
+     * @return elapsed milliseconds
+     */
+    public long stop(@NonNull String outcome) {
+        long elapsed = SystemClock.elapsedRealtime() - startedAt;
+        if (stopped)
+            return elapsed;
+        stopped = true;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(name, cookie);
+        }
+        Log.d(TAG, name + " " + outcome + " in " + elapsed + " ms");
+        return elapsed;
+    }
+}
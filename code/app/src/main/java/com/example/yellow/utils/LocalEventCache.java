@@ -0,0 +1,297 @@
+package com.example.yellow.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.yellow.organizers.Event;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device SQLite copy of the event lists a user opens most: their history
+ * and the events they organize. Screens render from it immediately and then
+ * refresh it in the background, so repeat visits don't wait on the network
+ * and still show something with poor signal.
+ *
+ * Only the summary fields shown on event cards are kept. All database work
+ * runs on a single background thread.
+ */
+public class LocalEventCache {
+
+    /** Events the user has participated in (History screen). */
+    public static final String LIST_HISTORY = "history";
+    /** Events the user organizes (My Events screen). */
+    public static final String LIST_MY_EVENTS = "my_events";
+
+    /** After this long, screens do a full reload instead of a delta refresh. */
+    public static final long FULL_REFRESH_INTERVAL_MS = 24L * 60 * 60 * 1000;
+
+    private static final String DB_NAME = "event_cache.db";
+    private static final int DB_VERSION = 1;
+
+    private static final String T_EVENTS = "cached_events";
+    private static final String T_SYNC = "sync_state";
+
+    private static LocalEventCache instance;
+
+    private final Helper helper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Cached rows for one list plus when it was last fully reloaded.
+     */
+    public static class Snapshot {
+        public final List<Event> events;
+        /** Device time of the last full reload, or 0 if there has been none. */
+        public final long fullSyncAtMillis;
+
+        public Snapshot(List<Event> events, long fullSyncAtMillis) {
+            this.events = events;
+            this.fullSyncAtMillis = fullSyncAtMillis;
+        }
+
+        /**
+         * @return the newest server {@code updatedAt} among the rows, the
+         *         lower bound for a delta query; null if none is known
+         */
+        @Nullable
+        public Timestamp newestUpdate() {
+            Timestamp newest = null;
+            for (Event e : events) {
+                Timestamp t = e.getUpdatedAt();
+                if (t != null && (newest == null || t.compareTo(newest) > 0))
+                    newest = t;
+            }
+            return newest;
+        }
+
+        /**
+         * @return whether a delta refresh can be trusted, i.e. the list was
+         *         fully reloaded recently and has a known {@code updatedAt}
+         */
+        public boolean canRefreshDelta(long nowMillis) {
+            return fullSyncAtMillis > 0
+                    && nowMillis - fullSyncAtMillis < FULL_REFRESH_INTERVAL_MS
+                    && newestUpdate() != null;
+        }
+    }
+
+    private LocalEventCache(@NonNull Context context) {
+        helper = new Helper(context.getApplicationContext());
+    }
+
+    /**
+     * Returns the shared cache.
+     *
+     * @param context any context; the application context is retained
+     * @return the {@link LocalEventCache} instance
+     */
+    public static synchronized LocalEventCache getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new LocalEventCache(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Reads a cached list.
+     *
+     * @param list  {@link #LIST_HISTORY} or {@link #LIST_MY_EVENTS}
+     * @param owner user ID the list belongs to
+     * @return task resolving to the cached rows, ordered by start date
+     */
+    public Task<Snapshot> load(@NonNull String list, @NonNull String owner) {
+        return Tasks.call(executor, () -> {
+            SQLiteDatabase db = helper.getReadableDatabase();
+            List<Event> events = new ArrayList<>();
+            try (Cursor c = db.query(T_EVENTS, null, "list = ? AND owner = ?",
+                    new String[] { list, owner }, null, null, "start_ms IS NULL, start_ms")) {
+                while (c.moveToNext()) {
+                    events.add(fromRow(c));
+                }
+            }
+
+            long syncedAt = 0;
+            try (Cursor c = db.query(T_SYNC, new String[] { "full_sync_ms" }, "list = ? AND owner = ?",
+                    new String[] { list, owner }, null, null, null)) {
+                if (c.moveToFirst())
+                    syncedAt = c.getLong(0);
+            }
+            return new Snapshot(Collections.unmodifiableList(events), syncedAt);
+        });
+    }
+
+    /**
+     * Replaces a cached list with {@code events}.
+     *
+     * @param list       {@link #LIST_HISTORY} or {@link #LIST_MY_EVENTS}
+     * @param owner      user ID the list belongs to
+     * @param events     the full, current contents of the list
+     * @param fullReload true if {@code events} came from a full reload rather
+     *                   than a delta merged onto older rows
+     * @return task completing when written
+     */
+    public Task<Void> replace(@NonNull String list, @NonNull String owner,
+                              @NonNull List<Event> events, boolean fullReload) {
+        List<Event> copy = new ArrayList<>(events);
+        return Tasks.call(executor, () -> {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                db.delete(T_EVENTS, "list = ? AND owner = ?", new String[] { list, owner });
+                for (Event e : copy) {
+                    if (e.getId() == null)
+                        continue;
+                    ContentValues row = toRow(e);
+                    row.put("list", list);
+                    row.put("owner", owner);
+                    db.insertWithOnConflict(T_EVENTS, null, row, SQLiteDatabase.CONFLICT_REPLACE);
+                }
+                if (fullReload) {
+                    ContentValues sync = new ContentValues();
+                    sync.put("list", list);
+                    sync.put("owner", owner);
+                    sync.put("full_sync_ms", System.currentTimeMillis());
+                    db.insertWithOnConflict(T_SYNC, null, sync, SQLiteDatabase.CONFLICT_REPLACE);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Drops everything cached for a user, e.g. on sign-out or account deletion.
+     *
+     * @param owner user ID
+     * @return task completing when cleared
+     */
+    public Task<Void> clear(@NonNull String owner) {
+        return Tasks.call(executor, () -> {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.delete(T_EVENTS, "owner = ?", new String[] { owner });
+            db.delete(T_SYNC, "owner = ?", new String[] { owner });
+            return null;
+        });
+    }
+
+    /**
+     * Sorts events the way {@link #load} returns them: by start date, undated last.
+     */
+    public static void sortByStartDate(@NonNull List<Event> events) {
+        Collections.sort(events, (a, b) -> {
+            Timestamp x = a.getStartDate();
+            Timestamp y = b.getStartDate();
+            if (x == null || y == null)
+                return x == null ? (y == null ? 0 : 1) : -1;
+            return x.compareTo(y);
+        });
+    }
+
+    private static ContentValues toRow(Event e) {
+        ContentValues v = new ContentValues();
+        v.put("event_id", e.getId());
+        v.put("name", e.getName());
+        v.put("description_preview", e.getDescriptionPreview());
+        v.put("location", e.getLocation());
+        v.put("poster_url", e.getPosterImageUrl());
+        v.put("organizer_id", e.getOrganizerId());
+        v.put("organizer_name", e.getOrganizerName());
+        v.put("reg_start_ms", millis(e.getRegistrationStartDate()));
+        v.put("reg_end_ms", millis(e.getRegistrationEndDate()));
+        v.put("start_ms", millis(e.getStartDate()));
+        v.put("end_ms", millis(e.getEndDate()));
+        v.put("updated_ms", millis(e.getUpdatedAt()));
+        return v;
+    }
+
+    private static Event fromRow(Cursor c) {
+        Event e = new Event();
+        e.setId(string(c, "event_id"));
+        e.setName(string(c, "name"));
+        e.setDescriptionPreview(string(c, "description_preview"));
+        e.setLocation(string(c, "location"));
+        e.setPosterImageUrl(string(c, "poster_url"));
+        e.setOrganizerId(string(c, "organizer_id"));
+        e.setOrganizerName(string(c, "organizer_name"));
+        e.setRegistrationStartDate(timestamp(c, "reg_start_ms"));
+        e.setRegistrationEndDate(timestamp(c, "reg_end_ms"));
+        e.setStartDate(timestamp(c, "start_ms"));
+        e.setEndDate(timestamp(c, "end_ms"));
+        e.setUpdatedAt(timestamp(c, "updated_ms"));
+        return e;
+    }
+
+    @Nullable
+    private static Long millis(@Nullable Timestamp t) {
+        return t == null ? null : t.toDate().getTime();
+    }
+
+    @Nullable
+    private static String string(Cursor c, String column) {
+        int i = c.getColumnIndexOrThrow(column);
+        return c.isNull(i) ? null : c.getString(i);
+    }
+
+    @Nullable
+    private static Timestamp timestamp(Cursor c, String column) {
+        int i = c.getColumnIndexOrThrow(column);
+        return c.isNull(i) ? null : new Timestamp(new Date(c.getLong(i)));
+    }
+
+    private static class Helper extends SQLiteOpenHelper {
+
+        Helper(Context context) {
+            super(context, DB_NAME, null, DB_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + T_EVENTS + " ("
+                    + "list TEXT NOT NULL, "
+                    + "owner TEXT NOT NULL, "
+                    + "event_id TEXT NOT NULL, "
+                    + "name TEXT, "
+                    + "description_preview TEXT, "
+                    + "location TEXT, "
+                    + "poster_url TEXT, "
+                    + "organizer_id TEXT, "
+                    + "organizer_name TEXT, "
+                    + "reg_start_ms INTEGER, "
+                    + "reg_end_ms INTEGER, "
+                    + "start_ms INTEGER, "
+                    + "end_ms INTEGER, "
+                    + "updated_ms INTEGER, "
+                    + "PRIMARY KEY (list, owner, event_id))");
+            db.execSQL("CREATE TABLE " + T_SYNC + " ("
+                    + "list TEXT NOT NULL, "
+                    + "owner TEXT NOT NULL, "
+                    + "full_sync_ms INTEGER NOT NULL, "
+                    + "PRIMARY KEY (list, owner))");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // Only a cache: rebuild from the server rather than migrate
+            db.execSQL("DROP TABLE IF EXISTS " + T_EVENTS);
+            db.execSQL("DROP TABLE IF EXISTS " + T_SYNC);
+            onCreate(db);
+        }
+    }
+}
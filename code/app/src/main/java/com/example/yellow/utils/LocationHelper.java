@@ -4,49 +4,75 @@ import android.Manifest;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.location.Location;
-import android.os.Looper;
+import android.os.SystemClock;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultCaller;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 
+import com.google.android.gms.location.CurrentLocationRequest;
 import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationCallback;
-import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
-
-import java.util.function.Consumer;
+import com.google.android.gms.tasks.CancellationTokenSource;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
 
 /**
  * Helper class to get the user's current location, handling runtime permission.
  * IMPORTANT: The ActivityResult registration is done against an ActivityResultCaller,
  * which should be the Fragment (not the Activity). That avoids the "register while
  * RESUMED" crash.
+ *
+ * A fix is taken from the last known location when it is recent and accurate
+ * enough (see {@link #setMaxAgeMillis} and {@link #setMaxAccuracyMeters}),
+ * otherwise from a single balanced-power request that gives up after
+ * {@link #setTimeoutMillis}. Callers that know they may need a location can
+ * {@link #prefetch()} it while they do other work.
  */
 public class LocationHelper {
 
+    /** Default oldest last-known fix that is still accepted. */
+    public static final long DEFAULT_MAX_AGE_MS = 2 * 60 * 1000;
+
+    /** Default worst last-known fix accuracy that is still accepted. */
+    public static final float DEFAULT_MAX_ACCURACY_M = 100f;
+
+    /** Default time to wait for a fresh fix. */
+    public static final long DEFAULT_TIMEOUT_MS = 10_000;
+
     private final Context context;
     private final FusedLocationProviderClient fusedLocationClient;
     private final ActivityResultLauncher<String> requestPermissionLauncher;
-    private final Consumer<Location> onLocationResult;
+
+    private long maxAgeMs = DEFAULT_MAX_AGE_MS;
+    private float maxAccuracyM = DEFAULT_MAX_ACCURACY_M;
+    private long timeoutMs = DEFAULT_TIMEOUT_MS;
+
+    // the fetch in progress (or the last successful one), shared by all callers
+    // while it is running or its fix is within maxAgeMs
+    @Nullable
+    private Task<Location> current;
+    // completed by the permission dialog result
+    @Nullable
+    private TaskCompletionSource<Location> awaitingPermission;
+    @Nullable
+    private CancellationTokenSource cancellation;
 
     /**
      * Constructor.
      * @param caller: ActivityResultCaller (Fragment)
      * @param context: Context
-     * @param onLocationResult: Callback for the location
      */
     public LocationHelper(@NonNull ActivityResultCaller caller,
-                          @NonNull Context context,
-                          @NonNull Consumer<Location> onLocationResult) {
+                          @NonNull Context context) {
 
         this.context = context;
-        this.onLocationResult = onLocationResult;
         this.fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
 
         // Register for the permission result with the Fragment (caller), not the Activity.
@@ -54,69 +80,170 @@ public class LocationHelper {
                 caller.registerForActivityResult(
                         new ActivityResultContracts.RequestPermission(),
                         isGranted -> {
+                            TaskCompletionSource<Location> source = awaitingPermission;
+                            awaitingPermission = null;
+                            if (source == null)
+                                return;
                             if (isGranted) {
-                                requestLocationUpdates();
+                                acquire().addOnCompleteListener(t ->
+                                        source.setResult(t.isSuccessful() ? t.getResult() : null));
                             } else {
                                 Toast.makeText(
                                         context,
                                         "Location permission is required for this feature.",
                                         Toast.LENGTH_LONG
                                 ).show();
-                                this.onLocationResult.accept(null);
+                                source.setResult(null);
                             }
                         }
                 );
     }
 
     /**
-     * Public entry point – call this to start the "get location" flow.
+     * @param maxAgeMs oldest last-known fix to accept, in milliseconds
+     * @return this helper
      */
-    public void getCurrentLocation() {
-        if (ContextCompat.checkSelfPermission(
-                context,
-                Manifest.permission.ACCESS_FINE_LOCATION
-        ) == PackageManager.PERMISSION_GRANTED) {
+    @NonNull
+    public LocationHelper setMaxAgeMillis(long maxAgeMs) {
+        this.maxAgeMs = maxAgeMs;
+        return this;
+    }
+
+    /**
+     * @param maxAccuracyM worst last-known fix accuracy to accept, in meters
+     * @return this helper
+     */
+    @NonNull
+    public LocationHelper setMaxAccuracyMeters(float maxAccuracyM) {
+        this.maxAccuracyM = maxAccuracyM;
+        return this;
+    }
+
+    /**
+     * @param timeoutMs how long to wait for a fresh fix, in milliseconds
+     * @return this helper
+     */
+    @NonNull
+    public LocationHelper setTimeoutMillis(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        return this;
+    }
+
+    /**
+     * Starts getting a location in the background if permission has already
+     * been granted; never shows the permission dialog. A later
+     * {@link #getCurrentLocation()} picks up the result.
+     */
+    public void prefetch() {
+        if (hasPermission() && !isReusable(current)) {
+            current = acquire();
+        }
+    }
+
+    /**
+     * Public entry point – call this to start the "get location" flow, asking
+     * for permission if needed.
+     *
+     * @return task resolving to the location, or to null if permission was
+     *         denied or no fix arrived in time; never fails
+     */
+    @NonNull
+    public Task<Location> getCurrentLocation() {
+        if (isReusable(current)) {
+            // Already fetching, or already have a recent fix
+            return current;
+        }
+
+        if (hasPermission()) {
             // Permission already granted, go straight to location request
-            requestLocationUpdates();
+            current = acquire();
         } else {
             // Ask for permission
-            requestPermissionLauncher.launch(Manifest.permission.ACCESS_FINE_LOCATION);
+            if (awaitingPermission == null) {
+                awaitingPermission = new TaskCompletionSource<>();
+                requestPermissionLauncher.launch(Manifest.permission.ACCESS_FINE_LOCATION);
+            }
+            current = awaitingPermission.getTask();
+        }
+        return current;
+    }
+
+    /** Stops a fresh-fix request in progress, e.g. when the screen goes away. */
+    public void cancel() {
+        if (cancellation != null) {
+            cancellation.cancel();
+            cancellation = null;
         }
     }
 
     /**
-     * Internal helper that actually requests a single high-accuracy location update.
+     * @return whether {@code fetch} is still running or resolved to a fix that
+     *         is no older than {@link #setMaxAgeMillis}; its accuracy was already
+     *         accepted when it arrived
+     */
+    private boolean isReusable(@Nullable Task<Location> fetch) {
+        if (fetch == null)
+            return false;
+        if (!fetch.isComplete())
+            return true;
+        return fetch.isSuccessful()
+                && isUsable(fetch.getResult(), SystemClock.elapsedRealtimeNanos(), maxAgeMs, Float.MAX_VALUE);
+    }
+
+    private boolean hasPermission() {
+        return ContextCompat.checkSelfPermission(
+                context,
+                Manifest.permission.ACCESS_FINE_LOCATION
+        ) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /**
+     * Internal helper: a recent enough last-known fix, or else a single
+     * balanced-power fix with a timeout. Resolves to null rather than failing.
      */
-    private void requestLocationUpdates() {
+    private Task<Location> acquire() {
         try {
-            LocationRequest locationRequest = LocationRequest.create()
-                    .setPriority(Priority.PRIORITY_HIGH_ACCURACY)
-                    .setInterval(5000)
-                    .setFastestInterval(2000)
-                    .setNumUpdates(1); // One-shot location
-
-            LocationCallback locationCallback = new LocationCallback() {
-                @Override
-                public void onLocationResult(LocationResult locationResult) {
-                    if (locationResult == null || locationResult.getLastLocation() == null) {
-                        onLocationResult.accept(null);
-                        return;
-                    }
-                    // Report success by passing the location to the callback
-                    onLocationResult.accept(locationResult.getLastLocation());
-                    // Stop listening for updates to save battery
-                    fusedLocationClient.removeLocationUpdates(this);
+            return fusedLocationClient.getLastLocation().continueWithTask(last -> {
+                Location known = last.isSuccessful() ? last.getResult() : null;
+                if (isUsable(known, SystemClock.elapsedRealtimeNanos(), maxAgeMs, maxAccuracyM)) {
+                    return Tasks.forResult(known);
                 }
-            };
-
-            fusedLocationClient.requestLocationUpdates(
-                    locationRequest,
-                    locationCallback,
-                    Looper.getMainLooper()
-            );
+                return requestFreshFix();
+            }).continueWith(t -> t.isSuccessful() ? t.getResult() : null);
         } catch (SecurityException e) {
             // This should not happen if permission check is correct
-            onLocationResult.accept(null);
+            return Tasks.forResult(null);
+        }
+    }
+
+    private Task<Location> requestFreshFix() {
+        CurrentLocationRequest request = new CurrentLocationRequest.Builder()
+                .setPriority(Priority.PRIORITY_BALANCED_POWER_ACCURACY)
+                .setMaxUpdateAgeMillis(maxAgeMs)
+                .setDurationMillis(timeoutMs)
+                .build();
+
+        cancel();
+        cancellation = new CancellationTokenSource();
+        try {
+            // Resolves to null if nothing arrives within the duration
+            return fusedLocationClient.getCurrentLocation(request, cancellation.getToken());
+        } catch (SecurityException e) {
+            return Tasks.forResult(null);
         }
     }
+
+    /**
+     * @return true if {@code location} is no older than {@code maxAgeMs} and,
+     *         when it reports an accuracy, no worse than {@code maxAccuracyM}
+     */
+    static boolean isUsable(@Nullable Location location, long nowElapsedNanos,
+                            long maxAgeMs, float maxAccuracyM) {
+        if (location == null)
+            return false;
+        long ageMs = (nowElapsedNanos - location.getElapsedRealtimeNanos()) / 1_000_000;
+        if (ageMs < 0 || ageMs > maxAgeMs)
+            return false;
+        return !location.hasAccuracy() || location.getAccuracy() <= maxAccuracyM;
+    }
 }
@@ -0,0 +1,151 @@
+package com.example.yellow.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-user index of event participation, stored at
+ * {@code profiles/{uid}/participations/{eventId}}.
+ *
+ * Each document mirrors which of an event's participant lists the user is
+ * currently in, so screens that need "my events" read one small collection
+ * instead of querying every event. It must be written in the same batch or
+ * transaction as the list change it describes (join, leave, draw, cancel,
+ * accept, decline) so the two never disagree.
+ */
+public final class ParticipationIndex {
+
+    public static final String COLLECTION = "participations";
+
+    /** In {@code events/{id}/waitingList}. */
+    public static final String WAITING = "waiting";
+    /** In {@code events/{id}/selected}. */
+    public static final String SELECTED = "selected";
+    /** In {@code events/{id}/enrolled}. */
+    public static final String ENROLLED = "enrolled";
+    /** In {@code events/{id}/cancelled}. */
+    public static final String CANCELLED = "cancelled";
+
+    private ParticipationIndex() {
+    }
+
+    /**
+     * @return the participations collection of {@code uid}
+     */
+    @NonNull
+    public static CollectionReference collection(@NonNull FirebaseFirestore db, @NonNull String uid) {
+        return db.collection("profiles").document(uid).collection(COLLECTION);
+    }
+
+    /**
+     * @return the index document for {@code uid} in {@code eventId}
+     */
+    @NonNull
+    public static DocumentReference ref(@NonNull FirebaseFirestore db, @NonNull String uid,
+                                        @NonNull String eventId) {
+        return collection(db, uid).document(eventId);
+    }
+
+    /**
+     * Adds a status change to a batch. {@code joinedAt} is only written when the
+     * user first joins the waiting list and is kept through later transitions.
+     */
+    public static void set(@NonNull WriteBatch batch, @NonNull FirebaseFirestore db,
+                           @NonNull String uid, @NonNull String eventId, @NonNull String status) {
+        batch.set(ref(db, uid, eventId), entry(eventId, status), SetOptions.merge());
+    }
+
+    /**
+     * Adds a status change to a transaction.
+     *
+     * @see #set(WriteBatch, FirebaseFirestore, String, String, String)
+     */
+    public static void set(@NonNull Transaction transaction, @NonNull FirebaseFirestore db,
+                           @NonNull String uid, @NonNull String eventId, @NonNull String status) {
+        transaction.set(ref(db, uid, eventId), entry(eventId, status), SetOptions.merge());
+    }
+
+    /**
+     * Adds removal of the index entry to a batch, e.g. when leaving the waiting list.
+     */
+    public static void remove(@NonNull WriteBatch batch, @NonNull FirebaseFirestore db,
+                              @NonNull String uid, @NonNull String eventId) {
+        batch.delete(ref(db, uid, eventId));
+    }
+
+    /**
+     * Adds removal of the index entry to a transaction.
+     *
+     * @see #remove(WriteBatch, FirebaseFirestore, String, String)
+     */
+    public static void remove(@NonNull Transaction transaction, @NonNull FirebaseFirestore db,
+                              @NonNull String uid, @NonNull String eventId) {
+        transaction.delete(ref(db, uid, eventId));
+    }
+
+    /**
+     * Maps an event subcollection name to the status stored for it.
+     *
+     * @param list one of {@code waitingList}, {@code selected}, {@code enrolled}, {@code cancelled}
+     * @return the matching status, or {@code null} for any other collection
+     */
+    @Nullable
+    public static String statusForList(@NonNull String list) {
+        switch (list) {
+            case "waitingList":
+                return WAITING;
+            case "selected":
+                return SELECTED;
+            case "enrolled":
+                return ENROLLED;
+            case "cancelled":
+                return CANCELLED;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Ranks statuses by how far along the user is, so when an older user shows
+     * up in several lists the backfill keeps the most advanced one.
+     */
+    static int rank(@Nullable String status) {
+        if (status == null)
+            return -1;
+        switch (status) {
+            case WAITING:
+                return 0;
+            case SELECTED:
+                return 1;
+            case ENROLLED:
+                return 2;
+            case CANCELLED:
+                return 3;
+            default:
+                return -1;
+        }
+    }
+
+    @NonNull
+    private static Map<String, Object> entry(@NonNull String eventId, @NonNull String status) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("eventId", eventId);
+        data.put("status", status);
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        if (WAITING.equals(status)) {
+            data.put("joinedAt", FieldValue.serverTimestamp());
+        }
+        return data;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.yellow.utils;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+
+/**
+ * Helpers for preparing event poster images before they are uploaded to
+ * Firebase Storage.
+ */
+public class PosterUtils {
+
+    /** Longest edge of an uploaded poster, in pixels. */
+    public static final int MAX_DIMENSION = 1280;
+
+    /** Upper bound on the compressed JPEG size. */
+    public static final int MAX_BYTES = 900 * 1024;
+
+    private static final int MIN_JPEG_QUALITY = 40;
+
+    private PosterUtils() {
+    }
+
+    /**
+     * Reads an image by {@link Uri}, downsamples it to {@link #MAX_DIMENSION}
+     * and compresses it to a JPEG of at most {@link #MAX_BYTES} where possible.
+     *
+     * @param cr  resolver used to open the image
+     * @param uri the content {@link Uri} of the image
+     * @return the JPEG bytes
+     * @throws Exception if the image cannot be opened, decoded, or processed
+     */
+    @NonNull
+    public static byte[] compressForUpload(@NonNull ContentResolver cr, @NonNull Uri uri) throws Exception {
+        // Bounds pass
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream is = cr.openInputStream(uri)) {
+            if (is == null)
+                throw new FileNotFoundException("Null input stream");
+            BitmapFactory.decodeStream(is, null, bounds);
+        }
+
+        int w = bounds.outWidth;
+        int h = bounds.outHeight;
+        if (w <= 0 || h <= 0)
+            throw new IllegalArgumentException("Invalid image");
+
+        int inSample = 1;
+        while (w / inSample > MAX_DIMENSION || h / inSample > MAX_DIMENSION) {
+            inSample *= 2;
+        }
+
+        // Decode with sampling + memory-friendly config
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = Math.max(1, inSample);
+        opts.inPreferredConfig = Bitmap.Config.RGB_565;
+
+        Bitmap bitmap;
+        try (InputStream is2 = cr.openInputStream(uri)) {
+            if (is2 == null)
+                throw new FileNotFoundException("Null input stream");
+            bitmap = BitmapFactory.decodeStream(is2, null, opts);
+        }
+        if (bitmap == null)
+            throw new IllegalArgumentException("Unable to decode image");
+
+        // Extra scale if still too large
+        int bw = bitmap.getWidth();
+        int bh = bitmap.getHeight();
+        if (bw > MAX_DIMENSION || bh > MAX_DIMENSION) {
+            float scale = Math.min(MAX_DIMENSION / (float) bw, MAX_DIMENSION / (float) bh);
+            int nw = Math.max(1, Math.round(bw * scale));
+            int nh = Math.max(1, Math.round(bh * scale));
+            bitmap = Bitmap.createScaledBitmap(bitmap, nw, nh, true);
+        }
+
+        // Compress loop
+        int quality = 85;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] jpg;
+        while (true) {
+            bos.reset();
+            bitmap.compress(Bitmap.CompressFormat.JPEG, quality, bos);
+            jpg = bos.toByteArray();
+            if (jpg.length <= MAX_BYTES || quality <= MIN_JPEG_QUALITY)
+                break;
+            quality -= 5;
+        }
+        return jpg;
+    }
+
+    /**
+     * Returns whether a poster value is an inline {@code data:} URI rather than
+     * a download URL.
+     */
+    public static boolean isDataUri(@Nullable String value) {
+        return value != null && value.startsWith("data:");
+    }
+
+    /**
+     * Decodes the payload of a Base64 {@code data:} URI.
+     *
+     * @param dataUri a string like {@code data:image/jpeg;base64,AAAA...}
+     * @return the decoded bytes, or {@code null} if the value is not a Base64 data URI
+     */
+    @Nullable
+    public static byte[] decodeDataUri(@Nullable String dataUri) {
+        if (!isDataUri(dataUri))
+            return null;
+        int comma = dataUri.indexOf(',');
+        if (comma < 0 || !dataUri.substring(0, comma).endsWith(";base64"))
+            return null;
+        try {
+            return Base64.decode(dataUri.substring(comma + 1), Base64.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the MIME type declared by a {@code data:} URI, defaulting to JPEG.
+     */
+    @NonNull
+    public static String mimeOfDataUri(@Nullable String dataUri) {
+        if (!isDataUri(dataUri))
+            return "image/jpeg";
+        int end = dataUri.indexOf(';');
+        if (end <= 5)
+            return "image/jpeg";
+        return dataUri.substring(5, end);
+    }
+
+    /**
+     * Returns the file extension for an image MIME type, defaulting to {@code jpg}.
+     */
+    @NonNull
+    public static String extensionOfMime(@Nullable String mime) {
+        if (mime == null)
+            return "jpg";
+        switch (mime) {
+            case "image/png":
+                return "png";
+            case "image/webp":
+                return "webp";
+            case "image/gif":
+                return "gif";
+            default:
+                return "jpg";
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.yellow.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared, cached access to {@code profiles/{uid}} for screens that show many
+ * users at once, such as the entrant lists.
+ *
+ * Requests made within {@link #BATCH_WINDOW_MS} of each other are combined
+ * and resolved with {@code whereIn(documentId())} queries of up to
+ * {@link FirestoreQueryUtils#MAX_IN_VALUES} IDs, so a list of N entrants costs
+ * about N / 30 reads instead of N. Results are kept in a bounded LRU for
+ * {@link #MAX_AGE_MS}; a screen that sees a newer profile snapshot (or saves
+ * one) calls {@link #put} or {@link #invalidate} to keep it current.
+ *
+ * Must be used from the main thread.
+ */
+public final class ProfileRepository {
+
+    /** How long to gather requests before querying. */
+    static final long BATCH_WINDOW_MS = 16;
+
+    /** Profiles kept in memory. */
+    static final int MAX_CACHED = 2000;
+
+    /** Cached profiles older than this are fetched again. */
+    static final long MAX_AGE_MS = 5 * 60 * 1000;
+
+    private static ProfileRepository instance;
+
+    private final LruCache<String, Entry> cache = new LruCache<>(MAX_CACHED);
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    // IDs waiting for the next flush, and who is waiting on them
+    private final Set<String> queued = new LinkedHashSet<>();
+    private final List<Request> waiting = new ArrayList<>();
+    private boolean flushScheduled;
+
+    private static final class Entry {
+        final DocumentSnapshot doc;
+        final long fetchedAt;
+
+        Entry(DocumentSnapshot doc, long fetchedAt) {
+            this.doc = doc;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private static final class Request {
+        final List<String> ids;
+        final TaskCompletionSource<Map<String, DocumentSnapshot>> source = new TaskCompletionSource<>();
+
+        Request(List<String> ids) {
+            this.ids = ids;
+        }
+    }
+
+    private ProfileRepository() {
+    }
+
+    /**
+     * @return the shared repository
+     */
+    public static synchronized ProfileRepository getInstance() {
+        if (instance == null) {
+            instance = new ProfileRepository();
+        }
+        return instance;
+    }
+
+    /**
+     * Looks up one profile.
+     *
+     * @param uid user ID
+     * @return task resolving to the profile, or {@code null} if there is none
+     */
+    public Task<DocumentSnapshot> get(@NonNull String uid) {
+        List<String> one = new ArrayList<>(1);
+        one.add(uid);
+        return getAll(one).continueWith(task -> {
+            if (!task.isSuccessful()) {
+                throw task.getException();
+            }
+            return task.getResult().get(uid);
+        });
+    }
+
+    /**
+     * Looks up several profiles, from cache where possible.
+     *
+     * @param uids user IDs; null and duplicate entries are ignored
+     * @return task resolving to the profiles found, keyed by user ID. Users
+     *         with no profile document are absent from the map.
+     */
+    public Task<Map<String, DocumentSnapshot>> getAll(@NonNull Collection<String> uids) {
+        Map<String, DocumentSnapshot> hits = new HashMap<>();
+        Set<String> misses = new LinkedHashSet<>();
+        long now = SystemClock.elapsedRealtime();
+        for (String uid : uids) {
+            if (uid == null || uid.isEmpty())
+                continue;
+            Entry e = cache.get(uid);
+            if (e != null && now - e.fetchedAt < MAX_AGE_MS) {
+                hits.put(uid, e.doc);
+            } else {
+                misses.add(uid);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return Tasks.forResult(hits);
+        }
+
+        List<String> all = new ArrayList<>(hits.keySet());
+        all.addAll(misses);
+        Request request = new Request(all);
+
+        queued.addAll(misses);
+        waiting.add(request);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            main.postDelayed(this::flush, BATCH_WINDOW_MS);
+        }
+        return request.source.getTask();
+    }
+
+    /**
+     * Stores a profile seen elsewhere, e.g. from a snapshot listener on
+     * {@code profiles}, so later lookups don't refetch it.
+     */
+    public void put(@NonNull DocumentSnapshot profile) {
+        if (profile.exists()) {
+            cache.put(profile.getId(), new Entry(profile, SystemClock.elapsedRealtime()));
+        } else {
+            cache.remove(profile.getId());
+        }
+    }
+
+    /**
+     * Drops a cached profile after it was edited or deleted.
+     */
+    public void invalidate(@NonNull String uid) {
+        cache.remove(uid);
+    }
+
+    private void flush() {
+        flushScheduled = false;
+        List<String> ids = new ArrayList<>(queued);
+        List<Request> requests = new ArrayList<>(waiting);
+        queued.clear();
+        waiting.clear();
+
+        FirestoreQueryUtils.getDocumentsByIds(FirebaseFirestore.getInstance().collection("profiles"), ids)
+                .addOnCompleteListener(task -> {
+                    if (task.isSuccessful()) {
+                        long now = SystemClock.elapsedRealtime();
+                        for (DocumentSnapshot doc : task.getResult()) {
+                            cache.put(doc.getId(), new Entry(doc, now));
+                        }
+                    }
+                    for (Request r : requests) {
+                        resolve(r, task.isSuccessful() ? task.getResult() : null, task.getException());
+                    }
+                });
+    }
+
+    private void resolve(Request r, @Nullable List<DocumentSnapshot> fetched, @Nullable Exception error) {
+        if (fetched == null) {
+            r.source.setException(error != null ? error : new IllegalStateException("Profile lookup failed"));
+            return;
+        }
+        Map<String, DocumentSnapshot> fetchedById = new HashMap<>();
+        for (DocumentSnapshot doc : fetched) {
+            fetchedById.put(doc.getId(), doc);
+        }
+
+        Map<String, DocumentSnapshot> result = new HashMap<>();
+        for (String uid : r.ids) {
+            DocumentSnapshot doc = fetchedById.get(uid);
+            if (doc == null) {
+                Entry e = cache.get(uid);
+                doc = e != null ? e.doc : null;
+            }
+            if (doc != null)
+                result.put(uid, doc);
+        }
+        r.source.setResult(result);
+    }
+}
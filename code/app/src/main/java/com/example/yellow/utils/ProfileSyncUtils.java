@@ -2,10 +2,15 @@ package com.example.yellow.utils;
 
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.WriteBatch;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Utility class for synchronizing user profile updates across the application.
  * 
@@ -19,18 +24,37 @@ public class ProfileSyncUtils {
 
     private static final String TAG = "ProfileSyncUtils";
 
+    /** Event subcollections whose entries carry the user's name and email. */
+    private static final String[] MEMBERSHIP_LISTS = { "waitingList", "selected", "enrolled", "cancelled" };
+
     /**
      * Updates the user's display name in all Firestore documents where it is
      * cached.
      * Currently updates:
      * - events where organizerId == uid (field: organizerName)
      * - notification_logs where organizerId == uid (field: organizerName)
+     * - the user's entries in every event's waitingList, selected, enrolled
+     * and cancelled lists (field: name)
      *
      * @param db      The Firestore instance
      * @param uid     The UID of the user
      * @param newName The new full name of the user
      */
     public static void updateUserDisplayNameEverywhere(FirebaseFirestore db, String uid, String newName) {
+        updateUserDisplayNameEverywhere(db, uid, newName, null);
+    }
+
+    /**
+     * Same as {@link #updateUserDisplayNameEverywhere(FirebaseFirestore, String, String)},
+     * and also copies a new email onto the user's event list entries.
+     *
+     * @param db       The Firestore instance
+     * @param uid      The UID of the user
+     * @param newName  The new full name of the user
+     * @param newEmail The new email of the user, or null to leave it unchanged
+     */
+    public static void updateUserDisplayNameEverywhere(FirebaseFirestore db, String uid, String newName,
+            @Nullable String newEmail) {
         // 1. Update events where this user is the organizer
         db.collection("events")
                 .whereEqualTo("organizerId", uid)
@@ -62,5 +86,29 @@ public class ProfileSyncUtils {
                             .addOnFailureListener(e -> Log.w(TAG, "Failed to batch update notification log names", e));
                 })
                 .addOnFailureListener(e -> Log.w(TAG, "Failed to query notification logs for name propagation", e));
+
+        // 3. Update the user's entries in event lists, which carry a copy of
+        // their name and email so entrant screens need no profile lookup
+        Map<String, Object> contact = new HashMap<>();
+        contact.put(EntrantContact.NAME, newName);
+        if (newEmail != null)
+            contact.put(EntrantContact.EMAIL, newEmail);
+
+        for (String list : MEMBERSHIP_LISTS) {
+            db.collectionGroup(list)
+                    .whereEqualTo("userId", uid)
+                    .get()
+                    .addOnSuccessListener(memberSnap -> {
+                        if (memberSnap.isEmpty())
+                            return;
+                        WriteBatch batch = db.batch();
+                        for (DocumentSnapshot doc : memberSnap) {
+                            batch.update(doc.getReference(), contact);
+                        }
+                        batch.commit()
+                                .addOnFailureListener(e -> Log.w(TAG, "Failed to batch update " + list + " names", e));
+                    })
+                    .addOnFailureListener(e -> Log.w(TAG, "Failed to query " + list + " for name propagation", e));
+        }
     }
 }
@@ -0,0 +1,195 @@
+package com.example.yellow.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Memory + disk cache for rendered QR code bitmaps, keyed by the encoded text
+ * and the output size. Codes are rendered on demand from an event's deep link
+ * instead of being stored in Firestore, and rendering/decoding always happens
+ * off the main thread. The memory layer is the LRU of recent codes in
+ * {@link QrUtils}.
+ */
+public final class QrBitmapCache {
+
+    private static final String TAG = "QrBitmapCache";
+    private static final String DIR_NAME = "qr";
+
+    /** Size event QR codes are rendered, cached and shown at. */
+    public static final int DEFAULT_SIZE_PX = 768;
+
+    /** Upper bound for the disk layer; the least recently used files go first. */
+    static final long MAX_DISK_BYTES = 4L * 1024 * 1024;
+
+    private static QrBitmapCache instance;
+
+    private final File dir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    /**
+     * Receives a QR bitmap on the main thread.
+     */
+    public interface Callback {
+        /**
+         * @param bitmap the QR code, or {@code null} if it could not be rendered
+         */
+        void onQrReady(@Nullable Bitmap bitmap);
+    }
+
+    private QrBitmapCache(@NonNull Context context) {
+        dir = new File(context.getApplicationContext().getCacheDir(), DIR_NAME);
+    }
+
+    /**
+     * Returns the shared cache.
+     *
+     * @param context any context; the application context is retained
+     * @return the {@link QrBitmapCache} instance
+     */
+    public static synchronized QrBitmapCache getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new QrBitmapCache(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Loads the QR code for {@code content} at {@code sizePx}, from memory, disk,
+     * or by rendering it, and delivers it to {@code callback} on the main thread.
+     *
+     * @param content text to encode, e.g. {@code yellow://eventdetails/<id>}
+     * @param sizePx  width/height in pixels
+     * @param callback receives the bitmap
+     */
+    public void load(@NonNull String content, int sizePx, @NonNull Callback callback) {
+        String key = keyFor(content, sizePx);
+        Bitmap hit = QrUtils.getCached(content, sizePx);
+        if (hit != null) {
+            callback.onQrReady(hit);
+            return;
+        }
+
+        executor.execute(() -> {
+            Bitmap bmp = readDisk(key);
+            if (bmp == null) {
+                try {
+                    bmp = QrUtils.makeQrFast(content, sizePx);
+                    writeDisk(key, bmp);
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to render QR", e);
+                }
+            }
+            if (bmp != null) {
+                QrUtils.putCached(content, sizePx, bmp);
+            }
+            final Bitmap result = bmp;
+            main.post(() -> callback.onQrReady(result));
+        });
+    }
+
+    /**
+     * Stores an already rendered code, e.g. the one shown right after creating
+     * an event, so the next view of it is a cache hit.
+     */
+    public void put(@NonNull String content, int sizePx, @NonNull Bitmap bitmap) {
+        String key = keyFor(content, sizePx);
+        QrUtils.putCached(content, sizePx, bitmap);
+        executor.execute(() -> writeDisk(key, bitmap));
+    }
+
+    @Nullable
+    private Bitmap readDisk(String key) {
+        File f = new File(dir, key + ".png");
+        if (!f.isFile()) {
+            return null;
+        }
+        // Touch on hit so trimming evicts by last use, not by creation
+        f.setLastModified(System.currentTimeMillis());
+        return BitmapFactory.decodeFile(f.getAbsolutePath());
+    }
+
+    private void writeDisk(String key, Bitmap bmp) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        File tmp = new File(dir, key + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            bmp.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to write QR cache entry", e);
+            tmp.delete();
+            return;
+        }
+        // Rename so readers never see a partially written file
+        if (!tmp.renameTo(new File(dir, key + ".png"))) {
+            tmp.delete();
+            return;
+        }
+        trimDisk(dir, MAX_DISK_BYTES);
+    }
+
+    /**
+     * Deletes the oldest cached codes (by last-modified time) until the files
+     * in {@code dir} take at most {@code maxBytes}.
+     */
+    static void trimDisk(@NonNull File dir, long maxBytes) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".png"));
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File f : files) {
+            total += f.length();
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File f : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long len = f.length();
+            if (f.delete()) {
+                total -= len;
+            }
+        }
+    }
+
+    /**
+     * Cache key: SHA-256 of the content plus the size, safe for use as a file name.
+     */
+    static String keyFor(@NonNull String content, int sizePx) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2 + 8);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.append('_').append(sizePx).toString();
+        } catch (Exception e) {
+            // SHA-256 is always available on Android; fall back to hashCode just in case
+            return Integer.toHexString(content.hashCode()) + "_" + sizePx;
+        }
+    }
+}
@@ -2,14 +2,20 @@ package com.example.yellow.utils;
 
 import android.graphics.Bitmap;
 import android.net.Uri;
+import android.util.LruCache;
 
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
 import com.google.zxing.MultiFormatWriter;
 import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import com.google.zxing.qrcode.encoder.QRCode;
 import com.journeyapps.barcodescanner.BarcodeEncoder;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,6 +26,20 @@ import java.util.Map;
 public final class QrUtils {
     private QrUtils() {}
 
+    /** Quiet-zone width in modules; matches the MARGIN hint used by {@link #makeQr}. */
+    private static final int QUIET_ZONE = 1;
+
+    private static final int BLACK = 0xFF000000;
+    private static final int WHITE = 0xFFFFFFFF;
+
+    /** Recently generated codes, sized by bitmap bytes (~3 codes at 768px). */
+    private static final LruCache<String, Bitmap> RECENT = new LruCache<String, Bitmap>(8 * 1024 * 1024) {
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            return value.getByteCount();
+        }
+    };
+
     /**
      * Creates a square QR code bitmap.
      *
@@ -39,6 +59,96 @@ public final class QrUtils {
         return new BarcodeEncoder().createBitmap(matrix);
     }
 
+    /**
+     * Creates the same square QR code as {@link #makeQr}, but encodes at module
+     * resolution and scales the modules into a pixel buffer that is written with
+     * a single {@code setPixels} call, instead of rasterising a full-size
+     * {@link BitMatrix} pixel by pixel. Recently generated codes are kept in an
+     * LRU, so callers must not recycle or mutate the returned bitmap.
+     *
+     * @param content Text to encode (not null/empty)
+     * @param sizePx  Width/height in pixels (e.g., 512–1024)
+     * @return QR code bitmap
+     * @throws WriterException If encoding fails
+     */
+    public static Bitmap makeQrFast(String content, int sizePx) throws WriterException {
+        String key = cacheKey(content, sizePx);
+        Bitmap cached = RECENT.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+
+        // Same error-correction level QRCodeWriter defaults to
+        QRCode code = Encoder.encode(content, ErrorCorrectionLevel.L, hints);
+        ByteMatrix modules = code.getMatrix();
+
+        int qrWidth = modules.getWidth() + QUIET_ZONE * 2;
+        int qrHeight = modules.getHeight() + QUIET_ZONE * 2;
+        int outWidth = Math.max(sizePx, qrWidth);
+        int outHeight = Math.max(sizePx, qrHeight);
+
+        int[] pixels = scaleModules(modules, outWidth, outHeight, qrWidth, qrHeight);
+        Bitmap bmp = Bitmap.createBitmap(outWidth, outHeight, Bitmap.Config.ARGB_8888);
+        bmp.setPixels(pixels, 0, outWidth, 0, 0, outWidth, outHeight);
+
+        RECENT.put(key, bmp);
+        return bmp;
+    }
+
+    /**
+     * Returns a code previously produced by {@link #makeQrFast} or stored with
+     * {@link #putCached}, if it is still in the LRU.
+     */
+    public static Bitmap getCached(String content, int sizePx) {
+        return RECENT.get(cacheKey(content, sizePx));
+    }
+
+    /**
+     * Adds an already rendered code to the LRU.
+     */
+    public static void putCached(String content, int sizePx, Bitmap bitmap) {
+        RECENT.put(cacheKey(content, sizePx), bitmap);
+    }
+
+    /**
+     * Scales a module matrix into ARGB pixels using the same layout rules as
+     * zxing's QRCodeWriter (integer module size, centred, white padding). Each
+     * module row is expanded once into a row buffer and then copied for every
+     * scanline it covers.
+     */
+    static int[] scaleModules(ByteMatrix modules, int outWidth, int outHeight, int qrWidth, int qrHeight) {
+        int inputWidth = modules.getWidth();
+        int inputHeight = modules.getHeight();
+        int multiple = Math.min(outWidth / qrWidth, outHeight / qrHeight);
+        int leftPadding = (outWidth - (inputWidth * multiple)) / 2;
+        int topPadding = (outHeight - (inputHeight * multiple)) / 2;
+
+        int[] pixels = new int[outWidth * outHeight];
+        Arrays.fill(pixels, WHITE);
+
+        int[] row = new int[outWidth];
+        for (int y = 0; y < inputHeight; y++) {
+            Arrays.fill(row, WHITE);
+            for (int x = 0, px = leftPadding; x < inputWidth; x++, px += multiple) {
+                if (modules.get(x, y) == 1) {
+                    Arrays.fill(row, px, px + multiple, BLACK);
+                }
+            }
+            int offset = (topPadding + y * multiple) * outWidth;
+            for (int i = 0; i < multiple; i++, offset += outWidth) {
+                System.arraycopy(row, 0, pixels, offset, outWidth);
+            }
+        }
+        return pixels;
+    }
+
+    private static String cacheKey(String content, int sizePx) {
+        return sizePx + "|" + content;
+    }
+
     /**
      * Parses a raw URI string from a QR code and returns the event ID if it's a valid app link.
      *
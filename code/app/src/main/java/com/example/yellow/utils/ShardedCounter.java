@@ -0,0 +1,276 @@
+package com.example.yellow.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A counter spread over several shard documents, for counts that many users
+ * change at once (e.g. an event's {@code waitlisted} and {@code enrolled}
+ * when registration opens).
+ *
+ * Shards live at {@code {parent}/counters/{name}/shards/{0..n-1}}, each with a
+ * {@code count} field. An increment goes to one shard picked at random, so
+ * concurrent writers rarely touch the same document; the value is the sum of
+ * all shards plus the legacy {@code name} field on the parent, which counts
+ * written before sharding keep contributing. Shards are created on first
+ * increment. A capped count (e.g. {@code maxEntrants}) is kept by giving each
+ * shard a slice of the cap, see {@link #shardWithRoom}.
+ *
+ * That legacy field can be off on older events (the draw and decline never
+ * used to decrement {@code waitlisted}); {@link #reset} puts a counter back to
+ * a recounted value, see {@link EventDataMigration#resetEventCounters}.
+ */
+public final class ShardedCounter {
+
+    /** Shards per counter; each sustains about one write per second. */
+    public static final int DEFAULT_SHARDS = 10;
+
+    static final String FIELD = "count";
+
+    private final DocumentReference parent;
+    private final String name;
+    private final int shardCount;
+    private final CollectionReference shards;
+
+    /** Receives the counter's value from {@link #addValueListener}. */
+    public interface ValueListener {
+        void onValue(long value);
+
+        /** Listening failed and has stopped; no further values follow. */
+        void onError(@NonNull FirebaseFirestoreException e);
+    }
+
+    /**
+     * @param parent document the counter belongs to, e.g. {@code events/{id}}
+     * @param name   counter name; also the legacy field on {@code parent}
+     */
+    public ShardedCounter(@NonNull DocumentReference parent, @NonNull String name) {
+        this(parent, name, DEFAULT_SHARDS);
+    }
+
+    /**
+     * @param shardCount number of shards; must stay the same for the
+     *                   lifetime of the counter
+     */
+    public ShardedCounter(@NonNull DocumentReference parent, @NonNull String name, int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        this.parent = parent;
+        this.name = name;
+        this.shardCount = shardCount;
+        this.shards = parent.collection("counters").document(name).collection("shards");
+    }
+
+    /**
+     * @return the counter for the number of users on an event's waiting list
+     */
+    @NonNull
+    public static ShardedCounter waitlisted(@NonNull DocumentReference event) {
+        return new ShardedCounter(event, "waitlisted");
+    }
+
+    /**
+     * @return the counter for the number of users enrolled in an event
+     */
+    @NonNull
+    public static ShardedCounter enrolled(@NonNull DocumentReference event) {
+        return new ShardedCounter(event, "enrolled");
+    }
+
+    /**
+     * @return shard {@code index}
+     */
+    @NonNull
+    public DocumentReference shard(int index) {
+        return shards.document(String.valueOf(index));
+    }
+
+    /**
+     * Adds an increment of a random shard to a batch.
+     */
+    public void increment(@NonNull WriteBatch batch, long delta) {
+        batch.set(randomShard(), shardDelta(delta), SetOptions.merge());
+    }
+
+    /**
+     * Adds an increment of a random shard to a transaction. Must come after
+     * the transaction's reads.
+     */
+    public void increment(@NonNull Transaction transaction, long delta) {
+        transaction.set(randomShard(), shardDelta(delta), SetOptions.merge());
+    }
+
+    /**
+     * Adds to a batch the writes that make the counter equal {@code value}:
+     * the legacy field is set to it and every shard to zero. Increments
+     * committed between counting {@code value} and the batch are lost, so
+     * this is for maintenance jobs, not regular updates.
+     */
+    public void reset(@NonNull WriteBatch batch, long value) {
+        Map<String, Object> legacy = new HashMap<>();
+        legacy.put(name, value);
+        batch.set(parent, legacy, SetOptions.merge());
+
+        Map<String, Object> zero = new HashMap<>();
+        zero.put(FIELD, 0L);
+        for (int i = 0; i < shardCount; i++) {
+            batch.set(shard(i), zero);
+        }
+    }
+
+    /**
+     * Finds a shard that can take one more without the counter going over
+     * {@code max}, inside a transaction that has already read the parent
+     * document. Must come before the transaction's writes; pass the result to
+     * {@link #increment(Transaction, int, long)}.
+     *
+     * The room left under {@code max} (after the legacy field) is split into
+     * one slice per shard, and a shard may only be incremented up to its
+     * slice; that keeps the total within {@code max} without reading every shard.
+     * The search starts at a random shard and moves on only while the shards
+     * it reads are full, so away from the cap a capped increment reads and
+     * contends on a single shard, like an uncapped one. Decrements may land on
+     * any shard; a shard below zero simply has more room.
+     *
+     * @param max the cap; must be positive
+     * @return the shard to increment, or -1 if the counter is at {@code max}
+     */
+    public int shardWithRoom(@NonNull Transaction transaction, @NonNull DocumentSnapshot parentDoc, long max)
+            throws FirebaseFirestoreException {
+        long room = max - legacyValue(parentDoc);
+        if (room <= 0)
+            return -1;
+        // start among the shards whose slice isn't empty
+        int start = ThreadLocalRandom.current().nextInt((int) Math.min(shardCount, room));
+        for (int i = 0; i < shardCount; i++) {
+            int index = (start + i) % shardCount;
+            if (shardValue(transaction.get(shard(index))) < slice(room, index))
+                return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds an increment of shard {@code index}, e.g. one found by
+     * {@link #shardWithRoom}, to a transaction.
+     */
+    public void increment(@NonNull Transaction transaction, int index, long delta) {
+        transaction.set(shard(index), shardDelta(delta), SetOptions.merge());
+    }
+
+    /**
+     * @return shard {@code index}'s share of {@code room}; the first
+     *         {@code room % shardCount} shards get one extra
+     */
+    long slice(long room, int index) {
+        return room / shardCount + (index < room % shardCount ? 1 : 0);
+    }
+
+    /**
+     * Listens to the counter: the parent document and the (at most
+     * {@code shardCount}) shard documents, so the cost follows the rate of
+     * changes, not the size of whatever is being counted. Each change
+     * delivers the new total; if either listener fails, the error is
+     * delivered once and no more values follow.
+     *
+     * @return registration that removes both underlying listeners
+     */
+    @NonNull
+    public ListenerRegistration addValueListener(@NonNull ValueListener listener) {
+        long[] legacy = new long[1];
+        long[] sharded = new long[1];
+        boolean[] seen = new boolean[2];
+        boolean[] failed = new boolean[1];
+
+        ListenerRegistration parentReg = parent.addSnapshotListener((doc, e) -> {
+            if (e != null) {
+                fail(listener, failed, e);
+                return;
+            }
+            if (doc == null || failed[0])
+                return;
+            legacy[0] = legacyValue(doc);
+            seen[0] = true;
+            deliver(listener, seen, legacy[0] + sharded[0]);
+        });
+        ListenerRegistration shardsReg = shards.addSnapshotListener((snap, e) -> {
+            if (e != null) {
+                fail(listener, failed, e);
+                return;
+            }
+            if (snap == null || failed[0])
+                return;
+            sharded[0] = sum(snap);
+            seen[1] = true;
+            deliver(listener, seen, legacy[0] + sharded[0]);
+        });
+
+        return () -> {
+            parentReg.remove();
+            shardsReg.remove();
+        };
+    }
+
+    private static void deliver(ValueListener listener, boolean[] seen, long value) {
+        // wait for both parts so the first value isn't a partial sum
+        if (!seen[0] || !seen[1])
+            return;
+        listener.onValue(value);
+    }
+
+    private static void fail(ValueListener listener, boolean[] failed, FirebaseFirestoreException e) {
+        // both listeners may fail for the same reason; report it once
+        if (failed[0])
+            return;
+        failed[0] = true;
+        listener.onError(e);
+    }
+
+    /**
+     * @return the sum of the {@code count} fields of {@code shardDocs}
+     */
+    static long sum(@NonNull Iterable<? extends DocumentSnapshot> shardDocs) {
+        long total = 0;
+        for (DocumentSnapshot doc : shardDocs) {
+            total += shardValue(doc);
+        }
+        return total;
+    }
+
+    @NonNull
+    private DocumentReference randomShard() {
+        return shard(ThreadLocalRandom.current().nextInt(shardCount));
+    }
+
+    private long legacyValue(@Nullable DocumentSnapshot parentDoc) {
+        Long value = parentDoc != null ? parentDoc.getLong(name) : null;
+        return value != null ? value : 0L;
+    }
+
+    private static long shardValue(@Nullable DocumentSnapshot doc) {
+        Long value = doc != null ? doc.getLong(FIELD) : null;
+        return value != null ? value : 0L;
+    }
+
+    @NonNull
+    private static Map<String, Object> shardDelta(long delta) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(FIELD, FieldValue.increment(delta));
+        return data;
+    }
+}
@@ -2,15 +2,19 @@ package com.example.yellow.utils;
 
 import androidx.annotation.NonNull;
 
+import com.example.yellow.organizers.Event;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Utility class for cleaning up user data when a user account is deleted.
@@ -50,38 +54,18 @@ public class UserCleanupUtils {
                         // Delete event subcollections
                         deletionTasks.add(deleteEventSubcollections(eventId, db));
 
-                        // Delete the event document itself
+                        // Delete the event summary and its details document
                         deletionTasks.add(db.collection("events").document(eventId).delete());
+                        deletionTasks.add(db.collection(Event.DETAILS_COLLECTION).document(eventId).delete());
                     }
 
                     // Step 3: Delete user notifications subcollection
                     deletionTasks.add(
                             deleteCollection(db.collection("profiles").document(uid).collection("notifications"), db));
 
-                    // Step 4: Remove user from all waiting lists (Collection Group Query)
-                    deletionTasks.add(db.collectionGroup("waitingList")
-                            .whereEqualTo("userId", uid)
-                            .get()
-                            .continueWithTask(queryTask -> {
-                                if (!queryTask.isSuccessful()) {
-                                    return Tasks.forResult(null);
-                                }
-
-                                List<Task<Void>> updates = new ArrayList<>();
-                                for (DocumentSnapshot doc : queryTask.getResult()) {
-                                    // Delete waiting list entry
-                                    updates.add(doc.getReference().delete());
-
-                                    // Decrement event count
-                                    com.google.firebase.firestore.DocumentReference eventRef = doc.getReference()
-                                            .getParent().getParent();
-                                    if (eventRef != null) {
-                                        updates.add(eventRef.update("waitlisted",
-                                                com.google.firebase.firestore.FieldValue.increment(-1)));
-                                    }
-                                }
-                                return Tasks.whenAll(updates);
-                            }));
+                    // Step 4: Remove user from all waiting lists and drop their
+                    // participation index
+                    deletionTasks.add(leaveAllWaitingLists(uid, db));
 
                     // Step 5: Delete user profile and role documents
                     WriteBatch batch = db.batch();
@@ -94,6 +78,55 @@ public class UserCleanupUtils {
                 });
     }
 
+    /**
+     * Deletes the user's waitingList entries, decrementing each event's
+     * {@code waitlisted} counter, and deletes their participation index.
+     * Entries are found with a collection-group query on {@code userId}, so
+     * entries from before the index existed are removed too; the index is
+     * used as well in case that query fails.
+     */
+    private static Task<Void> leaveAllWaitingLists(@NonNull String uid, @NonNull FirebaseFirestore db) {
+        Task<QuerySnapshot> entries = db.collectionGroup("waitingList")
+                .whereEqualTo("userId", uid)
+                .get();
+        Task<QuerySnapshot> index = ParticipationIndex.collection(db, uid).get();
+
+        return Tasks.whenAllComplete(entries, index).continueWithTask(done -> {
+            // Events whose waitingList holds an entry for this user
+            Set<String> waitingIn = new HashSet<>();
+            if (entries.isSuccessful()) {
+                for (DocumentSnapshot doc : entries.getResult()) {
+                    DocumentReference eventRef = doc.getReference().getParent().getParent();
+                    if (eventRef != null && "events".equals(eventRef.getParent().getId()))
+                        waitingIn.add(eventRef.getId());
+                }
+            } else if (index.isSuccessful()) {
+                for (DocumentSnapshot doc : index.getResult()) {
+                    if (ParticipationIndex.WAITING.equals(doc.getString("status")))
+                        waitingIn.add(doc.getId());
+                }
+            }
+
+            List<Task<Void>> updates = new ArrayList<>();
+            for (String eventId : waitingIn) {
+                // Delete waiting list entry and decrement event count together
+                DocumentReference eventRef = db.collection("events").document(eventId);
+                WriteBatch leave = db.batch();
+                leave.delete(eventRef.collection("waitingList").document(uid));
+                ShardedCounter.waitlisted(eventRef).increment(leave, -1);
+                leave.delete(ParticipationIndex.ref(db, uid, eventId));
+                updates.add(leave.commit());
+            }
+            if (index.isSuccessful()) {
+                for (DocumentSnapshot doc : index.getResult()) {
+                    if (!waitingIn.contains(doc.getId()))
+                        updates.add(doc.getReference().delete());
+                }
+            }
+            return Tasks.whenAll(updates);
+        });
+    }
+
     /**
      * Deletes all known subcollections for an event.
      * Known subcollections: attendees, waitingList, registrations
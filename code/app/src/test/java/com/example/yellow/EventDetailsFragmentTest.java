@@ -93,10 +93,26 @@ public class EventDetailsFragmentTest {
         when(mockEventsCollection.document(anyString())).thenReturn(mockEventDoc);
         when(mockEventDoc.get()).thenReturn(mockGetTask);
 
-        // Also mock the waitingList listener to prevent crashes
-        CollectionReference mockWaitingList = mock(CollectionReference.class);
-        when(mockEventDoc.collection("waitingList")).thenReturn(mockWaitingList);
-        when(mockWaitingList.addSnapshotListener(any())).thenReturn(mockListenerRegistration);
+        // Also mock the waitlisted counter's listeners (event doc + shards) to prevent crashes
+        CollectionReference mockCounters = mock(CollectionReference.class);
+        DocumentReference mockCounterDoc = mock(DocumentReference.class);
+        CollectionReference mockShards = mock(CollectionReference.class);
+        when(mockEventDoc.collection("counters")).thenReturn(mockCounters);
+        when(mockCounters.document("waitlisted")).thenReturn(mockCounterDoc);
+        when(mockCounterDoc.collection("shards")).thenReturn(mockShards);
+        when(mockEventDoc.addSnapshotListener(any())).thenReturn(mockListenerRegistration);
+        when(mockShards.addSnapshotListener(any())).thenReturn(mockListenerRegistration);
+
+        // Details doc is fetched alongside the summary; leave it pending so the
+        // summary fields drive these assertions
+        CollectionReference mockDetailsCollection = mock(CollectionReference.class);
+        DocumentReference mockDetailsDoc = mock(DocumentReference.class);
+        @SuppressWarnings("unchecked")
+        Task<DocumentSnapshot> mockDetailsTask = mock(Task.class);
+        when(mockDb.collection("event_details")).thenReturn(mockDetailsCollection);
+        when(mockDetailsCollection.document(anyString())).thenReturn(mockDetailsDoc);
+        when(mockDetailsDoc.get()).thenReturn(mockDetailsTask);
+        when(mockDetailsTask.addOnSuccessListener(any())).thenReturn(mockDetailsTask);
     }
 
     @After
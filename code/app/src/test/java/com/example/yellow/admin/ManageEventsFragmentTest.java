@@ -99,6 +99,7 @@ public class ManageEventsFragmentTest {
         when(mockUser.getUid()).thenReturn("test_admin_id");
 
         when(mockDb.collection("events")).thenReturn(mockEventsCollection);
+        when(mockDb.collection("event_details")).thenReturn(mockEventsCollection);
         when(mockEventsCollection.get()).thenReturn(mockQueryTask);
 
         // Default: addSnapshotListener returns a registration
@@ -0,0 +1,98 @@
+package com.example.yellow.organizers;
+
+import static org.junit.Assert.*;
+
+import com.example.yellow.ui.ManageEntrants.EntrantsViewModel;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Tests that the shared ManageEntrants view model reads each list and the
+ * event once, however many tabs ask for them.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EntrantsViewModelTest {
+
+    private MockedStatic<FirebaseFirestore> firestoreMock;
+    private DocumentReference eventRef;
+    private CollectionReference list;
+    private Query page;
+
+    @Before
+    public void setup() {
+        FirebaseFirestore db = Mockito.mock(FirebaseFirestore.class);
+        CollectionReference events = Mockito.mock(CollectionReference.class);
+        eventRef = Mockito.mock(DocumentReference.class);
+        list = Mockito.mock(CollectionReference.class);
+        page = Mockito.mock(Query.class);
+
+        firestoreMock = Mockito.mockStatic(FirebaseFirestore.class);
+        firestoreMock.when(FirebaseFirestore::getInstance).thenReturn(db);
+
+        Mockito.when(db.collection("events")).thenReturn(events);
+        Mockito.when(events.document(Mockito.anyString())).thenReturn(eventRef);
+        Mockito.when(eventRef.collection(Mockito.anyString())).thenReturn(list);
+        Mockito.when(eventRef.addSnapshotListener(Mockito.any()))
+                .thenReturn(Mockito.mock(ListenerRegistration.class));
+
+        Mockito.when(list.orderBy(Mockito.anyString())).thenReturn(page);
+        Mockito.when(page.limit(Mockito.anyLong())).thenReturn(page);
+        Mockito.when(page.addSnapshotListener(Mockito.any()))
+                .thenReturn(Mockito.mock(ListenerRegistration.class));
+
+        AggregateQuery count = Mockito.mock(AggregateQuery.class);
+        Mockito.when(list.count()).thenReturn(count);
+        Mockito.when(count.get(Mockito.any())).thenReturn(Tasks.forException(new Exception("offline")));
+    }
+
+    @After
+    public void teardown() {
+        firestoreMock.close();
+    }
+
+    @Test
+    public void start_loadsEveryListOnce() {
+        EntrantsViewModel vm = new EntrantsViewModel();
+
+        // the activity and each tab all call start()
+        vm.start("e1");
+        vm.start("e1");
+        vm.start("e1");
+
+        Mockito.verify(eventRef).collection(EntrantsViewModel.WAITING);
+        Mockito.verify(eventRef).collection(EntrantsViewModel.SELECTED);
+        Mockito.verify(eventRef).collection(EntrantsViewModel.CANCELLED);
+        Mockito.verify(eventRef).collection(EntrantsViewModel.ENROLLED);
+        Mockito.verify(page, Mockito.times(4)).addSnapshotListener(Mockito.any());
+        Mockito.verify(eventRef, Mockito.times(1)).addSnapshotListener(Mockito.any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void fetchEvent_usesListenerOnceLoaded() {
+        EntrantsViewModel vm = new EntrantsViewModel();
+        vm.start("e1");
+
+        ArgumentCaptor<EventListener<DocumentSnapshot>> captor =
+                ArgumentCaptor.forClass(EventListener.class);
+        Mockito.verify(eventRef).addSnapshotListener(captor.capture());
+
+        DocumentSnapshot doc = Mockito.mock(DocumentSnapshot.class);
+        captor.getValue().onEvent(doc, null);
+
+        Task<DocumentSnapshot> task = vm.fetchEvent();
+        assertTrue(task.isSuccessful());
+        assertSame(doc, task.getResult());
+        Mockito.verify(eventRef, Mockito.never()).get();
+    }
+}
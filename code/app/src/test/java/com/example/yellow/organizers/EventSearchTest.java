@@ -0,0 +1,47 @@
+package com.example.yellow.organizers;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class EventSearchTest {
+
+    private static final String LONG_DESCRIPTION =
+            "Join us for an afternoon of games, food and music in the park. "
+                    + "Bring a blanket and your friends; everyone is welcome. "
+                    + "Later in the evening there will be a lantern parade along the river valley.";
+
+    @Test
+    public void searchTokensOf_keepsDistinctLowercaseWords() {
+        assertEquals("games food and", Event.searchTokensOf("Games, food AND games!"));
+        assertNull(Event.searchTokensOf(null));
+        assertEquals("", Event.searchTokensOf("  ...  "));
+    }
+
+    @Test
+    public void matchesSearch_findsWordsPastThePreview() {
+        Event event = new Event();
+        event.setName("Summer Festival");
+        event.setDescriptionPreview(Event.previewOf(LONG_DESCRIPTION));
+        event.setSearchTokens(Event.searchTokensOf(LONG_DESCRIPTION));
+
+        assertFalse(event.getDescriptionPreview().contains("lantern"));
+        assertTrue(event.matchesSearch("lantern"));
+        assertTrue(event.matchesSearch("lantern parade"));
+        assertTrue(event.matchesSearch("parade lantern"));
+        assertTrue(event.matchesSearch("festival"));
+        assertTrue(event.matchesSearch(""));
+        assertFalse(event.matchesSearch("fireworks"));
+        assertFalse(event.matchesSearch("lantern fireworks"));
+    }
+
+    @Test
+    public void matchesSearch_withoutTokens_usesLoadedDescription() {
+        Event event = new Event();
+        event.setDescription(LONG_DESCRIPTION);
+
+        assertTrue(event.matchesSearch("river"));
+        assertTrue(event.matchesSearch("valley."));
+        assertFalse(event.matchesSearch("ocean"));
+    }
+}
@@ -17,9 +17,12 @@ import com.example.yellow.ui.ManageEntrants.CancelledFragment;
 import com.example.yellow.ui.ManageEntrants.EnrolledFragment;
 import com.google.android.material.tabs.TabLayout;
 import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.AggregateQuery;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
 
 import org.junit.Before;
@@ -70,6 +73,23 @@ public class ManageEntrantsActivityTest {
         Mockito.when(mockCollection.addSnapshotListener(Mockito.any()))
                 .thenReturn(null);
 
+        // Entrant lists page through orderBy/limit queries
+        Query mockPage = Mockito.mock(Query.class);
+        Mockito.when(mockCollection.orderBy(Mockito.anyString()))
+                .thenReturn(mockPage);
+        Mockito.when(mockPage.limit(Mockito.anyLong()))
+                .thenReturn(mockPage);
+        Mockito.when(mockPage.addSnapshotListener(Mockito.any()))
+                .thenReturn(null);
+
+        // The waiting count is an aggregation; leave it pending
+        AggregateQuery mockCount = Mockito.mock(AggregateQuery.class);
+        Task<AggregateQuerySnapshot> mockCountTask = Mockito.mock(Task.class);
+        Mockito.when(mockCollection.count())
+                .thenReturn(mockCount);
+        Mockito.when(mockCount.get(Mockito.any()))
+                .thenReturn(mockCountTask);
+
         // Simulate get() returning a Task object
         Mockito.when(mockCollection.get())
                 .thenReturn(mockTask);
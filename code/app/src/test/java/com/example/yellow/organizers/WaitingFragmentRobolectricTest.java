@@ -5,12 +5,12 @@ import static org.robolectric.Shadows.shadowOf;
 
 import android.os.Bundle;
 import android.view.View;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.yellow.R;
 import com.example.yellow.ui.ManageEntrants.WaitingFragment;
@@ -21,6 +21,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.robolectric.Robolectric;
@@ -37,6 +38,7 @@ public class WaitingFragmentRobolectricTest {
     private FirebaseFirestore mockDb;
     private CollectionReference mockCollection;
     private DocumentReference mockDocument;
+    private Query mockPage;
 
     private FragmentActivity activity;
     private WaitingFragment fragment;
@@ -70,6 +72,21 @@ public class WaitingFragmentRobolectricTest {
         Mockito.when(emptySnapshot.getDocuments()).thenReturn(Collections.emptyList());
         Mockito.when(mockCollection.get()).thenReturn(Tasks.forResult(emptySnapshot));
 
+        // lists are paged: orderBy → (startAfter) → limit → snapshot listener.
+        // The waiting list gets its own query so the test can feed it pages.
+        CollectionReference waitingList = Mockito.mock(CollectionReference.class);
+        Mockito.when(mockDocument.collection("waitingList")).thenReturn(waitingList);
+        Mockito.when(waitingList.get()).thenReturn(Tasks.forResult(emptySnapshot));
+        mockPage = pagedQuery(waitingList);
+        pagedQuery(mockCollection);
+
+        // "people waiting" header comes from a count aggregation
+        AggregateQuery countQuery = Mockito.mock(AggregateQuery.class);
+        AggregateQuerySnapshot countResult = Mockito.mock(AggregateQuerySnapshot.class);
+        Mockito.when(countResult.getCount()).thenReturn(0L);
+        Mockito.when(waitingList.count()).thenReturn(countQuery);
+        Mockito.when(countQuery.get(Mockito.any())).thenReturn(Tasks.forResult(countResult));
+
         // -------------------------
         // Create Activity
         // -------------------------
@@ -98,49 +115,92 @@ public class WaitingFragmentRobolectricTest {
         firestoreMock.close();
     }
 
+    private static Query pagedQuery(CollectionReference list) {
+        Query page = Mockito.mock(Query.class);
+        Mockito.when(list.orderBy(Mockito.anyString())).thenReturn(page);
+        Mockito.when(page.startAfter(Mockito.any(DocumentSnapshot.class))).thenReturn(page);
+        Mockito.when(page.limit(Mockito.anyLong())).thenReturn(page);
+        Mockito.when(page.addSnapshotListener(Mockito.any()))
+                .thenReturn(Mockito.mock(ListenerRegistration.class));
+        return page;
+    }
+
+    /** Delivers a snapshot to the waiting list's most recent page listener. */
+    @SuppressWarnings("unchecked")
+    private void deliverPage(QuerySnapshot snapshot) {
+        ArgumentCaptor<EventListener<QuerySnapshot>> captor =
+                ArgumentCaptor.forClass(EventListener.class);
+        Mockito.verify(mockPage, Mockito.atLeastOnce()).addSnapshotListener(captor.capture());
+        captor.getValue().onEvent(snapshot, null);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    }
+
+    private static QuerySnapshot snapshotOf(DocumentChange... changes) {
+        QuerySnapshot snapshot = Mockito.mock(QuerySnapshot.class);
+        java.util.List<DocumentSnapshot> docs = new java.util.ArrayList<>();
+        for (DocumentChange c : changes) {
+            if (c.getType() != DocumentChange.Type.REMOVED)
+                docs.add(c.getDocument());
+        }
+        Mockito.when(snapshot.isEmpty()).thenReturn(docs.isEmpty());
+        Mockito.when(snapshot.getDocuments()).thenReturn(docs);
+        Mockito.when(snapshot.getDocumentChanges()).thenReturn(java.util.Arrays.asList(changes));
+        return snapshot;
+    }
+
+    private static DocumentChange change(DocumentChange.Type type, String userId) {
+        QueryDocumentSnapshot doc = Mockito.mock(QueryDocumentSnapshot.class);
+        Mockito.when(doc.getId()).thenReturn(userId);
+        Mockito.when(doc.getString("userId")).thenReturn(userId);
+        Mockito.when(doc.getString("name")).thenReturn("Name " + userId);
+        Mockito.when(doc.getString("email")).thenReturn(userId + "@x.com");
+        Mockito.when(doc.contains("email")).thenReturn(true);
+
+        DocumentChange change = Mockito.mock(DocumentChange.class);
+        Mockito.when(change.getType()).thenReturn(type);
+        Mockito.when(change.getDocument()).thenReturn(doc);
+        return change;
+    }
+
     @Test
     public void testFragmentLaunches() {
         View root = fragment.getView();
         assertNotNull(root);
 
-        LinearLayout container = root.findViewById(R.id.waitingContainer);
+        RecyclerView container = root.findViewById(R.id.waitingContainer);
         assertNotNull(container);
     }
 
     @Test
     public void testEmptyStateShown() {
-        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        deliverPage(snapshotOf());
 
-        LinearLayout container = fragment.getView().findViewById(R.id.waitingContainer);
-        assertNotNull(container);
-
-        TextView msg = (TextView) container.getChildAt(0);
+        TextView msg = fragment.getView().findViewById(R.id.tvEmptyEntrants);
+        assertEquals(View.VISIBLE, msg.getVisibility());
         assertEquals("No waiting entrants.", msg.getText().toString());
     }
 
     @Test
     public void testFirestoreReturnsEntrants() {
+        deliverPage(snapshotOf(
+                change(DocumentChange.Type.ADDED, "u1"),
+                change(DocumentChange.Type.ADDED, "u2")));
+
+        RecyclerView container = fragment.getView().findViewById(R.id.waitingContainer);
+        assertEquals(2, container.getAdapter().getItemCount());
+        assertEquals(View.GONE,
+                fragment.getView().findViewById(R.id.tvEmptyEntrants).getVisibility());
+    }
 
-        // Fake populated snapshot
-        QuerySnapshot fakeSnapshot = Mockito.mock(QuerySnapshot.class);
-        Mockito.when(fakeSnapshot.isEmpty()).thenReturn(false);
-        Mockito.when(fakeSnapshot.getDocuments())
-                .thenReturn(Collections.singletonList(
-                        Mockito.mock(DocumentSnapshot.class)
-                ));
-        Mockito.when(mockCollection.get()).thenReturn(Tasks.forResult(fakeSnapshot));
-
-        // Force reload via detach/attach
-        FragmentTransaction txn = activity.getSupportFragmentManager()
-                .beginTransaction();
-        txn.detach(fragment);
-        txn.attach(fragment);
-        txn.commitNow();
-        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
-
-        LinearLayout container = fragment.getView().findViewById(R.id.waitingContainer);
-
-        assertTrue("Should contain entrant views", container.getChildCount() > 0);
+    @Test
+    public void testRemovedEntrantDropsOnlyThatCard() {
+        deliverPage(snapshotOf(
+                change(DocumentChange.Type.ADDED, "u1"),
+                change(DocumentChange.Type.ADDED, "u2")));
+        deliverPage(snapshotOf(change(DocumentChange.Type.REMOVED, "u1")));
+
+        RecyclerView container = fragment.getView().findViewById(R.id.waitingContainer);
+        assertEquals(1, container.getAdapter().getItemCount());
     }
 
     @Test
@@ -158,7 +218,7 @@ public class WaitingFragmentRobolectricTest {
         View root = frag.getView();
         assertNotNull(root);
 
-        LinearLayout container = root.findViewById(R.id.waitingContainer);
+        RecyclerView container = root.findViewById(R.id.waitingContainer);
         assertNotNull(container);
     }
-}
\ No newline at end of file
+}
@@ -3,9 +3,12 @@ package com.example.yellow.ui;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -17,13 +20,17 @@ import androidx.test.ext.junit.runners.AndroidJUnit4;
 
 import com.example.yellow.R;
 import com.example.yellow.organizers.Event;
-import com.google.android.gms.tasks.Task;
+import com.example.yellow.utils.LocalEventCache;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 import com.google.firebase.firestore.QuerySnapshot;
 
@@ -35,9 +42,11 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -48,7 +57,9 @@ import java.util.List;
  * device.
  * They use "Mocks" (fake versions) of Firebase to simulate different scenarios
  * (like finding 0 events, 1 event, or 20 events) to ensure the app handles them
- * correctly.
+ * correctly. History is built from the user's participation index, or from
+ * collection-group queries on the participant lists when the index is empty,
+ * followed by a whereIn lookup of the matching events.
  */
 @RunWith(AndroidJUnit4.class)
 @Config(sdk = 34)
@@ -63,21 +74,19 @@ public class HistoryFragmentTest {
     @Mock
     private CollectionReference mockEventsCollection;
     @Mock
-    private Task<QuerySnapshot> mockQueryTask;
+    private Query mockWaitingListGroup;
     @Mock
-    private QuerySnapshot mockQuerySnapshot;
+    private Query mockOtherListGroup;
     @Mock
-    private DocumentReference mockEventRef;
+    private Query mockEventsByIdQuery;
     @Mock
-    private CollectionReference mockSubCollection;
-    @Mock
-    private DocumentReference mockUserInSubCollection;
-    @Mock
-    private Task<DocumentSnapshot> mockSubCollectionTask;
+    private CollectionReference mockParticipations;
 
     private MockedStatic<FirebaseAuth> mockedAuthStatic;
     private MockedStatic<FirebaseFirestore> mockedDbStatic;
     private MockedStatic<com.example.yellow.utils.ProfileUtils> mockedProfileUtils;
+    private MockedStatic<LocalEventCache> mockedCacheStatic;
+    private LocalEventCache mockCache;
 
     /**
      * Sets up the test environment before each test runs.
@@ -105,17 +114,38 @@ public class HistoryFragmentTest {
                     return null;
                 });
 
+        // Start every test with an empty local cache
+        mockCache = mock(LocalEventCache.class);
+        mockedCacheStatic = mockStatic(LocalEventCache.class);
+        mockedCacheStatic.when(() -> LocalEventCache.getInstance(any())).thenReturn(mockCache);
+        when(mockCache.load(anyString(), anyString()))
+                .thenReturn(Tasks.forResult(new LocalEventCache.Snapshot(Collections.emptyList(), 0)));
+        when(mockCache.replace(anyString(), anyString(), anyList(), anyBoolean()))
+                .thenReturn(Tasks.forResult(null));
+
         when(mockAuth.getCurrentUser()).thenReturn(mockUser);
         when(mockUser.getUid()).thenReturn("test_user_id");
 
         when(mockDb.collection("events")).thenReturn(mockEventsCollection);
-        when(mockEventsCollection.get()).thenReturn(mockQueryTask);
 
-        // Setup generic subcollection mocking (for checkUserInEvent)
-        when(mockEventsCollection.document(anyString())).thenReturn(mockEventRef);
-        when(mockEventRef.collection(anyString())).thenReturn(mockSubCollection);
-        when(mockSubCollection.document(anyString())).thenReturn(mockUserInSubCollection);
-        when(mockUserInSubCollection.get()).thenReturn(mockSubCollectionTask);
+        // profiles/test_user_id/participations, empty unless a test says otherwise
+        CollectionReference mockProfiles = mock(CollectionReference.class);
+        DocumentReference mockProfileDoc = mock(DocumentReference.class);
+        when(mockDb.collection("profiles")).thenReturn(mockProfiles);
+        when(mockProfiles.document("test_user_id")).thenReturn(mockProfileDoc);
+        when(mockProfileDoc.collection("participations")).thenReturn(mockParticipations);
+        when(mockParticipations.get()).thenReturn(Tasks.forResult(snapshotOf(Collections.emptyList())));
+
+        // Collection-group lookups: the user's entries come back from "waitingList",
+        // the other three lists are empty unless a test says otherwise
+        when(mockDb.collectionGroup(anyString())).thenReturn(mockOtherListGroup);
+        when(mockDb.collectionGroup("waitingList")).thenReturn(mockWaitingListGroup);
+        when(mockWaitingListGroup.whereEqualTo("userId", "test_user_id")).thenReturn(mockWaitingListGroup);
+        when(mockOtherListGroup.whereEqualTo("userId", "test_user_id")).thenReturn(mockOtherListGroup);
+        when(mockOtherListGroup.get()).thenReturn(Tasks.forResult(snapshotOf(Collections.emptyList())));
+
+        // Events fetched by ID in whereIn chunks
+        when(mockEventsCollection.whereIn(any(FieldPath.class), anyList())).thenReturn(mockEventsByIdQuery);
     }
 
     @After
@@ -123,22 +153,24 @@ public class HistoryFragmentTest {
         mockedAuthStatic.close();
         mockedDbStatic.close();
         mockedProfileUtils.close();
+        mockedCacheStatic.close();
     }
 
     /**
      * Scenario: The user has NO event history.
      * <p>
      * Test:
-     * 1. Mock Firebase returning an empty list of events.
+     * 1. Mock Firebase returning no list entries for the user.
      * 2. Launch the HistoryFragment.
      * 3. Check that the RecyclerView (the list) has 0 items.
      */
     @Test
     public void testLoadHistory_empty() {
-        // Mock empty events collection
-        mockQuerySuccess(Collections.emptyList());
+        // User has no entries in any list
+        mockHistory(Collections.emptyList());
 
         FragmentScenario<HistoryFragment> scenario = FragmentScenario.launchInContainer(HistoryFragment.class);
+        ShadowLooper.idleMainLooper();
 
         scenario.onFragment(fragment -> {
             RecyclerView rv = fragment.getView().findViewById(R.id.rvHistory);
@@ -151,22 +183,20 @@ public class HistoryFragmentTest {
      * Scenario: The user has exactly ONE event in their history.
      * <p>
      * Test:
-     * 1. Mock Firebase returning 1 event.
-     * 2. Mock that the user is in the "waitingList" for that event.
+     * 1. Mock that the user is in the "waitingList" for 1 event.
+     * 2. Mock Firebase returning that event by ID.
      * 3. Launch the HistoryFragment.
      * 4. Check that the RecyclerView has 1 item.
      */
     @Test
     public void testLoadHistory_singleItem() {
-        // Mock 1 event
+        // Mock 1 event, with the user in its "waitingList"
         List<QueryDocumentSnapshot> docs = new ArrayList<>();
         docs.add(createMockEventSnapshot("event_1", "Single Event"));
-        mockQuerySuccess(docs);
-
-        // Mock user being in the "waitingList" for this event
-        mockUserInSubCollection(true);
+        mockHistory(docs);
 
         FragmentScenario<HistoryFragment> scenario = FragmentScenario.launchInContainer(HistoryFragment.class);
+        ShadowLooper.idleMainLooper();
 
         scenario.onFragment(fragment -> {
             RecyclerView rv = fragment.getView().findViewById(R.id.rvHistory);
@@ -185,8 +215,8 @@ public class HistoryFragmentTest {
      * Scenario: The user has MANY events (20), enough to scroll.
      * <p>
      * Test:
-     * 1. Mock Firebase returning 20 events.
-     * 2. Mock that the user is in the list for all of them.
+     * 1. Mock that the user is in the list for 20 events.
+     * 2. Mock Firebase returning those 20 events by ID.
      * 3. Launch the HistoryFragment.
      * 4. Check that the RecyclerView has 20 items.
      * 5. Verify that the list reports it is scrollable.
@@ -198,12 +228,11 @@ public class HistoryFragmentTest {
         for (int i = 0; i < 20; i++) {
             docs.add(createMockEventSnapshot("event_" + i, "Event " + i));
         }
-        mockQuerySuccess(docs);
-
-        // Mock user being in the list for ALL events
-        mockUserInSubCollection(true);
+        // User is in the list for ALL events
+        mockHistory(docs);
 
         FragmentScenario<HistoryFragment> scenario = FragmentScenario.launchInContainer(HistoryFragment.class);
+        ShadowLooper.idleMainLooper();
 
         scenario.onFragment(fragment -> {
             RecyclerView rv = fragment.getView().findViewById(R.id.rvHistory);
@@ -224,22 +253,115 @@ public class HistoryFragmentTest {
         });
     }
 
-    // --- Helpers ---
+    /**
+     * Scenario: The user's participation index lists their events.
+     * <p>
+     * Test:
+     * 1. Mock the index with 3 events and leave the participant lists empty.
+     * 2. Launch the HistoryFragment.
+     * 3. Check that the 3 events are shown and no list was scanned.
+     */
+    @Test
+    public void testLoadHistory_fromParticipationIndex() {
+        List<QueryDocumentSnapshot> events = new ArrayList<>();
+        List<QueryDocumentSnapshot> index = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            events.add(createMockEventSnapshot("event_" + i, "Event " + i));
+            QueryDocumentSnapshot entry = mock(QueryDocumentSnapshot.class);
+            when(entry.getId()).thenReturn("event_" + i);
+            when(entry.getString("status")).thenReturn("waiting");
+            index.add(entry);
+        }
+        when(mockParticipations.get()).thenReturn(Tasks.forResult(snapshotOf(index)));
+        when(mockEventsByIdQuery.get()).thenReturn(Tasks.forResult(snapshotOf(events)));
+
+        FragmentScenario<HistoryFragment> scenario = FragmentScenario.launchInContainer(HistoryFragment.class);
+        ShadowLooper.idleMainLooper();
+
+        scenario.onFragment(fragment -> {
+            RecyclerView rv = fragment.getView().findViewById(R.id.rvHistory);
+            assertEquals(3, rv.getAdapter().getItemCount());
+        });
+        verify(mockDb, never()).collectionGroup(anyString());
+    }
+
+    /**
+     * Scenario: The history was cached by a recent full load.
+     * <p>
+     * Test:
+     * 1. Mock a cached event with an updatedAt and an index listing it.
+     * 2. Launch the HistoryFragment.
+     * 3. Check the cached event is shown and only edits since updatedAt were queried.
+     */
+    @Test
+    public void testLoadHistory_cachedRefreshesDelta() {
+        Event cachedEvent = new Event();
+        cachedEvent.setId("event_1");
+        cachedEvent.setEventName("Cached Event");
+        Timestamp updatedAt = new Timestamp(new Date(1_700_000_000_000L));
+        cachedEvent.setUpdatedAt(updatedAt);
+        when(mockCache.load(anyString(), anyString())).thenReturn(Tasks.forResult(
+                new LocalEventCache.Snapshot(Collections.singletonList(cachedEvent), System.currentTimeMillis())));
+
+        QueryDocumentSnapshot entry = mock(QueryDocumentSnapshot.class);
+        when(entry.getId()).thenReturn("event_1");
+        when(mockParticipations.get()).thenReturn(Tasks.forResult(snapshotOf(Collections.singletonList(entry))));
+
+        // Nothing changed on the server since the cached row
+        Query mockDeltaQuery = mock(Query.class);
+        when(mockEventsByIdQuery.whereGreaterThan("updatedAt", updatedAt)).thenReturn(mockDeltaQuery);
+        when(mockDeltaQuery.get()).thenReturn(Tasks.forResult(snapshotOf(Collections.emptyList())));
+
+        FragmentScenario<HistoryFragment> scenario = FragmentScenario.launchInContainer(HistoryFragment.class);
+        ShadowLooper.idleMainLooper();
 
-    private void mockQuerySuccess(List<QueryDocumentSnapshot> results) {
-        when(mockQueryTask.addOnSuccessListener(any())).thenAnswer(invocation -> {
-            com.google.android.gms.tasks.OnSuccessListener listener = invocation.getArgument(0);
-            when(mockQuerySnapshot.isEmpty()).thenReturn(results.isEmpty());
-            // Cast to List<DocumentSnapshot> because getDocuments returns that, even though
-            // they are QueryDocumentSnapshots
-            List<DocumentSnapshot> castedResults = new ArrayList<>(results);
-            when(mockQuerySnapshot.getDocuments()).thenReturn(castedResults);
-            when(mockQuerySnapshot.iterator()).thenReturn(results.iterator());
-            when(mockQuerySnapshot.size()).thenReturn(results.size());
-            listener.onSuccess(mockQuerySnapshot);
-            return mockQueryTask;
+        scenario.onFragment(fragment -> {
+            RecyclerView rv = fragment.getView().findViewById(R.id.rvHistory);
+            assertEquals(1, rv.getAdapter().getItemCount());
         });
-        when(mockQueryTask.addOnFailureListener(any())).thenReturn(mockQueryTask);
+        verify(mockEventsByIdQuery).whereGreaterThan("updatedAt", updatedAt);
+        verify(mockEventsByIdQuery, never()).get();
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Puts the user in the "waitingList" of each given event and makes the
+     * whereIn lookup return those events.
+     */
+    private void mockHistory(List<QueryDocumentSnapshot> events) {
+        List<QueryDocumentSnapshot> entries = new ArrayList<>();
+        for (QueryDocumentSnapshot event : events) {
+            entries.add(createMockListEntry(event.getId()));
+        }
+        when(mockWaitingListGroup.get()).thenReturn(Tasks.forResult(snapshotOf(entries)));
+        when(mockEventsByIdQuery.get()).thenReturn(Tasks.forResult(snapshotOf(events)));
+    }
+
+    private QuerySnapshot snapshotOf(List<QueryDocumentSnapshot> results) {
+        QuerySnapshot snapshot = mock(QuerySnapshot.class);
+        when(snapshot.isEmpty()).thenReturn(results.isEmpty());
+        // Cast to List<DocumentSnapshot> because getDocuments returns that, even though
+        // they are QueryDocumentSnapshots
+        when(snapshot.getDocuments()).thenReturn(new ArrayList<DocumentSnapshot>(results));
+        when(snapshot.iterator()).thenReturn(results.iterator());
+        when(snapshot.size()).thenReturn(results.size());
+        return snapshot;
+    }
+
+    /** A list entry at events/{eventId}/waitingList/test_user_id. */
+    private QueryDocumentSnapshot createMockListEntry(String eventId) {
+        DocumentReference eventRef = mock(DocumentReference.class);
+        when(eventRef.getId()).thenReturn(eventId);
+        CollectionReference list = mock(CollectionReference.class);
+        when(list.getParent()).thenReturn(eventRef);
+        DocumentReference entryRef = mock(DocumentReference.class);
+        when(entryRef.getParent()).thenReturn(list);
+
+        QueryDocumentSnapshot entry = mock(QueryDocumentSnapshot.class);
+        when(entry.getReference()).thenReturn(entryRef);
+        when(entry.getString("userId")).thenReturn("test_user_id");
+        return entry;
     }
 
     private QueryDocumentSnapshot createMockEventSnapshot(String id, String name) {
@@ -250,17 +372,4 @@ public class HistoryFragmentTest {
         when(doc.toObject(Event.class)).thenReturn(event);
         return doc;
     }
-
-    private void mockUserInSubCollection(boolean exists) {
-        when(mockSubCollectionTask.addOnCompleteListener(any())).thenAnswer(invocation -> {
-            com.google.android.gms.tasks.OnCompleteListener listener = invocation.getArgument(0);
-            Task<DocumentSnapshot> task = mock(Task.class);
-            when(task.isSuccessful()).thenReturn(true);
-            DocumentSnapshot res = mock(DocumentSnapshot.class);
-            when(res.exists()).thenReturn(exists);
-            when(task.getResult()).thenReturn(res);
-            listener.onComplete(task);
-            return mockSubCollectionTask;
-        });
-    }
 }
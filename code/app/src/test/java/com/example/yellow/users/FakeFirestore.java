@@ -0,0 +1,217 @@
+package com.example.yellow.users;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Transaction;
+
+import org.mockito.Answers;
+import org.mockito.invocation.Invocation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mocked Firestore over an in-memory set of documents, for testing
+ * transactions without a backend. References are mocks keyed by path;
+ * {@link #db} runs transactions straight away against {@link #tx}, whose
+ * reads come from the documents {@link #put} here. Writes are not applied;
+ * tests inspect them through {@link #reads}, {@link #sets} and
+ * {@link #deletes}.
+ *
+ * A query on a collection returns its documents in the order they were put.
+ */
+final class FakeFirestore {
+
+    final Transaction tx = mock(Transaction.class, inv -> {
+        switch (inv.getMethod().getName()) {
+            case "get":
+                return snapshot(inv.getArgument(0));
+            case "set":
+            case "update":
+            case "delete":
+                return inv.getMock();
+            default:
+                return Answers.RETURNS_DEFAULTS.answer(inv);
+        }
+    });
+
+    final FirebaseFirestore db = mock(FirebaseFirestore.class, inv -> {
+        switch (inv.getMethod().getName()) {
+            case "collection":
+                return collection(inv.getArgument(0));
+            case "runTransaction":
+                try {
+                    Transaction.Function<?> function = inv.getArgument(inv.getArguments().length - 1);
+                    return Tasks.forResult(function.apply(tx));
+                } catch (Exception e) {
+                    return Tasks.forException(e);
+                }
+            default:
+                return Answers.RETURNS_DEFAULTS.answer(inv);
+        }
+    });
+
+    private final Map<String, DocumentReference> docs = new HashMap<>();
+    private final Map<String, CollectionReference> collections = new HashMap<>();
+    private final Map<String, Map<String, Object>> data = new LinkedHashMap<>();
+
+    /**
+     * Stores a document. {@code fields} alternates names and values.
+     */
+    void put(String path, Object... fields) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            map.put((String) fields[i], fields[i + 1]);
+        }
+        data.put(path, map);
+    }
+
+    DocumentReference doc(String path) {
+        return docs.computeIfAbsent(path, p -> mock(DocumentReference.class, inv -> {
+            switch (inv.getMethod().getName()) {
+                case "getPath":
+                    return p;
+                case "getId":
+                    return p.substring(p.lastIndexOf('/') + 1);
+                case "collection":
+                    return collection(p + "/" + inv.getArgument(0));
+                default:
+                    return Answers.RETURNS_DEFAULTS.answer(inv);
+            }
+        }));
+    }
+
+    CollectionReference collection(String path) {
+        return collections.computeIfAbsent(path, p -> mock(CollectionReference.class, inv -> {
+            switch (inv.getMethod().getName()) {
+                case "getPath":
+                    return p;
+                case "document":
+                    return doc(p + "/" + inv.getArgument(0));
+                case "orderBy":
+                case "limit":
+                    return query(p);
+                default:
+                    return Answers.RETURNS_DEFAULTS.answer(inv);
+            }
+        }));
+    }
+
+    /** Paths read by the transaction, in order. */
+    List<String> reads() {
+        return paths("get");
+    }
+
+    /** Paths set by the transaction, in order. */
+    List<String> sets() {
+        return paths("set");
+    }
+
+    /** Paths deleted by the transaction, in order. */
+    List<String> deletes() {
+        return paths("delete");
+    }
+
+    /** The data of the last {@code set} of {@code path}, or null. */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> setData(String path) {
+        Map<String, Object> last = null;
+        for (Invocation inv : mockingDetails(tx).getInvocations()) {
+            if (inv.getMethod().getName().equals("set")
+                    && path.equals(((DocumentReference) inv.getArgument(0)).getPath())) {
+                last = (Map<String, Object>) inv.getArgument(1);
+            }
+        }
+        return last;
+    }
+
+    private List<String> paths(String method) {
+        List<String> paths = new ArrayList<>();
+        for (Invocation inv : mockingDetails(tx).getInvocations()) {
+            if (inv.getMethod().getName().equals(method)) {
+                paths.add(((DocumentReference) inv.getArgument(0)).getPath());
+            }
+        }
+        return paths;
+    }
+
+    private Query query(String collectionPath) {
+        return mock(Query.class, inv -> {
+            switch (inv.getMethod().getName()) {
+                case "orderBy":
+                case "limit":
+                    return inv.getMock();
+                case "get":
+                    return Tasks.forResult(querySnapshot(collectionPath));
+                default:
+                    return Answers.RETURNS_DEFAULTS.answer(inv);
+            }
+        });
+    }
+
+    private QuerySnapshot querySnapshot(String collectionPath) {
+        List<DocumentSnapshot> found = new ArrayList<>();
+        for (String path : data.keySet()) {
+            if (path.startsWith(collectionPath + "/")
+                    && path.indexOf('/', collectionPath.length() + 1) < 0) {
+                found.add(snapshot(doc(path)));
+            }
+        }
+        return mock(QuerySnapshot.class, inv -> {
+            switch (inv.getMethod().getName()) {
+                case "isEmpty":
+                    return found.isEmpty();
+                case "getDocuments":
+                    return found;
+                case "size":
+                    return found.size();
+                default:
+                    return Answers.RETURNS_DEFAULTS.answer(inv);
+            }
+        });
+    }
+
+    private DocumentSnapshot snapshot(DocumentReference ref) {
+        Map<String, Object> fields = data.get(ref.getPath());
+        return mock(DocumentSnapshot.class, inv -> {
+            String method = inv.getMethod().getName();
+            switch (method) {
+                case "exists":
+                    return fields != null;
+                case "getId":
+                    return ref.getId();
+                case "getReference":
+                    return ref;
+                case "getData":
+                    return fields;
+                case "contains":
+                    return fields != null && fields.containsKey(inv.<String>getArgument(0));
+                case "get":
+                case "getString":
+                case "getLong":
+                    if (inv.getArguments().length != 1 || !(inv.getArgument(0) instanceof String))
+                        break;
+                    Object value = fields != null ? fields.get(inv.<String>getArgument(0)) : null;
+                    if (method.equals("getLong"))
+                        return value instanceof Number ? ((Number) value).longValue() : null;
+                    if (method.equals("getString"))
+                        return value instanceof String ? value : null;
+                    return value;
+                default:
+                    break;
+            }
+            return Answers.RETURNS_DEFAULTS.answer(inv);
+        });
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.yellow.users;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.yellow.utils.Geohash;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockedStatic;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class PendingActionQueueTest {
+
+    private static final long T0 = 1_700_000_000_000L;
+
+    private MockedStatic<FirebaseAuth> authStatic;
+    private Context context;
+
+    // what the fake sender was asked to send, and what it answers next
+    private final List<String> sent = new ArrayList<>();
+    private final Deque<Task<Object>> answers = new ArrayDeque<>();
+    private long now = T0;
+
+    @Before
+    public void setUp() {
+        FirebaseAuth auth = mock(FirebaseAuth.class);
+        when(auth.getUid()).thenReturn("u1");
+        authStatic = mockStatic(FirebaseAuth.class);
+        authStatic.when(FirebaseAuth::getInstance).thenReturn(auth);
+
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase("pending_actions.db");
+    }
+
+    @After
+    public void tearDown() {
+        authStatic.close();
+    }
+
+    @Test
+    public void drain_sendsActionsInTheOrderTheyWereMade() {
+        // the first send stays open until the rest are queued behind it
+        TaskCompletionSource<Object> first = new TaskCompletionSource<>();
+        answers.add(first.getTask());
+        answers.add(Tasks.forResult(SelectionTransactions.AcceptResult.ENROLLED));
+        answers.add(Tasks.forResult(null));
+        PendingActionQueue queue = newQueue();
+
+        Task<WaitingListTransactions.JoinResult> join = queue.join("e1", new WaitingUser("u1", "e1"));
+        settle(() -> sent.size() == 1);
+        Task<SelectionTransactions.AcceptResult> accept = queue.accept("e2", "n2");
+        Task<String> decline = queue.decline("e3", "n3");
+        settle(() -> false);
+
+        first.setResult(WaitingListTransactions.JoinResult.JOINED);
+        settle(decline::isComplete);
+
+        assertEquals(Arrays.asList("join e1", "accept e2", "decline e3"), sent);
+        assertEquals(WaitingListTransactions.JoinResult.JOINED, join.getResult());
+        assertEquals(SelectionTransactions.AcceptResult.ENROLLED, accept.getResult());
+        assertTrue(decline.isSuccessful());
+    }
+
+    @Test
+    public void leave_cancelsJoinThatWasNotSent() {
+        // an accept in flight keeps the join queued
+        answers.add(new TaskCompletionSource<Object>().getTask());
+        PendingActionQueue queue = newQueue();
+
+        queue.accept("e0", null);
+        settle(() -> sent.size() == 1);
+        Task<WaitingListTransactions.JoinResult> join = queue.join("e1", new WaitingUser("u1", "e1"));
+        Task<Boolean> leave = queue.leave("e1");
+        settle(leave::isComplete);
+
+        assertFalse(leave.getResult());
+        assertTrue(join.isComplete());
+        assertTrue(join.getException() instanceof CancellationException);
+        assertEquals(Arrays.asList("accept e0"), sent);
+    }
+
+    @Test
+    public void drain_keepsActionWhileFirestoreIsUnavailable() {
+        answers.add(Tasks.forException(error(FirebaseFirestoreException.Code.UNAVAILABLE)));
+        answers.add(Tasks.forResult(true));
+        PendingActionQueue queue = newQueue();
+
+        Task<Boolean> leave = queue.leave("e1");
+        settle(() -> sent.size() == 1);
+        assertFalse(leave.isComplete());
+
+        // the network is back
+        queue.drain();
+        settle(leave::isComplete);
+
+        assertEquals(Arrays.asList("leave e1", "leave e1"), sent);
+        assertTrue(leave.getResult());
+    }
+
+    @Test
+    public void drain_dropsActionOnOtherErrorsAndMovesOn() {
+        FirebaseFirestoreException denied = error(FirebaseFirestoreException.Code.PERMISSION_DENIED);
+        answers.add(Tasks.forException(denied));
+        answers.add(Tasks.forResult(true));
+        PendingActionQueue queue = newQueue();
+
+        Task<SelectionTransactions.AcceptResult> accept = queue.accept("e1", "n1");
+        Task<Boolean> leave = queue.leave("e2");
+        settle(leave::isComplete);
+
+        assertSame(denied, accept.getException());
+        assertTrue(leave.getResult());
+
+        queue.drain();
+        settle(() -> false);
+        assertEquals(Arrays.asList("accept e1", "leave e2"), sent);
+    }
+
+    @Test
+    public void drain_dropsActionsOlderThanMaxAge() {
+        answers.add(Tasks.forException(error(FirebaseFirestoreException.Code.UNAVAILABLE)));
+        PendingActionQueue queue = newQueue();
+
+        Task<Boolean> leave = queue.leave("e1");
+        settle(() -> sent.size() == 1);
+
+        now = T0 + PendingActionQueue.MAX_AGE_MS + 1;
+        queue.drain();
+        settle(leave::isComplete);
+
+        assertTrue(leave.getException() instanceof IllegalStateException);
+        assertEquals(Arrays.asList("leave e1"), sent);
+    }
+
+    @Test
+    public void isRetryable_onlyForNetworkAndContention() {
+        assertTrue(PendingActionQueue.isRetryable(error(FirebaseFirestoreException.Code.UNAVAILABLE)));
+        assertTrue(PendingActionQueue.isRetryable(error(FirebaseFirestoreException.Code.DEADLINE_EXCEEDED)));
+        assertTrue(PendingActionQueue.isRetryable(error(FirebaseFirestoreException.Code.ABORTED)));
+
+        assertFalse(PendingActionQueue.isRetryable(error(FirebaseFirestoreException.Code.NOT_FOUND)));
+        assertFalse(PendingActionQueue.isRetryable(error(FirebaseFirestoreException.Code.PERMISSION_DENIED)));
+        assertFalse(PendingActionQueue.isRetryable(new IllegalStateException()));
+        assertFalse(PendingActionQueue.isRetryable(null));
+    }
+
+    @Test
+    public void entryOf_restoresQueuedJoin() throws Exception {
+        JSONObject payload = new JSONObject()
+                .put("name", "Ada")
+                .put("email", "ada@example.com")
+                .put("lat", 53.5)
+                .put("lng", -113.5);
+        PendingActionQueue.Action action = new PendingActionQueue.Action(
+                1, "u1", PendingActionQueue.JOIN, "e1", payload, 0);
+
+        WaitingUser entry = PendingActionQueue.entryOf(action);
+
+        assertEquals("u1", entry.userId);
+        assertEquals("e1", entry.eventId);
+        assertEquals("Ada", entry.getName());
+        assertEquals("ada@example.com", entry.getEmail());
+        assertEquals(53.5, entry.getLatitude(), 0);
+        assertEquals(-113.5, entry.getLongitude(), 0);
+        assertEquals(Geohash.encode(53.5, -113.5, Geohash.STORED_PRECISION), entry.getGeohash());
+    }
+
+    @Test
+    public void entryOf_withoutLocation_leavesItUnset() {
+        PendingActionQueue.Action action = new PendingActionQueue.Action(
+                1, "u1", PendingActionQueue.JOIN, "e1", new JSONObject(), 0);
+
+        WaitingUser entry = PendingActionQueue.entryOf(action);
+
+        assertNull(entry.getLatitude());
+        assertNull(entry.getLongitude());
+        assertNull(entry.getGeohash());
+    }
+
+    private PendingActionQueue newQueue() {
+        return new PendingActionQueue(context, action -> {
+            sent.add(action.type + " " + action.eventId);
+            Task<Object> answer = answers.poll();
+            return answer != null ? answer : Tasks.forException(new IllegalStateException("unexpected send"));
+        }, () -> now);
+    }
+
+    /**
+     * Runs the queue's database thread and main-thread callbacks until
+     * {@code done} holds, or for a short while if it never does.
+     */
+    private static void settle(BooleanSupplier done) {
+        for (int i = 0; i < 50 && !done.getAsBoolean(); i++) {
+            ShadowLooper.idleMainLooper();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        ShadowLooper.idleMainLooper();
+    }
+
+    private static FirebaseFirestoreException error(FirebaseFirestoreException.Code code) {
+        return new FirebaseFirestoreException("test", code);
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.yellow.users;
+
+import static org.junit.Assert.*;
+
+import com.google.android.gms.tasks.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class SelectionTransactionsTest {
+
+    private static final String EVENT = "events/e1";
+    private static final String ENROLLED_SHARDS = EVENT + "/counters/enrolled/shards/";
+    private static final String WAITLISTED_SHARDS = EVENT + "/counters/waitlisted/shards/";
+    private static final String NOTIFICATION = "profiles/u1/notifications/n1";
+
+    private FakeFirestore fs;
+
+    @Before
+    public void setUp() {
+        fs = new FakeFirestore();
+    }
+
+    @Test
+    public void accept_selected_movesToEnrolled() {
+        fs.put(EVENT, "maxEntrants", 5L);
+        fs.put(EVENT + "/selected/u1", "userId", "u1", "name", "Ada", "email", "ada@example.com");
+
+        assertEquals(SelectionTransactions.AcceptResult.ENROLLED, accept().getResult());
+        assertEquals(Arrays.asList(EVENT + "/selected/u1", NOTIFICATION), fs.deletes());
+        assertEquals("ada@example.com", fs.setData(EVENT + "/enrolled/u1").get("email"));
+        assertEquals("enrolled", fs.setData("profiles/u1/participations/e1").get("status"));
+        // capped, yet only one enrolled shard is read and written
+        assertEquals(1, under(ENROLLED_SHARDS, fs.reads()).size());
+        assertEquals(under(ENROLLED_SHARDS, fs.reads()), under(ENROLLED_SHARDS, fs.sets()));
+    }
+
+    @Test
+    public void accept_alreadyEnrolled_onlyRemovesNotification() {
+        fs.put(EVENT);
+        fs.put(EVENT + "/enrolled/u1", "userId", "u1");
+
+        assertEquals(SelectionTransactions.AcceptResult.ALREADY_ENROLLED, accept().getResult());
+        assertEquals(Collections.singletonList(NOTIFICATION), fs.deletes());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void accept_notSelected_onlyRemovesNotification() {
+        fs.put(EVENT);
+
+        assertEquals(SelectionTransactions.AcceptResult.NOT_SELECTED, accept().getResult());
+        assertEquals(Collections.singletonList(NOTIFICATION), fs.deletes());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void accept_atMaxEntrants_isFull() {
+        fs.put(EVENT, "maxEntrants", 1L, "enrolled", 1L);
+        fs.put(EVENT + "/selected/u1", "userId", "u1");
+
+        assertEquals(SelectionTransactions.AcceptResult.FULL, accept().getResult());
+        assertTrue(fs.deletes().isEmpty());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void accept_cancelled_changesNothing() {
+        fs.put(EVENT);
+        fs.put(EVENT + "/cancelled/u1", "userId", "u1");
+        fs.put(EVENT + "/selected/u1", "userId", "u1");
+
+        assertEquals(SelectionTransactions.AcceptResult.CANCELLED, accept().getResult());
+        assertTrue(fs.deletes().isEmpty());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void decline_withoutAPlace_removesNotificationAndPromotesNobody() {
+        fs.put(EVENT);
+        fs.put(EVENT + "/waitingList/u2", "userId", "u2");
+
+        Task<String> promoted = decline();
+        ShadowLooper.idleMainLooper();
+
+        assertNull(promoted.getResult());
+        assertEquals(Collections.singletonList(NOTIFICATION), fs.deletes());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void decline_fromEnrolled_cancelsDecrementsAndPromotesNext() {
+        fs.put(EVENT);
+        fs.put(EVENT + "/enrolled/u1", "userId", "u1", "name", "Ada", "email", "ada@example.com");
+        fs.put(EVENT + "/waitingList/u2", "userId", "u2", "name", "Bo", "email", "bo@example.com");
+
+        Task<String> promoted = decline();
+        ShadowLooper.idleMainLooper();
+
+        assertEquals("u2", promoted.getResult());
+        assertTrue(fs.deletes().contains(EVENT + "/enrolled/u1"));
+        assertTrue(fs.deletes().contains(EVENT + "/waitingList/u2"));
+        assertEquals(1, under(ENROLLED_SHARDS, fs.sets()).size());
+        assertEquals(1, under(WAITLISTED_SHARDS, fs.sets()).size());
+        assertEquals("cancelled", fs.setData("profiles/u1/participations/e1").get("status"));
+        assertEquals("bo@example.com", fs.setData(EVENT + "/selected/u2").get("email"));
+    }
+
+    @Test
+    public void decline_fromSelected_leavesEnrolledCounterAlone() {
+        fs.put(EVENT);
+        fs.put(EVENT + "/selected/u1", "userId", "u1", "email", "ada@example.com");
+
+        Task<String> promoted = decline();
+        ShadowLooper.idleMainLooper();
+
+        assertNull(promoted.getResult());
+        assertTrue(fs.deletes().contains(EVENT + "/selected/u1"));
+        assertTrue(under(ENROLLED_SHARDS, fs.sets()).isEmpty());
+        assertNotNull(fs.setData(EVENT + "/cancelled/u1"));
+    }
+
+    private Task<SelectionTransactions.AcceptResult> accept() {
+        return SelectionTransactions.accept(fs.db, "u1", "e1", "n1");
+    }
+
+    private Task<String> decline() {
+        return SelectionTransactions.decline(fs.db, "u1", "e1", "n1");
+    }
+
+    private static List<String> under(String prefix, List<String> paths) {
+        List<String> matching = new ArrayList<>();
+        for (String path : paths) {
+            if (path.startsWith(prefix))
+                matching.add(path);
+        }
+        return matching;
+    }
+}
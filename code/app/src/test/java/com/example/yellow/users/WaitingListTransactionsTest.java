@@ -0,0 +1,195 @@
+package com.example.yellow.users;
+
+import static org.junit.Assert.*;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class WaitingListTransactionsTest {
+
+    private static final String EVENT = "events/e1";
+    private static final String SHARDS = EVENT + "/counters/waitlisted/shards/";
+    private static final String INDEX = "profiles/u1/participations/e1";
+
+    private FakeFirestore fs;
+
+    @Before
+    public void setUp() {
+        fs = new FakeFirestore();
+    }
+
+    @Test
+    public void join_capped_readsAndWritesOneCounterShard() {
+        fs.put(EVENT, "maxEntrants", 100L);
+
+        Task<WaitingListTransactions.JoinResult> result = join();
+
+        assertEquals(WaitingListTransactions.JoinResult.JOINED, result.getResult());
+        List<String> shardReads = shardPaths(fs.reads());
+        assertEquals(1, shardReads.size());
+        assertEquals(shardReads, shardPaths(fs.sets()));
+        assertTrue(fs.sets().contains(EVENT + "/waitingList/u1"));
+    }
+
+    @Test
+    public void join_uncapped_addsEntryCounterAndIndex() {
+        fs.put(EVENT);
+
+        assertEquals(WaitingListTransactions.JoinResult.JOINED, join().getResult());
+        assertTrue(fs.sets().contains(EVENT + "/waitingList/u1"));
+        assertTrue(fs.sets().contains(INDEX));
+        assertEquals("waiting", fs.setData(INDEX).get("status"));
+        assertEquals(1, shardPaths(fs.sets()).size());
+    }
+
+    @Test
+    public void join_atMaxEntrants_isFull() {
+        // counted before sharding: the legacy field alone fills the list
+        fs.put(EVENT, "maxEntrants", 2L, "waitlisted", 2L);
+
+        assertEquals(WaitingListTransactions.JoinResult.FULL, join().getResult());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void join_everyShardAtItsSlice_isFull() {
+        // a cap of 2 over 10 shards gives shards 0 and 1 one place each
+        fs.put(EVENT, "maxEntrants", 2L);
+        fs.put(SHARDS + "0", "count", 1L);
+        fs.put(SHARDS + "1", "count", 1L);
+
+        assertEquals(WaitingListTransactions.JoinResult.FULL, join().getResult());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void join_inAnotherList_withoutIndex_isRefused() {
+        fs.put(EVENT);
+        fs.put(EVENT + "/cancelled/u1");
+        assertEquals(WaitingListTransactions.JoinResult.CANCELLED, join().getResult());
+
+        fs = new FakeFirestore();
+        fs.put(EVENT);
+        fs.put(EVENT + "/enrolled/u1");
+        assertEquals(WaitingListTransactions.JoinResult.ALREADY_ENROLLED, join().getResult());
+
+        fs = new FakeFirestore();
+        fs.put(EVENT);
+        fs.put(EVENT + "/selected/u1");
+        assertEquals(WaitingListTransactions.JoinResult.ALREADY_SELECTED, join().getResult());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void join_blockedByIndexStatus() {
+        fs.put(EVENT);
+        fs.put(INDEX, "status", "cancelled");
+        assertEquals(WaitingListTransactions.JoinResult.CANCELLED, join().getResult());
+
+        fs = new FakeFirestore();
+        fs.put(EVENT);
+        fs.put(INDEX, "status", "enrolled");
+        assertEquals(WaitingListTransactions.JoinResult.ALREADY_ENROLLED, join().getResult());
+
+        fs = new FakeFirestore();
+        fs.put(EVENT);
+        fs.put(INDEX, "status", "selected");
+        assertEquals(WaitingListTransactions.JoinResult.ALREADY_SELECTED, join().getResult());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void join_alreadyWaiting_changesNothing() {
+        fs.put(EVENT, "maxEntrants", 10L);
+        fs.put(EVENT + "/waitingList/u1", "userId", "u1");
+
+        assertEquals(WaitingListTransactions.JoinResult.ALREADY_WAITING, join().getResult());
+        assertTrue(fs.sets().isEmpty());
+        // decided before the cap check, so no shard was read
+        assertTrue(shardPaths(fs.reads()).isEmpty());
+
+        fs = new FakeFirestore();
+        fs.put(EVENT);
+        fs.put(INDEX, "status", "waiting");
+        assertEquals(WaitingListTransactions.JoinResult.ALREADY_WAITING, join().getResult());
+    }
+
+    @Test
+    public void join_missingEvent_fails() {
+        Task<WaitingListTransactions.JoinResult> result = join();
+
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getException() instanceof FirebaseFirestoreException);
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void leave_removesEntryIndexAndOneFromCounter() {
+        fs.put(INDEX, "status", "waiting");
+        fs.put(EVENT + "/waitingList/u1", "userId", "u1");
+
+        assertTrue(leave().getResult());
+        assertTrue(fs.deletes().contains(EVENT + "/waitingList/u1"));
+        assertTrue(fs.deletes().contains(INDEX));
+        assertEquals(1, shardPaths(fs.sets()).size());
+    }
+
+    @Test
+    public void leave_staleIndexWithoutEntry_removesOnlyTheIndex() {
+        fs.put(INDEX, "status", "waiting");
+
+        assertFalse(leave().getResult());
+        assertEquals(Collections.singletonList(INDEX), fs.deletes());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    @Test
+    public void leave_selectedEnrolledOrCancelled_touchesNothing() {
+        for (String status : new String[] { "selected", "enrolled", "cancelled" }) {
+            fs = new FakeFirestore();
+            fs.put(INDEX, "status", status);
+            // an entry left behind must not be removed either
+            fs.put(EVENT + "/waitingList/u1", "userId", "u1");
+
+            assertFalse(status, leave().getResult());
+            assertTrue(status, fs.deletes().isEmpty());
+            assertTrue(status, fs.sets().isEmpty());
+        }
+    }
+
+    @Test
+    public void leave_notOnAnyList_touchesNothing() {
+        assertFalse(leave().getResult());
+        assertTrue(fs.deletes().isEmpty());
+        assertTrue(fs.sets().isEmpty());
+    }
+
+    private Task<Boolean> leave() {
+        return WaitingListTransactions.leave(fs.db, "e1", "u1");
+    }
+
+    private Task<WaitingListTransactions.JoinResult> join() {
+        return WaitingListTransactions.join(fs.db, "e1", "u1", new WaitingUser("u1", "e1"));
+    }
+
+    private static List<String> shardPaths(List<String> paths) {
+        List<String> shards = new ArrayList<>();
+        for (String path : paths) {
+            if (path.startsWith(SHARDS))
+                shards.add(path);
+        }
+        return shards;
+    }
+}
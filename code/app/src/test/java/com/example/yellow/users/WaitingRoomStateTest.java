@@ -0,0 +1,141 @@
+package com.example.yellow.users;
+
+import static org.junit.Assert.*;
+
+import com.example.yellow.users.WaitingRoomState.Membership;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WaitingRoomStateTest {
+
+    private WaitingRoomState state;
+
+    @Before
+    public void setup() {
+        state = new WaitingRoomState(new WaitingRoomLogic());
+        state.onServerCount(5);
+    }
+
+    @Test
+    public void join_showsAtOnce_thenFollowsServer() {
+        assertTrue(state.beginJoin());
+        assertEquals(Membership.JOINING, state.getMembership());
+        assertEquals(6, state.getDisplayedCount());
+
+        state.confirm(true);
+        assertEquals(Membership.IN, state.getMembership());
+        // confirmation came before the counter update: still 6, not 5
+        assertEquals(6, state.getDisplayedCount());
+
+        state.onServerCount(6);
+        assertEquals(6, state.getDisplayedCount());
+        state.onServerCount(9);
+        assertEquals(9, state.getDisplayedCount());
+    }
+
+    @Test
+    public void join_counterUpdateBeforeConfirm_isNotCountedTwice() {
+        state.beginJoin();
+        state.onServerCount(6);
+        assertEquals(6, state.getDisplayedCount());
+
+        state.confirm(true);
+        state.onServerCount(6);
+        assertEquals(6, state.getDisplayedCount());
+    }
+
+    @Test
+    public void join_failure_rollsBack() {
+        state.beginJoin();
+        state.rollback();
+
+        assertEquals(Membership.OUT, state.getMembership());
+        assertEquals(5, state.getDisplayedCount());
+    }
+
+    @Test
+    public void join_refusedByServer_dropsOptimisticCount() {
+        state.beginJoin();
+        state.confirm(false); // e.g. the list was full
+
+        assertEquals(Membership.OUT, state.getMembership());
+        assertEquals(5, state.getDisplayedCount());
+    }
+
+    @Test
+    public void join_cancelledWhilePending_isOutAndIgnoresLateResult() {
+        state.beginJoin();
+
+        assertTrue(state.cancelJoin());
+        assertEquals(Membership.OUT, state.getMembership());
+        assertEquals(5, state.getDisplayedCount());
+        assertFalse(state.isPending());
+
+        // the queued join's outcome arrives after all
+        state.confirm(true);
+        assertEquals(Membership.OUT, state.getMembership());
+        assertEquals(5, state.getDisplayedCount());
+    }
+
+    @Test
+    public void cancelJoin_onlyAppliesToAPendingJoin() {
+        assertFalse(state.cancelJoin());
+
+        state.onServerMembership(true);
+        state.beginLeave();
+        assertFalse(state.cancelJoin());
+        assertEquals(Membership.LEAVING, state.getMembership());
+    }
+
+    @Test
+    public void leave_showsAtOnce_andRollsBackOnFailure() {
+        state.onServerMembership(true);
+
+        assertTrue(state.beginLeave());
+        assertEquals(Membership.LEAVING, state.getMembership());
+        assertEquals(4, state.getDisplayedCount());
+
+        state.rollback();
+        assertEquals(Membership.IN, state.getMembership());
+        assertEquals(5, state.getDisplayedCount());
+    }
+
+    @Test
+    public void leave_confirmed_holdsUntilServerCatchesUp() {
+        state.onServerMembership(true);
+        state.beginLeave();
+        state.confirm(false);
+
+        assertEquals(Membership.OUT, state.getMembership());
+        assertEquals(4, state.getDisplayedCount());
+        state.onServerCount(4);
+        assertEquals(4, state.getDisplayedCount());
+    }
+
+    @Test
+    public void pendingChange_blocksAnotherAndIgnoresServerMembership() {
+        assertTrue(state.beginJoin());
+        assertFalse(state.beginJoin());
+        assertFalse(state.beginLeave());
+
+        state.onServerMembership(false);
+        assertEquals(Membership.JOINING, state.getMembership());
+    }
+
+    @Test
+    public void join_whenAlreadyOnList_isRefusedLocally() {
+        state.onServerMembership(true);
+
+        assertFalse(state.beginJoin());
+        assertEquals(5, state.getDisplayedCount());
+    }
+
+    @Test
+    public void count_unknownUntilServerReports() {
+        WaitingRoomState fresh = new WaitingRoomState(new WaitingRoomLogic());
+
+        assertEquals(-1, fresh.getDisplayedCount());
+        assertFalse(fresh.beginLeave());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks {@link ClusterEngine}'s clusters, and times it at 100k points:
+ * building every zoom level and answering a phone-sized viewport query.
+ * The timing test is ignored in normal runs; run it by hand to compare
+ * changes. Plain JVM; no Android classes involved.
+ */
+public class ClusterEngineBenchmarkTest {
+
+    private static final int POINTS = 100_000;
+    private static final int WARMUP = 3;
+    private static final int RUNS = 10;
+
+    /** Generous limits, so only a large regression fails. */
+    private static final double MAX_BUILD_MS = 3_000;
+    private static final double MAX_QUERY_MS = 50;
+
+    @Test
+    public void clusters_keepEveryPointAtEveryZoom() {
+        ClusterEngine<double[]> engine = engine(randomPoints(5_000, 1));
+
+        for (int zoom = 0; zoom <= ClusterEngine.MAX_ZOOM; zoom++) {
+            int total = 0;
+            for (ClusterEngine.Cluster<double[]> c : engine.getClusters(zoom))
+                total += c.getCount();
+            assertEquals("zoom " + zoom, 5_000, total);
+        }
+    }
+
+    @Test
+    public void clusters_splitAsZoomIncreases() {
+        // Two points ~1 km apart in Edmonton
+        ClusterEngine<double[]> engine = engine(Arrays.asList(
+                new double[] { 53.5461, -113.4938 },
+                new double[] { 53.5461, -113.4788 }));
+
+        assertEquals(1, engine.getClusters(5).size());
+
+        List<ClusterEngine.Cluster<double[]>> close = engine.getClusters(18);
+        assertEquals(2, close.size());
+        assertTrue(close.get(0).isSingle());
+        assertNotNull(close.get(0).getItem());
+    }
+
+    @Test
+    public void cluster_isAtAveragePositionAndHasNoItem() {
+        ClusterEngine<double[]> engine = engine(Arrays.asList(
+                new double[] { 10, 20 },
+                new double[] { 10, 20.001 }));
+
+        ClusterEngine.Cluster<double[]> c = engine.getClusters(3).get(0);
+        assertEquals(2, c.getCount());
+        assertFalse(c.isSingle());
+        assertNull(c.getItem());
+        assertEquals(10, c.getLatitude(), 1e-6);
+        assertEquals(20.0005, c.getLongitude(), 1e-6);
+    }
+
+    @Test
+    public void viewport_returnsOnlyVisibleClusters() {
+        ClusterEngine<double[]> engine = engine(Arrays.asList(
+                new double[] { 53.54, -113.49 },   // Edmonton
+                new double[] { 51.05, -114.07 },   // Calgary
+                new double[] { 48.86, 2.35 }));    // Paris
+
+        List<ClusterEngine.Cluster<double[]>> alberta =
+                engine.getClusters(6, 49, -120, 60, -110);
+        assertEquals(2, alberta.size());
+
+        List<ClusterEngine.Cluster<double[]>> edmonton =
+                engine.getClusters(12, 53.4, -113.7, 53.7, -113.3);
+        assertEquals(1, edmonton.size());
+        assertEquals(53.54, edmonton.get(0).getLatitude(), 1e-6);
+    }
+
+    @Test
+    public void viewport_acrossAntimeridian_findsBothSides() {
+        ClusterEngine<double[]> engine = engine(Arrays.asList(
+                new double[] { -17, 178 },
+                new double[] { -17, -178 },
+                new double[] { -17, 0 }));
+
+        // West edge at 170° E, east edge at 170° W
+        assertEquals(2, engine.getClusters(8, -20, 170, -14, -170).size());
+    }
+
+    @Test
+    @Ignore("Benchmark; run by hand")
+    public void benchmark_100kPoints() {
+        List<double[]> points = randomPoints(POINTS, 42);
+
+        for (int i = 0; i < WARMUP; i++)
+            buildAll(engine(points));
+
+        long buildNs = 0;
+        long queryNs = 0;
+        int shown = 0;
+        for (int i = 0; i < RUNS; i++) {
+            ClusterEngine<double[]> engine = engine(points);
+
+            long t0 = System.nanoTime();
+            buildAll(engine);
+            buildNs += System.nanoTime() - t0;
+
+            // A phone-sized view of Edmonton at city zoom, cache warm
+            t0 = System.nanoTime();
+            shown = engine.getClusters(11.5, 53.35, -113.75, 53.75, -113.25).size();
+            queryNs += System.nanoTime() - t0;
+        }
+
+        double buildMs = buildNs / 1e6 / RUNS;
+        double queryMs = queryNs / 1e6 / RUNS;
+        assertTrue(shown > 0);
+        assertTrue(String.format("all zooms took %.2f ms", buildMs), buildMs < MAX_BUILD_MS);
+        assertTrue(String.format("viewport query took %.3f ms", queryMs), queryMs < MAX_QUERY_MS);
+    }
+
+    private static void buildAll(ClusterEngine<double[]> engine) {
+        for (int zoom = 0; zoom <= ClusterEngine.MAX_ZOOM; zoom++)
+            engine.getClusters(zoom);
+    }
+
+    private static ClusterEngine<double[]> engine(List<double[]> points) {
+        return new ClusterEngine<>(points, p -> p[0], p -> p[1]);
+    }
+
+    /** Half spread over Alberta, half over the world, like a big public event. */
+    private static List<double[]> randomPoints(int n, long seed) {
+        Random random = new Random(seed);
+        List<double[]> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (i % 2 == 0) {
+                points.add(new double[] { 49 + random.nextDouble() * 11, -120 + random.nextDouble() * 10 });
+            } else {
+                points.add(new double[] { -80 + random.nextDouble() * 160, -180 + random.nextDouble() * 360 });
+            }
+        }
+        return points;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CsvWriterTest {
+
+    @Test
+    public void escape_plainFieldUnchanged() {
+        assertEquals("Ada Lovelace", CsvWriter.escape("Ada Lovelace"));
+    }
+
+    @Test
+    public void escape_nullIsEmpty() {
+        assertEquals("", CsvWriter.escape(null));
+    }
+
+    @Test
+    public void escape_quotesCommasQuotesAndLineBreaks() {
+        assertEquals("\"Lovelace, Ada\"", CsvWriter.escape("Lovelace, Ada"));
+        assertEquals("\"say \"\"hi\"\"\"", CsvWriter.escape("say \"hi\""));
+        assertEquals("\"line1\nline2\"", CsvWriter.escape("line1\nline2"));
+        assertEquals("\"a\rb\"", CsvWriter.escape("a\rb"));
+    }
+
+    @Test
+    public void writeRow_separatesFieldsAndEndsWithCrlf() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter csv = new CsvWriter(out);
+
+        csv.writeRow("Name", "Email");
+        csv.writeRow(Arrays.asList("Lovelace, Ada", null));
+        csv.flush();
+
+        assertEquals("Name,Email\r\n\"Lovelace, Ada\",\r\n", out.toString());
+    }
+
+    @Test
+    public void streamConstructor_writesUtf8() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (CsvWriter csv = new CsvWriter(bytes)) {
+            csv.writeRow("Zoë", "東京");
+        }
+
+        assertEquals("Zoë,東京\r\n", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Transaction;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class EntrantContactTest {
+
+    private static DocumentSnapshot membership(String userId, String name, String email, boolean hasEmailField) {
+        DocumentSnapshot doc = mock(DocumentSnapshot.class);
+        when(doc.exists()).thenReturn(true);
+        when(doc.getString("userId")).thenReturn(userId);
+        when(doc.getString(EntrantContact.NAME)).thenReturn(name);
+        when(doc.getString(EntrantContact.EMAIL)).thenReturn(email);
+        when(doc.contains(EntrantContact.EMAIL)).thenReturn(hasEmailField);
+        return doc;
+    }
+
+    private static DocumentSnapshot profile(String fullName, String email) {
+        DocumentSnapshot doc = mock(DocumentSnapshot.class);
+        when(doc.exists()).thenReturn(true);
+        when(doc.getString("fullName")).thenReturn(fullName);
+        when(doc.getString("email")).thenReturn(email);
+        return doc;
+    }
+
+    @Test
+    public void carryOver_prefersMembershipFields_withoutReadingProfile() throws Exception {
+        Transaction tx = mock(Transaction.class);
+        DocumentReference profileRef = mock(DocumentReference.class);
+
+        EntrantContact c = EntrantContact.carryOver(tx,
+                membership("u1", "Ada", "ada@x.com", true), profileRef);
+
+        assertEquals("Ada", c.name);
+        assertEquals("ada@x.com", c.email);
+        verify(tx, never()).get(any(DocumentReference.class));
+    }
+
+    @Test
+    public void carryOver_olderEntryWithOnlyName_readsProfile() throws Exception {
+        // waiting list entries written before emails were copied only have "name"
+        Transaction tx = mock(Transaction.class);
+        DocumentReference profileRef = mock(DocumentReference.class);
+        DocumentSnapshot profile = profile("Ada Lovelace", "ada@x.com");
+        when(tx.get(profileRef)).thenReturn(profile);
+
+        EntrantContact c = EntrantContact.carryOver(tx,
+                membership("u1", "Anonymous User", null, false), profileRef);
+
+        assertEquals("Ada Lovelace", c.name);
+        assertEquals("ada@x.com", c.email);
+    }
+
+    @Test
+    public void carryOver_missingMembership_readsProfile() throws Exception {
+        Transaction tx = mock(Transaction.class);
+        DocumentReference profileRef = mock(DocumentReference.class);
+        DocumentSnapshot missing = mock(DocumentSnapshot.class);
+        when(missing.exists()).thenReturn(false);
+        DocumentSnapshot profile = profile("Grace", "grace@x.com");
+        when(tx.get(profileRef)).thenReturn(profile);
+
+        EntrantContact c = EntrantContact.carryOver(tx, missing, profileRef);
+
+        assertEquals("Grace", c.name);
+    }
+
+    @Test
+    public void putInto_alwaysWritesEmailKey() {
+        Map<String, Object> data = new HashMap<>();
+        new EntrantContact("Ada", null).putInto(data);
+
+        assertEquals("Ada", data.get(EntrantContact.NAME));
+        assertTrue(data.containsKey(EntrantContact.EMAIL));
+    }
+
+    @Test
+    public void resolve_entriesWithContact_needNoProfileLookup() {
+        Task<Map<String, EntrantContact>> task = EntrantContact.resolve(Arrays.asList(
+                membership("u1", "Ada", "ada@x.com", true),
+                membership("u2", "Grace", "grace@x.com", true),
+                membership(null, "No Id", null, true)));
+
+        assertTrue(task.isComplete());
+        assertEquals(2, task.getResult().size());
+        assertEquals("Grace", task.getResult().get("u2").name);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class FirestoreQueryUtilsTest {
+
+    @Test
+    public void chunk_splitsIntoWhereInSizedGroups_inOrder() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 65; i++) {
+            ids.add("event_" + i);
+        }
+
+        List<List<String>> chunks = FirestoreQueryUtils.chunk(ids, FirestoreQueryUtils.MAX_IN_VALUES);
+
+        assertEquals(3, chunks.size());
+        assertEquals(30, chunks.get(0).size());
+        assertEquals(30, chunks.get(1).size());
+        assertEquals(5, chunks.get(2).size());
+        assertEquals("event_0", chunks.get(0).get(0));
+        assertEquals("event_30", chunks.get(1).get(0));
+        assertEquals("event_64", chunks.get(2).get(4));
+    }
+
+    @Test
+    public void chunk_exactMultipleAndEmpty() {
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4)),
+                FirestoreQueryUtils.chunk(Arrays.asList(1, 2, 3, 4), 2));
+        assertTrue(FirestoreQueryUtils.chunk(Collections.emptyList(), 30).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void chunk_rejectsNonPositiveSize() {
+        FirestoreQueryUtils.chunk(Arrays.asList(1, 2), 0);
+    }
+}
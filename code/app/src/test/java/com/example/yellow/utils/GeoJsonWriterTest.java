@@ -0,0 +1,71 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class GeoJsonWriterTest {
+
+    private static Map<String, String> props(String userId, String name) {
+        Map<String, String> p = new LinkedHashMap<>();
+        p.put("userId", userId);
+        p.put("name", name);
+        return p;
+    }
+
+    @Test
+    public void emptyCollection_isValid() throws IOException {
+        StringWriter out = new StringWriter();
+        GeoJsonWriter geo = new GeoJsonWriter(out);
+
+        geo.begin();
+        geo.end();
+        geo.flush();
+
+        assertEquals("{\"type\":\"FeatureCollection\",\"features\":[\n]}\n", out.toString());
+        assertEquals(0, geo.getFeatureCount());
+    }
+
+    @Test
+    public void writePoint_usesLongitudeLatitudeOrder() throws IOException {
+        StringWriter out = new StringWriter();
+        GeoJsonWriter geo = new GeoJsonWriter(out);
+
+        geo.begin();
+        geo.writePoint(53.5, -113.5, props("u1", "Ada"));
+        geo.end();
+        geo.flush();
+
+        String json = out.toString();
+        assertTrue(json.contains("\"coordinates\":[-113.5,53.5]"));
+        assertTrue(json.contains("\"properties\":{\"userId\":\"u1\",\"name\":\"Ada\"}"));
+    }
+
+    @Test
+    public void writePoint_separatesFeaturesWithCommas() throws IOException {
+        StringWriter out = new StringWriter();
+        GeoJsonWriter geo = new GeoJsonWriter(out);
+
+        geo.begin();
+        geo.writePoint(1, 2, props("u1", null));
+        geo.writePoint(3, 4, props("u2", "B"));
+        geo.end();
+        geo.flush();
+
+        String json = out.toString();
+        assertEquals(2, geo.getFeatureCount());
+        assertTrue(json.contains("}},\n{\"type\":\"Feature\""));
+        assertTrue(json.contains("\"name\":null"));
+    }
+
+    @Test
+    public void quote_escapesJsonSpecials() {
+        assertEquals("\"a\\\"b\\\\c\\nd\"", GeoJsonWriter.quote("a\"b\\c\nd"));
+        assertEquals("\"\\u0001\"", GeoJsonWriter.quote("\u0001"));
+    }
+}
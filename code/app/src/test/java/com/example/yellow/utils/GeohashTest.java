@@ -0,0 +1,89 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class GeohashTest {
+
+    @Test
+    public void encode_matchesKnownHashes() {
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("ezs42", Geohash.encode(42.605, -5.603, 5));
+        assertEquals("c3x29", Geohash.encode(53.5461, -113.4938, 5));
+    }
+
+    @Test
+    public void encode_shorterPrecisionIsPrefix() {
+        String full = Geohash.encode(53.5461, -113.4938, Geohash.STORED_PRECISION);
+
+        assertEquals(Geohash.STORED_PRECISION, full.length());
+        assertTrue(full.startsWith(Geohash.encode(53.5461, -113.4938, 6)));
+    }
+
+    @Test
+    public void precisionFor_getsFinerAsViewportShrinks() {
+        assertEquals(1, Geohash.precisionFor(180, 360));
+        int city = Geohash.precisionFor(0.4, 0.5);
+        int block = Geohash.precisionFor(0.004, 0.005);
+
+        assertTrue(city > 1);
+        assertTrue(block > city);
+        assertTrue(block <= Geohash.STORED_PRECISION);
+    }
+
+    @Test
+    public void coveringPrefixes_containEveryPointInViewport() {
+        double south = 53.35, west = -113.75, north = 53.75, east = -113.25;
+        List<String> prefixes = Geohash.coveringPrefixes(south, west, north, east);
+
+        assertTrue(prefixes.size() <= Geohash.MAX_PREFIXES);
+        for (double lat = south; lat <= north; lat += 0.05) {
+            for (double lng = west; lng <= east; lng += 0.05) {
+                assertTrue(lat + "," + lng, covered(prefixes, lat, lng));
+            }
+        }
+        // Calgary is well outside
+        assertFalse(covered(prefixes, 51.05, -114.07));
+    }
+
+    @Test
+    public void coveringPrefixes_acrossAntimeridian_coverBothSides() {
+        List<String> prefixes = Geohash.coveringPrefixes(-20, 170, -14, -170);
+
+        assertTrue(prefixes.size() <= Geohash.MAX_PREFIXES);
+        assertTrue(covered(prefixes, -17, 178));
+        assertTrue(covered(prefixes, -17, -178));
+        assertFalse(covered(prefixes, -17, 0));
+    }
+
+    @Test
+    public void coveringPrefixes_wholeWorld_isOneEmptyPrefix() {
+        List<String> prefixes = Geohash.coveringPrefixes(-85, -180, 85, 180);
+
+        assertEquals(1, prefixes.size());
+        assertEquals("", prefixes.get(0));
+        assertTrue(covered(prefixes, 53.5461, -113.4938));
+        assertTrue(covered(prefixes, -33.86, 151.21));
+    }
+
+    @Test
+    public void rangeEnd_boundsEveryHashWithPrefix() {
+        String end = Geohash.rangeEnd("c3x");
+
+        assertTrue("c3xzzzzzzz".compareTo(end) < 0);
+        assertTrue("c3x".compareTo(end) < 0);
+        assertTrue("c3y".compareTo(end) > 0);
+    }
+
+    private static boolean covered(List<String> prefixes, double lat, double lng) {
+        String hash = Geohash.encode(lat, lng, Geohash.STORED_PRECISION);
+        for (String prefix : prefixes) {
+            if (hash.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+
+import android.location.Location;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class LocationHelperTest {
+
+    private static final long NOW_NANOS = 10_000L * 1_000_000_000L;
+    private static final long MAX_AGE_MS = 2 * 60 * 1000;
+    private static final float MAX_ACCURACY_M = 100f;
+
+    @Test
+    public void isUsable_acceptsRecentAccurateFix() {
+        Location fix = fix(30_000, 20f);
+
+        assertTrue(LocationHelper.isUsable(fix, NOW_NANOS, MAX_AGE_MS, MAX_ACCURACY_M));
+    }
+
+    @Test
+    public void isUsable_rejectsStaleFix() {
+        Location fix = fix(MAX_AGE_MS + 1, 20f);
+
+        assertFalse(LocationHelper.isUsable(fix, NOW_NANOS, MAX_AGE_MS, MAX_ACCURACY_M));
+    }
+
+    @Test
+    public void isUsable_rejectsInaccurateFix() {
+        Location fix = fix(1_000, 500f);
+
+        assertFalse(LocationHelper.isUsable(fix, NOW_NANOS, MAX_AGE_MS, MAX_ACCURACY_M));
+    }
+
+    @Test
+    public void isUsable_acceptsFixWithoutAccuracyAndRejectsNull() {
+        Location fix = fix(1_000, -1f);
+
+        assertTrue(LocationHelper.isUsable(fix, NOW_NANOS, MAX_AGE_MS, MAX_ACCURACY_M));
+        assertFalse(LocationHelper.isUsable(null, NOW_NANOS, MAX_AGE_MS, MAX_ACCURACY_M));
+    }
+
+    /** A fix {@code ageMs} old; a negative accuracy means none reported. */
+    private static Location fix(long ageMs, float accuracy) {
+        Location location = new Location("fused");
+        location.setLatitude(53.5);
+        location.setLongitude(-113.5);
+        location.setElapsedRealtimeNanos(NOW_NANOS - ageMs * 1_000_000);
+        if (accuracy >= 0)
+            location.setAccuracy(accuracy);
+        return location;
+    }
+}
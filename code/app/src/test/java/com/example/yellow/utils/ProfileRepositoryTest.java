@@ -0,0 +1,137 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.MockedStatic;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class ProfileRepositoryTest {
+
+    private MockedStatic<FirebaseFirestore> mockedDbStatic;
+    private CollectionReference mockProfiles;
+
+    @Before
+    public void setUp() {
+        FirebaseFirestore mockDb = mock(FirebaseFirestore.class);
+        mockProfiles = mock(CollectionReference.class);
+
+        mockedDbStatic = mockStatic(FirebaseFirestore.class);
+        mockedDbStatic.when(FirebaseFirestore::getInstance).thenReturn(mockDb);
+        when(mockDb.collection("profiles")).thenReturn(mockProfiles);
+
+        // each whereIn query returns one profile per requested ID
+        when(mockProfiles.whereIn(any(FieldPath.class), anyList())).thenAnswer(inv -> {
+            List<?> ids = inv.getArgument(1);
+            List<DocumentSnapshot> docs = new ArrayList<>();
+            for (Object id : ids) {
+                DocumentSnapshot doc = mock(DocumentSnapshot.class);
+                when(doc.getId()).thenReturn((String) id);
+                when(doc.exists()).thenReturn(true);
+                when(doc.getString("fullName")).thenReturn("Name " + id);
+                docs.add(doc);
+            }
+            QuerySnapshot snap = mock(QuerySnapshot.class);
+            when(snap.getDocuments()).thenReturn(docs);
+
+            Query query = mock(Query.class);
+            when(query.get()).thenReturn(Tasks.forResult(snap));
+            return query;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mockedDbStatic.close();
+    }
+
+    /** Lets the batch window pass and runs the completion callbacks. */
+    private static void flush() {
+        ShadowLooper.idleMainLooper(ProfileRepository.BATCH_WINDOW_MS, TimeUnit.MILLISECONDS);
+        ShadowLooper.idleMainLooper();
+    }
+
+    private static List<String> ids(String prefix, int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(prefix + i);
+        }
+        return ids;
+    }
+
+    @Test
+    public void getAll_resolvesSixtyFiveIdsWithThreeQueries() {
+        Task<Map<String, DocumentSnapshot>> task = ProfileRepository.getInstance()
+                .getAll(ids("batch_", 65));
+        flush();
+
+        assertTrue(task.isSuccessful());
+        assertEquals(65, task.getResult().size());
+        assertEquals("Name batch_64", task.getResult().get("batch_64").getString("fullName"));
+        verify(mockProfiles, times(3)).whereIn(any(FieldPath.class), anyList());
+        verify(mockProfiles, never()).document(anyString());
+    }
+
+    @Test
+    public void getAll_combinesRequestsMadeInTheSameWindow() {
+        ProfileRepository repo = ProfileRepository.getInstance();
+        Task<DocumentSnapshot> first = repo.get("window_a");
+        Task<DocumentSnapshot> second = repo.get("window_b");
+        flush();
+
+        assertEquals("window_a", first.getResult().getId());
+        assertEquals("window_b", second.getResult().getId());
+        verify(mockProfiles, times(1)).whereIn(any(FieldPath.class), anyList());
+    }
+
+    @Test
+    public void getAll_servesRepeatLookupsFromCache_untilInvalidated() {
+        ProfileRepository repo = ProfileRepository.getInstance();
+        List<String> ids = ids("cached_", 5);
+        repo.getAll(ids);
+        flush();
+
+        Task<Map<String, DocumentSnapshot>> again = repo.getAll(ids);
+        assertTrue("cached lookups resolve without waiting", again.isSuccessful());
+        assertEquals(5, again.getResult().size());
+        verify(mockProfiles, times(1)).whereIn(any(FieldPath.class), anyList());
+
+        repo.invalidate("cached_0");
+        Task<Map<String, DocumentSnapshot>> afterEdit = repo.getAll(ids);
+        assertFalse(afterEdit.isComplete());
+        flush();
+
+        assertEquals(5, afterEdit.getResult().size());
+        verify(mockProfiles, times(2)).whereIn(any(FieldPath.class), anyList());
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class QrBitmapCacheKeyTest {
+
+    @Test
+    public void keyFor_isStableAndFileNameSafe() {
+        String a = QrBitmapCache.keyFor("yellow://eventdetails/abc123", 768);
+        String b = QrBitmapCache.keyFor("yellow://eventdetails/abc123", 768);
+
+        assertEquals(a, b);
+        // 64 hex chars of SHA-256, then the size
+        assertTrue(a.matches("[0-9a-f]{64}_768"));
+    }
+
+    @Test
+    public void keyFor_differsByContentAndSize() {
+        String base = QrBitmapCache.keyFor("yellow://eventdetails/abc123", 768);
+
+        assertNotEquals(base, QrBitmapCache.keyFor("yellow://eventdetails/abc124", 768));
+        assertNotEquals(base, QrBitmapCache.keyFor("yellow://eventdetails/abc123", 256));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class QrBitmapCacheTrimTest {
+
+    private static File write(File dir, String name, int bytes, long modified) throws IOException {
+        File f = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(new byte[bytes]);
+        }
+        assertTrue(f.setLastModified(modified));
+        return f;
+    }
+
+    @Test
+    public void trimDisk_deletesOldestUntilUnderCap() throws IOException {
+        File dir = Files.createTempDirectory("qr").toFile();
+        File oldest = write(dir, "a.png", 100, 1_000_000L);
+        File middle = write(dir, "b.png", 100, 2_000_000L);
+        File newest = write(dir, "c.png", 100, 3_000_000L);
+
+        QrBitmapCache.trimDisk(dir, 200);
+
+        assertFalse(oldest.exists());
+        assertTrue(middle.exists());
+        assertTrue(newest.exists());
+    }
+
+    @Test
+    public void trimDisk_underCap_keepsEverything() throws IOException {
+        File dir = Files.createTempDirectory("qr").toFile();
+        File a = write(dir, "a.png", 100, 1_000_000L);
+        File b = write(dir, "b.png", 100, 2_000_000L);
+
+        QrBitmapCache.trimDisk(dir, 1_000);
+
+        assertTrue(a.exists());
+        assertTrue(b.exists());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+
+import android.graphics.Bitmap;
+
+import com.google.zxing.WriterException;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Compares {@link QrUtils#makeQrFast} against the original {@link QrUtils#makeQr}
+ * path: same pixels, and timings at 256, 768 and 2048 px. The timing test is
+ * ignored in normal runs; run it by hand to compare changes. Numbers under
+ * Robolectric are only indicative; the relative gap is what matters.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 33)
+public class QrUtilsRenderBenchmarkTest {
+
+    private static final int[] SIZES = {256, 768, 2048};
+    private static final int WARMUP = 3;
+    private static final int RUNS = 10;
+
+    @Test
+    public void makeQrFast_matchesMakeQrPixelForPixel() throws WriterException {
+        for (int size : SIZES) {
+            String content = "yellow://eventdetails/pixels-" + size;
+            Bitmap slow = QrUtils.makeQr(content, size);
+            Bitmap fast = QrUtils.makeQrFast(content, size);
+
+            assertEquals(slow.getWidth(), fast.getWidth());
+            assertEquals(slow.getHeight(), fast.getHeight());
+
+            int w = slow.getWidth();
+            int h = slow.getHeight();
+            int[] a = new int[w * h];
+            int[] b = new int[w * h];
+            slow.getPixels(a, 0, w, 0, 0, w, h);
+            fast.getPixels(b, 0, w, 0, 0, w, h);
+            assertArrayEquals("pixels differ at " + size + "px", a, b);
+        }
+    }
+
+    @Test
+    public void makeQrFast_returnsCachedBitmapForSameInput() throws WriterException {
+        Bitmap first = QrUtils.makeQrFast("yellow://eventdetails/cached", 512);
+        Bitmap second = QrUtils.makeQrFast("yellow://eventdetails/cached", 512);
+        assertSame(first, second);
+    }
+
+    @Test
+    @Ignore("Benchmark; run by hand")
+    public void benchmark_makeQrVsMakeQrFast() throws WriterException {
+        for (int size : SIZES) {
+            // Unique content per run so the fast path's LRU is not measured
+            for (int i = 0; i < WARMUP; i++) {
+                QrUtils.makeQr("yellow://eventdetails/warm-" + i, size);
+                QrUtils.makeQrFast("yellow://eventdetails/warm-fast-" + size + "-" + i, size);
+            }
+
+            long slowNs = 0;
+            long fastNs = 0;
+            for (int i = 0; i < RUNS; i++) {
+                String content = "yellow://eventdetails/bench-" + size + "-" + i;
+
+                long t0 = System.nanoTime();
+                QrUtils.makeQr(content, size);
+                slowNs += System.nanoTime() - t0;
+
+                t0 = System.nanoTime();
+                QrUtils.makeQrFast(content, size);
+                fastNs += System.nanoTime() - t0;
+            }
+
+            assertTrue(String.format("%dpx: makeQr %.2f ms, makeQrFast %.2f ms",
+                            size, slowNs / 1e6 / RUNS, fastNs / 1e6 / RUNS),
+                    fastNs < slowNs);
+        }
+    }
+}
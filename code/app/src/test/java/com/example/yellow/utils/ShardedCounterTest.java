@@ -0,0 +1,224 @@
+package com.example.yellow.utils;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.EventListener;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ShardedCounterTest {
+
+    private static final int SHARDS = 4;
+
+    private DocumentReference event;
+    private final Map<String, DocumentReference> shardRefs = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        event = mock(DocumentReference.class);
+        CollectionReference counters = mock(CollectionReference.class);
+        DocumentReference counter = mock(DocumentReference.class);
+        CollectionReference shards = mock(CollectionReference.class);
+
+        when(event.collection("counters")).thenReturn(counters);
+        when(counters.document("waitlisted")).thenReturn(counter);
+        when(counter.collection("shards")).thenReturn(shards);
+        when(shards.getPath()).thenReturn("events/e1/counters/waitlisted/shards");
+        when(shards.document(anyString())).thenAnswer(inv ->
+                shardRefs.computeIfAbsent(inv.getArgument(0), id -> mock(DocumentReference.class)));
+    }
+
+    @Test
+    public void shardWithRoom_readsOneShardWhileThereIsRoom() throws Exception {
+        ShardedCounter counter = new ShardedCounter(event, "waitlisted", SHARDS);
+        Transaction tx = mock(Transaction.class);
+        DocumentSnapshot empty = snapshot("count", null);
+        when(tx.get(any(DocumentReference.class))).thenReturn(empty);
+
+        int shard = counter.shardWithRoom(tx, snapshot("waitlisted", 7L), 100);
+
+        assertTrue(shard >= 0 && shard < SHARDS);
+        verify(tx, times(1)).get(any(DocumentReference.class));
+        verify(tx).get(counter.shard(shard));
+    }
+
+    @Test
+    public void shardWithRoom_movesPastFullShards() throws Exception {
+        ShardedCounter counter = new ShardedCounter(event, "waitlisted", SHARDS);
+        Transaction tx = mock(Transaction.class);
+        // cap 10 less legacy 2 leaves 8: two per shard; only shard 2 has room
+        for (int i = 0; i < SHARDS; i++) {
+            DocumentSnapshot shardDoc = snapshot("count", i == 2 ? 1L : 2L);
+            when(tx.get(counter.shard(i))).thenReturn(shardDoc);
+        }
+
+        for (int attempt = 0; attempt < 20; attempt++) {
+            assertEquals(2, counter.shardWithRoom(tx, snapshot("waitlisted", 2L), 10));
+        }
+    }
+
+    @Test
+    public void shardWithRoom_atCap_isMinusOne() throws Exception {
+        ShardedCounter counter = new ShardedCounter(event, "waitlisted", SHARDS);
+        Transaction tx = mock(Transaction.class);
+        for (int i = 0; i < SHARDS; i++) {
+            DocumentSnapshot shardDoc = snapshot("count", i < 2 ? 3L : 2L);
+            when(tx.get(counter.shard(i))).thenReturn(shardDoc);
+        }
+
+        // slices of 10 are 3, 3, 2, 2, all taken
+        assertEquals(-1, counter.shardWithRoom(tx, snapshot("waitlisted", null), 10));
+    }
+
+    @Test
+    public void shardWithRoom_decrementedShardHasRoom() throws Exception {
+        ShardedCounter counter = new ShardedCounter(event, "waitlisted", SHARDS);
+        Transaction tx = mock(Transaction.class);
+        // a leave landed on shard 3, whose slice of a cap of 2 is empty
+        for (int i = 0; i < SHARDS; i++) {
+            DocumentSnapshot shardDoc = snapshot("count", i == 3 ? -1L : i < 2 ? 1L : 0L);
+            when(tx.get(counter.shard(i))).thenReturn(shardDoc);
+        }
+
+        assertEquals(3, counter.shardWithRoom(tx, snapshot("waitlisted", null), 2));
+    }
+
+    @Test
+    public void shardWithRoom_legacyAtCap_readsNoShard() throws Exception {
+        ShardedCounter counter = new ShardedCounter(event, "waitlisted", SHARDS);
+        Transaction tx = mock(Transaction.class);
+
+        assertEquals(-1, counter.shardWithRoom(tx, snapshot("waitlisted", 5L), 5));
+        verify(tx, never()).get(any(DocumentReference.class));
+    }
+
+    @Test
+    public void slice_splitsRoomAcrossShards() {
+        ShardedCounter counter = new ShardedCounter(event, "waitlisted", SHARDS);
+
+        long total = 0;
+        for (int i = 0; i < SHARDS; i++) {
+            total += counter.slice(10, i);
+        }
+        assertEquals(10, total);
+        assertEquals(3, counter.slice(10, 0));
+        assertEquals(2, counter.slice(10, 3));
+        assertEquals(0, counter.slice(2, 3));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void incrementShard_writesOnlyThatShard() {
+        ShardedCounter counter = new ShardedCounter(event, "waitlisted", SHARDS);
+        Transaction tx = mock(Transaction.class);
+
+        counter.increment(tx, 2, 1);
+
+        verify(tx).set(eq(counter.shard(2)), any(Map.class), any(SetOptions.class));
+        verifyNoMoreInteractions(tx);
+    }
+
+    @Test
+    public void sum_treatsMissingCountsAsZero() {
+        List<DocumentSnapshot> docs = Arrays.asList(
+                snapshot("count", 5L), snapshot("count", null), snapshot("count", -2L));
+
+        assertEquals(3L, ShardedCounter.sum(docs));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void increment_spreadsWritesOverShardsOnly() {
+        ShardedCounter counter = new ShardedCounter(event, "waitlisted", SHARDS);
+        WriteBatch batch = mock(WriteBatch.class);
+
+        for (int i = 0; i < 200; i++) {
+            counter.increment(batch, 1);
+        }
+
+        ArgumentCaptor<DocumentReference> refs = ArgumentCaptor.forClass(DocumentReference.class);
+        verify(batch, times(200)).set(refs.capture(), any(Map.class), any(SetOptions.class));
+
+        Set<DocumentReference> written = new HashSet<>(refs.getAllValues());
+        assertTrue(shardRefs.values().containsAll(written));
+        // 200 random picks over 4 shards all landing on one is vanishingly unlikely
+        assertTrue(written.size() > 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void reset_setsLegacyFieldAndZeroesEveryShard() {
+        ShardedCounter counter = new ShardedCounter(event, "waitlisted", SHARDS);
+        WriteBatch batch = mock(WriteBatch.class);
+
+        counter.reset(batch, 12);
+
+        ArgumentCaptor<Map<String, Object>> legacy = ArgumentCaptor.forClass(Map.class);
+        verify(batch).set(eq(event), legacy.capture(), any(SetOptions.class));
+        assertEquals(12L, legacy.getValue().get("waitlisted"));
+        for (int i = 0; i < SHARDS; i++) {
+            ArgumentCaptor<Map<String, Object>> shard = ArgumentCaptor.forClass(Map.class);
+            verify(batch).set(eq(counter.shard(i)), shard.capture());
+            assertEquals(0L, shard.getValue().get("count"));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void addValueListener_reportsErrorOnce() {
+        ShardedCounter counter = new ShardedCounter(event, "waitlisted", SHARDS);
+        CollectionReference shards = event.collection("counters").document("waitlisted").collection("shards");
+        ArgumentCaptor<EventListener<DocumentSnapshot>> parentListener =
+                ArgumentCaptor.forClass(EventListener.class);
+        ArgumentCaptor<EventListener<QuerySnapshot>> shardsListener =
+                ArgumentCaptor.forClass(EventListener.class);
+        when(event.addSnapshotListener(parentListener.capture()))
+                .thenReturn(mock(ListenerRegistration.class));
+        when(shards.addSnapshotListener(shardsListener.capture()))
+                .thenReturn(mock(ListenerRegistration.class));
+
+        ShardedCounter.ValueListener listener = mock(ShardedCounter.ValueListener.class);
+        counter.addValueListener(listener);
+
+        FirebaseFirestoreException denied = mock(FirebaseFirestoreException.class);
+        parentListener.getValue().onEvent(null, denied);
+        shardsListener.getValue().onEvent(null, denied);
+
+        verify(listener, times(1)).onError(denied);
+        verify(listener, never()).onValue(anyLong());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNonPositiveShardCount() {
+        new ShardedCounter(event, "waitlisted", 0);
+    }
+
+    private static DocumentSnapshot snapshot(String field, Long value) {
+        DocumentSnapshot doc = mock(DocumentSnapshot.class);
+        when(doc.getLong(field)).thenReturn(value);
+        return doc;
+    }
+}